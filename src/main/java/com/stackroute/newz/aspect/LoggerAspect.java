@@ -28,6 +28,10 @@ public class LoggerAspect {
 	 * Write loggers for each of the methods of controller, any particular method
 	 * will have all the four aspectJ annotation
 	 * (@Before, @After, @AfterReturning, @AfterThrowing).
+	 * 
+	 * They run on every controller call. The message is formatted by the logger,
+	 * only when DEBUG is on, and the signature of the join point is not even
+	 * asked for otherwise.
 	 */
 	@Bean
 	public LoggerAspect getAspect() {
@@ -36,18 +40,26 @@ public class LoggerAspect {
 	
 	@Before("execution(* com.stackroute.newz.controller.*.*(..)))")
 	public void beforeAdviceImplMethod(JoinPoint jp){
-		logger.debug("Executing beforeAdviceImplMethod() "+ jp.getSignature().getName());
+		if (logger.isDebugEnabled()) {
+			logger.debug("Executing beforeAdviceImplMethod() {}", jp.getSignature().getName());
+		}
 	}
 	@After("execution(* com.stackroute.newz.controller.*.*(..)))")
 	public void afterAdviceImplMethod(JoinPoint jp){
-		logger.debug("Executing afterAdviceImplMethod() "+ jp.getSignature().getName());
+		if (logger.isDebugEnabled()) {
+			logger.debug("Executing afterAdviceImplMethod() {}", jp.getSignature().getName());
+		}
 	}
 	@AfterReturning("execution(* com.stackroute.newz.controller.*.*(..)))")
 	public void afterReturningAdviceImplMethod(JoinPoint jp){
-		logger.debug("Executing afterReturningAdviceImplMethod() "+ jp.getSignature().getName());
+		if (logger.isDebugEnabled()) {
+			logger.debug("Executing afterReturningAdviceImplMethod() {}", jp.getSignature().getName());
+		}
 	}
 	@AfterThrowing("execution(* com.stackroute.newz.controller.*.*(..)))")
 	public void afterThrowingAdviceImplMethod(JoinPoint jp){
-		logger.debug("Executing afterThrowingAdviceImplMethod() "+ jp.getSignature().getName());
+		if (logger.isDebugEnabled()) {
+			logger.debug("Executing afterThrowingAdviceImplMethod() {}", jp.getSignature().getName());
+		}
 	}
 }
@@ -0,0 +1,35 @@
+package com.stackroute.newz.aspect;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+import com.stackroute.newz.management.RequestTiming;
+
+/*
+ * Adds the time of the methods it is applied to, see ServerTimingConfig for
+ * which, to one layer of the RequestTiming of the current request. Outside of
+ * a timed request it only calls the method.
+ */
+public class ServerTimingInterceptor implements MethodInterceptor {
+
+	private final RequestTiming.Layer layer;
+
+	public ServerTimingInterceptor(RequestTiming.Layer layer) {
+		this.layer = layer;
+	}
+
+	@Override
+	public Object invoke(MethodInvocation invocation) throws Throwable {
+		RequestTiming timing = RequestTiming.current();
+		if (timing == null) {
+			return invocation.proceed();
+		}
+		long entered = timing.enter(layer);
+		try {
+			return invocation.proceed();
+		} finally {
+			timing.exit(layer, entered);
+		}
+	}
+
+}
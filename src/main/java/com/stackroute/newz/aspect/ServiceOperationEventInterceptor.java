@@ -0,0 +1,83 @@
+package com.stackroute.newz.aspect;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.util.ClassUtils;
+
+import com.stackroute.newz.management.ServiceOperationEvent;
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.Reminder;
+import com.stackroute.newz.model.UserProfile;
+
+/*
+ * Emits a ServiceOperationEvent per call of the methods it is applied to, see
+ * FlightRecordingConfig for which. While no recording takes the event this is
+ * one check of a flag on an event shared by all calls, nothing is allocated.
+ * An event of its own is only created while the event type is enabled, and
+ * its fields are only filled in if it is committed.
+ */
+public class ServiceOperationEventInterceptor implements MethodInterceptor {
+
+	private static final String SERVICE_IMPL = "ServiceImpl";
+
+	/*
+	 * Never begun nor committed, only asked whether the event type is enabled
+	 */
+	private static final ServiceOperationEvent TYPE = new ServiceOperationEvent();
+
+	@Override
+	public Object invoke(MethodInvocation invocation) throws Throwable {
+		if (!TYPE.isEnabled()) {
+			return invocation.proceed();
+		}
+		ServiceOperationEvent event = new ServiceOperationEvent();
+		Object result = null;
+		String outcome = "success";
+		event.begin();
+		try {
+			result = invocation.proceed();
+			return result;
+		} catch (Throwable failure) {
+			outcome = failure.getClass().getSimpleName();
+			throw failure;
+		} finally {
+			event.end();
+			if (event.shouldCommit()) {
+				String type = ClassUtils.getUserClass(invocation.getThis()).getSimpleName();
+				event.entityType = type.endsWith(SERVICE_IMPL) ? type.substring(0, type.length() - SERVICE_IMPL.length())
+						: type;
+				event.operation = invocation.getMethod().getName();
+				event.entityId = entityId(invocation.getArguments(), result);
+				event.outcome = outcome;
+				event.commit();
+			}
+		}
+	}
+
+	/*
+	 * The id argument, or else the id of the entity returned, or else of the
+	 * entity given
+	 */
+	private static String entityId(Object[] arguments, Object result) {
+		Object first = arguments.length == 0 ? null : arguments[0];
+		if (first instanceof Number || first instanceof CharSequence) {
+			return first.toString();
+		}
+		String id = idOf(result);
+		return id != null ? id : idOf(first);
+	}
+
+	private static String idOf(Object entity) {
+		if (entity instanceof News) {
+			return Integer.toString(((News) entity).getNewsId());
+		}
+		if (entity instanceof Reminder) {
+			return Integer.toString(((Reminder) entity).getReminderId());
+		}
+		if (entity instanceof UserProfile) {
+			return ((UserProfile) entity).getUserId();
+		}
+		return null;
+	}
+
+}
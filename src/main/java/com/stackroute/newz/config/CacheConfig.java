@@ -0,0 +1,93 @@
+package com.stackroute.newz.config;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.support.NoOpCache;
+import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.stackroute.newz.util.NegativeCache;
+
+/*
+ * Read-through caches in front of the entity lookups of the service layer.
+ * 
+ * Every region is a size bounded Caffeine cache. Caffeine evicts with W-TinyLFU,
+ * which keeps the few hot entities resident even when a scan of cold ids passes
+ * through. Statistics are recorded so that hits, misses and evictions are
+ * published by actuator under the "cache.*" metrics.
+ * 
+ * A region that is disabled is still registered, as a no-op cache, so the
+ * @Cacheable annotations on the services keep working and simply always load.
+ * 
+ * Not found results cannot go through @Cacheable, they are exceptions. They are
+ * kept apart in the NegativeCache, with a much shorter TTL.
+ * 
+ * A result read from the read replica is returned but not cached, the replica
+ * may not have caught up with the last write, see ReadWriteRoutingDataSource.
+ * The @Cacheable annotations say so with unless = READ_FROM_REPLICA.
+ */
+@Configuration
+@EnableCaching
+@EnableConfigurationProperties(EntityCacheProperties.class)
+public class CacheConfig {
+
+	public static final String NEWS = "news";
+	public static final String REMINDER = "reminder";
+	public static final String USER_PROFILE = "userProfile";
+
+	public static final String READ_FROM_REPLICA = "T(com.stackroute.newz.config.ReadWriteRoutingDataSource).isReadingReplica()";
+
+	private static final String[] REGIONS = { NEWS, REMINDER, USER_PROFILE };
+
+	@Bean
+	public CacheManager cacheManager(EntityCacheProperties properties) {
+		List<Cache> caches = new ArrayList<>();
+		for (String name : REGIONS) {
+			caches.add(buildCache(name, region(properties, name)));
+		}
+		SimpleCacheManager cacheManager = new SimpleCacheManager();
+		cacheManager.setCaches(caches);
+		return cacheManager;
+	}
+
+	@Bean
+	public NegativeCache negativeCache(EntityCacheProperties properties) {
+		Map<String, com.github.benmanes.caffeine.cache.Cache<Object, Boolean>> regions = new HashMap<>();
+		for (String name : REGIONS) {
+			EntityCacheProperties.Region region = region(properties, name);
+			if (region.isEnabled() && !region.getNegativeExpireAfterWrite().isZero()) {
+				regions.put(name, Caffeine.newBuilder()
+						.maximumSize(region.getNegativeMaximumSize())
+						.expireAfterWrite(region.getNegativeExpireAfterWrite())
+						.build());
+			}
+		}
+		return new NegativeCache(regions);
+	}
+
+	private EntityCacheProperties.Region region(EntityCacheProperties properties, String name) {
+		return properties.getRegions().getOrDefault(name, new EntityCacheProperties.Region());
+	}
+
+	private Cache buildCache(String name, EntityCacheProperties.Region region) {
+		if (!region.isEnabled()) {
+			return new NoOpCache(name);
+		}
+		return new CaffeineCache(name, Caffeine.newBuilder()
+				.maximumSize(region.getMaximumSize())
+				.expireAfterWrite(region.getExpireAfterWrite())
+				.recordStats()
+				.build(), false);
+	}
+
+}
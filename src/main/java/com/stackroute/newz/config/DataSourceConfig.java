@@ -0,0 +1,136 @@
+package com.stackroute.newz.config;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.JpaProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.AbstractEntityManagerFactoryBean;
+import org.springframework.orm.jpa.JpaVendorAdapter;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+
+/*
+ * Connection pools of the primary database, from the usual spring.datasource.*
+ * settings, and of an optional read replica, from newz.datasource.replica.*
+ * which takes the Hikari property names, e.g.
+ *
+ * newz.datasource.replica.jdbc-url=jdbc:mysql://replica:3306/newz
+ * newz.datasource.replica.username=newz
+ * newz.datasource.replica.password=secret
+ * newz.datasource.replica.maximum-pool-size=20
+ *
+ * The only DataSource bean is the routing one, which sends the statements of
+ * @Transactional(readOnly = true) service methods to the replica. Without a
+ * replica every route leads to the primary. The pools are not beans of their
+ * own, so they are closed here.
+ *
+ * What is read from the replica is not cached, see ReadWriteRoutingDataSource.
+ * The JpaVendorAdapter is the one Spring Boot would set up, with the
+ * ReadWriteRoutingJpaDialect in place of the plain HibernateJpaDialect.
+ */
+@Configuration
+public class DataSourceConfig {
+
+	private final List<HikariDataSource> pools = new ArrayList<>();
+
+	@Bean
+	@ConfigurationProperties("spring.datasource.hikari")
+	public HikariConfig primaryPoolConfig(DataSourceProperties properties) {
+		HikariConfig config = new HikariConfig();
+		config.setPoolName("primary");
+		config.setDriverClassName(properties.determineDriverClassName());
+		config.setJdbcUrl(properties.determineUrl());
+		config.setUsername(properties.determineUsername());
+		config.setPassword(properties.determinePassword());
+		return config;
+	}
+
+	@Bean
+	@ConditionalOnProperty("newz.datasource.replica.jdbc-url")
+	@ConfigurationProperties("newz.datasource.replica")
+	public HikariConfig replicaPoolConfig() {
+		HikariConfig config = new HikariConfig();
+		config.setPoolName("replica");
+		config.setReadOnly(true);
+		return config;
+	}
+
+	@Bean
+	public DataSource dataSource(@Qualifier("primaryPoolConfig") HikariConfig primaryConfig,
+			@Qualifier("replicaPoolConfig") ObjectProvider<HikariConfig> replicaConfig) {
+		DataSource primary = pool(primaryConfig);
+		HikariConfig replica = replicaConfig.getIfAvailable();
+		return new LazyConnectionDataSourceProxy(
+				new ReadWriteRoutingDataSource(primary, replica == null ? primary : pool(replica)));
+	}
+
+	@Bean
+	public JpaVendorAdapter jpaVendorAdapter(JpaProperties properties, DataSource dataSource) throws SQLException {
+		HibernateJpaDialect dialect = new ReadWriteRoutingJpaDialect(
+				dataSource.unwrap(ReadWriteRoutingDataSource.class));
+		HibernateJpaVendorAdapter adapter = new HibernateJpaVendorAdapter() {
+			@Override
+			public HibernateJpaDialect getJpaDialect() {
+				return dialect;
+			}
+		};
+		adapter.setShowSql(properties.isShowSql());
+		if (properties.getDatabase() != null) {
+			adapter.setDatabase(properties.getDatabase());
+		}
+		if (properties.getDatabasePlatform() != null) {
+			adapter.setDatabasePlatform(properties.getDatabasePlatform());
+		}
+		adapter.setGenerateDdl(properties.isGenerateDdl());
+		return adapter;
+	}
+
+	/*
+	 * Seeds news_seq as soon as the EntityManagerFactory has created or updated
+	 * the schema, before any repository can insert a news
+	 */
+	@Bean
+	public static BeanPostProcessor newsSequenceSeederPostProcessor() {
+		return new BeanPostProcessor() {
+
+			@Override
+			public Object postProcessAfterInitialization(Object bean, String beanName) {
+				if (bean instanceof AbstractEntityManagerFactoryBean) {
+					new NewsSequenceSeeder(((AbstractEntityManagerFactoryBean) bean).getDataSource()).seed();
+				}
+				return bean;
+			}
+
+		};
+	}
+
+	private DataSource pool(HikariConfig config) {
+		HikariDataSource pool = new HikariDataSource(config);
+		pools.add(pool);
+		return pool;
+	}
+
+	@PreDestroy
+	public void closePools() {
+		for (HikariDataSource pool : pools) {
+			pool.close();
+		}
+	}
+
+}
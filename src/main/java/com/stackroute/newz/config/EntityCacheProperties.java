@@ -0,0 +1,88 @@
+package com.stackroute.newz.config;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/*
+ * Settings of the in-process entity caches, bound from the "newz.cache" prefix.
+ * There is one region per entity, keyed by the cache name, e.g.
+ * 
+ * newz.cache.regions.news.enabled=true
+ * newz.cache.regions.news.maximum-size=10000
+ * newz.cache.regions.news.expire-after-write=10m
+ * newz.cache.regions.news.negative-expire-after-write=30s
+ * 
+ * The negative settings size the NegativeCache region of the same entity, a zero
+ * TTL turns it off.
+ */
+@ConfigurationProperties(prefix = "newz.cache")
+public class EntityCacheProperties {
+
+	private Map<String, Region> regions = new HashMap<>();
+
+	public Map<String, Region> getRegions() {
+		return regions;
+	}
+
+	public void setRegions(Map<String, Region> regions) {
+		this.regions = regions;
+	}
+
+	/*
+	 * Settings of a single cache region. A region that is not configured at all
+	 * uses these defaults.
+	 */
+	public static class Region {
+
+		private boolean enabled = true;
+		private long maximumSize = 10000;
+		private Duration expireAfterWrite = Duration.ofMinutes(10);
+		private long negativeMaximumSize = 100000;
+		private Duration negativeExpireAfterWrite = Duration.ofSeconds(30);
+
+		public boolean isEnabled() {
+			return enabled;
+		}
+
+		public void setEnabled(boolean enabled) {
+			this.enabled = enabled;
+		}
+
+		public long getMaximumSize() {
+			return maximumSize;
+		}
+
+		public void setMaximumSize(long maximumSize) {
+			this.maximumSize = maximumSize;
+		}
+
+		public Duration getExpireAfterWrite() {
+			return expireAfterWrite;
+		}
+
+		public void setExpireAfterWrite(Duration expireAfterWrite) {
+			this.expireAfterWrite = expireAfterWrite;
+		}
+
+		public long getNegativeMaximumSize() {
+			return negativeMaximumSize;
+		}
+
+		public void setNegativeMaximumSize(long negativeMaximumSize) {
+			this.negativeMaximumSize = negativeMaximumSize;
+		}
+
+		public Duration getNegativeExpireAfterWrite() {
+			return negativeExpireAfterWrite;
+		}
+
+		public void setNegativeExpireAfterWrite(Duration negativeExpireAfterWrite) {
+			this.negativeExpireAfterWrite = negativeExpireAfterWrite;
+		}
+
+	}
+
+}
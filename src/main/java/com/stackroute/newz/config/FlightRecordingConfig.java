@@ -0,0 +1,35 @@
+package com.stackroute.newz.config;
+
+import org.springframework.aop.Advisor;
+import org.springframework.aop.aspectj.AspectJExpressionPointcut;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import com.stackroute.newz.aspect.ServiceOperationEventInterceptor;
+
+/*
+ * Binds the settings of the flight recorder support and applies the
+ * ServiceOperationEventInterceptor to the public methods of the *ServiceImpl
+ * classes, around their transaction so that the commit is part of the event.
+ */
+@Configuration
+@EnableConfigurationProperties(FlightRecordingProperties.class)
+public class FlightRecordingConfig {
+
+	public static final String SERVICE_OPERATIONS = "execution(public * com.stackroute.newz.service.*ServiceImpl.*(..))";
+
+	@Bean
+	@ConditionalOnProperty(prefix = "newz.jfr", name = "events-enabled", matchIfMissing = true)
+	public Advisor serviceOperationEventAdvisor() {
+		AspectJExpressionPointcut pointcut = new AspectJExpressionPointcut();
+		pointcut.setExpression(SERVICE_OPERATIONS);
+		DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(pointcut, new ServiceOperationEventInterceptor());
+		advisor.setOrder(Ordered.HIGHEST_PRECEDENCE + 2);
+		return advisor;
+	}
+
+}
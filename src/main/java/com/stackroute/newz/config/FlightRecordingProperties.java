@@ -0,0 +1,59 @@
+package com.stackroute.newz.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/*
+ * Settings of the flight recorder events and of the flightrecording endpoint,
+ * bound from the "newz.jfr" prefix.
+ *
+ * newz.jfr.events-enabled=true
+ * newz.jfr.token=
+ * newz.jfr.default-duration=30s
+ * newz.jfr.max-duration=5m
+ *
+ * The endpoint exists only when a token is set, and every recording asked
+ * for has to present it.
+ */
+@ConfigurationProperties(prefix = "newz.jfr")
+public class FlightRecordingProperties {
+
+	private boolean eventsEnabled = true;
+	private String token;
+	private Duration defaultDuration = Duration.ofSeconds(30);
+	private Duration maxDuration = Duration.ofMinutes(5);
+
+	public boolean isEventsEnabled() {
+		return eventsEnabled;
+	}
+
+	public void setEventsEnabled(boolean eventsEnabled) {
+		this.eventsEnabled = eventsEnabled;
+	}
+
+	public String getToken() {
+		return token;
+	}
+
+	public void setToken(String token) {
+		this.token = token;
+	}
+
+	public Duration getDefaultDuration() {
+		return defaultDuration;
+	}
+
+	public void setDefaultDuration(Duration defaultDuration) {
+		this.defaultDuration = defaultDuration;
+	}
+
+	public Duration getMaxDuration() {
+		return maxDuration;
+	}
+
+	public void setMaxDuration(Duration maxDuration) {
+		this.maxDuration = maxDuration;
+	}
+
+}
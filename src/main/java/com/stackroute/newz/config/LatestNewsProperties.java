@@ -0,0 +1,40 @@
+package com.stackroute.newz.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/*
+ * Settings of the latest news snapshot, bound from the "newz.news.latest"
+ * prefix.
+ *
+ * newz.news.latest.size=20
+ * newz.news.latest.refresh-interval=1m
+ *
+ * size is the number of news in the snapshot. The rows are read again every
+ * refresh-interval, which is how writes made by other instances get in, 0 turns
+ * that off.
+ */
+@ConfigurationProperties(prefix = "newz.news.latest")
+public class LatestNewsProperties {
+
+	private int size = 20;
+	private Duration refreshInterval = Duration.ofMinutes(1);
+
+	public int getSize() {
+		return size;
+	}
+
+	public void setSize(int size) {
+		this.size = size;
+	}
+
+	public Duration getRefreshInterval() {
+		return refreshInterval;
+	}
+
+	public void setRefreshInterval(Duration refreshInterval) {
+		this.refreshInterval = refreshInterval;
+	}
+
+}
@@ -0,0 +1,40 @@
+package com.stackroute.newz.config;
+
+import org.springframework.aop.Advisor;
+import org.springframework.aop.aspectj.AspectJExpressionPointcut;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import com.stackroute.newz.aspect.MethodMetricsInterceptor;
+import com.stackroute.newz.management.MethodMetrics;
+
+/*
+ * Binds the settings of MethodMetrics and applies the MethodMetricsInterceptor
+ * to the methods of the controllers and of the @Service classes.
+ *
+ * The interceptor comes first, so that the time measured includes the
+ * transaction and the caching around a service method: a cache hit is a fast
+ * call, not a missing one.
+ */
+@Configuration
+@EnableConfigurationProperties(MethodMetricsProperties.class)
+public class MethodMetricsConfig {
+
+	public static final String TIMED_METHODS = "@within(org.springframework.web.bind.annotation.RestController)"
+			+ " || @within(org.springframework.stereotype.Service)";
+
+	@Bean
+	@ConditionalOnProperty(prefix = "newz.metrics", name = "enabled", matchIfMissing = true)
+	public Advisor methodMetricsAdvisor(MethodMetrics metrics) {
+		AspectJExpressionPointcut pointcut = new AspectJExpressionPointcut();
+		pointcut.setExpression(TIMED_METHODS);
+		DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(pointcut, new MethodMetricsInterceptor(metrics));
+		advisor.setOrder(Ordered.HIGHEST_PRECEDENCE);
+		return advisor;
+	}
+
+}
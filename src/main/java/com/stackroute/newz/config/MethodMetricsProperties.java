@@ -0,0 +1,60 @@
+package com.stackroute.newz.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/*
+ * Settings of the latency histograms of the controller and service methods,
+ * bound from the "newz.metrics" prefix.
+ *
+ * newz.metrics.enabled=true
+ * newz.metrics.window=5m
+ * newz.metrics.window-slots=5
+ * newz.metrics.significant-digits=2
+ *
+ * The percentiles are those of the calls of the last window, which moves on
+ * by window / window-slots at a time. significant-digits is the precision of
+ * the recorded latencies, 2 keeps them within 1%.
+ */
+@ConfigurationProperties(prefix = "newz.metrics")
+public class MethodMetricsProperties {
+
+	private boolean enabled = true;
+	private Duration window = Duration.ofMinutes(5);
+	private int windowSlots = 5;
+	private int significantDigits = 2;
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public Duration getWindow() {
+		return window;
+	}
+
+	public void setWindow(Duration window) {
+		this.window = window;
+	}
+
+	public int getWindowSlots() {
+		return windowSlots;
+	}
+
+	public void setWindowSlots(int windowSlots) {
+		this.windowSlots = windowSlots;
+	}
+
+	public int getSignificantDigits() {
+		return significantDigits;
+	}
+
+	public void setSignificantDigits(int significantDigits) {
+		this.significantDigits = significantDigits;
+	}
+
+}
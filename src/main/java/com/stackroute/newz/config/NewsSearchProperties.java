@@ -0,0 +1,71 @@
+package com.stackroute.newz.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/*
+ * Settings of the full-text search index of the news, bound from the
+ * "newz.news.search" prefix.
+ *
+ * newz.news.search.enabled=true
+ * newz.news.search.persist=true
+ * newz.news.search.index-file=index/news-search.index
+ * newz.news.search.snapshot-interval=5m
+ * newz.news.search.fetch-size=500
+ *
+ * With persist, the index is written to index-file every snapshot-interval if
+ * it changed, and on shutdown, and read back on start: only the news changed
+ * since are read from the database. fetch-size is the number of rows read per
+ * round-trip while the index is brought up to date.
+ */
+@ConfigurationProperties(prefix = "newz.news.search")
+public class NewsSearchProperties {
+
+	private boolean enabled = true;
+	private boolean persist = true;
+	private String indexFile = "index/news-search.index";
+	private Duration snapshotInterval = Duration.ofMinutes(5);
+	private int fetchSize = 500;
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public boolean isPersist() {
+		return persist;
+	}
+
+	public void setPersist(boolean persist) {
+		this.persist = persist;
+	}
+
+	public String getIndexFile() {
+		return indexFile;
+	}
+
+	public void setIndexFile(String indexFile) {
+		this.indexFile = indexFile;
+	}
+
+	public Duration getSnapshotInterval() {
+		return snapshotInterval;
+	}
+
+	public void setSnapshotInterval(Duration snapshotInterval) {
+		this.snapshotInterval = snapshotInterval;
+	}
+
+	public int getFetchSize() {
+		return fetchSize;
+	}
+
+	public void setFetchSize(int fetchSize) {
+		this.fetchSize = fetchSize;
+	}
+
+}
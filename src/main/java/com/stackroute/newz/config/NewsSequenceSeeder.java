@@ -0,0 +1,70 @@
+package com.stackroute.newz.config;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/*
+ * Moves the news id generator past the ids already in the news table.
+ *
+ * On MySQL, which has no sequences, Hibernate keeps the next value of news_seq
+ * in a table of that name, and creates it with next_val = 1 on a schema that
+ * already holds news inserted with IDENTITY ids. Without the seeding the first
+ * inserts would be handed ids of existing news. next_val is only ever raised,
+ * to one allocation past MAX(news_id) as Hibernate hands out the block below
+ * the value it reads, so running it on every start, or on several instances at
+ * once, wastes a few ids at most.
+ *
+ * Databases with real sequences have no news_seq table and are left alone.
+ */
+public class NewsSequenceSeeder {
+
+	private static final Logger logger = LoggerFactory.getLogger(NewsSequenceSeeder.class);
+
+	public static final String TABLE = "news_seq";
+
+	/*
+	 * allocationSize of the generator of News.newsId
+	 */
+	public static final int ALLOCATION_SIZE = 50;
+
+	private final JdbcTemplate jdbc;
+
+	public NewsSequenceSeeder(DataSource dataSource) {
+		this.jdbc = new JdbcTemplate(dataSource);
+	}
+
+	/*
+	 * The next_val set, or 0 if there is no news_seq table or it was already
+	 * past the news
+	 */
+	public long seed() {
+		if (!Boolean.TRUE.equals(jdbc.execute(NewsSequenceSeeder::hasTable))) {
+			return 0;
+		}
+		Long maxId = jdbc.queryForObject("select coalesce(max(news_id), 0) from news", Long.class);
+		long nextVal = maxId + 1 + ALLOCATION_SIZE;
+		int updated = jdbc.update("update " + TABLE + " set next_val = ? where next_val < ?", nextVal, nextVal);
+		if (updated == 0) {
+			return 0;
+		}
+		logger.info("{} moved to {}, past news id {}", TABLE, nextVal, maxId);
+		return nextVal;
+	}
+
+	private static boolean hasTable(Connection connection) throws SQLException {
+		DatabaseMetaData metaData = connection.getMetaData();
+		String name = metaData.storesUpperCaseIdentifiers() ? TABLE.toUpperCase() : TABLE;
+		try (ResultSet tables = metaData.getTables(connection.getCatalog(), null, name, new String[] { "TABLE" })) {
+			return tables.next();
+		}
+	}
+
+}
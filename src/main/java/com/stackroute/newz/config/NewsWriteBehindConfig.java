@@ -0,0 +1,13 @@
+package com.stackroute.newz.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/*
+ * Binds the settings of the NewsWriteBehindBuffer
+ */
+@Configuration
+@EnableConfigurationProperties(NewsWriteBehindProperties.class)
+public class NewsWriteBehindConfig {
+
+}
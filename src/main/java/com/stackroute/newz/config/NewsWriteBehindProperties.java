@@ -0,0 +1,101 @@
+package com.stackroute.newz.config;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/*
+ * Settings of the news write-behind buffer, bound from the
+ * "newz.news.write-behind" prefix.
+ *
+ * newz.news.write-behind.enabled=false
+ * newz.news.write-behind.journal=journal/news-write-behind.journal
+ * newz.news.write-behind.fsync=always
+ * newz.news.write-behind.fsync-interval=1s
+ * newz.news.write-behind.flush-interval=500ms
+ * newz.news.write-behind.batch-size=500
+ * newz.news.write-behind.max-pending=10000
+ *
+ * fsync "always" forces every write to disk before it is acknowledged, the
+ * writes that wait at the same time share one force. "interval" forces the
+ * journal every fsync-interval and may lose that much on a power failure,
+ * "never" leaves it to the operating system. Writes are sent to
+ * the database every flush-interval, or as soon as batch-size of them are
+ * waiting, batch-size per transaction. Beyond max-pending a write waits for a
+ * flush. Writes the database rejects are moved to the journal file with a
+ * ".rejected" suffix.
+ */
+@ConfigurationProperties(prefix = "newz.news.write-behind")
+public class NewsWriteBehindProperties {
+
+	public enum Fsync {
+		ALWAYS, INTERVAL, NEVER
+	}
+
+	private boolean enabled = false;
+	private Path journal = Paths.get("journal", "news-write-behind.journal");
+	private Fsync fsync = Fsync.ALWAYS;
+	private Duration fsyncInterval = Duration.ofSeconds(1);
+	private Duration flushInterval = Duration.ofMillis(500);
+	private int batchSize = 500;
+	private int maxPending = 10000;
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public Path getJournal() {
+		return journal;
+	}
+
+	public void setJournal(Path journal) {
+		this.journal = journal;
+	}
+
+	public Fsync getFsync() {
+		return fsync;
+	}
+
+	public void setFsync(Fsync fsync) {
+		this.fsync = fsync;
+	}
+
+	public Duration getFsyncInterval() {
+		return fsyncInterval;
+	}
+
+	public void setFsyncInterval(Duration fsyncInterval) {
+		this.fsyncInterval = fsyncInterval;
+	}
+
+	public Duration getFlushInterval() {
+		return flushInterval;
+	}
+
+	public void setFlushInterval(Duration flushInterval) {
+		this.flushInterval = flushInterval;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	public int getMaxPending() {
+		return maxPending;
+	}
+
+	public void setMaxPending(int maxPending) {
+		this.maxPending = maxPending;
+	}
+
+}
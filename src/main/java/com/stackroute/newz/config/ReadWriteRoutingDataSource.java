@@ -0,0 +1,108 @@
+package com.stackroute.newz.config;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/*
+ * DataSource that sends the statements of a read-only transaction to the replica
+ * and everything else, writes and statements run outside of any transaction, to
+ * the primary.
+ *
+ * Once a thread has run a read-write transaction it is pinned to the primary, so
+ * that its following reads see its own writes even when the replica lags behind.
+ * The pin lasts until release() is called, which ReadWriteRoutingFilter does at
+ * the end of every request.
+ *
+ * A write evicts what the caches hold of it, and the next read fills them
+ * again. Coming from a replica that lags behind, that read would put the row as
+ * it was before the write back into the cache, where it stays until it expires.
+ * What is read from the replica is therefore never cached: the service caches
+ * check isReadingReplica() before they keep a result, and ReadWriteRoutingJpaDialect
+ * keeps the second-level and query caches from being filled by a transaction
+ * that goes to the replica. Readers in other requests may see the replica lag,
+ * the caches do not make it last.
+ *
+ * Without a replica of its own, the replica given being the primary, every
+ * route is PRIMARY.
+ *
+ * The route is decided when a connection is taken from this DataSource. It has
+ * to be wrapped in a LazyConnectionDataSourceProxy, otherwise the connection is
+ * taken when the transaction begins, before it is marked read-only.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+	public enum Route {
+		PRIMARY, REPLICA
+	}
+
+	private static final ThreadLocal<Boolean> pinnedToPrimary = new ThreadLocal<>();
+
+	private static final ThreadLocal<Route> lastRoute = new ThreadLocal<>();
+
+	private final boolean replicated;
+
+	public ReadWriteRoutingDataSource(DataSource primary, DataSource replica) {
+		this.replicated = replica != primary;
+		Map<Object, Object> targets = new HashMap<>();
+		targets.put(Route.PRIMARY, primary);
+		targets.put(Route.REPLICA, replica);
+		setTargetDataSources(targets);
+		setDefaultTargetDataSource(primary);
+		afterPropertiesSet();
+	}
+
+	@Override
+	protected Object determineCurrentLookupKey() {
+		Route route = route();
+		lastRoute.set(route);
+		return route;
+	}
+
+	private Route route() {
+		if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+			return Route.PRIMARY;
+		}
+		if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+			pinnedToPrimary.set(Boolean.TRUE);
+			return Route.PRIMARY;
+		}
+		return routesReadsToReplica() ? Route.REPLICA : Route.PRIMARY;
+	}
+
+	/*
+	 * Whether a read-only transaction of the current thread goes to the replica
+	 */
+	public boolean routesReadsToReplica() {
+		return replicated && !isPinnedToPrimary();
+	}
+
+	/*
+	 * Whether the last connection the current thread took, the one of its current
+	 * transaction once that has run a statement, goes to the replica. A row the
+	 * replica does not have may only not have reached it yet.
+	 */
+	public static boolean isReadingReplica() {
+		return lastRoute.get() == Route.REPLICA;
+	}
+
+	/*
+	 * Whether the current thread has written and reads from the primary
+	 */
+	public static boolean isPinnedToPrimary() {
+		return pinnedToPrimary.get() != null;
+	}
+
+	/*
+	 * Let the read-only transactions of the current thread go to the replica again
+	 */
+	public static void release() {
+		pinnedToPrimary.remove();
+		lastRoute.remove();
+	}
+
+}
@@ -0,0 +1,32 @@
+package com.stackroute.newz.config;
+
+import java.io.IOException;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/*
+ * Scopes the read-your-writes pin of ReadWriteRoutingDataSource to one request.
+ * A request that writes keeps reading from the primary until it completes, the
+ * next request handled by the same thread starts on the replica again.
+ */
+@Component
+public class ReadWriteRoutingFilter extends OncePerRequestFilter {
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws ServletException, IOException {
+		ReadWriteRoutingDataSource.release();
+		try {
+			chain.doFilter(request, response);
+		} finally {
+			ReadWriteRoutingDataSource.release();
+		}
+	}
+
+}
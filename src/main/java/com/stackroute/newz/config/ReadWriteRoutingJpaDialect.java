@@ -0,0 +1,85 @@
+package com.stackroute.newz.config;
+
+import java.sql.SQLException;
+
+import javax.persistence.CacheStoreMode;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+
+/*
+ * HibernateJpaDialect that keeps a read-only transaction going to the replica
+ * from filling the second-level cache and the query cache. Its entity manager
+ * reads them but puts nothing in, cache store mode BYPASS, so a row as a lagging
+ * replica still has it never outlives the transaction. The store mode is a
+ * property of the entity manager because Hibernate works the cache mode out from
+ * it again on every find. What the entity manager had is put back when the
+ * transaction ends, with open-in-view it serves the rest of the request.
+ *
+ * The route is known when the transaction begins: a read-only transaction goes
+ * to the replica unless the thread is pinned to the primary, and a read-only
+ * transaction does not write, so the pin cannot change before it takes its
+ * connection.
+ */
+public class ReadWriteRoutingJpaDialect extends HibernateJpaDialect {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final String STORE_MODE = "javax.persistence.cache.storeMode";
+
+	private final transient ReadWriteRoutingDataSource routing;
+
+	public ReadWriteRoutingJpaDialect(ReadWriteRoutingDataSource routing) {
+		this.routing = routing;
+	}
+
+	@Override
+	public Object beginTransaction(EntityManager entityManager, TransactionDefinition definition)
+			throws PersistenceException, SQLException, TransactionException {
+		Object transactionData = super.beginTransaction(entityManager, definition);
+		if (!definition.isReadOnly() || !routing.routesReadsToReplica()) {
+			return transactionData;
+		}
+		Session session = entityManager.unwrap(Session.class);
+		ReplicaTransactionData replicaData = new ReplicaTransactionData(transactionData, session,
+				session.getProperties().get(STORE_MODE), session.getCacheMode());
+		session.setProperty(STORE_MODE, CacheStoreMode.BYPASS);
+		session.setCacheMode(CacheMode.GET);
+		return replicaData;
+	}
+
+	@Override
+	public void cleanupTransaction(Object transactionData) {
+		if (transactionData instanceof ReplicaTransactionData) {
+			ReplicaTransactionData replicaData = (ReplicaTransactionData) transactionData;
+			replicaData.session.setProperty(STORE_MODE,
+					replicaData.previousStoreMode == null ? CacheStoreMode.USE : replicaData.previousStoreMode);
+			replicaData.session.setCacheMode(replicaData.previousCacheMode);
+			transactionData = replicaData.transactionData;
+		}
+		super.cleanupTransaction(transactionData);
+	}
+
+	private static class ReplicaTransactionData {
+
+		private final Object transactionData;
+		private final Session session;
+		private final Object previousStoreMode;
+		private final CacheMode previousCacheMode;
+
+		ReplicaTransactionData(Object transactionData, Session session, Object previousStoreMode,
+				CacheMode previousCacheMode) {
+			this.transactionData = transactionData;
+			this.session = session;
+			this.previousStoreMode = previousStoreMode;
+			this.previousCacheMode = previousCacheMode;
+		}
+
+	}
+
+}
@@ -0,0 +1,80 @@
+package com.stackroute.newz.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/*
+ * Settings of the ReminderDeliveryPipeline, bound from the
+ * "newz.reminder.delivery" prefix.
+ *
+ * newz.reminder.delivery.queue-capacity=10000
+ * newz.reminder.delivery.workers=4
+ * newz.reminder.delivery.batch-size=100
+ * newz.reminder.delivery.max-attempts=5
+ * newz.reminder.delivery.retry-delay=1s
+ * newz.reminder.delivery.max-retry-delay=5m
+ *
+ * When the queue is full the ReminderEngine waits for room. A failed batch is
+ * tried again after retry-delay, doubled on every attempt up to max-retry-delay,
+ * and given up after max-attempts.
+ */
+@ConfigurationProperties(prefix = "newz.reminder.delivery")
+public class ReminderDeliveryProperties {
+
+	private int queueCapacity = 10000;
+	private int workers = 4;
+	private int batchSize = 100;
+	private int maxAttempts = 5;
+	private Duration retryDelay = Duration.ofSeconds(1);
+	private Duration maxRetryDelay = Duration.ofMinutes(5);
+
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	public void setQueueCapacity(int queueCapacity) {
+		this.queueCapacity = queueCapacity;
+	}
+
+	public int getWorkers() {
+		return workers;
+	}
+
+	public void setWorkers(int workers) {
+		this.workers = workers;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+
+	public void setMaxAttempts(int maxAttempts) {
+		this.maxAttempts = maxAttempts;
+	}
+
+	public Duration getRetryDelay() {
+		return retryDelay;
+	}
+
+	public void setRetryDelay(Duration retryDelay) {
+		this.retryDelay = retryDelay;
+	}
+
+	public Duration getMaxRetryDelay() {
+		return maxRetryDelay;
+	}
+
+	public void setMaxRetryDelay(Duration maxRetryDelay) {
+		this.maxRetryDelay = maxRetryDelay;
+	}
+
+}
@@ -0,0 +1,33 @@
+package com.stackroute.newz.config;
+
+import java.time.Clock;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.stackroute.newz.service.LoggingReminderNotifier;
+import com.stackroute.newz.service.ReminderNotifier;
+
+/*
+ * Defaults of the ReminderEngine: the system clock, and a notifier that only
+ * logs. Either is replaced by declaring a bean of the same type.
+ */
+@Configuration
+@EnableConfigurationProperties({ ReminderEngineProperties.class, ReminderDeliveryProperties.class })
+public class ReminderEngineConfig {
+
+	@Bean
+	@ConditionalOnMissingBean
+	public Clock clock() {
+		return Clock.systemDefaultZone();
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	public ReminderNotifier reminderNotifier() {
+		return new LoggingReminderNotifier();
+	}
+
+}
@@ -0,0 +1,136 @@
+package com.stackroute.newz.config;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/*
+ * Settings of the ReminderEngine, bound from the "newz.reminder.engine" prefix.
+ *
+ * newz.reminder.engine.enabled=true
+ * newz.reminder.engine.tick=1s
+ * newz.reminder.engine.window=15m
+ * newz.reminder.engine.refresh-interval=30s
+ * newz.reminder.engine.refresh-page-size=1000
+ * newz.reminder.engine.buckets=64
+ * newz.reminder.engine.lease-duration=30s
+ * newz.reminder.engine.heartbeat-interval=10s
+ *
+ * Reminders due within the window are held in memory, the window is moved
+ * forward every refresh interval, which has to be shorter than the window. A
+ * refresh reads the reminders scheduled in the part of the window it enters and
+ * the ones written since the last refresh, refresh-page-size rows per query.
+ * The refresh interval bounds how late a reminder written on another instance
+ * can fire, and how long a write may take to commit to be seen. The wheel has wheel-size slots per level, 64 slots of 1s on 4 levels cover about
+ * 194 days.
+ *
+ * When several instances run, each one only fires the reminders of the buckets
+ * it holds a lease on, see ReminderLeaseManager. The heartbeat interval has to
+ * be well below the lease duration. node-id names the instance in the lease
+ * table and defaults to a random id.
+ */
+@ConfigurationProperties(prefix = "newz.reminder.engine")
+public class ReminderEngineProperties {
+
+	private boolean enabled = true;
+	private Duration tick = Duration.ofSeconds(1);
+	private int wheelSize = 64;
+	private int levels = 4;
+	private Duration window = Duration.ofMinutes(15);
+	private Duration refreshInterval = Duration.ofSeconds(30);
+	private int refreshPageSize = 1000;
+	private String nodeId = UUID.randomUUID().toString();
+	private int buckets = 64;
+	private Duration leaseDuration = Duration.ofSeconds(30);
+	private Duration heartbeatInterval = Duration.ofSeconds(10);
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public Duration getTick() {
+		return tick;
+	}
+
+	public void setTick(Duration tick) {
+		this.tick = tick;
+	}
+
+	public int getWheelSize() {
+		return wheelSize;
+	}
+
+	public void setWheelSize(int wheelSize) {
+		this.wheelSize = wheelSize;
+	}
+
+	public int getLevels() {
+		return levels;
+	}
+
+	public void setLevels(int levels) {
+		this.levels = levels;
+	}
+
+	public Duration getWindow() {
+		return window;
+	}
+
+	public void setWindow(Duration window) {
+		this.window = window;
+	}
+
+	public Duration getRefreshInterval() {
+		return refreshInterval;
+	}
+
+	public void setRefreshInterval(Duration refreshInterval) {
+		this.refreshInterval = refreshInterval;
+	}
+
+	public int getRefreshPageSize() {
+		return refreshPageSize;
+	}
+
+	public void setRefreshPageSize(int refreshPageSize) {
+		this.refreshPageSize = refreshPageSize;
+	}
+
+	public String getNodeId() {
+		return nodeId;
+	}
+
+	public void setNodeId(String nodeId) {
+		this.nodeId = nodeId;
+	}
+
+	public int getBuckets() {
+		return buckets;
+	}
+
+	public void setBuckets(int buckets) {
+		this.buckets = buckets;
+	}
+
+	public Duration getLeaseDuration() {
+		return leaseDuration;
+	}
+
+	public void setLeaseDuration(Duration leaseDuration) {
+		this.leaseDuration = leaseDuration;
+	}
+
+	public Duration getHeartbeatInterval() {
+		return heartbeatInterval;
+	}
+
+	public void setHeartbeatInterval(Duration heartbeatInterval) {
+		this.heartbeatInterval = heartbeatInterval;
+	}
+
+}
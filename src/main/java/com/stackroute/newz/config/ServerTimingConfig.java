@@ -0,0 +1,92 @@
+package com.stackroute.newz.config;
+
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.aop.Advisor;
+import org.springframework.aop.aspectj.AspectJExpressionPointcut;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.stackroute.newz.aspect.ServerTimingInterceptor;
+import com.stackroute.newz.management.RequestTiming;
+
+/*
+ * Opt-in timing of each request by layer, returned in a Server-Timing header,
+ * e.g.
+ *
+ * Server-Timing: controller;dur=41.2, service;dur=35.0, sql;desc="2 statements";dur=12.8, serialization;dur=4.6, total;dur=47.9
+ *
+ * Times the controller methods, the methods of the *ServiceImpl classes, the
+ * execution of the JDBC statements and the JSON serialization of the response
+ * body. Applied only with newz.timing.enabled=true, see ServerTimingProperties.
+ */
+@Configuration
+@EnableConfigurationProperties(ServerTimingProperties.class)
+@ConditionalOnProperty(prefix = "newz.timing", name = "enabled")
+public class ServerTimingConfig implements WebMvcConfigurer {
+
+	public static final String CONTROLLER_METHODS = "@within(org.springframework.web.bind.annotation.RestController)";
+
+	public static final String SERVICE_METHODS = "execution(* com.stackroute.newz.service.*ServiceImpl.*(..))";
+
+	@Bean
+	public ServerTimingFilter serverTimingFilter(ServerTimingProperties properties) {
+		return new ServerTimingFilter(properties);
+	}
+
+	@Bean
+	public Advisor controllerTimingAdvisor() {
+		return advisor(CONTROLLER_METHODS, RequestTiming.Layer.CONTROLLER);
+	}
+
+	@Bean
+	public Advisor serviceTimingAdvisor() {
+		return advisor(SERVICE_METHODS, RequestTiming.Layer.SERVICE);
+	}
+
+	/*
+	 * Right after the MethodMetricsInterceptor, around the transaction
+	 */
+	private static Advisor advisor(String expression, RequestTiming.Layer layer) {
+		AspectJExpressionPointcut pointcut = new AspectJExpressionPointcut();
+		pointcut.setExpression(expression);
+		DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(pointcut, new ServerTimingInterceptor(layer));
+		advisor.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+		return advisor;
+	}
+
+	@Bean
+	public static BeanPostProcessor timedDataSourcePostProcessor() {
+		return new BeanPostProcessor() {
+
+			@Override
+			public Object postProcessAfterInitialization(Object bean, String beanName) {
+				return bean instanceof DataSource && !(bean instanceof TimedDataSource)
+						? new TimedDataSource((DataSource) bean)
+						: bean;
+			}
+
+		};
+	}
+
+	@Override
+	public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+		for (int i = 0; i < converters.size(); i++) {
+			if (converters.get(i) instanceof MappingJackson2HttpMessageConverter) {
+				MappingJackson2HttpMessageConverter json = (MappingJackson2HttpMessageConverter) converters.get(i);
+				converters.set(i, new TimedJsonHttpMessageConverter(json.getObjectMapper()));
+			}
+		}
+	}
+
+}
@@ -0,0 +1,121 @@
+package com.stackroute.newz.config;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.Ordered;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.stackroute.newz.management.RequestTiming;
+
+/*
+ * Times each request, see RequestTiming. The Server-Timing header is added to
+ * the response just before it is committed, when the body is about to be
+ * written, and a sample of the requests is logged with their timing.
+ *
+ * The body of a streamed response is written by another thread once the
+ * request thread is done, it is not timed.
+ */
+public class ServerTimingFilter extends OncePerRequestFilter implements Ordered {
+
+	private static final Logger logger = LoggerFactory.getLogger(ServerTimingFilter.class);
+
+	private final ServerTimingProperties properties;
+
+	public ServerTimingFilter(ServerTimingProperties properties) {
+		this.properties = properties;
+	}
+
+	@Override
+	public int getOrder() {
+		return Ordered.HIGHEST_PRECEDENCE + 10;
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+			throws ServletException, IOException {
+		RequestTiming timing = RequestTiming.begin();
+		TimedResponse timed = new TimedResponse(response, timing);
+		try {
+			chain.doFilter(request, timed);
+		} finally {
+			RequestTiming.end();
+			timed.addServerTiming();
+			if (logger.isInfoEnabled() && ThreadLocalRandom.current().nextDouble() < properties.getLogSampleRate()) {
+				logger.info("{} {} {}: {}", request.getMethod(), request.getRequestURI(), response.getStatus(),
+						timing.summary());
+			}
+		}
+	}
+
+	/*
+	 * Adds the Server-Timing header once, before anything commits the response
+	 */
+	private static final class TimedResponse extends HttpServletResponseWrapper {
+
+		private final RequestTiming timing;
+		private boolean added;
+
+		TimedResponse(HttpServletResponse response, RequestTiming timing) {
+			super(response);
+			this.timing = timing;
+		}
+
+		synchronized void addServerTiming() {
+			if (!added) {
+				added = true;
+				if (!isCommitted()) {
+					setHeader(RequestTiming.SERVER_TIMING, timing.serverTiming());
+				}
+			}
+		}
+
+		@Override
+		public ServletOutputStream getOutputStream() throws IOException {
+			addServerTiming();
+			return super.getOutputStream();
+		}
+
+		@Override
+		public PrintWriter getWriter() throws IOException {
+			addServerTiming();
+			return super.getWriter();
+		}
+
+		@Override
+		public void flushBuffer() throws IOException {
+			addServerTiming();
+			super.flushBuffer();
+		}
+
+		@Override
+		public void sendError(int sc) throws IOException {
+			addServerTiming();
+			super.sendError(sc);
+		}
+
+		@Override
+		public void sendError(int sc, String msg) throws IOException {
+			addServerTiming();
+			super.sendError(sc, msg);
+		}
+
+		@Override
+		public void sendRedirect(String location) throws IOException {
+			addServerTiming();
+			super.sendRedirect(location);
+		}
+
+	}
+
+}
@@ -0,0 +1,38 @@
+package com.stackroute.newz.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/*
+ * Settings of the per request timing of ServerTimingConfig, bound from the
+ * "newz.timing" prefix.
+ *
+ * newz.timing.enabled=false
+ * newz.timing.log-sample-rate=0.01
+ *
+ * Off by default: when on, every request is timed and its response has a
+ * Server-Timing header, and the given fraction of the requests is logged with
+ * its timing.
+ */
+@ConfigurationProperties(prefix = "newz.timing")
+public class ServerTimingProperties {
+
+	private boolean enabled;
+	private double logSampleRate = 0.01;
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	public double getLogSampleRate() {
+		return logSampleRate;
+	}
+
+	public void setLogSampleRate(double logSampleRate) {
+		this.logSampleRate = logSampleRate;
+	}
+
+}
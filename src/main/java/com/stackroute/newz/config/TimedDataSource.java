@@ -0,0 +1,137 @@
+package com.stackroute.newz.config;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import com.stackroute.newz.management.RequestTiming;
+
+/*
+ * Adds the time spent executing SQL statements to the RequestTiming of the
+ * current request. The connections taken while a request is timed hand out
+ * statements whose execute methods are timed, the others are left as they are.
+ *
+ * Only the execution is timed: the rows a result set fetches as it is read,
+ * past the first ones, count as the time of the caller.
+ */
+public class TimedDataSource extends DelegatingDataSource {
+
+	public TimedDataSource(DataSource target) {
+		super(target);
+	}
+
+	@Override
+	public Connection getConnection() throws SQLException {
+		return timed(super.getConnection());
+	}
+
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		return timed(super.getConnection(username, password));
+	}
+
+	private static Connection timed(Connection connection) {
+		if (RequestTiming.current() == null) {
+			return connection;
+		}
+		return (Connection) Proxy.newProxyInstance(TimedDataSource.class.getClassLoader(),
+				new Class<?>[] { Connection.class }, new ConnectionHandler(connection));
+	}
+
+	/*
+	 * The target of a proxy, as a proxy is compared to itself only
+	 */
+	private abstract static class Handler implements InvocationHandler {
+
+		final Object target;
+
+		Handler(Object target) {
+			this.target = target;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			switch (method.getName()) {
+			case "equals":
+				return proxy == args[0];
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			default:
+				return handle(method, args);
+			}
+		}
+
+		abstract Object handle(Method method, Object[] args) throws Throwable;
+
+		Object call(Method method, Object[] args) throws Throwable {
+			try {
+				return method.invoke(target, args);
+			} catch (InvocationTargetException e) {
+				throw e.getTargetException();
+			}
+		}
+
+	}
+
+	private static final class ConnectionHandler extends Handler {
+
+		ConnectionHandler(Connection target) {
+			super(target);
+		}
+
+		@Override
+		Object handle(Method method, Object[] args) throws Throwable {
+			Object result = call(method, args);
+			Class<?> type;
+			switch (method.getName()) {
+			case "createStatement":
+				type = Statement.class;
+				break;
+			case "prepareStatement":
+				type = PreparedStatement.class;
+				break;
+			case "prepareCall":
+				type = CallableStatement.class;
+				break;
+			default:
+				return result;
+			}
+			return Proxy.newProxyInstance(TimedDataSource.class.getClassLoader(), new Class<?>[] { type },
+					new StatementHandler(result));
+		}
+
+	}
+
+	private static final class StatementHandler extends Handler {
+
+		StatementHandler(Object target) {
+			super(target);
+		}
+
+		@Override
+		Object handle(Method method, Object[] args) throws Throwable {
+			RequestTiming timing = RequestTiming.current();
+			if (timing == null || !method.getName().startsWith("execute")) {
+				return call(method, args);
+			}
+			long entered = timing.enter(RequestTiming.Layer.SQL);
+			try {
+				return call(method, args);
+			} finally {
+				timing.exit(RequestTiming.Layer.SQL, entered);
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,58 @@
+package com.stackroute.newz.config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stackroute.newz.management.RequestTiming;
+
+/*
+ * The JSON converter, timing the serialization of the response body of a timed
+ * request. The body is serialized in memory first and sent afterwards, so that
+ * the response is not committed before its Server-Timing header has the time
+ * of the serialization.
+ */
+public class TimedJsonHttpMessageConverter extends MappingJackson2HttpMessageConverter {
+
+	public TimedJsonHttpMessageConverter(ObjectMapper objectMapper) {
+		super(objectMapper);
+	}
+
+	@Override
+	protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+			throws IOException, HttpMessageNotWritableException {
+		RequestTiming timing = RequestTiming.current();
+		if (timing == null) {
+			super.writeInternal(object, type, outputMessage);
+			return;
+		}
+		ByteArrayOutputStream body = new ByteArrayOutputStream(8192);
+		long entered = timing.enter(RequestTiming.Layer.SERIALIZATION);
+		try {
+			super.writeInternal(object, type, new HttpOutputMessage() {
+
+				@Override
+				public HttpHeaders getHeaders() {
+					return outputMessage.getHeaders();
+				}
+
+				@Override
+				public OutputStream getBody() {
+					return body;
+				}
+
+			});
+		} finally {
+			timing.exit(RequestTiming.Layer.SERIALIZATION, entered);
+		}
+		body.writeTo(outputMessage.getBody());
+	}
+
+}
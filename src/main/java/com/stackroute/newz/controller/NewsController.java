@@ -1,24 +1,52 @@
 package com.stackroute.newz.controller;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 
 import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsBatchItem;
+import com.stackroute.newz.model.NewsPage;
+import com.stackroute.newz.model.NewsSearchPage;
+import com.stackroute.newz.service.LatestNews;
 import com.stackroute.newz.service.NewsService;
+import com.stackroute.newz.util.EntityTags;
+import com.stackroute.newz.util.InvertedIndex;
+import com.stackroute.newz.util.PatchFields;
+import com.stackroute.newz.util.exception.InvalidCursorException;
+import com.stackroute.newz.util.exception.InvalidPatchException;
 import com.stackroute.newz.util.exception.NewsAlreadyExistsException;
 import com.stackroute.newz.util.exception.NewsNotExistsException;
+import com.stackroute.newz.util.exception.VersionMismatchException;
 
 /*
  * As in this assignment, we are working with creating RESTful web service, hence annotate
@@ -40,6 +68,17 @@ public class NewsController {
 	@Autowired
 	NewsService newsService;
 
+	@Autowired
+	ObjectMapper objectMapper;
+
+	@Autowired
+	LatestNews latestNews;
+
+	/*
+	 * Content type of the bulk export, one JSON document per line
+	 */
+	public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
 
 	/*
 	 * Define a handler method which will get us all news elements.
@@ -48,14 +87,149 @@ public class NewsController {
 	 * different situations: 
 	 * 1. 200(OK) - If all news found successfully. 
 	 * 
-	 * 
+	 * When the client sends a "cursor" or a "size" request parameter, only one
+	 * page of news is returned together with the cursor of the following page.
+	 * 2. 400(BAD REQUEST) - If the cursor is not valid.
 	 * 
 	 * This handler method should map to the URL "/api/v1/news" using HTTP GET
 	 * method.
 	 */
 	@GetMapping("/api/v1/news")
-	public ResponseEntity<List<News>> getAllNews (){
-		return new ResponseEntity<>(newsService.getAllNews(),HttpStatus.OK);
+	public ResponseEntity<?> getAllNews (@RequestParam(value = "cursor", required = false) String cursor,
+			@RequestParam(value = "size", required = false) Integer size){
+
+		if(cursor==null && size==null) {
+			return new ResponseEntity<List<News>>(newsService.getAllNews(),HttpStatus.OK);
+		}
+		try {
+			NewsPage page = newsService.getNewsPage(cursor, size==null ? 0 : size);
+			return new ResponseEntity<>(page,HttpStatus.OK);
+		} catch (InvalidCursorException e) {
+			e.getMessage();
+		}
+		return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+	}
+
+
+
+
+	/*
+	 * Define a handler method which will get us the newest news, the same page
+	 * as "/api/v1/news" without cursor and with the configured size.
+	 * 
+	 * The page is kept in memory already serialized, plain and gzipped, and is
+	 * sent as it is: there is no database read and no serialization per request.
+	 * It is gzipped for the clients that accept it. Each body has its own ETag,
+	 * the tag of the page for the plain one and the same tag with "-gzip" for the
+	 * gzipped one, and If-None-Match is matched against the one being sent.
+	 * 
+	 * This handler method should return any one of the status messages basis on
+	 * different situations: 
+	 * 1. 200(OK) - With the page. 
+	 * 2. 304(NOT MODIFIED) - If the If-None-Match header names the ETag of the
+	 * current page. 
+	 * 
+	 * This handler method should map to the URL "/api/v1/news/latest" using HTTP GET
+	 * method.
+	 */
+	@GetMapping("/api/v1/news/latest")
+	public ResponseEntity<byte[]> getLatestNews (
+			@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+			@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch){
+
+		LatestNews.Snapshot snapshot = latestNews.current();
+		boolean gzip = acceptsGzip(acceptEncoding);
+		String tag = gzip ? EntityTags.of(snapshot.getTag(), "gzip") : EntityTags.of(snapshot.getTag());
+		HttpHeaders headers = new HttpHeaders();
+		headers.setETag(tag);
+		headers.setVary(Collections.singletonList(HttpHeaders.ACCEPT_ENCODING));
+		if(EntityTags.notModified(ifNoneMatch, tag)) {
+			return new ResponseEntity<>(headers,HttpStatus.NOT_MODIFIED);
+		}
+		headers.setContentType(MediaType.APPLICATION_JSON);
+		if(gzip) {
+			headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+			return new ResponseEntity<>(snapshot.getGzip(),headers,HttpStatus.OK);
+		}
+		return new ResponseEntity<>(snapshot.getJson(),headers,HttpStatus.OK);
+	}
+
+	/*
+	 * Whether the Accept-Encoding header lists gzip, without q=0
+	 */
+	private static boolean acceptsGzip(String acceptEncoding) {
+		if(acceptEncoding==null) {
+			return false;
+		}
+		for(String coding : acceptEncoding.split(",")) {
+			String[] parts = coding.split(";");
+			if(parts[0].trim().equalsIgnoreCase("gzip")) {
+				return parts.length < 2 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+			}
+		}
+		return false;
+	}
+
+
+
+
+	/*
+	 * Define a handler method which will search the title, description and
+	 * content of the news for the words of the "q" request parameter, best match
+	 * first. The news are found in an in-memory index, not by the database, and a
+	 * write is found as soon as it has returned. "page" counts from 0.
+	 * 
+	 * This handler method should return any one of the status messages basis on
+	 * different situations: 
+	 * 1. 200(OK) - With one page of the news found, possibly empty. 
+	 * 2. 400(BAD REQUEST) - If the query has no word in it.
+	 * 
+	 * This handler method should map to the URL "/api/v1/news/search" using HTTP GET
+	 * method.
+	 */
+	@GetMapping("/api/v1/news/search")
+	public ResponseEntity<NewsSearchPage> searchNews (@RequestParam("q") String query,
+			@RequestParam(value = "page", defaultValue = "0") int page,
+			@RequestParam(value = "size", required = false) Integer size){
+
+		if(InvertedIndex.tokens(query).isEmpty()) {
+			return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+		}
+		NewsSearchPage found = newsService.searchNews(query, page, size==null ? 0 : size);
+		return new ResponseEntity<>(found,HttpStatus.OK);
+	}
+
+
+
+
+	/*
+	 * Define a handler method which will stream every news as newline-delimited
+	 * JSON for bulk consumers.
+	 * 
+	 * The rows are read through a forward-only database cursor and written as they
+	 * arrive, so the first bytes reach the client before the scan is finished and
+	 * memory use does not grow with the size of the table. Jackson is not asked to
+	 * flush after each row, the response buffer decides when a chunk goes out.
+	 * 
+	 * This handler method should map to the URL "/api/v1/news/export" using HTTP GET
+	 * method.
+	 */
+	@GetMapping(value = "/api/v1/news/export", produces = APPLICATION_NDJSON_VALUE)
+	public ResponseEntity<StreamingResponseBody> exportNews (){
+
+		StreamingResponseBody body = out -> {
+			try (Stream<News> newsStream = newsService.streamAllNews();
+					SequenceWriter writer = objectMapper.writer()
+							.without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+							.withRootValueSeparator("\n")
+							.writeValues(out)) {
+				Iterator<News> iterator = newsStream.iterator();
+				while (iterator.hasNext()) {
+					writer.write(iterator.next());
+				}
+			}
+		};
+		return ResponseEntity.ok().contentType(MediaType.parseMediaType(APPLICATION_NDJSON_VALUE)).body(body);
 	}
 
 
@@ -67,19 +241,27 @@ public class NewsController {
 	 * This handler method should return any one of the status messages basis on
 	 * different situations: 
 	 * 1. 200(OK) - If the news found successfully. 
-	 * 2. 404(NOT FOUND) - If the news with specified newsId is not found. 
+	 * 2. 304(NOT MODIFIED) - If the If-None-Match header names the version of the
+	 * news, which is then not sent again. 
+	 * 3. 404(NOT FOUND) - If the news with specified newsId is not found. 
 	 * 
+	 * The ETag header carries the version of the news, unless it is still in the
+	 * write-behind buffer and has none yet.
 	 * 
 	 * This handler method should map to the URL "/api/v1/news/{newsId}" using HTTP GET
 	 * method, where "newsId" should be replaced by a valid newsId without {}
 	 */
 	@GetMapping("/api/v1/news/{newsId}")
-	public ResponseEntity<News> getNewsById (@PathVariable("newsId") int newsId){
+	public ResponseEntity<News> getNewsById (@PathVariable("newsId") int newsId,
+			@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch){
 
 		try {
 			News news = newsService.getNews(newsId);
 			if(news!=null) {
-				return new ResponseEntity<>(news,HttpStatus.OK);
+				if(EntityTags.notModified(ifNoneMatch, news.getVersion())) {
+					return new ResponseEntity<>(EntityTags.headers(news.getVersion()),HttpStatus.NOT_MODIFIED);
+				}
+				return new ResponseEntity<>(news,EntityTags.headers(news.getVersion()),HttpStatus.OK);
 			}
 		} catch (NewsNotExistsException e) {
 			e.getMessage();
@@ -118,6 +300,39 @@ public class NewsController {
 
 
 
+	/*
+	 * Define a handler method which will create many news from a JSON array in the
+	 * request body. The array is parsed element by element while the news are
+	 * written, it is never bound as a whole. The ids are allocated by the server.
+	 * 
+	 * This handler method should return any one of the status messages basis on
+	 * different situations: 
+	 * 1. 200(OK) - With the outcome of every element, in request order. 
+	 * 2. 400(BAD REQUEST) - If the body is not a JSON array of news. Elements
+	 * before the malformed one may already have been written.
+	 * 
+	 * This handler method should map to the URL "/api/v1/news/batch" using HTTP POST
+	 * method".
+	 */
+	@PostMapping("/api/v1/news/batch")
+	public ResponseEntity<List<NewsBatchItem>> addNewsBatch (InputStream body) throws IOException{
+
+		try (MappingIterator<News> news = objectMapper.readerFor(News.class).readValues(body)) {
+			return new ResponseEntity<>(newsService.addNewsBatch(news),HttpStatus.OK);
+		} catch (JsonProcessingException e) {
+			e.getMessage();
+		} catch (RuntimeException e) {
+			// MappingIterator reports a malformed later element unchecked
+			if (!(e instanceof RuntimeJsonMappingException || e.getCause() instanceof JsonProcessingException)) {
+				throw e;
+			}
+		}
+		return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+	}
+
+
+
+
 	/*
 	 * Define a handler method which will update a specific news by reading the
 	 * Serialized object from request body and save the updated news details in
@@ -127,17 +342,27 @@ public class NewsController {
 	 * messages basis on different situations: 
 	 * 1. 200(OK) - If the news is updated successfully. 
 	 * 2. 404(NOT FOUND) - If the news with specified newsId is not found. 
+	 * 3. 412(PRECONDITION FAILED) - If the news no longer has the version named by
+	 * the If-Match header. 
+	 * 
+	 * Without If-Match the news is overwritten whatever its version. Either way
+	 * the news is read back after the update, and the ETag header carries its new
+	 * version. A news buffered by write-behind has no version yet.
 	 * 
 	 * This handler method should map to the URL "/api/v1/news/{newsId}" using HTTP PUT
 	 * method, where "newsId" should be replaced by a valid newsId without {}
 	 */
 	@PutMapping("/api/v1/news/{newsId}")
-	public ResponseEntity<News> updateNews (@PathVariable int newsId){
+	public ResponseEntity<News> updateNews (@PathVariable int newsId, @RequestBody News news,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
 
 		try {
-			News newsObj = newsService.getNews(newsId);
-			newsService.updateNews(newsObj);
-			return new ResponseEntity<>(HttpStatus.OK);
+			news.setNewsId(newsId);
+			news.setVersion(EntityTags.ifMatch(ifMatch));
+			News updated = newsService.updateNews(news);
+			return new ResponseEntity<>(EntityTags.headers(updated.getVersion()),HttpStatus.OK);
+		} catch (VersionMismatchException e) {
+			return new ResponseEntity<>(HttpStatus.PRECONDITION_FAILED);
 		} catch (NewsNotExistsException e) {
 			e.printStackTrace();
 		}
@@ -147,22 +372,60 @@ public class NewsController {
 
 
 
+	/*
+	 * Define a handler method which will change some fields of a news, reading a
+	 * JSON merge patch from the request body: only the fields present in it are
+	 * written, null clears a field.
+	 * 
+	 * This handler method should return any one of the status
+	 * messages basis on different situations: 
+	 * 1. 200(OK) - With the patched news. 
+	 * 2. 400(BAD REQUEST) - If a field cannot be patched or has an invalid value. 
+	 * 3. 404(NOT FOUND) - If the news with specified newsId is not found. 
+	 * 4. 412(PRECONDITION FAILED) - If the news no longer has the version named by
+	 * the If-Match header. 
+	 * 
+	 * This handler method should map to the URL "/api/v1/news/{newsId}" using HTTP PATCH
+	 * method, where "newsId" should be replaced by a valid newsId without {}
+	 */
+	@PatchMapping("/api/v1/news/{newsId}")
+	public ResponseEntity<News> patchNews (@PathVariable int newsId, @RequestBody Map<String, Object> patch,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+		try {
+			Map<String, Object> changes = PatchFields.read(patch, News.class, News.PATCHABLE, objectMapper);
+			News patched = newsService.patchNews(newsId, changes, EntityTags.ifMatch(ifMatch));
+			return new ResponseEntity<>(patched,EntityTags.headers(patched.getVersion()),HttpStatus.OK);
+		} catch (InvalidPatchException e) {
+			return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+		} catch (VersionMismatchException e) {
+			return new ResponseEntity<>(HttpStatus.PRECONDITION_FAILED);
+		} catch (NewsNotExistsException e) {
+			e.printStackTrace();
+		}
+		return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+	}
+
 	/*
 	 * Define a handler method which will delete a news from the database.
 	 * 
 	 * This handler method should return any one of the status messages basis on
 	 * different situations: 1. 200(OK) - If the news deleted successfully. 2.
-	 * 404(NOT FOUND) - If the news with specified newsId is not found.
+	 * 404(NOT FOUND) - If the news with specified newsId is not found. 3.
+	 * 412(PRECONDITION FAILED) - If the news no longer has the version named by
+	 * the If-Match header.
 	 * 
 	 * This handler method should map to the URL "/api/v1/news/{newsId}" using HTTP
 	 * Delete method" where "newsId" should be replaced by a valid newsId without {}
 	 */
 	@DeleteMapping("/api/v1/news/{newsId}")
-	public ResponseEntity<News> deleteNews (@PathVariable int newsId){
+	public ResponseEntity<News> deleteNews (@PathVariable int newsId,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
 
 		try {
-			newsService.deleteNews(newsId);
+			newsService.deleteNews(newsId, EntityTags.ifMatch(ifMatch));
 			return new ResponseEntity<>(HttpStatus.OK);
+		} catch (VersionMismatchException e) {
+			return new ResponseEntity<>(HttpStatus.PRECONDITION_FAILED);
 		} catch (NewsNotExistsException e) {
 			e.printStackTrace();
 		}
@@ -1,26 +1,41 @@
 package com.stackroute.newz.controller;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.format.annotation.DateTimeFormat.ISO;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.stackroute.newz.model.News;
 import com.stackroute.newz.model.Reminder;
+import com.stackroute.newz.model.ReminderPage;
 import com.stackroute.newz.service.NewsService;
 import com.stackroute.newz.service.ReminderService;
+import com.stackroute.newz.util.EntityTags;
+import com.stackroute.newz.util.PatchFields;
+import com.stackroute.newz.util.exception.InvalidCursorException;
+import com.stackroute.newz.util.exception.InvalidPatchException;
 import com.stackroute.newz.util.exception.NewsAlreadyExistsException;
 import com.stackroute.newz.util.exception.NewsNotExistsException;
 import com.stackroute.newz.util.exception.ReminderNotExistsException;
+import com.stackroute.newz.util.exception.VersionMismatchException;
 
 /*
  * As in this assignment, we are working with creating RESTful web service, hence annotate
@@ -42,6 +57,9 @@ public class ReminderController {
 	@Autowired
 	ReminderService remService;
 
+	@Autowired
+	ObjectMapper objectMapper;
+
 
 	/*
 	 * Define a handler method which will get us all reminders.
@@ -62,26 +80,66 @@ public class ReminderController {
 	
 	
 
+	/*
+	 * Define a handler method which will get us the reminders due after "after" and
+	 * up to "before", both ISO date-times, earliest first. Only one page is returned
+	 * together with the cursor of the following page, to be sent back as the
+	 * "cursor" request parameter. The optional "size" request parameter sets the
+	 * number of reminders per page.
+	 * 
+	 * This handler method should return any one of the status messages basis on
+	 * different situations: 
+	 * 1. 200(OK) - If the page of reminders is found successfully. 
+	 * 2. 400(BAD REQUEST) - If the cursor is not valid.
+	 * 
+	 * This handler method should map to the URL "/api/v1/reminder/due" using HTTP GET
+	 * method.
+	 */
+	@GetMapping("/api/v1/reminder/due")
+	public ResponseEntity<ReminderPage> getDueReminders (
+			@RequestParam("after") @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime after,
+			@RequestParam("before") @DateTimeFormat(iso = ISO.DATE_TIME) LocalDateTime before,
+			@RequestParam(value = "cursor", required = false) String cursor,
+			@RequestParam(value = "size", required = false) Integer size){
+
+		try {
+			ReminderPage page = remService.getDueReminders(after, before, cursor, size==null ? 0 : size);
+			return new ResponseEntity<>(page,HttpStatus.OK);
+		} catch (InvalidCursorException e) {
+			e.getMessage();
+		}
+		return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+	}
+	
+	
+
 	/*
 	 * Define a handler method which will get us the reminder by a reminderId.
 	 * 
 	 * This handler method should return any one of the status messages basis on
 	 * different situations: 
 	 * 1. 200(OK) - If the reminder found successfully. 
-	 * 2. 404(NOT FOUND) - If the reminder with specified reminderId is not found. 
+	 * 2. 304(NOT MODIFIED) - If the If-None-Match header names the version of the
+	 * reminder, which is then not sent again. 
+	 * 3. 404(NOT FOUND) - If the reminder with specified reminderId is not found. 
 	 * 
+	 * The ETag header carries the version of the reminder.
 	 * 
 	 * This handler method should map to the URL "/api/v1/reminder/{reminderId}" using HTTP GET
 	 * method, where "reminderId" should be replaced by a valid reminderId without {}
 	 */
 	
 	@GetMapping("/api/v1/reminder/{reminderId}")
-	public ResponseEntity<Reminder> getRemindersById (@PathVariable("reminderId") int reminderId){
+	public ResponseEntity<Reminder> getRemindersById (@PathVariable("reminderId") int reminderId,
+			@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch){
 
 		try {
 			Reminder remObj = remService.getReminder(reminderId);
 			if(remObj!=null) {
-				return new ResponseEntity<>(remObj,HttpStatus.OK);
+				if(EntityTags.notModified(ifNoneMatch, remObj.getVersion())) {
+					return new ResponseEntity<>(EntityTags.headers(remObj.getVersion()),HttpStatus.NOT_MODIFIED);
+				}
+				return new ResponseEntity<>(remObj,EntityTags.headers(remObj.getVersion()),HttpStatus.OK);
 			}
 		} catch (ReminderNotExistsException e) {
 			e.getMessage();
@@ -130,16 +188,27 @@ public class ReminderController {
 	 * messages basis on different situations: 
 	 * 1. 200(OK) - If the reminder is updated successfully. 
 	 * 2. 404(NOT FOUND) - If the reminder with specified reminderId is not found. 
+	 * 3. 412(PRECONDITION FAILED) - If the reminder no longer has the version named
+	 * by the If-Match header. 
+	 * 
+	 * Without If-Match the reminder is overwritten whatever its version. Either
+	 * way the reminder is read back after the update, and the ETag header carries
+	 * its new version.
 	 * 
 	 * This handler method should map to the URL "/api/v1/reminder/{reminderId}" using HTTP PUT
 	 * method, where "reminderId" should be replaced by a valid reminderId without {}
 	 */
 	@PutMapping("/api/v1/reminder/{reminderId}")
-	public ResponseEntity<?> updateReminders(@PathVariable int reminderId ){
+	public ResponseEntity<?> updateReminders(@PathVariable int reminderId, @RequestBody Reminder reminder,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
 		try {
-			Reminder remUpdated = remService.updateReminder(remService.getReminder(reminderId));
+			reminder.setReminderId(reminderId);
+			reminder.setVersion(EntityTags.ifMatch(ifMatch));
+			Reminder remUpdated = remService.updateReminder(reminder);
 			if(remUpdated!=null)
-				return new ResponseEntity<>(HttpStatus.OK);
+				return new ResponseEntity<>(EntityTags.headers(remUpdated.getVersion()),HttpStatus.OK);
+		} catch (VersionMismatchException e) {
+			return new ResponseEntity<>(HttpStatus.PRECONDITION_FAILED);
 		} catch (ReminderNotExistsException e) {
 			e.printStackTrace();
 		}
@@ -149,6 +218,39 @@ public class ReminderController {
 	
 	
 
+	/*
+	 * Define a handler method which will change some fields of a reminder, reading
+	 * a JSON merge patch from the request body: only the fields present in it are
+	 * written, null clears a field.
+	 * 
+	 * This handler method should return any one of the status
+	 * messages basis on different situations: 
+	 * 1. 200(OK) - With the patched reminder. 
+	 * 2. 400(BAD REQUEST) - If a field cannot be patched or has an invalid value. 
+	 * 3. 404(NOT FOUND) - If the reminder with specified reminderId is not found. 
+	 * 4. 412(PRECONDITION FAILED) - If the reminder no longer has the version named
+	 * by the If-Match header. 
+	 * 
+	 * This handler method should map to the URL "/api/v1/reminder/{reminderId}" using HTTP PATCH
+	 * method, where "reminderId" should be replaced by a valid reminderId without {}
+	 */
+	@PatchMapping("/api/v1/reminder/{reminderId}")
+	public ResponseEntity<Reminder> patchReminders(@PathVariable int reminderId, @RequestBody Map<String, Object> patch,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+		try {
+			Map<String, Object> changes = PatchFields.read(patch, Reminder.class, Reminder.PATCHABLE, objectMapper);
+			Reminder patched = remService.patchReminder(reminderId, changes, EntityTags.ifMatch(ifMatch));
+			return new ResponseEntity<>(patched, EntityTags.headers(patched.getVersion()), HttpStatus.OK);
+		} catch (InvalidPatchException e) {
+			return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+		} catch (VersionMismatchException e) {
+			return new ResponseEntity<>(HttpStatus.PRECONDITION_FAILED);
+		} catch (ReminderNotExistsException e) {
+			e.printStackTrace();
+		}
+		return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+	}
+
 	/*
 	 * Define a handler method which will delete a reminder from the database.
 	 * 
@@ -156,15 +258,20 @@ public class ReminderController {
 	 * different situations: 
 	 * 1. 200(OK) - If the reminder deleted successfully. 
 	 * 2.404(NOT FOUND) - If the reminder with specified reminderId is not found.
+	 * 3.412(PRECONDITION FAILED) - If the reminder no longer has the version named
+	 * by the If-Match header.
 	 * 
 	 * This handler method should map to the URL "/api/v1/reminder/{reminderId}" using HTTP
 	 * Delete method" where "reminderId" should be replaced by a valid reminderId without {}
 	 */
 	@DeleteMapping("/api/v1/reminder/{reminderId}")
-	public ResponseEntity<?> deleteReminders(@PathVariable int reminderId ){
+	public ResponseEntity<?> deleteReminders(@PathVariable int reminderId,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
 		try {
-			remService.deleteReminder(reminderId);
+			remService.deleteReminder(reminderId, EntityTags.ifMatch(ifMatch));
 				return new ResponseEntity<>(HttpStatus.OK);
+		} catch (VersionMismatchException e) {
+			return new ResponseEntity<>(HttpStatus.PRECONDITION_FAILED);
 		} catch (ReminderNotExistsException e) {
 			e.printStackTrace();
 		}
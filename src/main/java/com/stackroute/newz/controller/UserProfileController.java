@@ -1,24 +1,33 @@
 package com.stackroute.newz.controller;
 
 import java.util.List;
+import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.stackroute.newz.model.UserProfile;
 import com.stackroute.newz.service.UserProfileService;
+import com.stackroute.newz.util.EntityTags;
+import com.stackroute.newz.util.PatchFields;
+import com.stackroute.newz.util.exception.InvalidPatchException;
 import com.stackroute.newz.util.exception.UserProfileAlreadyExistsException;
 import com.stackroute.newz.util.exception.UserProfileNotExistsException;
+import com.stackroute.newz.util.exception.VersionMismatchException;
 
 
 /*
@@ -42,6 +51,9 @@ public class UserProfileController {
 	@Autowired
 	UserProfileService profileService;
 
+	@Autowired
+	ObjectMapper objectMapper;
+
 	/*
 	 * Define a handler method which will register a userProfile by reading the Serialized
 	 * UserProfile object from request body and save the userProfile in UserProfile table in database.
@@ -99,18 +111,64 @@ public class UserProfileController {
 	 * messages basis on different situations: 
 	 * 1. 200(OK) - If the userProfile is updated successfully. 
 	 * 2. 404(NOT FOUND) - If the userProfile with specified userId is not found. 
+	 * 3. 412(PRECONDITION FAILED) - If the userProfile no longer has the version
+	 * named by the If-Match header. 
+	 * 
+	 * Without If-Match the userProfile is overwritten whatever its version, and the
+	 * new version is not known to the response. With it, the ETag header carries
+	 * the new version.
 	 * 
 	 * This handler method should map to the URL "/api/v1/user/{userId}" using HTTP PUT
 	 * method, where "userId" should be replaced by a valid userId without {}
 	 */
 	
 	@PutMapping("/api/v1/user/{userId}")
-	public ResponseEntity<?> updateUserProfile(@PathVariable String userId){
+	public ResponseEntity<?> updateUserProfile(@PathVariable String userId, @RequestBody UserProfile profile,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
 		
 		try {
-			UserProfile	uProfile = profileService.getUserProfile(userId);
-			profileService.updateUserProfile(uProfile, userId);
-			return new ResponseEntity<>(HttpStatus.OK);
+			profile.setVersion(EntityTags.ifMatch(ifMatch));
+			UserProfile uProfile = profileService.updateUserProfile(profile, userId);
+			return new ResponseEntity<>(EntityTags.headers(uProfile.getVersion()), HttpStatus.OK);
+		} catch (VersionMismatchException e) {
+			return new ResponseEntity<>(HttpStatus.PRECONDITION_FAILED);
+		} catch (UserProfileNotExistsException e) {
+			e.printStackTrace();
+		}
+		return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+		
+	}
+	
+
+	/*
+	 * Define a handler method which will change some fields of a userProfile,
+	 * reading a JSON merge patch from the request body: only the fields present in
+	 * it are written, null clears a field.
+	 * 
+	 * This handler method should return any one of the status
+	 * messages basis on different situations: 
+	 * 1. 200(OK) - With the patched userProfile. 
+	 * 2. 400(BAD REQUEST) - If a field cannot be patched or has an invalid value. 
+	 * 3. 404(NOT FOUND) - If the userProfile with specified userId is not found. 
+	 * 4. 412(PRECONDITION FAILED) - If the userProfile no longer has the version
+	 * named by the If-Match header. 
+	 * 
+	 * This handler method should map to the URL "/api/v1/user/{userId}" using HTTP PATCH
+	 * method, where "userId" should be replaced by a valid userId without {}
+	 */
+	@PatchMapping("/api/v1/user/{userId}")
+	public ResponseEntity<?> patchUserProfile(@PathVariable String userId, @RequestBody Map<String, Object> patch,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+		
+		try {
+			Map<String, Object> changes = PatchFields.read(patch, UserProfile.class, UserProfile.PATCHABLE,
+					objectMapper);
+			UserProfile patched = profileService.patchUserProfile(userId, changes, EntityTags.ifMatch(ifMatch));
+			return new ResponseEntity<>(patched, EntityTags.headers(patched.getVersion()), HttpStatus.OK);
+		} catch (InvalidPatchException e) {
+			return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+		} catch (VersionMismatchException e) {
+			return new ResponseEntity<>(HttpStatus.PRECONDITION_FAILED);
 		} catch (UserProfileNotExistsException e) {
 			e.printStackTrace();
 		}
@@ -125,17 +183,24 @@ public class UserProfileController {
 	 * This handler method should return any one of the status messages basis on
 	 * different situations: 
 	 * 1. 200(OK) - If the user found successfully. 
-	 * 2. 404(NOT FOUND) - If the user with specified userId is not found. 
+	 * 2. 304(NOT MODIFIED) - If the If-None-Match header names the version of the
+	 * user, which is then not sent again. 
+	 * 3. 404(NOT FOUND) - If the user with specified userId is not found. 
 	 * 
+	 * The ETag header carries the version of the user.
 	 * 
 	 * This handler method should map to the URL "/api/v1/user/{userId}" using HTTP GET
 	 * method, where "userId" should be replaced by a valid userId without {}
 	 */
 	@GetMapping("/api/v1/user/{userId}")
-	public ResponseEntity<?> getUserByUserId(@PathVariable String userId){
+	public ResponseEntity<?> getUserByUserId(@PathVariable String userId,
+			@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch){
 		try {
-			profileService.getUserProfile(userId);
-			return new ResponseEntity<>(HttpStatus.OK);
+			UserProfile uProfile = profileService.getUserProfile(userId);
+			if(EntityTags.notModified(ifNoneMatch, uProfile.getVersion())) {
+				return new ResponseEntity<>(EntityTags.headers(uProfile.getVersion()), HttpStatus.NOT_MODIFIED);
+			}
+			return new ResponseEntity<>(uProfile, EntityTags.headers(uProfile.getVersion()), HttpStatus.OK);
 			
 		} catch (UserProfileNotExistsException e) {
 			e.printStackTrace();
@@ -153,16 +218,21 @@ public class UserProfileController {
 	 * different situations: 
 	 * 1. 200(OK) - If the userProfile deleted successfully. 
 	 * 2.404(NOT FOUND) - If the userProfile with specified userId is not found.
+	 * 3.412(PRECONDITION FAILED) - If the userProfile no longer has the version
+	 * named by the If-Match header.
 	 * 
 	 * This handler method should map to the URL "/api/v1/user/{userId}" using HTTP
 	 * Delete method" where "userId" should be replaced by a valid userId without {}
 	 */
 	
 	@DeleteMapping("/api/v1/user/{userId}")
-	public ResponseEntity<?> deleteUserProfiles(@PathVariable String userId){
+	public ResponseEntity<?> deleteUserProfiles(@PathVariable String userId,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
 		try {
-			profileService.deleteUserProfile(userId);
+			profileService.deleteUserProfile(userId, EntityTags.ifMatch(ifMatch));
 			return new ResponseEntity<>(HttpStatus.OK);
+		} catch (VersionMismatchException e) {
+			return new ResponseEntity<>(HttpStatus.PRECONDITION_FAILED);
 		} catch (UserProfileNotExistsException e) {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
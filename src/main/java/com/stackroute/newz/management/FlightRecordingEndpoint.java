@@ -0,0 +1,105 @@
+package com.stackroute.newz.management;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.actuate.endpoint.web.annotation.WebEndpoint;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import com.stackroute.newz.config.FlightRecordingProperties;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+/*
+ * Actuator endpoint "/actuator/flightrecording": a POST records the JVM with
+ * the flight recorder for a while and answers with the .jfr file, e.g.
+ *
+ * curl -X POST -H 'Content-Type: application/json' -o newz.jfr \
+ *   -d '{"token": "...", "seconds": 60, "settings": "profile"}' \
+ *   http://localhost:8080/actuator/flightrecording
+ *
+ * settings names a JDK settings file, "default" (the default) or "profile",
+ * seconds is at most newz.jfr.max-duration. One recording at a time.
+ *
+ * The endpoint only exists when newz.jfr.token is set, a request without that
+ * token gets 403 (FORBIDDEN).
+ */
+@Component
+@WebEndpoint(id = "flightrecording")
+@ConditionalOnProperty(prefix = "newz.jfr", name = "token")
+public class FlightRecordingEndpoint {
+
+	public static final String CONTENT_TYPE = "application/octet-stream";
+
+	@Autowired
+	FlightRecordingProperties properties;
+
+	private final AtomicBoolean recording = new AtomicBoolean();
+
+	@WriteOperation(produces = CONTENT_TYPE)
+	public WebEndpointResponse<Resource> record(String token, @Nullable Integer seconds, @Nullable String settings)
+			throws IOException {
+		if (!MessageDigest.isEqual(token.getBytes(StandardCharsets.UTF_8),
+				properties.getToken().getBytes(StandardCharsets.UTF_8))) {
+			return new WebEndpointResponse<>(HttpStatus.FORBIDDEN.value());
+		}
+		Duration duration = seconds == null ? properties.getDefaultDuration() : Duration.ofSeconds(seconds);
+		if (duration.isNegative() || duration.isZero() || duration.compareTo(properties.getMaxDuration()) > 0) {
+			return new WebEndpointResponse<>(WebEndpointResponse.STATUS_BAD_REQUEST);
+		}
+		Configuration configuration;
+		try {
+			configuration = Configuration.getConfiguration(settings == null ? "default" : settings);
+		} catch (IOException | ParseException e) {
+			return new WebEndpointResponse<>(WebEndpointResponse.STATUS_BAD_REQUEST);
+		}
+		if (!recording.compareAndSet(false, true)) {
+			return new WebEndpointResponse<>(HttpStatus.CONFLICT.value());
+		}
+		try {
+			return new WebEndpointResponse<>(record(configuration, duration));
+		} finally {
+			recording.set(false);
+		}
+	}
+
+	/*
+	 * The recording is dumped to a temporary file, deleted once it has been
+	 * sent
+	 */
+	private Resource record(Configuration configuration, Duration duration) throws IOException {
+		Path file = Files.createTempFile("newz-", ".jfr");
+		try (Recording recording = new Recording(configuration)) {
+			recording.setName("newz-" + configuration.getName());
+			recording.start();
+			try {
+				Thread.sleep(duration.toMillis());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			recording.stop();
+			recording.dump(file);
+			return new InputStreamResource(Files.newInputStream(file, StandardOpenOption.DELETE_ON_CLOSE));
+		} catch (IOException | RuntimeException e) {
+			Files.deleteIfExists(file);
+			throw e;
+		}
+	}
+
+}
@@ -0,0 +1,97 @@
+package com.stackroute.newz.management;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+/*
+ * Actuator endpoint "/actuator/hibernatecache" with the hit, miss and put counts
+ * of every second-level cache region, and of the query cache as a whole. The
+ * counts are only collected when hibernate.generate_statistics is on.
+ */
+@Component
+@Endpoint(id = "hibernatecache")
+public class HibernateCacheEndpoint {
+
+	@Autowired
+	EntityManagerFactory entityManagerFactory;
+
+	@ReadOperation
+	public Map<String, RegionStatistics> regions() {
+		Statistics statistics = statistics();
+		Map<String, RegionStatistics> regions = new TreeMap<>();
+		for (String region : statistics.getSecondLevelCacheRegionNames()) {
+			regions.put(region, RegionStatistics.of(statistics.getCacheRegionStatistics(region)));
+		}
+		regions.put("queryCache", new RegionStatistics(statistics.getQueryCacheHitCount(),
+				statistics.getQueryCacheMissCount(), statistics.getQueryCachePutCount(), -1));
+		return regions;
+	}
+
+	@ReadOperation
+	public RegionStatistics region(@Selector String region) {
+		CacheRegionStatistics statistics = statistics().getCacheRegionStatistics(region);
+		return statistics == null ? null : RegionStatistics.of(statistics);
+	}
+
+	private Statistics statistics() {
+		return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+	}
+
+	/*
+	 * Counters of one region. elementCount is -1 when the cache provider does not
+	 * report it.
+	 */
+	public static class RegionStatistics {
+
+		private final long hitCount;
+		private final long missCount;
+		private final long putCount;
+		private final long elementCount;
+
+		public RegionStatistics(long hitCount, long missCount, long putCount, long elementCount) {
+			this.hitCount = hitCount;
+			this.missCount = missCount;
+			this.putCount = putCount;
+			this.elementCount = elementCount;
+		}
+
+		static RegionStatistics of(CacheRegionStatistics statistics) {
+			return new RegionStatistics(statistics.getHitCount(), statistics.getMissCount(), statistics.getPutCount(),
+					statistics.getElementCountInMemory());
+		}
+
+		public long getHitCount() {
+			return hitCount;
+		}
+
+		public long getMissCount() {
+			return missCount;
+		}
+
+		public long getPutCount() {
+			return putCount;
+		}
+
+		public long getElementCount() {
+			return elementCount;
+		}
+
+		public double getHitRatio() {
+			long requests = hitCount + missCount;
+			return requests == 0 ? 0 : (double) hitCount / requests;
+		}
+
+	}
+
+}
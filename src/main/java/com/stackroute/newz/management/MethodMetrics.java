@@ -0,0 +1,271 @@
+package com.stackroute.newz.management;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.stackroute.newz.config.MethodMetricsProperties;
+
+/*
+ * Latency and outcome of every call of the controller and service methods,
+ * recorded by the MethodMetricsInterceptor and rendered in the Prometheus text
+ * format by the MethodMetricsEndpoint.
+ *
+ * Each method has an HdrHistogram Recorder: recording a latency is a few
+ * increments on arrays allocated up front, without lock and without
+ * allocation. The calls are counted in LongAdders. Once in a while the
+ * recorded latencies are moved into the histogram of the current slot of the
+ * window, the slots together hold the latencies of the last window. The
+ * percentiles and the max are those of the window, the count and sum of the
+ * latencies are since the start.
+ *
+ * Latencies are recorded in microseconds, from 0 to an hour. Longer ones are
+ * recorded as an hour.
+ */
+@Component
+public class MethodMetrics {
+
+	private static final long HIGHEST_MICROS = TimeUnit.HOURS.toMicros(1);
+
+	private static final double[] QUANTILES = { 0.5, 0.9, 0.99, 0.999 };
+
+	@Autowired
+	MethodMetricsProperties properties;
+
+	private final Map<Method, Timer> timers = new ConcurrentHashMap<>();
+
+	/*
+	 * The same timers by name, sorted for the scrape. Overloads of a method
+	 * share the timer of its name.
+	 */
+	private final Map<String, Timer> timersByName = new ConcurrentSkipListMap<>();
+
+	private ScheduledExecutorService executor;
+
+	@PostConstruct
+	public void start() {
+		long slot = properties.getWindow().toMillis() / Math.max(1, properties.getWindowSlots());
+		if (slot <= 0) {
+			return;
+		}
+		executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "method-metrics");
+			thread.setDaemon(true);
+			return thread;
+		});
+		executor.scheduleAtFixedRate(this::rotate, slot, slot, TimeUnit.MILLISECONDS);
+	}
+
+	@PreDestroy
+	public void stop() {
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+	}
+
+	/*
+	 * The timer of a method, created on its first call
+	 */
+	public Timer timer(Method method) {
+		Timer timer = timers.get(method);
+		if (timer != null) {
+			return timer;
+		}
+		return timers.computeIfAbsent(method, key -> {
+			String type = key.getDeclaringClass().getSimpleName();
+			return timersByName.computeIfAbsent(type + "." + key.getName(), name -> new Timer(type, key.getName()));
+		});
+	}
+
+	private void rotate() {
+		timersByName.values().forEach(Timer::rotate);
+	}
+
+	/*
+	 * Every timer in the Prometheus text exposition format, version 0.0.4
+	 */
+	public String scrape() {
+		List<Snapshot> snapshots = new ArrayList<>();
+		timersByName.values().forEach(timer -> snapshots.add(timer.snapshot()));
+
+		StringBuilder out = new StringBuilder(snapshots.size() * 1024);
+		out.append("# HELP newz_method_duration_seconds Duration of the calls of a controller or service method,")
+				.append(" quantiles over the last ").append(properties.getWindow().getSeconds()).append("s\n");
+		out.append("# TYPE newz_method_duration_seconds summary\n");
+		for (Snapshot snapshot : snapshots) {
+			for (int i = 0; i < QUANTILES.length; i++) {
+				sample(out, "newz_method_duration_seconds", snapshot, "quantile", Double.toString(QUANTILES[i]),
+						snapshot.windowCount == 0 ? Double.NaN : seconds(snapshot.quantiles[i]));
+			}
+			sample(out, "newz_method_duration_seconds_sum", snapshot, null, null, snapshot.totalNanos / 1e9);
+			sample(out, "newz_method_duration_seconds_count", snapshot, null, null, snapshot.count);
+		}
+		out.append("# HELP newz_method_duration_max_seconds Longest call of a controller or service method")
+				.append(" over the last ").append(properties.getWindow().getSeconds()).append("s\n");
+		out.append("# TYPE newz_method_duration_max_seconds gauge\n");
+		for (Snapshot snapshot : snapshots) {
+			sample(out, "newz_method_duration_max_seconds", snapshot, null, null,
+					snapshot.windowCount == 0 ? Double.NaN : seconds(snapshot.max));
+		}
+		out.append("# HELP newz_method_calls_total Calls of a controller or service method, by the exception")
+				.append(" they threw\n");
+		out.append("# TYPE newz_method_calls_total counter\n");
+		for (Snapshot snapshot : snapshots) {
+			sample(out, "newz_method_calls_total", snapshot, "outcome", "success", snapshot.successes);
+			for (Map.Entry<String, Long> failure : snapshot.failures.entrySet()) {
+				sample(out, "newz_method_calls_total", snapshot, "outcome", failure.getKey(), failure.getValue());
+			}
+		}
+		return out.toString();
+	}
+
+	private static void sample(StringBuilder out, String name, Snapshot snapshot, String label, String value,
+			double sample) {
+		out.append(name).append("{class=\"").append(snapshot.type).append("\",method=\"").append(snapshot.method)
+				.append('"');
+		if (label != null) {
+			out.append(',').append(label).append("=\"").append(value).append('"');
+		}
+		out.append("} ");
+		if (Double.isNaN(sample)) {
+			out.append("NaN");
+		} else if (sample == Math.rint(sample) && Math.abs(sample) < 1e15) {
+			out.append((long) sample);
+		} else {
+			out.append(sample);
+		}
+		out.append('\n');
+	}
+
+	private static double seconds(long micros) {
+		return micros / 1e6;
+	}
+
+	/*
+	 * Latencies and outcomes of one method
+	 */
+	public final class Timer {
+
+		private final String type;
+		private final String method;
+		private final Recorder recorder;
+		private final LongAdder successes = new LongAdder();
+		private final LongAdder count = new LongAdder();
+		private final LongAdder totalNanos = new LongAdder();
+		/*
+		 * By the fully qualified name of the exception, exceptions of different
+		 * packages often share a simple name
+		 */
+		private final Map<String, LongAdder> failures = new ConcurrentHashMap<>();
+
+		/*
+		 * Guarded by this, only the reading side takes it
+		 */
+		private final Histogram[] slots;
+		private final Histogram window;
+		private Histogram interval;
+		private int current;
+
+		private Timer(String type, String method) {
+			this.type = type;
+			this.method = method;
+			int digits = properties.getSignificantDigits();
+			recorder = new Recorder(1, HIGHEST_MICROS, digits);
+			slots = new Histogram[Math.max(1, properties.getWindowSlots())];
+			for (int i = 0; i < slots.length; i++) {
+				slots[i] = new Histogram(1, HIGHEST_MICROS, digits);
+			}
+			window = new Histogram(1, HIGHEST_MICROS, digits);
+		}
+
+		/*
+		 * Record a call, failure is what it threw or null. Allocates nothing but
+		 * the counter of a failure seen for the first time.
+		 */
+		public void record(long nanos, Throwable failure) {
+			recorder.recordValue(Math.min(Math.max(nanos, 0) / 1000, HIGHEST_MICROS));
+			totalNanos.add(nanos);
+			if (failure == null) {
+				successes.increment();
+			} else {
+				LongAdder failed = failures.get(failure.getClass().getName());
+				if (failed == null) {
+					failed = failures.computeIfAbsent(failure.getClass().getName(), key -> new LongAdder());
+				}
+				failed.increment();
+			}
+			count.increment();
+		}
+
+		private synchronized void rotate() {
+			drain();
+			current = (current + 1) % slots.length;
+			slots[current].reset();
+		}
+
+		private void drain() {
+			interval = recorder.getIntervalHistogram(interval);
+			slots[current].add(interval);
+		}
+
+		private synchronized Snapshot snapshot() {
+			drain();
+			window.reset();
+			for (Histogram slot : slots) {
+				window.add(slot);
+			}
+			Snapshot snapshot = new Snapshot(type, method);
+			// count is added to last and read first, the outcomes never add up to less
+			snapshot.count = count.sum();
+			snapshot.totalNanos = totalNanos.sum();
+			snapshot.successes = successes.sum();
+			failures.forEach((failure, failed) -> snapshot.failures.put(failure, failed.sum()));
+			snapshot.windowCount = window.getTotalCount();
+			for (int i = 0; i < QUANTILES.length; i++) {
+				snapshot.quantiles[i] = window.getValueAtPercentile(QUANTILES[i] * 100);
+			}
+			snapshot.max = window.getMaxValue();
+			return snapshot;
+		}
+
+	}
+
+	/*
+	 * What a scrape shows of a timer
+	 */
+	private static final class Snapshot {
+
+		private final String type;
+		private final String method;
+		private final Map<String, Long> failures = new TreeMap<>();
+		private final long[] quantiles = new long[QUANTILES.length];
+		private long count;
+		private long totalNanos;
+		private long successes;
+		private long windowCount;
+		private long max;
+
+		private Snapshot(String type, String method) {
+			this.type = type;
+			this.method = method;
+		}
+
+	}
+
+}
@@ -0,0 +1,27 @@
+package com.stackroute.newz.management;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/*
+ * Actuator endpoint "/actuator/methodmetrics" with the latency percentiles and
+ * the outcome counts of the controller and service methods, in the Prometheus
+ * text format, to be scraped.
+ */
+@Component
+@Endpoint(id = "methodmetrics")
+public class MethodMetricsEndpoint {
+
+	public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+	@Autowired
+	MethodMetrics metrics;
+
+	@ReadOperation(produces = CONTENT_TYPE)
+	public String scrape() {
+		return metrics.scrape();
+	}
+
+}
@@ -0,0 +1,136 @@
+package com.stackroute.newz.management;
+
+import java.util.Locale;
+
+/*
+ * Where the time of one request goes: in the controller method, in the service
+ * methods, executing SQL statements and serializing the response body. Bound to
+ * the thread handling the request by the ServerTimingFilter, the layers are
+ * timed by the ServerTimingInterceptor, the TimedDataSource and the
+ * TimedJsonHttpMessageConverter.
+ *
+ * The layers nest: the controller time includes the service time, which
+ * includes the SQL time. What the service spends beside SQL is mostly Hibernate
+ * turning rows into entities. A layer entered again from within itself, a
+ * service calling a service, is timed once by its outermost call.
+ *
+ * Used by the one thread handling the request, not thread safe.
+ */
+public final class RequestTiming {
+
+	public enum Layer {
+
+		CONTROLLER("controller"), SERVICE("service"), SQL("sql"), SERIALIZATION("serialization");
+
+		private final String metric;
+
+		Layer(String metric) {
+			this.metric = metric;
+		}
+
+	}
+
+	public static final String SERVER_TIMING = "Server-Timing";
+
+	private static final ThreadLocal<RequestTiming> CURRENT = new ThreadLocal<>();
+
+	private static final Layer[] LAYERS = Layer.values();
+
+	private final long start = System.nanoTime();
+	private final long[] nanos = new long[LAYERS.length];
+	private final int[] calls = new int[LAYERS.length];
+	private final int[] depth = new int[LAYERS.length];
+
+	/*
+	 * Start timing the request handled by the current thread
+	 */
+	public static RequestTiming begin() {
+		RequestTiming timing = new RequestTiming();
+		CURRENT.set(timing);
+		return timing;
+	}
+
+	/*
+	 * The timing of the request handled by the current thread, null when it is
+	 * not timed
+	 */
+	public static RequestTiming current() {
+		return CURRENT.get();
+	}
+
+	public static void end() {
+		CURRENT.remove();
+	}
+
+	/*
+	 * Enter a layer, returns the time to hand to exit
+	 */
+	public long enter(Layer layer) {
+		depth[layer.ordinal()]++;
+		return System.nanoTime();
+	}
+
+	public void exit(Layer layer, long entered) {
+		int i = layer.ordinal();
+		if (--depth[i] == 0) {
+			nanos[i] += System.nanoTime() - entered;
+			calls[i]++;
+		}
+	}
+
+	public long getNanos(Layer layer) {
+		return nanos[layer.ordinal()];
+	}
+
+	/*
+	 * The number of calls of a layer, for SQL the statements executed, a JDBC
+	 * batch counting once
+	 */
+	public int getCalls(Layer layer) {
+		return calls[layer.ordinal()];
+	}
+
+	public long getTotalNanos() {
+		return System.nanoTime() - start;
+	}
+
+	/*
+	 * The value of the Server-Timing header: the layers entered so far and the
+	 * total, in milliseconds
+	 */
+	public String serverTiming() {
+		StringBuilder header = new StringBuilder(160);
+		for (Layer layer : LAYERS) {
+			if (calls[layer.ordinal()] > 0) {
+				header.append(layer.metric);
+				if (layer == Layer.SQL) {
+					header.append(";desc=\"").append(calls[layer.ordinal()]).append(" statements\"");
+				}
+				header.append(";dur=").append(millis(nanos[layer.ordinal()])).append(", ");
+			}
+		}
+		return header.append("total;dur=").append(millis(getTotalNanos())).toString();
+	}
+
+	/*
+	 * The same as a log line
+	 */
+	public String summary() {
+		StringBuilder summary = new StringBuilder(160).append("total ").append(millis(getTotalNanos())).append(" ms");
+		for (Layer layer : LAYERS) {
+			if (calls[layer.ordinal()] > 0) {
+				summary.append(", ").append(layer.metric).append(' ').append(millis(nanos[layer.ordinal()]))
+						.append(" ms");
+				if (layer == Layer.SQL) {
+					summary.append(" in ").append(calls[layer.ordinal()]).append(" statements");
+				}
+			}
+		}
+		return summary.toString();
+	}
+
+	private static String millis(long nanos) {
+		return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+	}
+
+}
@@ -0,0 +1,38 @@
+package com.stackroute.newz.management;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/*
+ * Flight recorder event of one call of a service operation, committed by the
+ * ServiceOperationEventInterceptor. Its thread and its start and duration put
+ * it next to the GC pauses, lock waits and I/O of the same recording.
+ */
+@Name("com.stackroute.newz.ServiceOperation")
+@Label("Service Operation")
+@Category({ "Newz", "Service" })
+@Description("A call of a method of NewsServiceImpl, ReminderServiceImpl or UserProfileServiceImpl")
+@StackTrace(false)
+public class ServiceOperationEvent extends Event {
+
+	@Label("Entity Type")
+	@Description("News, Reminder or UserProfile")
+	public String entityType;
+
+	@Label("Operation")
+	@Description("The service method called")
+	public String operation;
+
+	@Label("Entity Id")
+	@Description("The id the operation was called with or returned, if any")
+	public String entityId;
+
+	@Label("Outcome")
+	@Description("success or the simple name of the exception thrown")
+	public String outcome;
+
+}
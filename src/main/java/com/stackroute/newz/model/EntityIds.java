@@ -0,0 +1,27 @@
+package com.stackroute.newz.model;
+
+import java.util.function.Supplier;
+
+import org.hibernate.proxy.HibernateProxy;
+
+/*
+ * Id of an associated entity for toString. A lazy association is a proxy, its
+ * id is read from the proxy, asking the entity itself would load it, or fail
+ * outside of a session.
+ */
+final class EntityIds {
+
+	private EntityIds() {
+	}
+
+	static Object idOf(Object entity, Supplier<Object> id) {
+		if (entity == null) {
+			return null;
+		}
+		if (entity instanceof HibernateProxy) {
+			return ((HibernateProxy) entity).getHibernateLazyInitializer().getIdentifier();
+		}
+		return id.get();
+	}
+
+}
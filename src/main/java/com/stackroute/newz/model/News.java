@@ -1,18 +1,27 @@
 package com.stackroute.newz.model;
 
 import java.time.LocalDateTime;
+import java.util.Set;
 
 import javax.persistence.CascadeType;
+import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.NamedAttributeNode;
+import javax.persistence.NamedEntityGraph;
 import javax.persistence.OneToMany;
 import javax.persistence.OneToOne;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.persistence.Version;
 
+import org.hibernate.annotations.DynamicUpdate;
 import org.hibernate.annotations.OnDelete;
 import org.hibernate.annotations.OnDeleteAction;
 
@@ -30,8 +39,20 @@ import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
  * Java object to recreate it as a table in your database.
  */
 @Entity
+@DynamicUpdate
+@NamedEntityGraph(name = News.WITH_USER_AND_REMINDER, attributeNodes = { @NamedAttributeNode("user"),
+		@NamedAttributeNode("reminder") })
+@Table(indexes = @Index(name = "idx_news_published_at_news_id", columnList = "publishedAt,newsId"))
 public class News {
 
+	public static final String WITH_USER_AND_REMINDER = "News.withUserAndReminder";
+
+	/*
+	 * Fields a client may change through PATCH
+	 */
+	public static final Set<String> PATCHABLE = Set.of("title", "author", "description", "publishedAt", "content",
+			"url", "urlToImage");
+
 	/*
 	 * This class should have ten fields
 	 * (newsId,title,author,description, publishedAt, content, url, urlToImage,user,reminder). 
@@ -44,10 +65,27 @@ public class News {
 	 * 
 	 * The data type for publishedAt field should be LocalDateTime. 
 	 * Please add @JsonSerialize(using = ToStringSerializer.class) for this field
+	 * 
+	 * newsId is allocated from a sequence with the pooled optimizer, 50 ids per
+	 * round-trip. IDENTITY would force Hibernate to run every insert on its own
+	 * to read the generated key back, which rules out JDBC batching. MySQL has no
+	 * sequences, Hibernate keeps the counter in the news_seq table, which is moved
+	 * past the news already there on every start, see NewsSequenceSeeder.
+	 * 
+	 * user and reminder are never serialized, so they are fetched lazily. A read
+	 * that needs them asks for the WITH_USER_AND_REMINDER entity graph.
+	 * 
+	 * With @DynamicUpdate, the update Hibernate writes for a changed news sets the
+	 * changed columns only, not content and the other large text every time.
+	 * 
+	 * version is moved on by every write of the row and sent as the ETag. It
+	 * stays null, "not known", on a news read from a request body and on a news
+	 * still in the write-behind buffer. The column itself is never null.
 	 */
 	
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "news_seq")
+	@SequenceGenerator(name = "news_seq", sequenceName = "news_seq", allocationSize = 50)
 	private int newsId;
 	private String title;
 	private String author;
@@ -57,12 +95,16 @@ public class News {
 	private String content;
 	private String url;
 	private String urlToImage;
-	@ManyToOne
+	@ManyToOne(fetch = FetchType.LAZY)
 	@JsonIgnore
 	private UserProfile user;
-	@OneToOne
+	@OneToOne(fetch = FetchType.LAZY)
 	@JsonIgnore
 	private Reminder reminder;
+	@Version
+	@Column(nullable = false)
+	@JsonIgnore
+	private Long version;
 	
 
 	public News(int newsId, String title, String author, String description, LocalDateTime publishedAt, String content,
@@ -187,13 +229,38 @@ public class News {
 	public void setContent(String content) {
 		this.content=content;
 	}
+	/**
+	 * @return the user
+	 */
+	public UserProfile getUser() {
+		return user;
+	}
+	/**
+	 * @return the reminder
+	 */
+	public Reminder getReminder() {
+		return reminder;
+	}
+	/**
+	 * @return the version
+	 */
+	public Long getVersion() {
+		return version;
+	}
+	/**
+	 * @param version the version to set
+	 */
+	public void setVersion(Long version) {
+		this.version = version;
+	}
 
 
 	@Override
 	public String toString() {
 		return "News [newsId=" + newsId + ", title=" + title + ", author=" + author + ", description=" + description
 				+ ", publishedAt=" + publishedAt + ", content=" + content + ", url=" + url + ", urlToImage="
-				+ urlToImage + ", user=" + user + ", reminder=" + reminder + "]";
+				+ urlToImage + ", userId=" + EntityIds.idOf(user, () -> user.getUserId()) + ", reminderId="
+				+ EntityIds.idOf(reminder, () -> reminder.getReminderId()) + ", version=" + version + "]";
 	}
 	
 }
@@ -0,0 +1,100 @@
+package com.stackroute.newz.model;
+
+/*
+ * The class "NewsBatchItem" is the outcome of one element of a batch ingest of
+ * news. It is not an entity. index is the position of the element in the
+ * request array, newsId the id allocated to it when it was created.
+ */
+public class NewsBatchItem {
+
+	public static final String CREATED = "CREATED";
+	public static final String FAILED = "FAILED";
+
+	private int index;
+	private int newsId;
+	private String status;
+	private String error;
+
+	public NewsBatchItem(int index, int newsId, String status, String error) {
+		super();
+		this.index = index;
+		this.newsId = newsId;
+		this.status = status;
+		this.error = error;
+	}
+
+	public NewsBatchItem() {
+
+	}
+
+	public static NewsBatchItem created(int index, int newsId) {
+		return new NewsBatchItem(index, newsId, CREATED, null);
+	}
+
+	public static NewsBatchItem failed(int index, String error) {
+		return new NewsBatchItem(index, 0, FAILED, error);
+	}
+
+	/**
+	 * @return the index
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	/**
+	 * @param index the index to set
+	 */
+	public void setIndex(int index) {
+		this.index = index;
+	}
+
+	/**
+	 * @return the newsId
+	 */
+	public int getNewsId() {
+		return newsId;
+	}
+
+	/**
+	 * @param newsId the newsId to set
+	 */
+	public void setNewsId(int newsId) {
+		this.newsId = newsId;
+	}
+
+	/**
+	 * @return the status
+	 */
+	public String getStatus() {
+		return status;
+	}
+
+	/**
+	 * @param status the status to set
+	 */
+	public void setStatus(String status) {
+		this.status = status;
+	}
+
+	/**
+	 * @return the error
+	 */
+	public String getError() {
+		return error;
+	}
+
+	/**
+	 * @param error the error to set
+	 */
+	public void setError(String error) {
+		this.error = error;
+	}
+
+	@Override
+	public String toString() {
+		return "NewsBatchItem [index=" + index + ", newsId=" + newsId + ", status=" + status + ", error=" + error
+				+ "]";
+	}
+
+}
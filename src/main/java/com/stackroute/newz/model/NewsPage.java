@@ -0,0 +1,58 @@
+package com.stackroute.newz.model;
+
+import java.util.List;
+
+/*
+ * The class "NewsPage" is the response body of a paged read of news. It is not an
+ * entity. nextCursor is null on the last page, otherwise it has to be sent back
+ * as the "cursor" request parameter to fetch the following page.
+ */
+public class NewsPage {
+
+	private List<News> news;
+	private String nextCursor;
+
+	public NewsPage(List<News> news, String nextCursor) {
+		super();
+		this.news = news;
+		this.nextCursor = nextCursor;
+	}
+
+	public NewsPage() {
+
+	}
+
+	/**
+	 * @return the news
+	 */
+	public List<News> getNews() {
+		return news;
+	}
+
+	/**
+	 * @param news the news to set
+	 */
+	public void setNews(List<News> news) {
+		this.news = news;
+	}
+
+	/**
+	 * @return the nextCursor
+	 */
+	public String getNextCursor() {
+		return nextCursor;
+	}
+
+	/**
+	 * @param nextCursor the nextCursor to set
+	 */
+	public void setNextCursor(String nextCursor) {
+		this.nextCursor = nextCursor;
+	}
+
+	@Override
+	public String toString() {
+		return "NewsPage [news=" + news + ", nextCursor=" + nextCursor + "]";
+	}
+
+}
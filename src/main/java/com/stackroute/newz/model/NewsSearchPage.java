@@ -0,0 +1,90 @@
+package com.stackroute.newz.model;
+
+import java.util.List;
+
+/*
+ * The class "NewsSearchPage" is the response body of a full-text search of news.
+ * It is not an entity. news holds one page of the news found, best match first,
+ * total the number of news found in all.
+ */
+public class NewsSearchPage {
+
+	private List<News> news;
+	private int total;
+	private int page;
+	private int size;
+
+	public NewsSearchPage(List<News> news, int total, int page, int size) {
+		super();
+		this.news = news;
+		this.total = total;
+		this.page = page;
+		this.size = size;
+	}
+
+	public NewsSearchPage() {
+
+	}
+
+	/**
+	 * @return the news
+	 */
+	public List<News> getNews() {
+		return news;
+	}
+
+	/**
+	 * @param news the news to set
+	 */
+	public void setNews(List<News> news) {
+		this.news = news;
+	}
+
+	/**
+	 * @return the total
+	 */
+	public int getTotal() {
+		return total;
+	}
+
+	/**
+	 * @param total the total to set
+	 */
+	public void setTotal(int total) {
+		this.total = total;
+	}
+
+	/**
+	 * @return the page
+	 */
+	public int getPage() {
+		return page;
+	}
+
+	/**
+	 * @param page the page to set
+	 */
+	public void setPage(int page) {
+		this.page = page;
+	}
+
+	/**
+	 * @return the size
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * @param size the size to set
+	 */
+	public void setSize(int size) {
+		this.size = size;
+	}
+
+	@Override
+	public String toString() {
+		return "NewsSearchPage [news=" + news + ", total=" + total + ", page=" + page + ", size=" + size + "]";
+	}
+
+}
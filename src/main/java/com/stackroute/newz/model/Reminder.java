@@ -1,14 +1,27 @@
 package com.stackroute.newz.model;
 
 import java.time.LocalDateTime;
+import java.util.Set;
 
+import javax.persistence.Cacheable;
+import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
+import javax.persistence.NamedAttributeNode;
+import javax.persistence.NamedEntityGraph;
 import javax.persistence.OneToOne;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+import javax.persistence.Table;
+import javax.persistence.Version;
+
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
@@ -23,7 +36,21 @@ import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
  * Java object to recreate it as a table in your database.
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "Reminder")
+@NamedEntityGraph(name = Reminder.WITH_NEWS, attributeNodes = @NamedAttributeNode("news"))
+@Table(indexes = { @Index(name = "idx_reminder_schedule_reminder_id", columnList = "schedule,reminderId"),
+		@Index(name = "idx_reminder_updated_at_reminder_id", columnList = "updatedAt,reminderId") })
 public class Reminder {
+
+	public static final String WITH_NEWS = "Reminder.withNews";
+
+	/*
+	 * Fields a client may change through PATCH. deliveredAt is not one of them,
+	 * only the delivery of the reminder sets it.
+	 */
+	public static final Set<String> PATCHABLE = Set.of("schedule");
+
 	/*
 	 * This class should have three fields (reminderId,schedule,news). Out of these
 	 * three fields, the field reminderId should be primary key and auto-generated.
@@ -35,15 +62,33 @@ public class Reminder {
 	 * 
 	 * The data type for schedule field should be LocalDateTime. Please
 	 * add @JsonSerialize(using = ToStringSerializer.class) for this field
+	 * 
+	 * news is fetched lazily, reads that need it use the WITH_NEWS entity graph.
+	 * deliveredAt is set once the reminder has been handed to the notifier.
+	 * 
+	 * version is moved on by every write of the row and sent as the ETag, null
+	 * on a reminder read from a request body.
+	 * 
+	 * updatedAt is set by every write of the row as well, with the system clock of
+	 * the instance writing it, the ReminderEngine reads the rows changed since its
+	 * last refresh by it. Bulk updates set it themselves.
 	 */
 	@Id
 	@GeneratedValue(strategy = GenerationType.IDENTITY)
 	private int reminderId;
 	@JsonSerialize(using = ToStringSerializer.class)
 	private LocalDateTime schedule;
-	@OneToOne
+	@OneToOne(fetch = FetchType.LAZY)
 	@JsonIgnore
 	private News news;
+	@JsonSerialize(using = ToStringSerializer.class)
+	private LocalDateTime deliveredAt;
+	@Version
+	@Column(nullable = false)
+	@JsonIgnore
+	private Long version;
+	@JsonIgnore
+	private LocalDateTime updatedAt;
 	
 	public Reminder(int reminderId, LocalDateTime schedule, News news) {
 		super();
@@ -91,12 +136,58 @@ public class Reminder {
 	public void setNews(News news) {
 		this.news = news;
 	}
+	/**
+	 * @return the deliveredAt
+	 */
+	public LocalDateTime getDeliveredAt() {
+		return deliveredAt;
+	}
+	/**
+	 * @param deliveredAt the deliveredAt to set
+	 */
+	public void setDeliveredAt(LocalDateTime deliveredAt) {
+		this.deliveredAt = deliveredAt;
+	}
+	/**
+	 * @return the version
+	 */
+	public Long getVersion() {
+		return version;
+	}
+	/**
+	 * @param version the version to set
+	 */
+	public void setVersion(Long version) {
+		this.version = version;
+	}
+	/**
+	 * @return the updatedAt
+	 */
+	public LocalDateTime getUpdatedAt() {
+		return updatedAt;
+	}
+	/**
+	 * @param updatedAt the updatedAt to set
+	 */
+	public void setUpdatedAt(LocalDateTime updatedAt) {
+		this.updatedAt = updatedAt;
+	}
+	/**
+	 * Stamp the row on every write made through the entity
+	 */
+	@PrePersist
+	@PreUpdate
+	void touch() {
+		updatedAt = LocalDateTime.now();
+	}
 	/**
 	 * To String method
 	 */
 	@Override
 	public String toString() {
-		return "Reminder [reminderId=" + reminderId + ", schedule=" + schedule + ", news=" + news + "]";
+		return "Reminder [reminderId=" + reminderId + ", schedule=" + schedule + ", newsId="
+				+ EntityIds.idOf(news, () -> news.getNewsId()) + ", deliveredAt=" + deliveredAt + ", version=" + version
+				+ "]";
 	}
 
 }
@@ -0,0 +1,81 @@
+package com.stackroute.newz.model;
+
+import java.time.LocalDateTime;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+/*
+ * The class "ReminderLease" is one row of the lease table that splits the
+ * dispatch of reminders between the running instances. Reminders are spread
+ * over a fixed number of buckets by their reminderId. The node named by owner
+ * is the only one allowed to fire the reminders of the bucket until expiresAt.
+ * A lease without owner, or past its expiry, can be claimed by any node.
+ */
+@Entity
+public class ReminderLease {
+
+	@Id
+	private int bucket;
+	private String owner;
+	private LocalDateTime expiresAt;
+
+	public ReminderLease(int bucket, String owner, LocalDateTime expiresAt) {
+		super();
+		this.bucket = bucket;
+		this.owner = owner;
+		this.expiresAt = expiresAt;
+	}
+
+	public ReminderLease() {
+
+	}
+
+	/**
+	 * @return the bucket
+	 */
+	public int getBucket() {
+		return bucket;
+	}
+
+	/**
+	 * @param bucket the bucket to set
+	 */
+	public void setBucket(int bucket) {
+		this.bucket = bucket;
+	}
+
+	/**
+	 * @return the owner
+	 */
+	public String getOwner() {
+		return owner;
+	}
+
+	/**
+	 * @param owner the owner to set
+	 */
+	public void setOwner(String owner) {
+		this.owner = owner;
+	}
+
+	/**
+	 * @return the expiresAt
+	 */
+	public LocalDateTime getExpiresAt() {
+		return expiresAt;
+	}
+
+	/**
+	 * @param expiresAt the expiresAt to set
+	 */
+	public void setExpiresAt(LocalDateTime expiresAt) {
+		this.expiresAt = expiresAt;
+	}
+
+	@Override
+	public String toString() {
+		return "ReminderLease [bucket=" + bucket + ", owner=" + owner + ", expiresAt=" + expiresAt + "]";
+	}
+
+}
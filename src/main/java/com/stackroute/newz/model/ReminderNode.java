@@ -0,0 +1,63 @@
+package com.stackroute.newz.model;
+
+import java.time.LocalDateTime;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+/*
+ * The class "ReminderNode" is the heartbeat of one running instance. The nodes
+ * seen within the lease duration are the live ones, the buckets are shared
+ * evenly between them.
+ */
+@Entity
+public class ReminderNode {
+
+	@Id
+	private String nodeId;
+	private LocalDateTime lastSeen;
+
+	public ReminderNode(String nodeId, LocalDateTime lastSeen) {
+		super();
+		this.nodeId = nodeId;
+		this.lastSeen = lastSeen;
+	}
+
+	public ReminderNode() {
+
+	}
+
+	/**
+	 * @return the nodeId
+	 */
+	public String getNodeId() {
+		return nodeId;
+	}
+
+	/**
+	 * @param nodeId the nodeId to set
+	 */
+	public void setNodeId(String nodeId) {
+		this.nodeId = nodeId;
+	}
+
+	/**
+	 * @return the lastSeen
+	 */
+	public LocalDateTime getLastSeen() {
+		return lastSeen;
+	}
+
+	/**
+	 * @param lastSeen the lastSeen to set
+	 */
+	public void setLastSeen(LocalDateTime lastSeen) {
+		this.lastSeen = lastSeen;
+	}
+
+	@Override
+	public String toString() {
+		return "ReminderNode [nodeId=" + nodeId + ", lastSeen=" + lastSeen + "]";
+	}
+
+}
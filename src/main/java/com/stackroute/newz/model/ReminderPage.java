@@ -0,0 +1,58 @@
+package com.stackroute.newz.model;
+
+import java.util.List;
+
+/*
+ * The class "ReminderPage" is the response body of a paged read of reminders. It
+ * is not an entity. nextCursor is null on the last page, otherwise it has to be
+ * sent back as the "cursor" request parameter to fetch the following page.
+ */
+public class ReminderPage {
+
+	private List<Reminder> reminders;
+	private String nextCursor;
+
+	public ReminderPage(List<Reminder> reminders, String nextCursor) {
+		super();
+		this.reminders = reminders;
+		this.nextCursor = nextCursor;
+	}
+
+	public ReminderPage() {
+
+	}
+
+	/**
+	 * @return the reminders
+	 */
+	public List<Reminder> getReminders() {
+		return reminders;
+	}
+
+	/**
+	 * @param reminders the reminders to set
+	 */
+	public void setReminders(List<Reminder> reminders) {
+		this.reminders = reminders;
+	}
+
+	/**
+	 * @return the nextCursor
+	 */
+	public String getNextCursor() {
+		return nextCursor;
+	}
+
+	/**
+	 * @param nextCursor the nextCursor to set
+	 */
+	public void setNextCursor(String nextCursor) {
+		this.nextCursor = nextCursor;
+	}
+
+	@Override
+	public String toString() {
+		return "ReminderPage [reminders=" + reminders + ", nextCursor=" + nextCursor + "]";
+	}
+
+}
@@ -2,12 +2,17 @@ package com.stackroute.newz.model;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Set;
 
+import javax.persistence.Cacheable;
+import javax.persistence.Column;
 import javax.persistence.Entity;
-import javax.persistence.GeneratedValue;
-import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.OneToMany;
+import javax.persistence.Version;
+
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
@@ -24,7 +29,15 @@ import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
  */
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "UserProfile")
 public class UserProfile {
+
+	/*
+	 * Fields a client may change through PATCH
+	 */
+	public static final Set<String> PATCHABLE = Set.of("firstName", "lastName", "contact", "createAt");
+
 	/*
 	 * This class should have six fields
 	 * (newsId,firstName,lastName, contact,createAt,newsList). 
@@ -37,10 +50,15 @@ public class UserProfile {
 	 * 
 	 * The data type for createAt field should be LocalDateTime. 
 	 * Please add @JsonSerialize(using = ToStringSerializer.class) for this field
+	 * 
+	 * userId is chosen by the user when registering, it is not generated: an
+	 * identity column would be numeric and could not hold it.
+	 * 
+	 * version is moved on by every write of the row and sent as the ETag, null
+	 * on a profile read from a request body.
 	 */
 	
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
 	private String userId;
 	private String firstName;
 	private String lastName;
@@ -50,6 +68,10 @@ public class UserProfile {
 	@OneToMany
 	@JsonIgnore
 	private List<News> newsList;
+	@Version
+	@Column(nullable = false)
+	@JsonIgnore
+	private Long version;
 	
 
 	public UserProfile(String userId, String firstName, String lastName, String contact, LocalDateTime createAt,
@@ -126,11 +148,21 @@ public class UserProfile {
 	public void setNewsList(List<News> newsList) {
 		this.newsList = newsList;
 	}
+
+
+	public Long getVersion() {
+		return version;
+	}
+
+
+	public void setVersion(Long version) {
+		this.version = version;
+	}
 	
 	@Override
 	public String toString() {
 		return "UserProfile [userId=" + userId + ", firstName=" + firstName + ", lastName=" + lastName + ", contact="
-				+ contact + ", createAt=" + createAt + ", newsList=" + newsList + "]";
+				+ contact + ", createAt=" + createAt + ", version=" + version + "]";
 	}
 	
 
@@ -1,8 +1,22 @@
 package com.stackroute.newz.repository;
 
-import org.springframework.data.jpa.repository.JpaRepository;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import javax.persistence.QueryHint;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.stackroute.newz.model.News;
 
@@ -12,6 +26,83 @@ import com.stackroute.newz.model.News;
 * */
 
 @Repository 
-public interface NewsRepository extends JpaRepository<News, Integer> {
+public interface NewsRepository extends JpaRepository<News, Integer>, NewsRepositoryCustom {
+
+	/*
+	 * All news. Like every query below it only serves reads, so the news are
+	 * loaded read-only, without a snapshot for dirty checking.
+	 */
+	@Override
+	@QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
+	List<News> findAll();
+
+	/*
+	 * First page of the keyset walk: newest news first, ties on publishedAt
+	 * broken by newsId. The Pageable only carries the limit, no count query is run.
+	 * A null publishedAt sorts lowest on MySQL and H2, the news without one come
+	 * last.
+	 */
+	@Query("select n from News n order by n.publishedAt desc, n.newsId desc")
+	@QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
+	List<News> findLatest(Pageable pageable);
+
+	/*
+	 * Every following page: the news strictly after the (publishedAt, newsId)
+	 * position of the last row the client has already seen, so the database
+	 * seeks on the index instead of skipping over an OFFSET. A comparison with
+	 * null is never true, the news without publishedAt that follow are asked for
+	 * on their own.
+	 */
+	@Query("select n from News n where n.publishedAt < :publishedAt "
+			+ "or (n.publishedAt = :publishedAt and n.newsId < :newsId) or n.publishedAt is null "
+			+ "order by n.publishedAt desc, n.newsId desc")
+	@QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
+	List<News> findOlderThan(@Param("publishedAt") LocalDateTime publishedAt, @Param("newsId") int newsId,
+			Pageable pageable);
+
+	/*
+	 * Following page once the walk has reached the news without publishedAt, the
+	 * last ones: those after newsId in the same order
+	 */
+	@Query("select n from News n where n.publishedAt is null and n.newsId < :newsId order by n.newsId desc")
+	@QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
+	List<News> findUndatedOlderThan(@Param("newsId") int newsId, Pageable pageable);
+
+	/*
+	 * A news together with its user and reminder, joined in the same select
+	 */
+	@EntityGraph(News.WITH_USER_AND_REMINDER)
+	@QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
+	Optional<News> findWithUserAndReminderByNewsId(int newsId);
+
+	/*
+	 * Overwrite the news having the same newsId with one statement, without
+	 * loading it first, and move its version on. This is a full replacement of
+	 * the seven scalar columns, title to urlToImage: a field the news leaves null
+	 * is written as null. The user and the reminder are kept as they are. To write
+	 * only the fields a client sends, use patchNews. When the news carries a
+	 * version, the row is only written if it still has that version.
+	 * Returns the number of rows updated, 0 if there is no such news or it has
+	 * another version. The persistence context is cleared, so that the news is
+	 * read back as written.
+	 */
+	@Modifying(flushAutomatically = true, clearAutomatically = true)
+	@Transactional
+	@Query("update News n set n.title = :#{#news.title}, n.author = :#{#news.author}, "
+			+ "n.description = :#{#news.description}, n.publishedAt = :#{#news.publishedAt}, "
+			+ "n.content = :#{#news.content}, n.url = :#{#news.url}, n.urlToImage = :#{#news.urlToImage}, "
+			+ "n.version = n.version + 1 where n.newsId = :#{#news.newsId} "
+			+ "and (:#{#news.version} is null or n.version = :#{#news.version})")
+	int updateNews(@Param("news") News news);
+
+	/*
+	 * Delete a news with one statement, unlike deleteById which loads it first.
+	 * A non null version has to match, as for updateNews. Returns the number of
+	 * rows deleted, 0 if there is no such news or it has another version.
+	 */
+	@Modifying
+	@Transactional
+	@Query("delete from News n where n.newsId = :newsId and (:version is null or n.version = :version)")
+	int deleteByNewsId(@Param("newsId") int newsId, @Param("version") Long version);
 
 }
@@ -0,0 +1,33 @@
+package com.stackroute.newz.repository;
+
+import java.util.Map;
+import java.util.stream.Stream;
+
+import com.stackroute.newz.model.News;
+
+/*
+ * Query methods of NewsRepository that cannot be derived by Spring Data and are
+ * implemented by hand in NewsRepositoryCustomImpl.
+ */
+public interface NewsRepositoryCustom {
+
+	/*
+	 * Stream every news through a forward-only cursor reading fetchSize rows per
+	 * round-trip. The stream holds a database connection and must be closed.
+	 */
+	Stream<News> streamAll(int fetchSize);
+
+	/*
+	 * Stream the newsId and version of every news, as streamAll does, without
+	 * reading the rest of the rows
+	 */
+	Stream<Object[]> streamVersions(int fetchSize);
+
+	/*
+	 * Set the given attributes of a news, and only them, with one statement,
+	 * and move its version on. A non null version has to match. Returns the
+	 * number of rows updated, 0 if there is no such news or it has another version.
+	 */
+	int patchNews(int newsId, Map<String, Object> changes, Long version);
+
+}
@@ -0,0 +1,67 @@
+package com.stackroute.newz.repository;
+
+import java.util.Map;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceUnit;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.query.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.stackroute.newz.model.News;
+
+/*
+ * Implementation of NewsRepositoryCustom, picked up by Spring Data through the
+ * "Impl" suffix.
+ */
+public class NewsRepositoryCustomImpl implements NewsRepositoryCustom {
+
+	@PersistenceUnit
+	private EntityManagerFactory entityManagerFactory;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	/*
+	 * A stateless session has no persistence context, so rows that have been
+	 * consumed are not kept around and memory stays flat whatever the table size.
+	 * Closing the stream closes the cursor and gives the connection back.
+	 */
+	@Override
+	public Stream<News> streamAll(int fetchSize) {
+		StatelessSession session = entityManagerFactory.unwrap(SessionFactory.class).openStatelessSession();
+		try {
+			Query<News> query = session.createQuery("select n from News n", News.class);
+			query.setFetchSize(fetchSize);
+			return query.stream().onClose(session::close);
+		} catch (RuntimeException e) {
+			session.close();
+			throw e;
+		}
+	}
+
+	@Override
+	public Stream<Object[]> streamVersions(int fetchSize) {
+		StatelessSession session = entityManagerFactory.unwrap(SessionFactory.class).openStatelessSession();
+		try {
+			Query<Object[]> query = session.createQuery("select n.newsId, n.version from News n", Object[].class);
+			query.setFetchSize(fetchSize);
+			return query.stream().onClose(session::close);
+		} catch (RuntimeException e) {
+			session.close();
+			throw e;
+		}
+	}
+
+	@Override
+	@Transactional
+	public int patchNews(int newsId, Map<String, Object> changes, Long version) {
+		return PatchStatement.execute(entityManager, News.class, "newsId", newsId, version, changes);
+	}
+
+}
@@ -0,0 +1,50 @@
+package com.stackroute.newz.repository;
+
+import java.util.Map;
+import java.util.StringJoiner;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+
+/*
+ * Bulk update of one entity that sets the given attributes only, so that the
+ * statement sent to the database writes the changed columns and nothing else.
+ * The version of the entity is moved on like by any other write. Shared by the
+ * patch methods of the custom repositories.
+ */
+final class PatchStatement {
+
+	private PatchStatement() {
+	}
+
+	/*
+	 * Returns the number of rows updated, 0 if there is no entity with that id,
+	 * or, when version is not null, none with that id and version. The attribute
+	 * names come from the PATCHABLE list of the entity, they are checked to be
+	 * plain identifiers all the same since they go into the query.
+	 */
+	static int execute(EntityManager entityManager, Class<?> entity, String idAttribute, Object id, Long version,
+			Map<String, Object> changes) {
+		StringJoiner assignments = new StringJoiner(", ");
+		for (String attribute : changes.keySet()) {
+			if (!attribute.matches("[A-Za-z][A-Za-z0-9]*")) {
+				throw new IllegalArgumentException("Not an attribute name: " + attribute);
+			}
+			assignments.add("e." + attribute + " = :" + attribute);
+		}
+		assignments.add("e.version = e.version + 1");
+		String condition = "e." + idAttribute + " = :patchedId";
+		if (version != null) {
+			condition += " and e.version = :patchedVersion";
+		}
+		Query update = entityManager
+				.createQuery("update " + entity.getSimpleName() + " e set " + assignments + " where " + condition);
+		changes.forEach(update::setParameter);
+		update.setParameter("patchedId", id);
+		if (version != null) {
+			update.setParameter("patchedVersion", version);
+		}
+		return update.executeUpdate();
+	}
+
+}
@@ -0,0 +1,45 @@
+package com.stackroute.newz.repository;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.stackroute.newz.model.ReminderLease;
+
+/*
+ * Lease table of the reminder buckets. Every change of ownership is a single
+ * conditional update, so two nodes racing for the same bucket cannot both win:
+ * the row lock makes the second update see the new owner and match no row.
+ */
+@Repository
+public interface ReminderLeaseRepository extends JpaRepository<ReminderLease, Integer> {
+
+	/*
+	 * Take the bucket if it is free or its lease has expired, or extend it if the
+	 * node already holds it. Returns 1 if the node owns the bucket afterwards.
+	 */
+	@Modifying
+	@Query("update ReminderLease l set l.owner = :owner, l.expiresAt = :expiresAt where l.bucket = :bucket "
+			+ "and (l.owner = :owner or l.owner is null or l.expiresAt < :now)")
+	int claim(@Param("bucket") int bucket, @Param("owner") String owner, @Param("now") LocalDateTime now,
+			@Param("expiresAt") LocalDateTime expiresAt);
+
+	/*
+	 * Give the bucket up if the node still holds it
+	 */
+	@Modifying
+	@Query("update ReminderLease l set l.owner = null, l.expiresAt = null where l.bucket = :bucket and l.owner = :owner")
+	int release(@Param("bucket") int bucket, @Param("owner") String owner);
+
+	/*
+	 * Give up every bucket of the node, on shutdown
+	 */
+	@Modifying
+	@Query("update ReminderLease l set l.owner = null, l.expiresAt = null where l.owner = :owner")
+	int releaseAll(@Param("owner") String owner);
+
+}
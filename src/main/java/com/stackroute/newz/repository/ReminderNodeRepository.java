@@ -0,0 +1,31 @@
+package com.stackroute.newz.repository;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.stackroute.newz.model.ReminderNode;
+
+/*
+ * Heartbeats of the running instances
+ */
+@Repository
+public interface ReminderNodeRepository extends JpaRepository<ReminderNode, String> {
+
+	/*
+	 * Number of nodes that have sent a heartbeat since "since"
+	 */
+	long countByLastSeenAfter(LocalDateTime since);
+
+	/*
+	 * Forget the nodes that stopped sending heartbeats before "since"
+	 */
+	@Modifying
+	@Query("delete from ReminderNode n where n.lastSeen < :since")
+	int deleteByLastSeenBefore(@Param("since") LocalDateTime since);
+
+}
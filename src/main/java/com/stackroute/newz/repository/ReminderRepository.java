@@ -1,7 +1,25 @@
 package com.stackroute.newz.repository;
 
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_MODE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Collection;
+import java.util.Optional;
+
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.stackroute.newz.model.Reminder;
 
@@ -10,6 +28,124 @@ import com.stackroute.newz.model.Reminder;
 * Annotate this class with @Repository annotation
 * */
 @Repository 
-public interface ReminderRepository extends  JpaRepository<Reminder,Integer> {
+public interface ReminderRepository extends  JpaRepository<Reminder,Integer>, ReminderRepositoryCustom {
+
+	/*
+	 * All reminders, through the query cache. The cached result only holds ids,
+	 * the reminders themselves come from the Reminder second-level cache region.
+	 * Like every query below it only serves reads, so the reminders are loaded
+	 * read-only, without a snapshot for dirty checking.
+	 */
+	@Override
+	@QueryHints({ @QueryHint(name = HINT_CACHEABLE, value = "true"), @QueryHint(name = HINT_READONLY, value = "true") })
+	List<Reminder> findAll();
+
+	/*
+	 * Reminders together with the news they are about, joined in the same select
+	 */
+	@EntityGraph(Reminder.WITH_NEWS)
+	@QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
+	List<Reminder> findAllWithNewsBy();
+
+	@EntityGraph(Reminder.WITH_NEWS)
+	@QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
+	Optional<Reminder> findWithNewsByReminderId(int reminderId);
+
+	/*
+	 * The reminders among the given ones that still exist and are not yet
+	 * delivered, read by the ReminderEngine when they come due. They bypass the
+	 * second-level cache, another instance may have changed them.
+	 */
+	@Query("select r from Reminder r where r.reminderId in :reminderIds and r.deliveredAt is null")
+	@QueryHints({ @QueryHint(name = HINT_READONLY, value = "true"), @QueryHint(name = HINT_CACHE_MODE, value = "IGNORE") })
+	List<Reminder> findUndelivered(@Param("reminderIds") Collection<Integer> reminderIds);
+
+	/*
+	 * First page of the reminders due after "after", up to and including "before",
+	 * earliest first, ties on schedule broken by reminderId. Both are a range on
+	 * the (schedule, reminderId) index, the Pageable only carries the limit.
+	 */
+	@Query("select r from Reminder r where r.schedule > :after and r.schedule <= :before "
+			+ "order by r.schedule, r.reminderId")
+	@QueryHints({ @QueryHint(name = HINT_READONLY, value = "true"), @QueryHint(name = HINT_CACHE_MODE, value = "IGNORE") })
+	List<Reminder> findDue(@Param("after") LocalDateTime after, @Param("before") LocalDateTime before,
+			Pageable pageable);
+
+	/*
+	 * Every following page: the reminders strictly after the (schedule, reminderId)
+	 * position of the last row the client has already seen. The plain bound on
+	 * schedule keeps the seek on the index whatever the database does with the OR.
+	 */
+	@Query("select r from Reminder r where r.schedule >= :schedule and r.schedule <= :before "
+			+ "and (r.schedule > :schedule or r.reminderId > :reminderId) "
+			+ "order by r.schedule, r.reminderId")
+	@QueryHints({ @QueryHint(name = HINT_READONLY, value = "true"), @QueryHint(name = HINT_CACHE_MODE, value = "IGNORE") })
+	List<Reminder> findDueFrom(@Param("schedule") LocalDateTime schedule, @Param("reminderId") int reminderId,
+			@Param("before") LocalDateTime before, Pageable pageable);
+
+	/*
+	 * Time of the latest write of any reminder, null when none has been stamped
+	 */
+	@Query("select max(r.updatedAt) from Reminder r")
+	LocalDateTime findLastUpdatedAt();
+
+	/*
+	 * First page of the reminders written after "since", delivered ones included,
+	 * oldest write first, ties broken by reminderId. The ReminderEngine reads the
+	 * writes of the other instances this way, keyset paged like findDue on the
+	 * (updatedAt, reminderId) index.
+	 */
+	@Query("select r from Reminder r where r.updatedAt > :since order by r.updatedAt, r.reminderId")
+	@QueryHints({ @QueryHint(name = HINT_READONLY, value = "true"), @QueryHint(name = HINT_CACHE_MODE, value = "IGNORE") })
+	List<Reminder> findChangedAfter(@Param("since") LocalDateTime since, Pageable pageable);
+
+	/*
+	 * Every following page: the reminders written strictly after the (updatedAt,
+	 * reminderId) position of the last row read
+	 */
+	@Query("select r from Reminder r where r.updatedAt >= :updatedAt "
+			+ "and (r.updatedAt > :updatedAt or r.reminderId > :reminderId) order by r.updatedAt, r.reminderId")
+	@QueryHints({ @QueryHint(name = HINT_READONLY, value = "true"), @QueryHint(name = HINT_CACHE_MODE, value = "IGNORE") })
+	List<Reminder> findChangedFrom(@Param("updatedAt") LocalDateTime updatedAt, @Param("reminderId") int reminderId,
+			Pageable pageable);
+
+	/*
+	 * Mark a whole batch of reminders as delivered with one statement. Being a
+	 * bulk update, it also empties the Reminder cache region. Like every bulk
+	 * update below it stamps updatedAt itself, no entity callback runs for it.
+	 */
+	@Modifying
+	@Transactional
+	@Query("update Reminder r set r.deliveredAt = :deliveredAt, r.version = r.version + 1, "
+			+ "r.updatedAt = :#{T(java.time.LocalDateTime).now()} where r.reminderId in :reminderIds")
+	int markDelivered(@Param("reminderIds") Collection<Integer> reminderIds,
+			@Param("deliveredAt") LocalDateTime deliveredAt);
+
+	/*
+	 * Overwrite the reminder having the same reminderId with one statement,
+	 * without loading it first, and move its version on. Only the schedule is
+	 * written, the news and the delivery time are kept as they are. When the
+	 * reminder carries a version, the row is only written if it still has that
+	 * version. Returns the number of rows updated, 0 if there is no such reminder
+	 * or it has another version. Being a bulk update, it also empties the
+	 * Reminder cache region.
+	 */
+	@Modifying(flushAutomatically = true, clearAutomatically = true)
+	@Transactional
+	@Query("update Reminder r set r.schedule = :#{#reminder.schedule}, r.version = r.version + 1, "
+			+ "r.updatedAt = :#{T(java.time.LocalDateTime).now()} where r.reminderId = :#{#reminder.reminderId} "
+			+ "and (:#{#reminder.version} is null or r.version = :#{#reminder.version})")
+	int updateReminder(@Param("reminder") Reminder reminder);
+
+	/*
+	 * Delete a reminder with one statement, unlike deleteById which loads it
+	 * first. A non null version has to match, as for updateReminder. Returns the
+	 * number of rows deleted, 0 if there is no such reminder or it has another
+	 * version.
+	 */
+	@Modifying
+	@Transactional
+	@Query("delete from Reminder r where r.reminderId = :reminderId and (:version is null or r.version = :version)")
+	int deleteByReminderId(@Param("reminderId") int reminderId, @Param("version") Long version);
 
 }
@@ -0,0 +1,18 @@
+package com.stackroute.newz.repository;
+
+import java.util.Map;
+
+/*
+ * Query methods of ReminderRepository that cannot be derived by Spring Data and
+ * are implemented by hand in ReminderRepositoryCustomImpl.
+ */
+public interface ReminderRepositoryCustom {
+
+	/*
+	 * Set the given attributes of a reminder, and only them, with one statement,
+	 * and move its version on. A non null version has to match. Returns the
+	 * number of rows updated, 0 if there is no such reminder or it has another version.
+	 */
+	int patchReminder(int reminderId, Map<String, Object> changes, Long version);
+
+}
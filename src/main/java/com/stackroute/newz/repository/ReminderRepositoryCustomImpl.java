@@ -0,0 +1,35 @@
+package com.stackroute.newz.repository;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.springframework.transaction.annotation.Transactional;
+
+import com.stackroute.newz.model.Reminder;
+
+/*
+ * Implementation of ReminderRepositoryCustom, picked up by Spring Data through
+ * the "Impl" suffix.
+ */
+public class ReminderRepositoryCustomImpl implements ReminderRepositoryCustom {
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	/*
+	 * Being a bulk update, it empties the Reminder cache region. It stamps
+	 * updatedAt itself, no entity callback runs for it.
+	 */
+	@Override
+	@Transactional
+	public int patchReminder(int reminderId, Map<String, Object> changes, Long version) {
+		Map<String, Object> stamped = new HashMap<>(changes);
+		stamped.put("updatedAt", LocalDateTime.now());
+		return PatchStatement.execute(entityManager, Reminder.class, "reminderId", reminderId, version, stamped);
+	}
+
+}
@@ -1,7 +1,18 @@
 package com.stackroute.newz.repository;
 
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+import java.util.List;
+
+import javax.persistence.QueryHint;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.stackroute.newz.model.UserProfile;
 
@@ -10,6 +21,39 @@ import com.stackroute.newz.model.UserProfile;
 * Annotate this class with @Repository annotation
 * */
 @Repository 
-public interface UserProfileRepository extends JpaRepository<UserProfile, String> {
+public interface UserProfileRepository extends JpaRepository<UserProfile, String>, UserProfileRepositoryCustom {
+
+	/*
+	 * All user profiles, loaded read-only: no snapshot is kept for dirty checking
+	 */
+	@Override
+	@QueryHints(@QueryHint(name = HINT_READONLY, value = "true"))
+	List<UserProfile> findAll();
+
+	/*
+	 * Overwrite the profile of userId with one statement, without loading it
+	 * first, and move its version on. When the profile carries a version, the row
+	 * is only written if it still has that version. Returns the number of rows
+	 * updated, 0 if there is no such profile or it has another version. Being a
+	 * bulk update, it also empties the UserProfile cache region, and the
+	 * persistence context is cleared so that the profile is read back as written.
+	 */
+	@Modifying(flushAutomatically = true, clearAutomatically = true)
+	@Transactional
+	@Query("update UserProfile u set u.firstName = :#{#user.firstName}, u.lastName = :#{#user.lastName}, "
+			+ "u.contact = :#{#user.contact}, u.createAt = :#{#user.createAt}, u.version = u.version + 1 "
+			+ "where u.userId = :userId and (:#{#user.version} is null or u.version = :#{#user.version})")
+	int updateUserProfile(@Param("user") UserProfile user, @Param("userId") String userId);
+
+	/*
+	 * Delete a profile with one statement, unlike deleteById which loads it first.
+	 * Hibernate also clears the join table of its newsList. A non null version
+	 * has to match, as for updateUserProfile. Returns the number of rows deleted,
+	 * 0 if there is no such profile or it has another version.
+	 */
+	@Modifying
+	@Transactional
+	@Query("delete from UserProfile u where u.userId = :userId and (:version is null or u.version = :version)")
+	int deleteByUserId(@Param("userId") String userId, @Param("version") Long version);
 
 }
@@ -0,0 +1,26 @@
+package com.stackroute.newz.repository;
+
+import java.util.Map;
+
+import com.stackroute.newz.model.UserProfile;
+
+/*
+ * Query methods of UserProfileRepository that cannot be derived by Spring Data
+ * and are implemented by hand in UserProfileRepositoryCustomImpl.
+ */
+public interface UserProfileRepositoryCustom {
+
+	/*
+	 * Insert the user profile unless one with the same userId is already there,
+	 * with one statement. Returns false if it was already there.
+	 */
+	boolean insertIfAbsent(UserProfile user);
+
+	/*
+	 * Set the given attributes of a profile, and only them, with one statement,
+	 * and move its version on. A non null version has to match. Returns the
+	 * number of rows updated, 0 if there is no such profile or it has another version.
+	 */
+	int patchUserProfile(String userId, Map<String, Object> changes, Long version);
+
+}
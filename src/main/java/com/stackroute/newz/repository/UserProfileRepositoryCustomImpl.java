@@ -0,0 +1,54 @@
+package com.stackroute.newz.repository;
+
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.hibernate.query.NativeQuery;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.stackroute.newz.model.UserProfile;
+
+/*
+ * Implementation of UserProfileRepositoryCustom, picked up by Spring Data
+ * through the "Impl" suffix.
+ */
+public class UserProfileRepositoryCustomImpl implements UserProfileRepositoryCustom {
+
+	private static final String INSERT_IF_ABSENT = "insert into user_profile "
+			+ "(user_id, first_name, last_name, contact, create_at, version) "
+			+ "select :userId, :firstName, :lastName, :contact, :createAt, 0 from dual "
+			+ "where not exists (select 1 from user_profile where user_id = :userId)";
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	/*
+	 * JPQL has no insert of values, hence the native statement, which both H2 and
+	 * MySQL run. Hibernate is told the statement only touches user profiles, else
+	 * it would empty every second-level cache region.
+	 */
+	@Override
+	@Transactional
+	public boolean insertIfAbsent(UserProfile user) {
+		NativeQuery<?> insert = entityManager.createNativeQuery(INSERT_IF_ABSENT).unwrap(NativeQuery.class);
+		insert.addSynchronizedEntityClass(UserProfile.class);
+		insert.setParameter("userId", user.getUserId());
+		insert.setParameter("firstName", user.getFirstName());
+		insert.setParameter("lastName", user.getLastName());
+		insert.setParameter("contact", user.getContact());
+		insert.setParameter("createAt", user.getCreateAt());
+		return insert.executeUpdate() == 1;
+	}
+
+	/*
+	 * Being a bulk update, it empties the UserProfile cache region
+	 */
+	@Override
+	@Transactional
+	public int patchUserProfile(String userId, Map<String, Object> changes, Long version) {
+		return PatchStatement.execute(entityManager, UserProfile.class, "userId", userId, version, changes);
+	}
+
+}
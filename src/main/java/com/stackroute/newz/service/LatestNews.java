@@ -0,0 +1,61 @@
+package com.stackroute.newz.service;
+
+import com.stackroute.newz.model.News;
+
+/*
+ * The newest news, the first page of GET /api/v1/news, held ready to be sent.
+ * NewsService reports every write of a news here, the changes are applied once
+ * the transaction of the write has committed.
+ */
+public interface LatestNews {
+
+	/*
+	 * The current page, read from the database if there is none yet
+	 */
+	Snapshot current();
+
+	/*
+	 * A news has been added or changed
+	 */
+	void saved(News news);
+
+	void deleted(int newsId);
+
+	/*
+	 * Read the page again, for writes too many or too wide to be applied one by
+	 * one
+	 */
+	void reload();
+
+	/*
+	 * The page serialized as JSON, plain and gzipped, and a tag of its content.
+	 * The tag is the one of the plain JSON, the gzipped body is sent with a tag of
+	 * its own made from it, see EntityTags.of(long, String).
+	 */
+	final class Snapshot {
+
+		private final byte[] json;
+		private final byte[] gzip;
+		private final long tag;
+
+		public Snapshot(byte[] json, byte[] gzip, long tag) {
+			this.json = json;
+			this.gzip = gzip;
+			this.tag = tag;
+		}
+
+		public byte[] getJson() {
+			return json;
+		}
+
+		public byte[] getGzip() {
+			return gzip;
+		}
+
+		public long getTag() {
+			return tag;
+		}
+
+	}
+
+}
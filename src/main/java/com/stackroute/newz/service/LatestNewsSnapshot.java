@@ -0,0 +1,242 @@
+package com.stackroute.newz.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPOutputStream;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stackroute.newz.config.LatestNewsProperties;
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsPage;
+import com.stackroute.newz.repository.NewsRepository;
+import com.stackroute.newz.util.AfterCommit;
+import com.stackroute.newz.util.NewsCursor;
+
+/*
+ * Latest news kept in memory as the bytes of the response.
+ *
+ * The page is the same for every client, so it is serialized and gzipped once
+ * per change instead of once per request. A write is applied to the rows held
+ * here after its transaction commits, then the page is built again and swapped
+ * in whole. Readers take the current page without locking.
+ *
+ * One row more than the page is held, to know whether a next page exists. A
+ * change that leaves a gap at the end of the rows, a deleted row or a row moved
+ * past the last one, cannot be filled from memory: the rows are read again.
+ * Writes of other instances only get in when the rows are read again, which is
+ * also done every refresh-interval.
+ */
+@Component
+public class LatestNewsSnapshot implements LatestNews {
+
+	private static final Logger logger = LoggerFactory.getLogger(LatestNewsSnapshot.class);
+
+	/*
+	 * The order of NewsRepository.findLatest, a null publishedAt comes last as
+	 * it does in a descending ORDER BY
+	 */
+	private static final Comparator<News> NEWEST_FIRST = Comparator
+			.comparing(News::getPublishedAt, Comparator.nullsFirst(Comparator.<LocalDateTime>naturalOrder()))
+			.thenComparingInt(News::getNewsId).reversed();
+
+	@Autowired
+	NewsRepository newsRepo;
+
+	@Autowired
+	NewsWriteBehind writeBehind;
+
+	@Autowired
+	LatestNewsProperties properties;
+
+	@Autowired
+	ObjectMapper objectMapper;
+
+	@Autowired
+	PlatformTransactionManager transactionManager;
+
+	/*
+	 * Newest first, at most size + 1 of them, null until the first read. Guarded
+	 * by this.
+	 */
+	private List<News> rows;
+
+	/*
+	 * Whether rows holds every news there is. Guarded by this.
+	 */
+	private boolean complete;
+
+	private volatile Snapshot current;
+
+	private TransactionTemplate readTransaction;
+
+	private ScheduledExecutorService executor;
+
+	@PostConstruct
+	public void start() {
+		// not read-only, so that it goes to the primary: the replica may not have
+		// the write the rows are read again for yet
+		readTransaction = new TransactionTemplate(transactionManager);
+		readTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		long refreshInterval = properties.getRefreshInterval().toMillis();
+		if (refreshInterval <= 0) {
+			return;
+		}
+		executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "latest-news");
+			thread.setDaemon(true);
+			return thread;
+		});
+		executor.scheduleWithFixedDelay(this::refresh, refreshInterval, refreshInterval, TimeUnit.MILLISECONDS);
+	}
+
+	@PreDestroy
+	public void stop() {
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+	}
+
+	@Override
+	public Snapshot current() {
+		Snapshot snapshot = current;
+		if (snapshot != null) {
+			return snapshot;
+		}
+		synchronized (this) {
+			if (current == null) {
+				load();
+			}
+			return current;
+		}
+	}
+
+	@Override
+	public void saved(News news) {
+		afterCommit(() -> apply(news));
+	}
+
+	@Override
+	public void deleted(int newsId) {
+		afterCommit(() -> remove(newsId));
+	}
+
+	@Override
+	public void reload() {
+		afterCommit(this::load);
+	}
+
+	private synchronized void apply(News news) {
+		if (rows == null) {
+			return;
+		}
+		boolean moved = rows.removeIf(row -> row.getNewsId() == news.getNewsId());
+		int position = Collections.binarySearch(rows, news, NEWEST_FIRST);
+		position = position < 0 ? -position - 1 : position;
+		if (position == rows.size() && !complete) {
+			// older than every row held, it only matters if it left a gap
+			if (moved) {
+				load();
+			}
+			return;
+		}
+		rows.add(position, news);
+		if (rows.size() > properties.getSize() + 1) {
+			rows.remove(rows.size() - 1);
+			complete = false;
+		}
+		publish();
+	}
+
+	private synchronized void remove(int newsId) {
+		if (rows == null || !rows.removeIf(row -> row.getNewsId() == newsId)) {
+			return;
+		}
+		if (complete) {
+			publish();
+		} else {
+			load();
+		}
+	}
+
+	private synchronized void load() {
+		writeBehind.flush();
+		List<News> latest = readTransaction
+				.execute(status -> newsRepo.findLatest(PageRequest.of(0, properties.getSize() + 1)));
+		rows = new ArrayList<>(latest);
+		complete = rows.size() <= properties.getSize();
+		publish();
+	}
+
+	private void refresh() {
+		try {
+			load();
+		} catch (RuntimeException e) {
+			logger.warn("could not read the latest news again", e);
+		}
+	}
+
+	/*
+	 * Serialize the page as GET /api/v1/news would send it, then swap it in
+	 */
+	private void publish() {
+		int size = properties.getSize();
+		List<News> page = new ArrayList<>(rows.subList(0, Math.min(size, rows.size())));
+		String nextCursor = rows.size() > size ? NewsCursor.after(page.get(size - 1)).encode() : null;
+		try {
+			byte[] json = objectMapper.writeValueAsBytes(new NewsPage(page, nextCursor));
+			ByteArrayOutputStream gzip = new ByteArrayOutputStream(json.length / 4);
+			try (GZIPOutputStream out = new GZIPOutputStream(gzip)) {
+				out.write(json);
+			}
+			CRC32 crc = new CRC32();
+			crc.update(json);
+			current = new Snapshot(json, gzip.toByteArray(), crc.getValue());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/*
+	 * Run the change once the current transaction has committed. It has to leave
+	 * the write alone: if it fails, the page is dropped and read again by the
+	 * next request.
+	 */
+	private void afterCommit(Runnable change) {
+		AfterCommit.run(() -> {
+			try {
+				change.run();
+			} catch (RuntimeException e) {
+				logger.warn("dropping the latest news, they are read again on the next request", e);
+				discard();
+			}
+		});
+	}
+
+	private synchronized void discard() {
+		rows = null;
+		current = null;
+	}
+
+}
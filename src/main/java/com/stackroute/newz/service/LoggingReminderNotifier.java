@@ -0,0 +1,20 @@
+package com.stackroute.newz.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.stackroute.newz.model.Reminder;
+
+/*
+ * Default ReminderNotifier, writes every due reminder to the log.
+ */
+public class LoggingReminderNotifier implements ReminderNotifier {
+
+	private static final Logger logger = LoggerFactory.getLogger(LoggingReminderNotifier.class);
+
+	@Override
+	public void notify(Reminder reminder) {
+		logger.info("reminder {} is due, scheduled at {}", reminder.getReminderId(), reminder.getSchedule());
+	}
+
+}
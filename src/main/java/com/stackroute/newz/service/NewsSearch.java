@@ -0,0 +1,26 @@
+package com.stackroute.newz.service;
+
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.util.InvertedIndex;
+
+/*
+ * Full-text search over the title, description and content of the news.
+ * NewsService reports every write of a news here, the changes are searchable
+ * once the transaction of the write has committed.
+ */
+public interface NewsSearch {
+
+	/*
+	 * The newsIds of the news matching any word of the query, best first, from
+	 * offset on
+	 */
+	InvertedIndex.Hits search(String query, int offset, int limit);
+
+	/*
+	 * A news has been added or changed
+	 */
+	void saved(News news);
+
+	void deleted(int newsId);
+
+}
@@ -0,0 +1,312 @@
+package com.stackroute.newz.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.stackroute.newz.config.NewsSearchProperties;
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.repository.NewsRepository;
+import com.stackroute.newz.util.AfterCommit;
+import com.stackroute.newz.util.InvertedIndex;
+
+/*
+ * Full-text search of the news in an InvertedIndex held in memory.
+ *
+ * A write is applied to the index after its transaction commits, the news is
+ * searchable as soon as the write has returned. Searches share a read lock,
+ * writes take the write lock for the time of one document.
+ *
+ * On start the index is read back from its file, then brought up to date in
+ * the background: the newsId and version of every row are read, the news
+ * missing from the index or indexed with another version are read whole and
+ * indexed again, and the indexed news no longer in the database are removed.
+ * Without file every news is read. Until then searches see the index as it
+ * is. The news written meanwhile are in the index already, the load leaves
+ * them alone.
+ *
+ * Writes of other instances only get in through that load, on the next start.
+ */
+@Component
+public class NewsSearchIndex implements NewsSearch {
+
+	private static final Logger logger = LoggerFactory.getLogger(NewsSearchIndex.class);
+
+	/*
+	 * Weights of the title, description and content: a word of the title counts
+	 * twice
+	 */
+	private static final int[] WEIGHTS = { 2, 1, 1 };
+
+	private static final long RETRY_DELAY = 30_000;
+
+	@Autowired
+	NewsRepository newsRepo;
+
+	@Autowired
+	NewsWriteBehind writeBehind;
+
+	@Autowired
+	NewsSearchProperties properties;
+
+	@Autowired
+	PlatformTransactionManager transactionManager;
+
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	/*
+	 * Guarded by lock
+	 */
+	private InvertedIndex index = new InvertedIndex(WEIGHTS);
+
+	/*
+	 * newsIds written while the index is brought up to date, null once it is.
+	 * Guarded by lock.
+	 */
+	private Set<Integer> touched = new HashSet<>();
+
+	/*
+	 * Whether the index changed since it was last written to its file
+	 */
+	private volatile boolean dirty;
+
+	private TransactionTemplate readTransaction;
+
+	private ScheduledExecutorService executor;
+
+	@PostConstruct
+	public void start() {
+		if (!properties.isEnabled()) {
+			return;
+		}
+		// not read-only, so that it goes to the primary: the replica may not have
+		// the writes the index already holds
+		readTransaction = new TransactionTemplate(transactionManager);
+		readTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		if (properties.isPersist()) {
+			readSnapshot();
+		}
+		executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "news-search");
+			thread.setDaemon(true);
+			return thread;
+		});
+		executor.execute(this::load);
+		long snapshotInterval = properties.getSnapshotInterval().toMillis();
+		if (properties.isPersist() && snapshotInterval > 0) {
+			executor.scheduleWithFixedDelay(this::writeSnapshot, snapshotInterval, snapshotInterval,
+					TimeUnit.MILLISECONDS);
+		}
+	}
+
+	@PreDestroy
+	public void stop() {
+		if (executor == null) {
+			return;
+		}
+		executor.shutdownNow();
+		if (properties.isPersist()) {
+			writeSnapshot();
+		}
+	}
+
+	@Override
+	public InvertedIndex.Hits search(String query, int offset, int limit) {
+		if (!properties.isEnabled()) {
+			return new InvertedIndex.Hits(0, Collections.emptyList());
+		}
+		lock.readLock().lock();
+		try {
+			return index.search(query, offset, limit);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public void saved(News news) {
+		if (properties.isEnabled()) {
+			AfterCommit.run(() -> change(news.getNewsId(), () -> add(news)));
+		}
+	}
+
+	@Override
+	public void deleted(int newsId) {
+		if (properties.isEnabled()) {
+			AfterCommit.run(() -> change(newsId, () -> dirty |= index.remove(newsId)));
+		}
+	}
+
+	/*
+	 * Apply a write to the index. The write itself has committed already, a
+	 * failure is only logged: the news is indexed again on the next start.
+	 */
+	private void change(int newsId, Runnable change) {
+		lock.writeLock().lock();
+		try {
+			change.run();
+			if (touched != null) {
+				touched.add(newsId);
+			}
+		} catch (RuntimeException e) {
+			logger.warn("could not index the news {}", newsId, e);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/*
+	 * Guarded by lock
+	 */
+	private void add(News news) {
+		long version = news.getVersion() == null ? InvertedIndex.NO_VERSION : news.getVersion();
+		index.add(news.getNewsId(), version, news.getTitle(), news.getDescription(), news.getContent());
+		dirty = true;
+	}
+
+	/*
+	 * Bring the index up to date with the database, see the class comment
+	 */
+	private void load() {
+		try {
+			writeBehind.flush();
+			int fetchSize = properties.getFetchSize();
+			int[] seen = new int[1024];
+			int count = 0;
+			List<Integer> stale = new ArrayList<>(fetchSize);
+			try (Stream<Object[]> versions = newsRepo.streamVersions(fetchSize)) {
+				Iterator<Object[]> rows = versions.iterator();
+				while (rows.hasNext()) {
+					Object[] row = rows.next();
+					int newsId = ((Number) row[0]).intValue();
+					if (count == seen.length) {
+						seen = Arrays.copyOf(seen, count * 2);
+					}
+					seen[count++] = newsId;
+					if (indexedVersion(newsId) != ((Number) row[1]).longValue()) {
+						stale.add(newsId);
+						if (stale.size() == fetchSize) {
+							reindex(stale);
+							stale.clear();
+						}
+					}
+				}
+			}
+			reindex(stale);
+			Arrays.sort(seen, 0, count);
+			lock.writeLock().lock();
+			try {
+				for (int newsId : index.keys()) {
+					if (Arrays.binarySearch(seen, 0, count, newsId) < 0 && !touched.contains(newsId)) {
+						index.remove(newsId);
+						dirty = true;
+					}
+				}
+				touched = null;
+				logger.info("search index up to date, {} news", index.size());
+			} finally {
+				lock.writeLock().unlock();
+			}
+		} catch (RuntimeException e) {
+			logger.warn("could not bring the search index up to date, trying again in {} ms", RETRY_DELAY, e);
+			if (!executor.isShutdown()) {
+				executor.schedule(this::load, RETRY_DELAY, TimeUnit.MILLISECONDS);
+			}
+		}
+	}
+
+	private long indexedVersion(int newsId) {
+		lock.readLock().lock();
+		try {
+			return index.version(newsId);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/*
+	 * Index the current rows of the news, but not the ones written since the
+	 * load started: the index has a newer state of them than the one read here
+	 */
+	private void reindex(List<Integer> newsIds) {
+		if (newsIds.isEmpty()) {
+			return;
+		}
+		List<News> rows = readTransaction.execute(status -> newsRepo.findAllById(newsIds));
+		lock.writeLock().lock();
+		try {
+			for (News news : rows) {
+				if (!touched.contains(news.getNewsId())) {
+					add(news);
+				}
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void readSnapshot() {
+		Path path = Paths.get(properties.getIndexFile());
+		if (!Files.exists(path)) {
+			return;
+		}
+		try {
+			InvertedIndex snapshot = InvertedIndex.readFrom(path, WEIGHTS);
+			lock.writeLock().lock();
+			try {
+				index = snapshot;
+			} finally {
+				lock.writeLock().unlock();
+			}
+			logger.info("read the search index from {}, {} news", path, snapshot.size());
+		} catch (IOException e) {
+			logger.warn("ignoring the search index in {}, it is built again", path, e);
+		}
+	}
+
+	/*
+	 * Write the index to its file if it changed. Writes wait meanwhile, searches
+	 * do not.
+	 */
+	private synchronized void writeSnapshot() {
+		if (!dirty) {
+			return;
+		}
+		Path path = Paths.get(properties.getIndexFile());
+		lock.readLock().lock();
+		try {
+			dirty = false;
+			index.writeTo(path);
+		} catch (IOException e) {
+			dirty = true;
+			logger.warn("could not write the search index to {}", path, e);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+}
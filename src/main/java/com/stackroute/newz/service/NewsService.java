@@ -1,10 +1,18 @@
 package com.stackroute.newz.service;
 
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsBatchItem;
+import com.stackroute.newz.model.NewsPage;
+import com.stackroute.newz.model.NewsSearchPage;
+import com.stackroute.newz.util.exception.InvalidCursorException;
 import com.stackroute.newz.util.exception.NewsAlreadyExistsException;
 import com.stackroute.newz.util.exception.NewsNotExistsException;
+import com.stackroute.newz.util.exception.VersionMismatchException;
 
 public interface NewsService {
 
@@ -14,12 +22,23 @@ public interface NewsService {
 	 */
 	public News addNews(News news) throws NewsAlreadyExistsException;
 
+	public List<NewsBatchItem> addNewsBatch(Iterator<News> news);
+
 	public News getNews(int newsId) throws NewsNotExistsException;
 
 	public List<News> getAllNews();
 
-	public News updateNews(News news) throws NewsNotExistsException;
+	public NewsPage getNewsPage(String cursor, int size) throws InvalidCursorException;
+
+	public Stream<News> streamAllNews();
+
+	public NewsSearchPage searchNews(String query, int page, int size);
+
+	public News updateNews(News news) throws NewsNotExistsException, VersionMismatchException;
+
+	public News patchNews(int newsId, Map<String, Object> changes, Long version)
+			throws NewsNotExistsException, VersionMismatchException;
 
-	public void deleteNews(int news) throws NewsNotExistsException;
+	public void deleteNews(int news, Long version) throws NewsNotExistsException, VersionMismatchException;
 
 }
@@ -1,16 +1,48 @@
 package com.stackroute.newz.service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.hibernate.proxy.HibernateProxy;
+import org.springframework.beans.BeanWrapperImpl;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.stackroute.newz.config.CacheConfig;
+import com.stackroute.newz.config.ReadWriteRoutingDataSource;
 import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsBatchItem;
+import com.stackroute.newz.model.NewsPage;
+import com.stackroute.newz.model.NewsSearchPage;
+import com.stackroute.newz.model.Reminder;
+import com.stackroute.newz.model.UserProfile;
 import com.stackroute.newz.repository.NewsRepository;
 import com.stackroute.newz.service.NewsService;
+import com.stackroute.newz.util.AfterCommit;
+import com.stackroute.newz.util.InvertedIndex;
+import com.stackroute.newz.util.NegativeCache;
+import com.stackroute.newz.util.NewsCursor;
+import com.stackroute.newz.util.NewsJournal;
+import com.stackroute.newz.util.SingleFlight;
+import com.stackroute.newz.util.exception.InvalidCursorException;
 import com.stackroute.newz.util.exception.NewsAlreadyExistsException;
 import com.stackroute.newz.util.exception.NewsNotExistsException;
+import com.stackroute.newz.util.exception.VersionMismatchException;
 
 
 /*
@@ -31,68 +63,436 @@ public class NewsServiceImpl implements NewsService {
 	NewsRepository newsRepo;
 
 	/*
-	 * Add a new news. Throw NewsAlreadyExistsException if the news with specified
-	 * newsId already exists.
+	 * Short lived memory of the newsIds that were not found
+	 */
+	@Autowired
+	NegativeCache negativeCache;
+
+	/*
+	 * Page size used when the client does not ask for one, and the upper bound
+	 * of what a client may ask for.
+	 */
+	@Value("${newz.news.page.default-size:20}")
+	int defaultPageSize = 20;
+
+	@Value("${newz.news.page.max-size:100}")
+	int maxPageSize = 100;
+
+	/*
+	 * Number of rows the export cursor reads from the database per round-trip.
+	 */
+	@Value("${newz.news.export.fetch-size:500}")
+	int exportFetchSize = 500;
+
+	/*
+	 * Number of news written per transaction by addNewsBatch. Inside a chunk
+	 * Hibernate groups the inserts in JDBC batches of hibernate.jdbc.batch_size.
+	 */
+	@Value("${newz.news.batch.chunk-size:1000}")
+	int batchChunkSize = 1000;
+
+	@Autowired
+	TransactionTemplate transactionTemplate;
+
+	@PersistenceContext
+	EntityManager entityManager;
+
+	/*
+	 * Buffers the writes of addNews, updateNews and deleteNews when the opt-in
+	 * write-behind mode is on. Reads look there first.
+	 */
+	@Autowired
+	NewsWriteBehind writeBehind;
+
+	/*
+	 * The first page of news kept serialized, every write is reported to it
+	 */
+	@Autowired
+	LatestNews latestNews;
+
+	/*
+	 * Full-text index of the news, every write is reported to it as well
 	 */
+	@Autowired
+	NewsSearch newsSearch;
+
+	/*
+	 * Concurrent cache misses on the same newsId share a single findById
+	 */
+	private final SingleFlight<Integer, News> newsLoads = new SingleFlight<>();
+
+	/*
+	 * Add a new news. Its newsId is always allocated here, as in addNewsBatch,
+	 * any newsId sent by the client is ignored: a fresh id cannot already exist, so
+	 * the news is inserted without looking for it first. In write-behind mode the
+	 * news is buffered instead.
+	 */
+	@Transactional
 	public News addNews(News news) throws NewsAlreadyExistsException {
-		News newsObj = newsRepo.getOne(news.getNewsId());
-		if(newsObj!=null) {
-			throw new NewsAlreadyExistsException();
-		}else {
-			return newsRepo.save(news);
+		if(writeBehind.isEnabled()) {
+			News buffered = writeBehind.add(news);
+			AfterCommit.run(() -> negativeCache.forget(CacheConfig.NEWS, buffered.getNewsId()));
+			latestNews.saved(buffered);
+			newsSearch.saved(buffered);
+			return buffered;
 		}
+		news.setNewsId(0);
+		News saved = newsRepo.save(news);
+		AfterCommit.run(() -> negativeCache.forget(CacheConfig.NEWS, saved.getNewsId()));
+		latestNews.saved(saved);
+		newsSearch.saved(saved);
+		return saved;
 		
 	}
 
+	/*
+	 * Add many news at once. The news are consumed from the iterator chunk by
+	 * chunk, each chunk in its own transaction, so only one chunk is held in
+	 * memory. Ids are always allocated here, any newsId sent by the client is
+	 * ignored.
+	 * 
+	 * A failing row rolls its whole chunk back. The chunk is then written again
+	 * one news per transaction, so that every other row still gets in and the
+	 * result names the rows that failed.
+	 */
+	public List<NewsBatchItem> addNewsBatch(Iterator<News> news) {
+		List<NewsBatchItem> results = new ArrayList<>();
+		List<News> chunk = new ArrayList<>(batchChunkSize);
+		int index = 0;
+		while (news.hasNext()) {
+			chunk.add(news.next());
+			if (chunk.size() == batchChunkSize) {
+				writeChunk(chunk, index + 1 - chunk.size(), results);
+				chunk.clear();
+			}
+			index++;
+		}
+		if (!chunk.isEmpty()) {
+			writeChunk(chunk, index - chunk.size(), results);
+		}
+		if (!results.isEmpty()) {
+			latestNews.reload();
+		}
+		return results;
+	}
+
+	private void writeChunk(List<News> chunk, int firstIndex, List<NewsBatchItem> results) {
+		chunk.forEach(news -> news.setNewsId(0));
+		try {
+			transactionTemplate.execute(status -> newsRepo.saveAll(chunk));
+			for (int i = 0; i < chunk.size(); i++) {
+				results.add(NewsBatchItem.created(firstIndex + i, chunk.get(i).getNewsId()));
+				newsSearch.saved(chunk.get(i));
+			}
+		} catch (RuntimeException chunkFailure) {
+			entityManager.clear();
+			for (int i = 0; i < chunk.size(); i++) {
+				News news = chunk.get(i);
+				news.setNewsId(0);
+				try {
+					transactionTemplate.execute(status -> newsRepo.save(news));
+					results.add(NewsBatchItem.created(firstIndex + i, news.getNewsId()));
+					newsSearch.saved(news);
+				} catch (RuntimeException rowFailure) {
+					entityManager.clear();
+					results.add(NewsBatchItem.failed(firstIndex + i, rowFailure.getMessage()));
+				}
+			}
+		} finally {
+			// the request scoped EntityManager would otherwise keep every written news
+			entityManager.clear();
+		}
+		for (News news : chunk) {
+			negativeCache.forget(CacheConfig.NEWS, news.getNewsId());
+		}
+	}
+
 	/*
 	 * Retrieve an existing news by it's newsId. Throw NewsNotExistsException if the 
-	 * news with specified newsId does not exist.
+	 * news with specified newsId does not exist. Found news are cached, a newsId
+	 * missing from the primary is remembered for a short time in the negative
+	 * cache. A write still in the write-behind buffer wins over the database.
 	 */
+	@Cacheable(cacheNames = CacheConfig.NEWS, key = "#newsId", unless = CacheConfig.READ_FROM_REPLICA)
+	@Transactional(readOnly = true)
 	public News getNews(int newsId) throws NewsNotExistsException {
 		
-		Optional<News> newsObj = newsRepo.findById(newsId);
-		if(newsObj.isPresent()) {
-			return newsObj.get();
-		}else {
+		NewsJournal.Entry buffered = writeBehind.pending(newsId);
+		if(buffered!=null) {
+			if(buffered.isDelete()) {
+				throw new NewsNotExistsException();
+			}
+			return buffered.getNews();
+		}
+		if(negativeCache.isMissing(CacheConfig.NEWS, newsId)) {
 			throw new NewsNotExistsException();
 		}
+		return newsLoads.execute(newsId, () -> {
+			Optional<News> newsObj = newsRepo.findById(newsId);
+			if(newsObj.isPresent()) {
+				return newsObj.get();
+			}else {
+				if(!ReadWriteRoutingDataSource.isReadingReplica()) {
+					negativeCache.markMissing(CacheConfig.NEWS, newsId);
+				}
+				throw new NewsNotExistsException();
+			}
+		});
 		
 	}
 
 	/*
-	 * Retrieve all existing news
+	 * Retrieve all existing news. Like every read of many news, it first sends
+	 * the buffered writes to the database, if any.
 	 */
+	@Transactional(readOnly = true)
 	public List<News> getAllNews() {
 
+		writeBehind.flush();
 		return newsRepo.findAll();
 	}
 
+	/*
+	 * Retrieve one page of news, newest first. A null cursor starts from the
+	 * newest news. One extra row is read to know whether a next page exists
+	 * without running a count query. Throw InvalidCursorException if the cursor
+	 * cannot be decoded.
+	 */
+	@Transactional(readOnly = true)
+	public NewsPage getNewsPage(String cursor, int size) throws InvalidCursorException {
+		writeBehind.flush();
+		int pageSize = size <= 0 ? defaultPageSize : Math.min(size, maxPageSize);
+		PageRequest limit = PageRequest.of(0, pageSize + 1);
+
+		List<News> rows;
+		if (cursor == null || cursor.isEmpty()) {
+			rows = newsRepo.findLatest(limit);
+		} else {
+			NewsCursor position = NewsCursor.decode(cursor);
+			rows = position.getPublishedAt() == null ? newsRepo.findUndatedOlderThan(position.getNewsId(), limit)
+					: newsRepo.findOlderThan(position.getPublishedAt(), position.getNewsId(), limit);
+		}
+
+		if (rows.size() <= pageSize) {
+			return new NewsPage(rows, null);
+		}
+		List<News> page = rows.subList(0, pageSize);
+		return new NewsPage(page, NewsCursor.after(page.get(pageSize - 1)).encode());
+	}
+
+	/*
+	 * Stream all existing news without loading them in memory. The caller has to
+	 * close the stream.
+	 */
+	public Stream<News> streamAllNews() {
+		writeBehind.flush();
+		return newsRepo.streamAll(exportFetchSize);
+	}
+
+	/*
+	 * Search the title, description and content of the news for the words of the
+	 * query, best match first. page counts from 0, size is bounded as for
+	 * getNewsPage. The index gives the newsIds, the news are then read by id,
+	 * a buffered write winning over the row. A news deleted since it was found is
+	 * left out of the page.
+	 */
+	@Transactional(readOnly = true)
+	public NewsSearchPage searchNews(String query, int page, int size) {
+		int pageSize = size <= 0 ? defaultPageSize : Math.min(size, maxPageSize);
+		int pageNumber = Math.max(page, 0);
+		int offset = (int) Math.min((long) pageNumber * pageSize, Integer.MAX_VALUE);
+		InvertedIndex.Hits hits = newsSearch.search(query, offset, pageSize);
+
+		Map<Integer, News> rows = new HashMap<>();
+		for (News news : newsRepo.findAllById(hits.getKeys())) {
+			rows.put(news.getNewsId(), news);
+		}
+		List<News> found = new ArrayList<>(hits.getKeys().size());
+		for (int newsId : hits.getKeys()) {
+			NewsJournal.Entry buffered = writeBehind.pending(newsId);
+			News news = buffered != null ? buffered.getNews() : rows.get(newsId);
+			if (news != null) {
+				found.add(news);
+			}
+		}
+		return new NewsSearchPage(found, hits.getTotal(), pageNumber, pageSize);
+	}
+
 	
 	/*
 	 * Update an existing news by it's newsId. Throw NewsNotExistsException if the 
-	 * news with specified newsId does not exist.
+	 * news with specified newsId does not exist. A single update is run, whether
+	 * the news existed is told by the number of rows it changed. When the news
+	 * carries a version, it is only written if it still has that version, else
+	 * VersionMismatchException is thrown. The news is then read back whole, with
+	 * its new version and its associations. In write-behind mode a news without
+	 * version is applied to the latest state of the news and buffered whole, so
+	 * that it keeps its user and reminder.
 	 */
-	public News updateNews(News news) throws NewsNotExistsException {
-		News newsObj = newsRepo.getOne(news.getNewsId());
-		if(newsObj!=null) {
-			return newsRepo.saveAndFlush(news);
-		}else {
-			throw new NewsNotExistsException();
+	@CacheEvict(cacheNames = CacheConfig.NEWS, key = "#news.newsId")
+	@Transactional
+	public News updateNews(News news) throws NewsNotExistsException, VersionMismatchException {
+		if(writeBehind.isEnabled()) {
+			if(news.getVersion()==null) {
+				News updated = copyOf(latest(news.getNewsId()));
+				updated.setTitle(news.getTitle());
+				updated.setAuthor(news.getAuthor());
+				updated.setDescription(news.getDescription());
+				updated.setPublishedAt(news.getPublishedAt());
+				updated.setContent(news.getContent());
+				updated.setUrl(news.getUrl());
+				updated.setUrlToImage(news.getUrlToImage());
+				News buffered = writeBehind.update(updated);
+				latestNews.saved(buffered);
+				newsSearch.saved(buffered);
+				return buffered;
+			}
+			requireUnbuffered(news.getNewsId());
+		}
+		if(newsRepo.updateNews(news)==0) {
+			failedWrite(news.getNewsId(), news.getVersion());
 		}
+		News updated = newsRepo.findById(news.getNewsId()).orElseThrow(NewsNotExistsException::new);
+		latestNews.saved(updated);
+		newsSearch.saved(updated);
+		return updated;
+	}
+
+	/*
+	 * Change only the given fields of an existing news, the values keyed by
+	 * property name. Throw NewsNotExistsException if the news with specified newsId
+	 * does not exist. The update sets the given columns only, then the news is
+	 * read back whole. A non null version has to match, as for updateNews. In
+	 * write-behind mode the changes without version are applied to the latest
+	 * state of the news, which is buffered whole.
+	 */
+	@CacheEvict(cacheNames = CacheConfig.NEWS, key = "#newsId")
+	@Transactional
+	public News patchNews(int newsId, Map<String, Object> changes, Long version)
+			throws NewsNotExistsException, VersionMismatchException {
+		if(writeBehind.isEnabled()) {
+			if(version==null) {
+				News patched = copyOf(latest(newsId));
+				new BeanWrapperImpl(patched).setPropertyValues(changes);
+				News buffered = writeBehind.update(patched);
+				latestNews.saved(buffered);
+				newsSearch.saved(buffered);
+				return buffered;
+			}
+			requireUnbuffered(newsId);
+		}
+		if(!changes.isEmpty() && newsRepo.patchNews(newsId, changes, version)==0) {
+			failedWrite(newsId, version);
+		}
+		News patched = newsRepo.findById(newsId).orElseThrow(NewsNotExistsException::new);
+		if(changes.isEmpty() && version!=null && !version.equals(patched.getVersion())) {
+			throw new VersionMismatchException();
+		}
+		if(!changes.isEmpty()) {
+			latestNews.saved(patched);
+			newsSearch.saved(patched);
+		}
+		return patched;
+	}
+
+	/*
+	 * The news as a read would see it: the buffered write if any, else the row
+	 */
+	private News latest(int newsId) throws NewsNotExistsException {
+		NewsJournal.Entry buffered = writeBehind.pending(newsId);
+		if(buffered!=null) {
+			if(buffered.isDelete()) {
+				throw new NewsNotExistsException();
+			}
+			return buffered.getNews();
+		}
+		return newsRepo.findById(newsId).orElseThrow(NewsNotExistsException::new);
+	}
+
+	/*
+	 * Neither the buffered news nor the managed one may be changed in place. The
+	 * copy has no version, it is what a buffered write holds. Its user and
+	 * reminder only carry their ids, read without loading a lazy association, as
+	 * the buffered news outlives the session.
+	 */
+	private static News copyOf(News news) {
+		UserProfile user = null;
+		if(news.getUser()!=null) {
+			user = new UserProfile();
+			user.setUserId(idOf(news.getUser(), news.getUser()::getUserId));
+		}
+		Reminder reminder = null;
+		if(news.getReminder()!=null) {
+			reminder = new Reminder();
+			reminder.setReminderId(idOf(news.getReminder(), news.getReminder()::getReminderId));
+		}
+		return new News(news.getNewsId(), news.getTitle(), news.getAuthor(), news.getDescription(),
+				news.getPublishedAt(), news.getContent(), news.getUrl(), news.getUrlToImage(), user, reminder);
+	}
+
+	/*
+	 * The id of an association, taken from the proxy when it is a lazy one that
+	 * may not be loaded
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T> T idOf(Object association, Supplier<T> id) {
+		if(association instanceof HibernateProxy) {
+			return (T) ((HibernateProxy) association).getHibernateLazyInitializer().getIdentifier();
+		}
+		return id.get();
 	}
 
 	/*
 	 * Delete an existing news by it's newsId. Throw NewsNotExistsException if the 
-	 * news with specified newsId does not exist.
+	 * news with specified newsId does not exist. As for updateNews, a single
+	 * delete is run and a non null version has to match. In write-behind mode a
+	 * deletion without version is buffered without checking.
 	 */
-	public void deleteNews(int newsId) throws NewsNotExistsException {
-		News newsObj = newsRepo.getOne(newsId);
-		if(newsObj!=null) {
-			newsRepo.deleteById(newsId);
-		}else {
-			throw new NewsNotExistsException();
+	@CacheEvict(cacheNames = CacheConfig.NEWS, key = "#newsId")
+	@Transactional
+	public void deleteNews(int newsId, Long version) throws NewsNotExistsException, VersionMismatchException {
+		if(writeBehind.isEnabled()) {
+			if(version==null) {
+				writeBehind.delete(newsId);
+				latestNews.deleted(newsId);
+				newsSearch.deleted(newsId);
+				return;
+			}
+			requireUnbuffered(newsId);
+		}
+		if(newsRepo.deleteByNewsId(newsId, version)==0) {
+			failedWrite(newsId, version);
 		}
+		latestNews.deleted(newsId);
+		newsSearch.deleted(newsId);
 		
 	}
 
+	/*
+	 * A write that changed no row missed either the news or its version. Only a
+	 * conditional one has to look for the news to tell which.
+	 */
+	private void failedWrite(int newsId, Long version) throws NewsNotExistsException, VersionMismatchException {
+		if(version!=null && newsRepo.existsById(newsId)) {
+			throw new VersionMismatchException();
+		}
+		throw new NewsNotExistsException();
+	}
+
+	/*
+	 * A conditional write cannot wait in the write-behind buffer, its version is
+	 * checked against the row. A buffered write of the news has no version yet and
+	 * is newer than any version the client can have been given, so the condition
+	 * fails.
+	 */
+	private void requireUnbuffered(int newsId) throws NewsNotExistsException, VersionMismatchException {
+		NewsJournal.Entry buffered = writeBehind.pending(newsId);
+		if(buffered!=null) {
+			if(buffered.isDelete()) {
+				throw new NewsNotExistsException();
+			}
+			throw new VersionMismatchException();
+		}
+	}
+
 }
@@ -0,0 +1,35 @@
+package com.stackroute.newz.service;
+
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.util.NewsJournal;
+
+/*
+ * Opt-in write-behind mode of the news writes. When enabled, NewsService
+ * acknowledges a write once it is in the local journal and leaves it to this
+ * buffer to reach the database.
+ */
+public interface NewsWriteBehind {
+
+	boolean isEnabled();
+
+	/*
+	 * Buffer a new news under a newly allocated newsId, any newsId sent by the
+	 * client is ignored
+	 */
+	News add(News news);
+
+	News update(News news);
+
+	void delete(int newsId);
+
+	/*
+	 * The write of the news still waiting for the database, null if there is none
+	 */
+	NewsJournal.Entry pending(int newsId);
+
+	/*
+	 * Write every buffered write to the database before returning
+	 */
+	void flush();
+
+}
@@ -0,0 +1,498 @@
+package com.stackroute.newz.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.hibernate.ReplicationMode;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.exception.DataException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.stackroute.newz.config.NewsWriteBehindProperties;
+import com.stackroute.newz.config.NewsWriteBehindProperties.Fsync;
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.Reminder;
+import com.stackroute.newz.model.UserProfile;
+import com.stackroute.newz.repository.NewsRepository;
+import com.stackroute.newz.util.NewsJournal;
+
+/*
+ * Write-behind buffer of the news writes, backed by a NewsJournal.
+ *
+ * A write is appended to the journal, forced to disk according to the fsync
+ * policy, and kept in memory, where a later write of the same newsId replaces
+ * it. A background thread sends the buffered writes to the database in
+ * batches, one transaction per batch, and drops them from the buffer and the
+ * journal once committed.
+ *
+ * A failed batch is written again one write per transaction, so that one bad
+ * write does not hold back the others. A write the database rejects for what it
+ * holds, an integrity violation such as a missing user or a value too long, can
+ * never succeed: it is appended to the rejected journal, next to the journal
+ * with a ".rejected" suffix, logged and dropped. Any other failure, the database
+ * being down for instance, leaves the writes buffered for the next flush.
+ *
+ * With fsync "always" a write waits for a force of the journal that covers it,
+ * outside of the buffer lock. One force covers every write appended before it
+ * started, the writes that came in while a force ran share the next one.
+ *
+ * At startup the writes left in the journal by the previous run are loaded back
+ * and flushed, even when the mode has since been turned off.
+ *
+ * New news get their newsId from the news sequence when they are buffered, so
+ * the client has it at once. The write itself uses replicate, which inserts a
+ * news under the id it already has.
+ */
+@Component
+public class NewsWriteBehindBuffer implements NewsWriteBehind {
+
+	private static final Logger logger = LoggerFactory.getLogger(NewsWriteBehindBuffer.class);
+
+	@Autowired
+	NewsRepository newsRepo;
+
+	@Autowired
+	NewsWriteBehindProperties properties;
+
+	@Autowired
+	PlatformTransactionManager transactionManager;
+
+	@PersistenceContext
+	EntityManager entityManager;
+
+	/*
+	 * Latest buffered write of every newsId, oldest first. Guarded by this.
+	 */
+	private final Map<Integer, NewsJournal.Entry> pending = new LinkedHashMap<>();
+
+	private final ReentrantLock flushLock = new ReentrantLock();
+
+	private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+	private NewsJournal journal;
+
+	/*
+	 * Writes the database rejected, opened on the first one. Guarded by flushLock.
+	 */
+	private NewsJournal rejected;
+
+	private int rejectedCount;
+
+	/*
+	 * Appends take this, forces take the read lock only: forces run alongside the
+	 * appends, but not while compact replaces the journal file
+	 */
+	private final ReentrantReadWriteLock journalLock = new ReentrantReadWriteLock();
+
+	/*
+	 * Serializes the forces. Guards forced.
+	 */
+	private final Object forceLock = new Object();
+
+	/*
+	 * Number of writes appended to the journal, guarded by this, and number of
+	 * them known to be on disk, guarded by forceLock
+	 */
+	private long appended;
+	private long forced;
+
+	private TransactionTemplate writeTransaction;
+
+	private ScheduledExecutorService executor;
+
+	@PostConstruct
+	public void start() throws IOException {
+		writeTransaction = new TransactionTemplate(transactionManager);
+		writeTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		if (!properties.isEnabled() && !Files.exists(properties.getJournal())) {
+			return;
+		}
+		journal = new NewsJournal(properties.getJournal());
+		List<NewsJournal.Entry> replayed = journal.readAll();
+		if (!replayed.isEmpty()) {
+			synchronized (this) {
+				for (NewsJournal.Entry entry : replayed) {
+					pending.put(entry.getNewsId(), entry);
+				}
+			}
+			logger.info("replaying {} buffered news writes from {}", pending.size(), properties.getJournal());
+			flushQuietly();
+		}
+		executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "news-write-behind");
+			thread.setDaemon(true);
+			return thread;
+		});
+		long flushInterval = properties.getFlushInterval().toMillis();
+		executor.scheduleWithFixedDelay(this::flushQuietly, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+		if (properties.getFsync() == Fsync.INTERVAL) {
+			long fsyncInterval = properties.getFsyncInterval().toMillis();
+			executor.scheduleWithFixedDelay(this::force, fsyncInterval, fsyncInterval, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/*
+	 * Send what is still buffered before the application goes down. Whatever
+	 * fails stays in the journal for the next start.
+	 */
+	@PreDestroy
+	public void stop() throws IOException {
+		if (journal == null) {
+			return;
+		}
+		executor.shutdownNow();
+		flushQuietly();
+		synchronized (this) {
+			journalLock.writeLock().lock();
+			try {
+				journal.force();
+				journal.close();
+			} finally {
+				journalLock.writeLock().unlock();
+			}
+		}
+		flushLock.lock();
+		try {
+			if (rejected != null) {
+				rejected.close();
+			}
+		} finally {
+			flushLock.unlock();
+		}
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return properties.isEnabled();
+	}
+
+	/*
+	 * Allocating the newsId needs a session, the caller has to run in a
+	 * transaction
+	 */
+	@Override
+	public News add(News news) {
+		SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+		Number newsId = (Number) session.getFactory().getMetamodel().entityPersister(News.class)
+				.getIdentifierGenerator().generate(session, news);
+		news.setNewsId(newsId.intValue());
+		append(NewsJournal.Entry.upsert(news));
+		return news;
+	}
+
+	@Override
+	public News update(News news) {
+		append(NewsJournal.Entry.upsert(news));
+		return news;
+	}
+
+	@Override
+	public void delete(int newsId) {
+		append(NewsJournal.Entry.delete(newsId));
+	}
+
+	@Override
+	public synchronized NewsJournal.Entry pending(int newsId) {
+		return pending.get(newsId);
+	}
+
+	/*
+	 * Number of newsIds with a buffered write
+	 */
+	public synchronized int getPendingCount() {
+		return pending.size();
+	}
+
+	/*
+	 * Number of writes the database rejected since the start, see the rejected
+	 * journal
+	 */
+	public int getRejectedCount() {
+		flushLock.lock();
+		try {
+			return rejectedCount;
+		} finally {
+			flushLock.unlock();
+		}
+	}
+
+	/*
+	 * Write the buffered writes to the database, batch-size per transaction. Only
+	 * the writes buffered when the flush starts are waited for. Throws if a write
+	 * fails for another reason than its content, the writes not flushed stay
+	 * buffered.
+	 */
+	@Override
+	public void flush() {
+		int remaining;
+		synchronized (this) {
+			remaining = pending.size();
+		}
+		if (remaining == 0) {
+			return;
+		}
+		flushLock.lock();
+		try {
+			flushRequested.set(false);
+			while (remaining > 0) {
+				List<NewsJournal.Entry> batch = new ArrayList<>(properties.getBatchSize());
+				synchronized (this) {
+					Iterator<NewsJournal.Entry> entries = pending.values().iterator();
+					while (entries.hasNext() && batch.size() < properties.getBatchSize()) {
+						batch.add(entries.next());
+					}
+				}
+				if (batch.isEmpty()) {
+					return;
+				}
+				List<NewsJournal.Entry> done = new ArrayList<>(batch.size());
+				try {
+					writeBatch(batch, done);
+				} finally {
+					synchronized (this) {
+						for (NewsJournal.Entry entry : done) {
+							// a write that came in meanwhile replaced the entry and stays
+							pending.remove(entry.getNewsId(), entry);
+						}
+						compact();
+					}
+				}
+				remaining -= batch.size();
+			}
+		} finally {
+			flushLock.unlock();
+		}
+	}
+
+	private void flushQuietly() {
+		try {
+			flush();
+		} catch (RuntimeException e) {
+			logger.error("could not write the buffered news, will try again", e);
+		}
+	}
+
+	/*
+	 * A write whose force fails is already buffered and may still reach the
+	 * database, the caller is only told it is not known to be on disk
+	 */
+	private void append(NewsJournal.Entry entry) {
+		long sequence = 0;
+		while (sequence == 0) {
+			synchronized (this) {
+				if (pending.size() < properties.getMaxPending() || pending.containsKey(entry.getNewsId())) {
+					try {
+						journal.append(entry);
+					} catch (IOException e) {
+						throw new UncheckedIOException("could not journal the write of news " + entry.getNewsId(), e);
+					}
+					sequence = ++appended;
+					pending.put(entry.getNewsId(), entry);
+					if (pending.size() >= properties.getBatchSize() && flushRequested.compareAndSet(false, true)) {
+						executor.execute(this::flushQuietly);
+					}
+				}
+			}
+			if (sequence == 0) {
+				// the buffer is full, help emptying it
+				flush();
+			}
+		}
+		if (properties.getFsync() == Fsync.ALWAYS) {
+			try {
+				forceUpTo(sequence);
+			} catch (IOException e) {
+				throw new UncheckedIOException("could not force the write of news " + entry.getNewsId(), e);
+			}
+		}
+	}
+
+	/*
+	 * Force the journal unless a force started after the given write was appended
+	 * already did. The force covers every write appended up to its start.
+	 */
+	private void forceUpTo(long sequence) throws IOException {
+		synchronized (forceLock) {
+			if (forced >= sequence) {
+				return;
+			}
+			long upTo;
+			synchronized (this) {
+				upTo = appended;
+			}
+			journalLock.readLock().lock();
+			try {
+				journal.force();
+			} finally {
+				journalLock.readLock().unlock();
+			}
+			forced = upTo;
+		}
+	}
+
+	/*
+	 * Write a batch in one transaction, or one write per transaction when the
+	 * batch fails. Adds to done the writes that are written or rejected.
+	 */
+	private void writeBatch(List<NewsJournal.Entry> batch, List<NewsJournal.Entry> done) {
+		try {
+			write(batch);
+			done.addAll(batch);
+			return;
+		} catch (RuntimeException batchFailure) {
+			if (batch.size() == 1 && !isRejected(batchFailure)) {
+				throw batchFailure;
+			}
+			logger.warn("could not write a batch of {} buffered news, writing them one by one", batch.size(),
+					batchFailure);
+		}
+		for (NewsJournal.Entry entry : batch) {
+			try {
+				write(Collections.singletonList(entry));
+			} catch (RuntimeException entryFailure) {
+				if (!isRejected(entryFailure)) {
+					throw entryFailure;
+				}
+				reject(entry, entryFailure);
+			}
+			done.add(entry);
+		}
+	}
+
+	/*
+	 * Whether the database refused the write for what it holds, writing it again
+	 * would fail the same way
+	 */
+	private static boolean isRejected(RuntimeException failure) {
+		for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+			if (cause instanceof DataIntegrityViolationException || cause instanceof ConstraintViolationException
+					|| cause instanceof DataException) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void reject(NewsJournal.Entry entry, RuntimeException failure) {
+		logger.error("the database rejected the buffered write of news {}, moved to the rejected journal",
+				entry.getNewsId(), failure);
+		rejectedCount++;
+		try {
+			if (rejected == null) {
+				Path journalPath = properties.getJournal();
+				rejected = new NewsJournal(journalPath.resolveSibling(journalPath.getFileName() + ".rejected"));
+				rejected.readAll();
+			}
+			rejected.append(entry);
+			rejected.force();
+		} catch (IOException e) {
+			logger.error("could not keep the rejected write of news {}, it is lost", entry.getNewsId(), e);
+		}
+	}
+
+	private void write(List<NewsJournal.Entry> batch) {
+		writeTransaction.execute(status -> {
+			List<Integer> newsIds = new ArrayList<>(batch.size());
+			batch.forEach(entry -> newsIds.add(entry.getNewsId()));
+			Map<Integer, News> existing = new HashMap<>();
+			newsRepo.findAllById(newsIds).forEach(news -> existing.put(news.getNewsId(), news));
+
+			Session session = entityManager.unwrap(Session.class);
+			for (NewsJournal.Entry entry : batch) {
+				News current = existing.get(entry.getNewsId());
+				if (entry.isDelete()) {
+					if (current != null) {
+						entityManager.remove(current);
+					}
+				} else if (current != null) {
+					// a buffered write is unconditional, it goes over whatever version the row has
+					News merged = attached(entry.getNews());
+					merged.setVersion(current.getVersion());
+					entityManager.merge(merged);
+				} else {
+					// replicate writes the version as it is, a new row starts at 0
+					News inserted = attached(entry.getNews());
+					inserted.setVersion(0L);
+					session.replicate(inserted, ReplicationMode.OVERWRITE);
+				}
+			}
+			return null;
+		});
+	}
+
+	/*
+	 * Copy of the buffered news whose associations are references of the current
+	 * session. The buffered one is also what reads return, it is left alone.
+	 */
+	private News attached(News news) {
+		UserProfile user = news.getUser() == null ? null
+				: entityManager.getReference(UserProfile.class, news.getUser().getUserId());
+		Reminder reminder = news.getReminder() == null ? null
+				: entityManager.getReference(Reminder.class, news.getReminder().getReminderId());
+		return new News(news.getNewsId(), news.getTitle(), news.getAuthor(), news.getDescription(),
+				news.getPublishedAt(), news.getContent(), news.getUrl(), news.getUrlToImage(), user, reminder);
+	}
+
+	/*
+	 * Drop the flushed writes from the journal: empty it when nothing is left,
+	 * rewrite it when it has grown well beyond what is still buffered
+	 */
+	private void compact() {
+		try {
+			if (pending.isEmpty()) {
+				journal.truncate();
+			} else if (journal.getRecords() > 2 * pending.size() + properties.getBatchSize()) {
+				journalLock.writeLock().lock();
+				try {
+					journal.rewrite(pending.values());
+				} finally {
+					journalLock.writeLock().unlock();
+				}
+			}
+		} catch (IOException e) {
+			logger.warn("could not compact the news journal", e);
+		}
+	}
+
+	private void force() {
+		long upTo;
+		synchronized (this) {
+			upTo = appended;
+		}
+		try {
+			forceUpTo(upTo);
+		} catch (IOException e) {
+			logger.error("could not force the news journal to disk", e);
+		}
+	}
+
+}
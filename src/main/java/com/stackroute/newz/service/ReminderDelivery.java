@@ -0,0 +1,15 @@
+package com.stackroute.newz.service;
+
+import java.util.List;
+
+import com.stackroute.newz.model.Reminder;
+
+/*
+ * Takes the reminders the ReminderEngine has found due and gets them to the
+ * ReminderNotifier, off the thread of the engine.
+ */
+public interface ReminderDelivery {
+
+	void submit(List<Reminder> due);
+
+}
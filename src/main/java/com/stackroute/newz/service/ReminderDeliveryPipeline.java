@@ -0,0 +1,237 @@
+package com.stackroute.newz.service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.stackroute.newz.config.ReminderDeliveryProperties;
+import com.stackroute.newz.model.Reminder;
+import com.stackroute.newz.repository.ReminderRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/*
+ * Delivers the due reminders to the ReminderNotifier from a pool of workers.
+ *
+ * The engine puts the reminders on a bounded queue and only waits when the
+ * queue is full, so a burst of reminders sharing a schedule slows the engine
+ * down instead of piling up in memory. Each worker takes up to batch-size
+ * reminders at once, hands them to the notifier in one call and marks them
+ * delivered with one UPDATE. A failed batch goes to the retry queue, every
+ * reminder coming back after a delay that doubles on each attempt. The retry
+ * thread never waits for room in the queue: a reminder that finds it full is
+ * tried again later, after a delay that doubles as well, and counts as
+ * retrying until it is back in the queue.
+ *
+ * Metrics: reminder.delivery.queue.size and reminder.delivery.retry.size
+ * (gauges), reminder.delivery.lag (schedule to delivery), reminder.delivery.batch
+ * (notifier time per batch), reminder.delivery.delivered, .retried and .failed
+ * (counters, their rate is the throughput).
+ */
+@Component
+public class ReminderDeliveryPipeline implements ReminderDelivery {
+
+	private static final Logger logger = LoggerFactory.getLogger(ReminderDeliveryPipeline.class);
+
+	@Autowired
+	ReminderNotifier notifier;
+
+	@Autowired
+	ReminderRepository reminderRepo;
+
+	@Autowired
+	ReminderDeliveryProperties properties;
+
+	@Autowired
+	MeterRegistry meterRegistry;
+
+	@Autowired
+	Clock clock;
+
+	private BlockingQueue<Delivery> queue;
+
+	private final AtomicInteger retrying = new AtomicInteger();
+
+	private ExecutorService workers;
+
+	private ScheduledExecutorService retries;
+
+	private Counter delivered;
+	private Counter retried;
+	private Counter failed;
+	private Timer lag;
+	private Timer batchTime;
+
+	@PostConstruct
+	public void start() {
+		queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+		Gauge.builder("reminder.delivery.queue.size", queue, BlockingQueue::size)
+				.description("Reminders waiting for a delivery worker").register(meterRegistry);
+		Gauge.builder("reminder.delivery.retry.size", retrying, AtomicInteger::get)
+				.description("Reminders waiting for their next delivery attempt").register(meterRegistry);
+		delivered = Counter.builder("reminder.delivery.delivered").register(meterRegistry);
+		retried = Counter.builder("reminder.delivery.retried").register(meterRegistry);
+		failed = Counter.builder("reminder.delivery.failed").description("Reminders given up after max-attempts")
+				.register(meterRegistry);
+		lag = Timer.builder("reminder.delivery.lag").description("Time from the schedule of a reminder to its delivery")
+				.register(meterRegistry);
+		batchTime = Timer.builder("reminder.delivery.batch").register(meterRegistry);
+
+		workers = Executors.newFixedThreadPool(properties.getWorkers(), daemon("reminder-delivery-"));
+		for (int i = 0; i < properties.getWorkers(); i++) {
+			workers.execute(this::work);
+		}
+		retries = Executors.newSingleThreadScheduledExecutor(daemon("reminder-delivery-retry-"));
+	}
+
+	@PreDestroy
+	public void stop() {
+		workers.shutdownNow();
+		retries.shutdownNow();
+	}
+
+	/*
+	 * Queue the reminders for delivery, waiting for room while the queue is full
+	 */
+	@Override
+	public void submit(List<Reminder> due) {
+		for (Reminder reminder : due) {
+			if (!enqueue(new Delivery(reminder, 1))) {
+				return;
+			}
+		}
+	}
+
+	private boolean enqueue(Delivery delivery) {
+		try {
+			queue.put(delivery);
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			logger.warn("interrupted, reminder {} not delivered", delivery.reminder.getReminderId());
+			return false;
+		}
+	}
+
+	private void work() {
+		List<Delivery> batch = new ArrayList<>(properties.getBatchSize());
+		while (!Thread.currentThread().isInterrupted()) {
+			try {
+				batch.add(queue.take());
+			} catch (InterruptedException e) {
+				return;
+			}
+			queue.drainTo(batch, properties.getBatchSize() - 1);
+			deliver(batch);
+			batch.clear();
+		}
+	}
+
+	private void deliver(List<Delivery> batch) {
+		List<Reminder> reminders = new ArrayList<>(batch.size());
+		List<Integer> reminderIds = new ArrayList<>(batch.size());
+		for (Delivery delivery : batch) {
+			reminders.add(delivery.reminder);
+			reminderIds.add(delivery.reminder.getReminderId());
+		}
+		try {
+			batchTime.record(() -> notifier.notifyBatch(reminders));
+		} catch (RuntimeException e) {
+			logger.warn("delivery of {} reminders failed", batch.size(), e);
+			batch.forEach(this::retry);
+			return;
+		}
+		LocalDateTime now = LocalDateTime.now(clock);
+		for (Reminder reminder : reminders) {
+			if (reminder.getSchedule() != null) {
+				lag.record(Duration.between(reminder.getSchedule(), now));
+			}
+		}
+		delivered.increment(reminders.size());
+		try {
+			reminderRepo.markDelivered(reminderIds, now);
+		} catch (RuntimeException e) {
+			logger.error("could not mark reminders {} as delivered", reminderIds, e);
+		}
+	}
+
+	private void retry(Delivery delivery) {
+		if (delivery.attempt >= properties.getMaxAttempts()) {
+			failed.increment();
+			logger.error("reminder {} given up after {} attempts", delivery.reminder.getReminderId(),
+					delivery.attempt);
+			return;
+		}
+		long delay = Math.min(properties.getRetryDelay().toMillis() << Math.min(delivery.attempt - 1, 30),
+				properties.getMaxRetryDelay().toMillis());
+		retrying.incrementAndGet();
+		retried.increment();
+		requeueLater(new Delivery(delivery.reminder, delivery.attempt + 1), delay);
+	}
+
+	/*
+	 * Put the delivery back on the queue after the delay, without waiting for room
+	 * on the single retry thread
+	 */
+	private void requeueLater(Delivery delivery, long delay) {
+		try {
+			retries.schedule(() -> {
+				if (queue.offer(delivery)) {
+					retrying.decrementAndGet();
+				} else {
+					requeueLater(delivery, Math.min(delay * 2, properties.getMaxRetryDelay().toMillis()));
+				}
+			}, delay, TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException e) {
+			retrying.decrementAndGet();
+			logger.warn("shutting down, reminder {} not delivered", delivery.reminder.getReminderId());
+		}
+	}
+
+	private static ThreadFactory daemon(String prefix) {
+		AtomicInteger count = new AtomicInteger();
+		return runnable -> {
+			Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	/*
+	 * A reminder on its way, with the number of the attempt
+	 */
+	private static class Delivery {
+
+		private final Reminder reminder;
+		private final int attempt;
+
+		Delivery(Reminder reminder, int attempt) {
+			this.reminder = reminder;
+			this.attempt = attempt;
+		}
+
+	}
+
+}
@@ -0,0 +1,380 @@
+package com.stackroute.newz.service;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import com.stackroute.newz.config.ReminderEngineProperties;
+import com.stackroute.newz.model.Reminder;
+import com.stackroute.newz.repository.ReminderRepository;
+import com.stackroute.newz.util.AfterCommit;
+import com.stackroute.newz.util.TimingWheel;
+
+/*
+ * Fires reminders when their schedule comes, handing them to the
+ * ReminderDelivery that gets them to the ReminderNotifier.
+ *
+ * Only the reminders due within a sliding window ahead of now are held, on a
+ * hierarchical timing wheel. Every refresh interval the window moves forward:
+ * the reminders scheduled in the part it has just entered are read, and so are
+ * the reminders written since the last refresh, by their updatedAt. Both reads
+ * are keyset paged, so the table is never scanned, on a tick or on a refresh.
+ * ReminderService keeps the wheel up to date with schedule and cancel as
+ * reminders are added, updated and deleted, which take effect once the write
+ * has committed.
+ *
+ * Reminders that were due while the application was down are not fired, the
+ * first window starts at startup. When several instances run, every one holds
+ * the whole window but only fires the reminders the ReminderOwnership gives it.
+ * A write made on another instance reaches this wheel with the next refresh.
+ * A delete leaves no row to read, so the reminders that come due are read
+ * again before they are fired, and one deleted elsewhere is dropped then.
+ */
+@Component
+public class ReminderEngine {
+
+	private static final Logger logger = LoggerFactory.getLogger(ReminderEngine.class);
+
+	/*
+	 * Before any write, when no reminder has been written yet
+	 */
+	private static final LocalDateTime NEVER = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+	@Autowired
+	ReminderRepository reminderRepo;
+
+	@Autowired
+	ReminderDelivery delivery;
+
+	@Autowired
+	ReminderOwnership ownership;
+
+	@Autowired
+	ReminderEngineProperties properties;
+
+	@Autowired
+	Clock clock;
+
+	private TimingWheel<Integer, Reminder> wheel;
+
+	/*
+	 * Reminders scheduled up to windowEnd are on the wheel
+	 */
+	private LocalDateTime windowEnd;
+
+	/*
+	 * Nothing due before startedAt is fired
+	 */
+	private LocalDateTime startedAt;
+
+	/*
+	 * The next refresh reads the reminders written after changedSince, null before
+	 * the first refresh
+	 */
+	private LocalDateTime changedSince;
+
+	/*
+	 * Schedule of the reminders this instance has fired that are not delivered
+	 * yet, a refresh must not put them on the wheel again
+	 */
+	private final Map<Integer, LocalDateTime> fired = new HashMap<>();
+
+	/*
+	 * Ids added or cancelled while a refresh reads the window, the refresh must not
+	 * overwrite them with what it has read
+	 */
+	private Set<Integer> changedDuringRefresh;
+
+	private ScheduledExecutorService executor;
+
+	@PostConstruct
+	public synchronized void init() {
+		wheel = new TimingWheel<>(properties.getTick().toMillis(), properties.getWheelSize(), properties.getLevels(),
+				clock.millis());
+		windowEnd = LocalDateTime.now(clock);
+		startedAt = windowEnd;
+	}
+
+	/*
+	 * Start ticking and refreshing the window once the application is up
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void start() {
+		if (!properties.isEnabled()) {
+			return;
+		}
+		executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "reminder-engine");
+			thread.setDaemon(true);
+			return thread;
+		});
+		long tick = properties.getTick().toMillis();
+		executor.scheduleWithFixedDelay(() -> runQuietly("refresh", this::refreshWindow), 0,
+				properties.getRefreshInterval().toMillis(), TimeUnit.MILLISECONDS);
+		executor.scheduleAtFixedRate(() -> runQuietly("tick", this::tick), tick, tick, TimeUnit.MILLISECONDS);
+	}
+
+	/*
+	 * A scheduled task that throws is never run again, whatever escapes a refresh
+	 * or a tick is logged and the next one goes ahead
+	 */
+	private void runQuietly(String task, Runnable body) {
+		try {
+			body.run();
+		} catch (RuntimeException e) {
+			logger.error("reminder {} failed", task, e);
+		}
+	}
+
+	@PreDestroy
+	public void stop() {
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+	}
+
+	/*
+	 * Put a new or updated reminder on the wheel, or take it off when it has
+	 * been delivered already or its schedule is now beyond the window. Within a
+	 * transaction this waits for the commit, a rolled back write is never fired.
+	 */
+	public void schedule(Reminder reminder) {
+		AfterCommit.run(() -> put(reminder));
+	}
+
+	private synchronized void put(Reminder reminder) {
+		if (changedDuringRefresh != null) {
+			changedDuringRefresh.add(reminder.getReminderId());
+		}
+		if (reminder.getDeliveredAt() != null || reminder.getSchedule() == null
+				|| reminder.getSchedule().isAfter(windowEnd)) {
+			wheel.cancel(reminder.getReminderId());
+		} else {
+			wheel.add(reminder.getReminderId(), reminder, toMillis(reminder.getSchedule()));
+		}
+	}
+
+	/*
+	 * Take a deleted reminder off the wheel, once the delete has committed
+	 */
+	public void cancel(int reminderId) {
+		AfterCommit.run(() -> remove(reminderId));
+	}
+
+	private synchronized void remove(int reminderId) {
+		if (changedDuringRefresh != null) {
+			changedDuringRefresh.add(reminderId);
+		}
+		wheel.cancel(reminderId);
+	}
+
+	/*
+	 * Move the window forward to now + window, put the reminders scheduled in the
+	 * part just entered on the wheel, then apply the reminders written since the
+	 * last refresh. Neither walks the wheel, and the lock is only held for one page
+	 * at a time. The window end moves before the reads, so that reminders added
+	 * in the meantime go to the wheel directly.
+	 * 
+	 * updatedAt comes from the clocks of the writing instances, so the writes are
+	 * followed by the latest updatedAt read rather than by the clock of this one.
+	 * The next read starts one refresh interval before it, for the writes that
+	 * committed late or were stamped by a clock running behind.
+	 */
+	public void refreshWindow() {
+		LocalDateTime now = LocalDateTime.now(clock);
+		LocalDateTime enteredAfter;
+		LocalDateTime until;
+		LocalDateTime since;
+		synchronized (this) {
+			enteredAfter = windowEnd;
+			until = now.plus(properties.getWindow());
+			if (until.isAfter(windowEnd)) {
+				windowEnd = until;
+			} else {
+				until = windowEnd;
+			}
+			since = changedSince;
+			changedDuringRefresh = new HashSet<>();
+		}
+		try {
+			if (since == null) {
+				// the part entered is the whole window, only the writes from now on are missing
+				LocalDateTime last = reminderRepo.findLastUpdatedAt();
+				since = last == null ? NEVER : last.minus(properties.getRefreshInterval());
+			}
+			if (until.isAfter(enteredAfter)) {
+				loadEntered(enteredAfter, until);
+			}
+			LocalDateTime lastChange = loadChanged(since);
+			synchronized (this) {
+				LocalDateTime next = lastChange == null ? since : lastChange.minus(properties.getRefreshInterval());
+				changedSince = next.isAfter(since) ? next : since;
+				// fired but never delivered, the delivery has given up on them
+				LocalDateTime stale = now.minus(properties.getWindow());
+				fired.values().removeIf(schedule -> schedule.isBefore(stale));
+			}
+		} catch (RuntimeException e) {
+			// the next refresh reads the part entered and the writes again
+			logger.error("could not load the reminders due until {}", until, e);
+			synchronized (this) {
+				windowEnd = enteredAfter;
+			}
+		} finally {
+			synchronized (this) {
+				changedDuringRefresh = null;
+			}
+		}
+	}
+
+	/*
+	 * The reminders scheduled after "after", up to and including "until", a page
+	 * at a time
+	 */
+	private void loadEntered(LocalDateTime after, LocalDateTime until) {
+		Pageable page = PageRequest.of(0, properties.getRefreshPageSize());
+		List<Reminder> loaded = reminderRepo.findDue(after, until, page);
+		while (apply(loaded, page)) {
+			Reminder last = loaded.get(loaded.size() - 1);
+			loaded = reminderRepo.findDueFrom(last.getSchedule(), last.getReminderId(), until, page);
+		}
+	}
+
+	/*
+	 * The reminders written after "since", a page at a time. Returns the updatedAt
+	 * of the last one, null if there is none.
+	 */
+	private LocalDateTime loadChanged(LocalDateTime since) {
+		Pageable page = PageRequest.of(0, properties.getRefreshPageSize());
+		List<Reminder> loaded = reminderRepo.findChangedAfter(since, page);
+		Reminder last = null;
+		while (true) {
+			boolean more = apply(loaded, page);
+			if (!loaded.isEmpty()) {
+				last = loaded.get(loaded.size() - 1);
+			}
+			if (!more) {
+				return last == null ? null : last.getUpdatedAt();
+			}
+			loaded = reminderRepo.findChangedFrom(last.getUpdatedAt(), last.getReminderId(), page);
+		}
+	}
+
+	/*
+	 * Make the wheel match one page of reminders read: those due within the window
+	 * are put on it, replacing what it held for them, the others are taken off.
+	 * The ones written on this instance during the refresh are left as they are,
+	 * and so are the ones fired and not delivered yet. Returns whether the page was
+	 * full, another one may follow.
+	 */
+	private synchronized boolean apply(List<Reminder> reminders, Pageable page) {
+		for (Reminder reminder : reminders) {
+			Integer reminderId = reminder.getReminderId();
+			if (changedDuringRefresh.contains(reminderId)) {
+				continue;
+			}
+			if (reminder.getDeliveredAt() != null || reminder.getSchedule() == null
+					|| !reminder.getSchedule().isAfter(startedAt) || reminder.getSchedule().isAfter(windowEnd)) {
+				wheel.cancel(reminderId);
+				fired.remove(reminderId);
+			} else if (!reminder.getSchedule().equals(fired.get(reminderId))) {
+				wheel.add(reminderId, reminder, toMillis(reminder.getSchedule()));
+			}
+		}
+		return reminders.size() == page.getPageSize();
+	}
+
+	/*
+	 * Hand every reminder that has come due and is owned by this instance to the
+	 * delivery, which may wait for room in its queue. They are read again first:
+	 * one deleted or delivered meanwhile is dropped, one moved later goes back on
+	 * the wheel. When that read or the lease check fails they stay due for the
+	 * next tick.
+	 */
+	public void tick() {
+		List<Reminder> due;
+		synchronized (this) {
+			due = wheel.advance(clock.millis());
+		}
+		if (due.isEmpty()) {
+			return;
+		}
+		Map<Integer, Reminder> owned = new LinkedHashMap<>();
+		Map<Integer, Reminder> current = new HashMap<>();
+		try {
+			for (Reminder reminder : due) {
+				if (ownership.owns(reminder.getReminderId())) {
+					owned.put(reminder.getReminderId(), reminder);
+				}
+			}
+			if (owned.isEmpty()) {
+				return;
+			}
+			for (Reminder reminder : reminderRepo.findUndelivered(owned.keySet())) {
+				current.put(reminder.getReminderId(), reminder);
+			}
+		} catch (RuntimeException e) {
+			logger.error("could not read the {} reminders due, they are tried again", due.size(), e);
+			synchronized (this) {
+				for (Reminder reminder : due) {
+					if (!wheel.contains(reminder.getReminderId())) {
+						wheel.add(reminder.getReminderId(), reminder, toMillis(reminder.getSchedule()));
+					}
+				}
+			}
+			return;
+		}
+		LocalDateTime now = LocalDateTime.now(clock);
+		List<Reminder> firing = new ArrayList<>(owned.size());
+		synchronized (this) {
+			for (Integer reminderId : owned.keySet()) {
+				Reminder reminder = current.get(reminderId);
+				// gone, or scheduled again on this instance since it came due
+				if (reminder == null || reminder.getSchedule() == null || wheel.contains(reminderId)) {
+					continue;
+				}
+				if (reminder.getSchedule().isAfter(now)) {
+					put(reminder);
+				} else if (!reminder.getSchedule().equals(fired.get(reminderId))) {
+					fired.put(reminderId, reminder.getSchedule());
+					firing.add(reminder);
+				}
+			}
+		}
+		if (!firing.isEmpty()) {
+			delivery.submit(firing);
+		}
+	}
+
+	/*
+	 * Number of reminders on the wheel
+	 */
+	public synchronized int getPendingCount() {
+		return wheel.size();
+	}
+
+	private long toMillis(LocalDateTime schedule) {
+		return schedule.atZone(clock.getZone()).toInstant().toEpochMilli();
+	}
+
+}
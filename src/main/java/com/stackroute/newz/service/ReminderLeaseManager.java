@@ -0,0 +1,218 @@
+package com.stackroute.newz.service;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.stackroute.newz.config.ReminderEngineProperties;
+import com.stackroute.newz.model.ReminderLease;
+import com.stackroute.newz.model.ReminderNode;
+import com.stackroute.newz.repository.ReminderLeaseRepository;
+import com.stackroute.newz.repository.ReminderNodeRepository;
+
+/*
+ * Shares the dispatch of reminders between the instances running against the
+ * same database, so that a reminder is fired by one instance only.
+ *
+ * Reminders are spread over a fixed number of buckets by a hash of their
+ * reminderId. Each bucket has a row in the lease table, and an instance only
+ * fires the reminders of the buckets it holds a lease on. On every heartbeat an
+ * instance records itself as live, renews its leases, gives up those above its
+ * fair share of the live instances and claims free or expired ones up to it.
+ * Buckets therefore move to a new instance within a heartbeat or two of its
+ * start, and are taken over once the leases of a stopped instance expire.
+ *
+ * A lease is only trusted locally until its expiry, and a released bucket is
+ * dropped locally before the release is written, so two instances never hold
+ * the same bucket at once as long as their clocks agree within the difference
+ * between the lease duration and the heartbeat interval.
+ */
+@Component
+public class ReminderLeaseManager implements ReminderOwnership {
+
+	private static final Logger logger = LoggerFactory.getLogger(ReminderLeaseManager.class);
+
+	@Autowired
+	ReminderLeaseRepository leaseRepo;
+
+	@Autowired
+	ReminderNodeRepository nodeRepo;
+
+	@Autowired
+	ReminderEngineProperties properties;
+
+	@Autowired
+	Clock clock;
+
+	@Autowired
+	TransactionTemplate transactionTemplate;
+
+	private volatile Set<Integer> ownedBuckets = Collections.emptySet();
+
+	private volatile long leaseUntilMillis;
+
+	private ScheduledExecutorService executor;
+
+	/*
+	 * Start sending heartbeats once the application is up
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void start() {
+		if (!properties.isEnabled()) {
+			return;
+		}
+		executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "reminder-leases");
+			thread.setDaemon(true);
+			return thread;
+		});
+		executor.scheduleWithFixedDelay(this::heartbeat, 0, properties.getHeartbeatInterval().toMillis(),
+				TimeUnit.MILLISECONDS);
+	}
+
+	/*
+	 * Hand every bucket back so that the other instances take them over at once
+	 * instead of waiting for the leases to expire.
+	 */
+	@PreDestroy
+	public void stop() {
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+		ownedBuckets = Collections.emptySet();
+		try {
+			transactionTemplate.execute(status -> {
+				leaseRepo.releaseAll(properties.getNodeId());
+				nodeRepo.findById(properties.getNodeId()).ifPresent(nodeRepo::delete);
+				return null;
+			});
+		} catch (RuntimeException e) {
+			logger.warn("could not release the reminder leases of {}", properties.getNodeId(), e);
+		}
+	}
+
+	@Override
+	public boolean owns(int reminderId) {
+		return clock.millis() < leaseUntilMillis
+				&& ownedBuckets.contains(bucketOf(reminderId, properties.getBuckets()));
+	}
+
+	/*
+	 * Buckets this instance holds a lease on
+	 */
+	public Set<Integer> getOwnedBuckets() {
+		return clock.millis() < leaseUntilMillis ? ownedBuckets : Collections.emptySet();
+	}
+
+	/*
+	 * Record this instance as live, then renew, give up and claim leases so that
+	 * it holds its fair share of the buckets. A failed heartbeat keeps the leases
+	 * held so far, they stay valid until their expiry.
+	 */
+	public void heartbeat() {
+		String nodeId = properties.getNodeId();
+		LocalDateTime now = LocalDateTime.now(clock);
+		LocalDateTime expiresAt = now.plus(properties.getLeaseDuration());
+		LocalDateTime liveSince = now.minus(properties.getLeaseDuration());
+		try {
+			createMissingBuckets();
+			Set<Integer> owned = transactionTemplate.execute(status -> {
+				nodeRepo.save(new ReminderNode(nodeId, now));
+				nodeRepo.deleteByLastSeenBefore(liveSince);
+				long live = Math.max(1, nodeRepo.countByLastSeenAfter(liveSince));
+				long share = (properties.getBuckets() + live - 1) / live;
+
+				List<ReminderLease> leases = leaseRepo.findAll(Sort.by("bucket"));
+				Set<Integer> renewed = new TreeSet<>();
+				for (ReminderLease lease : leases) {
+					if (!nodeId.equals(lease.getOwner())) {
+						continue;
+					}
+					if (renewed.size() < share && lease.getBucket() < properties.getBuckets()) {
+						if (leaseRepo.claim(lease.getBucket(), nodeId, now, expiresAt) == 1) {
+							renewed.add(lease.getBucket());
+						}
+					} else {
+						drop(lease.getBucket());
+						leaseRepo.release(lease.getBucket(), nodeId);
+					}
+				}
+				for (ReminderLease lease : leases) {
+					if (renewed.size() >= share) {
+						break;
+					}
+					if (lease.getBucket() < properties.getBuckets() && !nodeId.equals(lease.getOwner())
+							&& (lease.getOwner() == null || lease.getExpiresAt() == null
+									|| lease.getExpiresAt().isBefore(now))
+							&& leaseRepo.claim(lease.getBucket(), nodeId, now, expiresAt) == 1) {
+						renewed.add(lease.getBucket());
+					}
+				}
+				return renewed;
+			});
+			ownedBuckets = Collections.unmodifiableSet(owned);
+			leaseUntilMillis = expiresAt.atZone(clock.getZone()).toInstant().toEpochMilli();
+		} catch (RuntimeException e) {
+			logger.error("reminder lease heartbeat of {} failed", nodeId, e);
+		}
+	}
+
+	/*
+	 * Bucket of a reminder. The id is mixed first, so that consecutive ids do not
+	 * all land in consecutive buckets.
+	 */
+	public static int bucketOf(int reminderId, int buckets) {
+		int hash = reminderId * 0x9E3779B9;
+		return Math.floorMod(hash ^ (hash >>> 16), buckets);
+	}
+
+	/*
+	 * The first heartbeat of the first instance creates the lease rows. When two
+	 * instances start together one of the inserts fails, the rows are there then.
+	 */
+	private void createMissingBuckets() {
+		if (leaseRepo.count() >= properties.getBuckets()) {
+			return;
+		}
+		try {
+			transactionTemplate.execute(status -> {
+				Set<Integer> existing = new HashSet<>();
+				leaseRepo.findAll().forEach(lease -> existing.add(lease.getBucket()));
+				for (int bucket = 0; bucket < properties.getBuckets(); bucket++) {
+					if (!existing.contains(bucket)) {
+						leaseRepo.save(new ReminderLease(bucket, null, null));
+					}
+				}
+				return null;
+			});
+		} catch (DataAccessException e) {
+			logger.debug("reminder lease rows created by another instance", e);
+		}
+	}
+
+	private void drop(int bucket) {
+		Set<Integer> remaining = new HashSet<>(ownedBuckets);
+		remaining.remove(bucket);
+		ownedBuckets = Collections.unmodifiableSet(remaining);
+	}
+
+}
@@ -0,0 +1,27 @@
+package com.stackroute.newz.service;
+
+import java.util.List;
+
+import com.stackroute.newz.model.Reminder;
+
+/*
+ * Receives the reminders that have come due. Declare a bean of this type to
+ * replace the default one, which only logs them.
+ *
+ * The ReminderDelivery pipeline calls notifyBatch from its worker threads, with
+ * up to batch-size reminders at a time. A notifier that can send a batch in one
+ * go should override it, the default sends them one by one. An exception fails
+ * the whole batch, which is retried later. The news of the reminder is not
+ * loaded.
+ */
+public interface ReminderNotifier {
+
+	void notify(Reminder reminder);
+
+	default void notifyBatch(List<Reminder> reminders) {
+		for (Reminder reminder : reminders) {
+			notify(reminder);
+		}
+	}
+
+}
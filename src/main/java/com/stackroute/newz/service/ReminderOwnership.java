@@ -0,0 +1,11 @@
+package com.stackroute.newz.service;
+
+/*
+ * Tells the ReminderEngine which reminders this instance is in charge of
+ * firing, when several instances run against the same database.
+ */
+public interface ReminderOwnership {
+
+	boolean owns(int reminderId);
+
+}
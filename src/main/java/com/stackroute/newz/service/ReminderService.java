@@ -1,9 +1,14 @@
 package com.stackroute.newz.service;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 import com.stackroute.newz.model.Reminder;
+import com.stackroute.newz.model.ReminderPage;
+import com.stackroute.newz.util.exception.InvalidCursorException;
 import com.stackroute.newz.util.exception.ReminderNotExistsException;
+import com.stackroute.newz.util.exception.VersionMismatchException;
 
 public interface ReminderService {
 
@@ -13,12 +18,19 @@ public interface ReminderService {
 	 */
 	public Reminder addReminder(Reminder reminder);
 
-	public Reminder updateReminder(Reminder reminder) throws ReminderNotExistsException;
+	public Reminder updateReminder(Reminder reminder) throws ReminderNotExistsException, VersionMismatchException;
 
-	public void deleteReminder(int reminderId) throws ReminderNotExistsException;
+	public Reminder patchReminder(int reminderId, Map<String, Object> changes, Long version)
+			throws ReminderNotExistsException, VersionMismatchException;
+
+	public void deleteReminder(int reminderId, Long version)
+			throws ReminderNotExistsException, VersionMismatchException;
 
 	public Reminder getReminder(int reminderId) throws ReminderNotExistsException;
 
 	public List<Reminder> getAllReminders();
 
+	public ReminderPage getDueReminders(LocalDateTime after, LocalDateTime before, String cursor, int size)
+			throws InvalidCursorException;
+
 }
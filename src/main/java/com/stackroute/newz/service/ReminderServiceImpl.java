@@ -1,16 +1,31 @@
 package com.stackroute.newz.service;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.stackroute.newz.config.CacheConfig;
+import com.stackroute.newz.config.ReadWriteRoutingDataSource;
 import com.stackroute.newz.model.Reminder;
+import com.stackroute.newz.model.ReminderPage;
 import com.stackroute.newz.repository.NewsRepository;
 import com.stackroute.newz.repository.ReminderRepository;
 import com.stackroute.newz.service.ReminderService;
+import com.stackroute.newz.util.AfterCommit;
+import com.stackroute.newz.util.NegativeCache;
+import com.stackroute.newz.util.ReminderCursor;
+import com.stackroute.newz.util.exception.InvalidCursorException;
 import com.stackroute.newz.util.exception.ReminderNotExistsException;
+import com.stackroute.newz.util.exception.VersionMismatchException;
 
 /*
  * This class is implementing the ReminderService interface. This class has to be annotated with 
@@ -28,50 +43,130 @@ public class ReminderServiceImpl implements ReminderService {
 	@Autowired
 	ReminderRepository reminderRepo;
 
+	/*
+	 * Short lived memory of the reminderIds that were not found
+	 */
+	@Autowired
+	NegativeCache negativeCache;
+
+	/*
+	 * Fires the reminders, kept up to date on every add, update and delete
+	 */
+	@Autowired
+	ReminderEngine reminderEngine;
+
+	/*
+	 * Page size of getDueReminders when the client does not ask for one, and the
+	 * upper bound of what a client may ask for.
+	 */
+	@Value("${newz.reminder.due.default-size:100}")
+	int defaultPageSize = 100;
+
+	@Value("${newz.reminder.due.max-size:1000}")
+	int maxPageSize = 1000;
+
 	/*
 	 * Add a new reminder.
 	 */
+	@Transactional
 	public Reminder addReminder(Reminder reminder) {
 
-		return reminderRepo.save(reminder);
+		Reminder saved = reminderRepo.save(reminder);
+		AfterCommit.run(() -> {
+			negativeCache.forget(CacheConfig.REMINDER, reminder.getReminderId());
+			negativeCache.forget(CacheConfig.REMINDER, saved.getReminderId());
+		});
+		reminderEngine.schedule(saved);
+		return saved;
 	}
 
 	/*
 	 * Update an existing reminder by it's reminderId. Throw ReminderNotExistsException 
-	 * if the reminder with specified reminderId does not exist.
+	 * if the reminder with specified reminderId does not exist. A single update is
+	 * run, whether the reminder existed is told by the number of rows it changed.
+	 * When the reminder carries a version, it is only written if it still has
+	 * that version, else VersionMismatchException is thrown. The reminder is then
+	 * read back whole, with its news and delivery time, to be rescheduled.
 	 */
-	public Reminder updateReminder(Reminder reminder) throws ReminderNotExistsException {
-		Reminder reminderObj = 	reminderRepo.getOne(reminder.getReminderId());
-		if(reminderObj!=null) {
-			return reminderRepo.saveAndFlush(reminder);
-		}else {
-			throw new ReminderNotExistsException();
+	@CacheEvict(cacheNames = CacheConfig.REMINDER, key = "#reminder.reminderId")
+	@Transactional
+	public Reminder updateReminder(Reminder reminder) throws ReminderNotExistsException, VersionMismatchException {
+		if(reminderRepo.updateReminder(reminder)==0) {
+			failedWrite(reminder.getReminderId(), reminder.getVersion());
 		}
+		Reminder updated = reminderRepo.findById(reminder.getReminderId())
+				.orElseThrow(ReminderNotExistsException::new);
+		reminderEngine.schedule(updated);
+		return updated;
 
 	}
 
+	/*
+	 * Change only the given fields of an existing reminder, the values keyed by
+	 * property name. Throw ReminderNotExistsException if the reminder with
+	 * specified reminderId does not exist. The update sets the given columns only,
+	 * then the reminder is read back whole to be rescheduled. A non null version
+	 * has to match, as for updateReminder.
+	 */
+	@CacheEvict(cacheNames = CacheConfig.REMINDER, key = "#reminderId")
+	@Transactional
+	public Reminder patchReminder(int reminderId, Map<String, Object> changes, Long version)
+			throws ReminderNotExistsException, VersionMismatchException {
+		if(!changes.isEmpty() && reminderRepo.patchReminder(reminderId, changes, version)==0) {
+			failedWrite(reminderId, version);
+		}
+		Reminder patched = reminderRepo.findById(reminderId).orElseThrow(ReminderNotExistsException::new);
+		if(changes.isEmpty() && version!=null && !version.equals(patched.getVersion())) {
+			throw new VersionMismatchException();
+		}
+		reminderEngine.schedule(patched);
+		return patched;
+	}
+
 	/*
 	 * Delete an existing reminder by it's reminderId. Throw ReminderNotExistsException if 
-	 * the reminder with specified reminderId does not exist.
+	 * the reminder with specified reminderId does not exist. As for updateReminder,
+	 * a single delete is run and a non null version has to match.
 	 */
-	public void deleteReminder(int reminderId) throws ReminderNotExistsException {
-		Reminder reminderObj = 	reminderRepo.getOne(reminderId);
-		if(reminderObj!=null) {
-			reminderRepo.deleteById(reminderId);
-		}else {
-			throw new ReminderNotExistsException();
+	@CacheEvict(cacheNames = CacheConfig.REMINDER, key = "#reminderId")
+	@Transactional
+	public void deleteReminder(int reminderId, Long version)
+			throws ReminderNotExistsException, VersionMismatchException {
+		if(reminderRepo.deleteByReminderId(reminderId, version)==0) {
+			failedWrite(reminderId, version);
+		}
+		reminderEngine.cancel(reminderId);
+	}
+
+	/*
+	 * A write that changed no row missed either the reminder or its version. Only
+	 * a conditional one has to look for the reminder to tell which.
+	 */
+	private void failedWrite(int reminderId, Long version)
+			throws ReminderNotExistsException, VersionMismatchException {
+		if(version!=null && reminderRepo.existsById(reminderId)) {
+			throw new VersionMismatchException();
 		}
+		throw new ReminderNotExistsException();
 	}
 
 	/*
 	 * Retrieve an existing reminder by it's reminderId. Throw ReminderNotExistsException 
 	 * if the reminder with specified reminderId does not exist.
 	 */
+	@Cacheable(cacheNames = CacheConfig.REMINDER, key = "#reminderId", unless = CacheConfig.READ_FROM_REPLICA)
+	@Transactional(readOnly = true)
 	public Reminder getReminder(int reminderId) throws ReminderNotExistsException {
+		if(negativeCache.isMissing(CacheConfig.REMINDER, reminderId)) {
+			throw new ReminderNotExistsException();
+		}
 		Optional<Reminder> remObj = reminderRepo.findById(reminderId);
 		if(remObj.isPresent()) {
 			return remObj.get();
 		}else {
+			if(!ReadWriteRoutingDataSource.isReadingReplica()) {
+				negativeCache.markMissing(CacheConfig.REMINDER, reminderId);
+			}
 			throw new ReminderNotExistsException();
 		}
 	}
@@ -79,8 +174,36 @@ public class ReminderServiceImpl implements ReminderService {
 	/*
 	 * Retrieve all existing reminders
 	 */
+	@Transactional(readOnly = true)
 	public List<Reminder> getAllReminders() {
 		return reminderRepo.findAll();
 	}
 
+	/*
+	 * Retrieve one page of the reminders due after "after", up to and including
+	 * "before", earliest first. A null cursor starts from "after". One extra row is
+	 * read to know whether a next page exists. Throw InvalidCursorException if the
+	 * cursor cannot be decoded.
+	 */
+	@Transactional(readOnly = true)
+	public ReminderPage getDueReminders(LocalDateTime after, LocalDateTime before, String cursor, int size)
+			throws InvalidCursorException {
+		int pageSize = size <= 0 ? defaultPageSize : Math.min(size, maxPageSize);
+		PageRequest limit = PageRequest.of(0, pageSize + 1);
+
+		List<Reminder> rows;
+		if (cursor == null || cursor.isEmpty()) {
+			rows = reminderRepo.findDue(after, before, limit);
+		} else {
+			ReminderCursor position = ReminderCursor.decode(cursor);
+			rows = reminderRepo.findDueFrom(position.getSchedule(), position.getReminderId(), before, limit);
+		}
+
+		if (rows.size() <= pageSize) {
+			return new ReminderPage(rows, null);
+		}
+		List<Reminder> page = rows.subList(0, pageSize);
+		return new ReminderPage(page, ReminderCursor.after(page.get(pageSize - 1)).encode());
+	}
+
 }
@@ -1,10 +1,12 @@
 package com.stackroute.newz.service;
 
 import java.util.List;
+import java.util.Map;
 
 import com.stackroute.newz.model.UserProfile;
 import com.stackroute.newz.util.exception.UserProfileAlreadyExistsException;
 import com.stackroute.newz.util.exception.UserProfileNotExistsException;
+import com.stackroute.newz.util.exception.VersionMismatchException;
 
 public interface UserProfileService {
 
@@ -14,9 +16,14 @@ public interface UserProfileService {
 	 */
 	public UserProfile registerUser(UserProfile user) throws UserProfileAlreadyExistsException;
 
-	public UserProfile updateUserProfile(UserProfile user, String userId) throws UserProfileNotExistsException;
+	public UserProfile updateUserProfile(UserProfile user, String userId)
+			throws UserProfileNotExistsException, VersionMismatchException;
 
-	public void deleteUserProfile(String userId) throws UserProfileNotExistsException;
+	public UserProfile patchUserProfile(String userId, Map<String, Object> changes, Long version)
+			throws UserProfileNotExistsException, VersionMismatchException;
+
+	public void deleteUserProfile(String userId, Long version)
+			throws UserProfileNotExistsException, VersionMismatchException;
 
 	public UserProfile getUserProfile(String userId) throws UserProfileNotExistsException;
 
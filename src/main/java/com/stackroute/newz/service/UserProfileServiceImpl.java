@@ -1,14 +1,25 @@
 package com.stackroute.newz.service;
 
+import java.sql.SQLException;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import javax.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import com.stackroute.newz.config.CacheConfig;
+import com.stackroute.newz.config.ReadWriteRoutingDataSource;
 import com.stackroute.newz.model.UserProfile;
 import com.stackroute.newz.repository.UserProfileRepository;
+import com.stackroute.newz.util.AfterCommit;
+import com.stackroute.newz.util.NegativeCache;
+import com.stackroute.newz.util.SingleFlight;
 import com.stackroute.newz.util.exception.UserProfileAlreadyExistsException;
 import com.stackroute.newz.util.exception.UserProfileNotExistsException;
+import com.stackroute.newz.util.exception.VersionMismatchException;
 
 /*
  * This class is implementing the UserProfileRepository interface. This class has to be annotated with 
@@ -26,72 +37,162 @@ public class UserProfileServiceImpl implements UserProfileService {
 	 */
 	@Autowired
 	UserProfileRepository userProfileRepository;
+
+	/*
+	 * Short lived memory of the userIds that were not found
+	 */
+	@Autowired
+	NegativeCache negativeCache;
+
+	/*
+	 * Concurrent cache misses on the same userId share a single findById
+	 */
+	private final SingleFlight<String, UserProfile> userProfileLoads = new SingleFlight<>();
 	
 
 
 	/*
 	 * Add a new user. Throw UserProfileAlreadyExistsException if the userProfile with specified
 	 * userId already exists.
+	 * 
+	 * The profile is inserted only if absent, in one statement. Two registrations
+	 * of the same userId racing past the check both reach the primary key, and
+	 * the loser is told the user exists. Its failed insert has marked the
+	 * transaction for rollback, hence rollbackFor. Any other integrity violation,
+	 * a value too long for its column for instance, is not about the user
+	 * existing and is thrown as it is.
 	 */
+	@Transactional(rollbackFor = UserProfileAlreadyExistsException.class)
 	public UserProfile registerUser(UserProfile user) throws UserProfileAlreadyExistsException {
 
-		Optional<UserProfile> userProfileObj = userProfileRepository.findById(user.getUserId());
-		if(userProfileObj.isEmpty()) {
-			return userProfileRepository.save(user);
-		}else {
+		boolean inserted;
+		try {
+			inserted = userProfileRepository.insertIfAbsent(user);
+		} catch (DataIntegrityViolationException e) {
+			if(!isDuplicateKey(e)) {
+				throw e;
+			}
+			inserted = false;
+		}
+		if(!inserted) {
 			throw new UserProfileAlreadyExistsException();
 		}
+		AfterCommit.run(() -> negativeCache.forget(CacheConfig.USER_PROFILE, user.getUserId()));
+		return user;
+	}
+
+	/*
+	 * SQLState 23505 is the unique violation of H2 and of the SQL standard, MySQL
+	 * reports it as 23000 with its error code 1062
+	 */
+	private static boolean isDuplicateKey(DataIntegrityViolationException e) {
+		for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+			if (cause instanceof SQLException) {
+				SQLException sqlException = (SQLException) cause;
+				return "23505".equals(sqlException.getSQLState())
+						|| "23000".equals(sqlException.getSQLState()) && sqlException.getErrorCode() == 1062;
+			}
+		}
+		return false;
 	}
 
 	/*
 	 * Update an existing userProfile by it's userId. Throw UserProfileNotExistsException 
-	 * if the userProfile with specified userId does not exist.
+	 * if the userProfile with specified userId does not exist. A single update is
+	 * run, whether the profile existed is told by the number of rows it changed.
+	 * When the profile carries a version, it is only written if it still has that
+	 * version, else VersionMismatchException is thrown. The profile is then read
+	 * back whole, with the version the update gave it.
 	 */
+	@CacheEvict(cacheNames = CacheConfig.USER_PROFILE, key = "#userId")
 	public UserProfile updateUserProfile(UserProfile user, String userId) 
-			throws UserProfileNotExistsException {
+			throws UserProfileNotExistsException, VersionMismatchException {
 		
-		UserProfile userProfileObj = userProfileRepository.getOne(userId);
-		if(userProfileObj!=null) {
-			return userProfileRepository.saveAndFlush(userProfileObj);
-		}else {
-			throw new UserProfileNotExistsException();
+		if(userProfileRepository.updateUserProfile(user, userId)==0) {
+			failedWrite(userId, user.getVersion());
 		}
+		return userProfileRepository.findById(userId).orElseThrow(UserProfileNotExistsException::new);
+
+	}
+
+	/*
+	 * Change only the given fields of an existing userProfile, the values keyed by
+	 * property name. Throw UserProfileNotExistsException if the userProfile with
+	 * specified userId does not exist. The update sets the given columns only,
+	 * then the profile is read back whole. A non null version has to match, as
+	 * for updateUserProfile.
+	 */
+	@CacheEvict(cacheNames = CacheConfig.USER_PROFILE, key = "#userId")
+	public UserProfile patchUserProfile(String userId, Map<String, Object> changes, Long version)
+			throws UserProfileNotExistsException, VersionMismatchException {
+		
+		if(!changes.isEmpty() && userProfileRepository.patchUserProfile(userId, changes, version)==0) {
+			failedWrite(userId, version);
+		}
+		UserProfile patched = userProfileRepository.findById(userId).orElseThrow(UserProfileNotExistsException::new);
+		if(changes.isEmpty() && version!=null && !version.equals(patched.getVersion())) {
+			throw new VersionMismatchException();
+		}
+		return patched;
 
 	}
 
 	
 	/*
 	 * Delete an existing userProfile by it's userId. Throw UserProfileNotExistsException if 
-	 * the userProfile with specified userId does not exist.
+	 * the userProfile with specified userId does not exist. As for
+	 * updateUserProfile, a single delete is run and a non null version has to match.
 	 */
-	public void deleteUserProfile(String userId) throws UserProfileNotExistsException {
-		UserProfile userProfileObj = 	userProfileRepository.getOne(userId);
-		if(userProfileObj!=null) {
-			userProfileRepository.deleteById(userId);
-		}else {
-			throw new UserProfileNotExistsException();
+	@CacheEvict(cacheNames = CacheConfig.USER_PROFILE, key = "#userId")
+	public void deleteUserProfile(String userId, Long version)
+			throws UserProfileNotExistsException, VersionMismatchException {
+		if(userProfileRepository.deleteByUserId(userId, version)==0) {
+			failedWrite(userId, version);
 		}
 		
 	}
+
+	/*
+	 * A write that changed no row missed either the profile or its version. Only
+	 * a conditional one has to look for the profile to tell which.
+	 */
+	private void failedWrite(String userId, Long version)
+			throws UserProfileNotExistsException, VersionMismatchException {
+		if(version!=null && userProfileRepository.existsById(userId)) {
+			throw new VersionMismatchException();
+		}
+		throw new UserProfileNotExistsException();
+	}
 	
 	
 	/*
 	 * Retrieve an existing userProfile by it's userId. Throw UserProfileNotExistsException 
 	 * if the userProfile with specified userId does not exist.
 	 */
+	@Cacheable(cacheNames = CacheConfig.USER_PROFILE, key = "#userId", unless = CacheConfig.READ_FROM_REPLICA)
+	@Transactional(readOnly = true)
 	public UserProfile getUserProfile(String userId) throws UserProfileNotExistsException {
-		Optional<UserProfile> userProfileObj = userProfileRepository.findById(userId);
-		
-		if(userProfileObj.isPresent()) {
-			return userProfileObj.get();
-		}else {
+		if(negativeCache.isMissing(CacheConfig.USER_PROFILE, userId)) {
 			throw new UserProfileNotExistsException();
 		}
+		return userProfileLoads.execute(userId, () -> {
+			Optional<UserProfile> userProfileObj = userProfileRepository.findById(userId);
+			
+			if(userProfileObj.isPresent()) {
+				return userProfileObj.get();
+			}else {
+				if(!ReadWriteRoutingDataSource.isReadingReplica()) {
+					negativeCache.markMissing(CacheConfig.USER_PROFILE, userId);
+				}
+				throw new UserProfileNotExistsException();
+			}
+		});
 	}
 
 	/*
 	 * Retrieve all existing userProfiles
 	 */
+	@Transactional(readOnly = true)
 	public List<UserProfile> getAllUserProfiles() {
 		
 		return userProfileRepository.findAll();
@@ -0,0 +1,102 @@
+package com.stackroute.newz.util;
+
+import org.springframework.http.HttpHeaders;
+
+/*
+ * Entity tags of News, Reminder and UserProfile. The tag is the version column
+ * of the entity in quotes, a strong validator: every write of the row moves the
+ * version on.
+ */
+public final class EntityTags {
+
+	/*
+	 * Version no entity ever has, stands for an If-Match tag that cannot match
+	 */
+	public static final long NO_VERSION = -1;
+
+	private EntityTags() {
+	}
+
+	/*
+	 * ETag of the given version, null when the version is not known
+	 */
+	public static String of(Long version) {
+		return version == null ? null : "\"" + version + "\"";
+	}
+
+	/*
+	 * ETag of the given version sent with a content coding, e.g. "7-gzip". The
+	 * coded body differs byte for byte from the identity one, so it cannot share
+	 * its strong tag.
+	 */
+	public static String of(long version, String coding) {
+		return "\"" + version + "-" + coding + "\"";
+	}
+
+	/*
+	 * Response headers carrying the ETag of the given version, empty when the
+	 * version is not known
+	 */
+	public static HttpHeaders headers(Long version) {
+		HttpHeaders headers = new HttpHeaders();
+		if (version != null) {
+			headers.setETag(of(version));
+		}
+		return headers;
+	}
+
+	/*
+	 * Version an If-Match header asks the entity to still have, null when there is
+	 * no header or it is "*". A weak tag, a list of tags or a tag that was not made
+	 * here gives NO_VERSION, so the write fails with 412 as it should for a tag
+	 * the entity does not have.
+	 */
+	public static Long ifMatch(String header) {
+		if (header == null || header.trim().equals("*")) {
+			return null;
+		}
+		String tag = header.trim();
+		if (tag.length() < 3 || !tag.startsWith("\"") || !tag.endsWith("\"")) {
+			return NO_VERSION;
+		}
+		try {
+			long version = Long.parseLong(tag.substring(1, tag.length() - 1));
+			return version < 0 ? NO_VERSION : version;
+		} catch (NumberFormatException e) {
+			return NO_VERSION;
+		}
+	}
+
+	/*
+	 * Whether an If-None-Match header names the given version, i.e. the client
+	 * already holds the entity as it is. Tags are compared weakly, as RFC 7232
+	 * asks for If-None-Match.
+	 */
+	public static boolean notModified(String header, Long version) {
+		return version != null && notModified(header, of(version));
+	}
+
+	/*
+	 * Whether an If-None-Match header names the given ETag, compared weakly as
+	 * well
+	 */
+	public static boolean notModified(String header, String current) {
+		if (header == null) {
+			return false;
+		}
+		for (String tag : header.split(",")) {
+			tag = tag.trim();
+			if (tag.equals("*")) {
+				return true;
+			}
+			if (tag.startsWith("W/")) {
+				tag = tag.substring(2);
+			}
+			if (tag.equals(current)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+}
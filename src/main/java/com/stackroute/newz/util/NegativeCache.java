@@ -0,0 +1,51 @@
+package com.stackroute.newz.util;
+
+import java.util.Map;
+
+import com.github.benmanes.caffeine.cache.Cache;
+
+/*
+ * Remembers, for a short time, the ids that were looked up and not found, so that
+ * repeated lookups of the same missing id are answered without a database
+ * round-trip. There is one region per entity, named like the entity caches of
+ * CacheConfig. A region without a cache is disabled and never reports an id as
+ * missing.
+ * 
+ * Whoever creates an entity has to call forget() for its id once the creation
+ * has committed, so that it becomes visible immediately instead of after the
+ * TTL. Forgetting it earlier lets a lookup racing with the commit mark it
+ * missing again. An id not found on the read replica is not marked, the
+ * replica may only be behind.
+ */
+public class NegativeCache {
+
+	private final Map<String, Cache<Object, Boolean>> regions;
+
+	public NegativeCache(Map<String, Cache<Object, Boolean>> regions) {
+		this.regions = regions;
+	}
+
+	public boolean isMissing(String region, Object key) {
+		Cache<Object, Boolean> cache = regions.get(region);
+		return cache != null && cache.getIfPresent(key) != null;
+	}
+
+	public void markMissing(String region, Object key) {
+		Cache<Object, Boolean> cache = regions.get(region);
+		if (cache != null) {
+			cache.put(key, Boolean.TRUE);
+		}
+	}
+
+	public void forget(String region, Object key) {
+		Cache<Object, Boolean> cache = regions.get(region);
+		if (cache != null) {
+			cache.invalidate(key);
+		}
+	}
+
+	public void clear() {
+		regions.values().forEach(Cache::invalidateAll);
+	}
+
+}
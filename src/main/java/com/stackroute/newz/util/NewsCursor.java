@@ -0,0 +1,68 @@
+package com.stackroute.newz.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.util.exception.InvalidCursorException;
+
+/*
+ * Opaque position of a client inside the keyset walk over news. It is the
+ * (publishedAt, newsId) pair of the last news returned on a page, encoded as
+ * URL safe Base64 so that clients treat it as a token and never build it. A
+ * news without publishedAt leaves that part empty.
+ */
+public final class NewsCursor {
+
+	private static final String SEPARATOR = "|";
+
+	private final LocalDateTime publishedAt;
+	private final int newsId;
+
+	public NewsCursor(LocalDateTime publishedAt, int newsId) {
+		this.publishedAt = publishedAt;
+		this.newsId = newsId;
+	}
+
+	/*
+	 * Cursor pointing just after the given news
+	 */
+	public static NewsCursor after(News news) {
+		return new NewsCursor(news.getPublishedAt(), news.getNewsId());
+	}
+
+	/*
+	 * Decode a token previously produced by encode(). Throw InvalidCursorException
+	 * if the token was not produced by this class.
+	 */
+	public static NewsCursor decode(String token) throws InvalidCursorException {
+		try {
+			String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+			int separator = raw.lastIndexOf(SEPARATOR);
+			if (separator < 0) {
+				throw new InvalidCursorException();
+			}
+			String publishedAt = raw.substring(0, separator);
+			return new NewsCursor(publishedAt.isEmpty() ? null : LocalDateTime.parse(publishedAt),
+					Integer.parseInt(raw.substring(separator + 1)));
+		} catch (IllegalArgumentException | DateTimeParseException e) {
+			throw new InvalidCursorException();
+		}
+	}
+
+	public String encode() {
+		String raw = (publishedAt == null ? "" : publishedAt.toString()) + SEPARATOR + newsId;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+
+	public LocalDateTime getPublishedAt() {
+		return publishedAt;
+	}
+
+	public int getNewsId() {
+		return newsId;
+	}
+
+}
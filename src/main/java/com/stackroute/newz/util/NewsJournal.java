@@ -0,0 +1,300 @@
+package com.stackroute.newz.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.Reminder;
+import com.stackroute.newz.model.UserProfile;
+
+/*
+ * Append-only file of the news writes that are not in the database yet.
+ *
+ * Every record is framed by its length and a CRC32 of its payload. A crash in
+ * the middle of an append leaves a torn record at the end of the file: reading
+ * stops at the first record that is incomplete or does not match its checksum,
+ * and the file is cut back to the last good record.
+ *
+ * Associations are written as the id of the associated entity only, the news
+ * read back carries a UserProfile or Reminder holding nothing but its id.
+ *
+ * Not thread safe, the caller has to synchronize. force may run while another
+ * thread appends, but not alongside rewrite, which replaces the file.
+ */
+public class NewsJournal implements Closeable {
+
+	private static final byte UPSERT = 0;
+	private static final byte DELETE = 1;
+	private static final int HEADER = 8;
+	private static final int MAX_RECORD = 64 * 1024 * 1024;
+
+	private final Path path;
+	private FileChannel channel;
+	private int records;
+
+	public NewsJournal(Path path) throws IOException {
+		this.path = path;
+		Path parent = path.toAbsolutePath().getParent();
+		if (parent != null) {
+			Files.createDirectories(parent);
+		}
+		this.channel = open(path);
+	}
+
+	/*
+	 * Read every complete record from the start of the file, then leave the file
+	 * positioned after the last one for the next append.
+	 */
+	public List<Entry> readAll() throws IOException {
+		List<Entry> entries = new ArrayList<>();
+		ByteBuffer header = ByteBuffer.allocate(HEADER);
+		long position = 0;
+		channel.position(0);
+		while (true) {
+			header.clear();
+			if (readFully(header) < HEADER) {
+				break;
+			}
+			header.flip();
+			int length = header.getInt();
+			long checksum = header.getInt() & 0xFFFFFFFFL;
+			if (length <= 0 || length > MAX_RECORD) {
+				break;
+			}
+			ByteBuffer payload = ByteBuffer.allocate(length);
+			if (readFully(payload) < length || crc(payload.array()) != checksum) {
+				break;
+			}
+			entries.add(decode(payload.array()));
+			position = channel.position();
+		}
+		channel.truncate(position);
+		channel.position(position);
+		records = entries.size();
+		return entries;
+	}
+
+	/*
+	 * Append a record. If the write fails half way, the file is cut back so that
+	 * the next appends are not hidden behind a torn record.
+	 */
+	public void append(Entry entry) throws IOException {
+		ByteBuffer frame = frame(entry);
+		long start = channel.position();
+		try {
+			while (frame.hasRemaining()) {
+				channel.write(frame);
+			}
+		} catch (IOException e) {
+			channel.truncate(start);
+			channel.position(start);
+			throw e;
+		}
+		records++;
+	}
+
+	/*
+	 * Make the appended records durable
+	 */
+	public void force() throws IOException {
+		channel.force(false);
+	}
+
+	/*
+	 * Replace the whole file by the given records. They are written to a new file
+	 * first, which then takes the place of the journal, so a crash leaves either
+	 * the old or the new content.
+	 */
+	public void rewrite(Collection<Entry> entries) throws IOException {
+		Path next = path.resolveSibling(path.getFileName() + ".next");
+		try (FileChannel out = FileChannel.open(next, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			for (Entry entry : entries) {
+				ByteBuffer frame = frame(entry);
+				while (frame.hasRemaining()) {
+					out.write(frame);
+				}
+			}
+			out.force(false);
+		}
+		channel.close();
+		Files.move(next, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		channel = open(path);
+		channel.position(channel.size());
+		records = entries.size();
+	}
+
+	public void truncate() throws IOException {
+		channel.truncate(0);
+		channel.force(false);
+		records = 0;
+	}
+
+	/*
+	 * Number of records in the file
+	 */
+	public int getRecords() {
+		return records;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private static FileChannel open(Path path) throws IOException {
+		return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+	}
+
+	private int readFully(ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer) < 0) {
+				break;
+			}
+		}
+		return buffer.position();
+	}
+
+	private static long crc(byte[] bytes) {
+		CRC32 crc = new CRC32();
+		crc.update(bytes);
+		return crc.getValue();
+	}
+
+	private static ByteBuffer frame(Entry entry) throws IOException {
+		byte[] payload = encode(entry);
+		ByteBuffer frame = ByteBuffer.allocate(HEADER + payload.length);
+		frame.putInt(payload.length);
+		frame.putInt((int) crc(payload));
+		frame.put(payload);
+		frame.flip();
+		return frame;
+	}
+
+	private static byte[] encode(Entry entry) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeByte(entry.isDelete() ? DELETE : UPSERT);
+			out.writeInt(entry.getNewsId());
+			News news = entry.getNews();
+			if (news != null) {
+				writeString(out, news.getTitle());
+				writeString(out, news.getAuthor());
+				writeString(out, news.getDescription());
+				writeString(out, news.getPublishedAt() == null ? null : news.getPublishedAt().toString());
+				writeString(out, news.getContent());
+				writeString(out, news.getUrl());
+				writeString(out, news.getUrlToImage());
+				writeString(out, news.getUser() == null ? null : news.getUser().getUserId());
+				out.writeInt(news.getReminder() == null ? 0 : news.getReminder().getReminderId());
+			}
+		}
+		return bytes.toByteArray();
+	}
+
+	private static Entry decode(byte[] payload) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+		byte op = in.readByte();
+		int newsId = in.readInt();
+		if (op == DELETE) {
+			return Entry.delete(newsId);
+		}
+		String title = readString(in);
+		String author = readString(in);
+		String description = readString(in);
+		String publishedAt = readString(in);
+		String content = readString(in);
+		String url = readString(in);
+		String urlToImage = readString(in);
+		String userId = readString(in);
+		UserProfile user = null;
+		if (userId != null) {
+			user = new UserProfile();
+			user.setUserId(userId);
+		}
+		int reminderId = in.readInt();
+		Reminder reminder = null;
+		if (reminderId != 0) {
+			reminder = new Reminder();
+			reminder.setReminderId(reminderId);
+		}
+		News news = new News(newsId, title, author, description,
+				publishedAt == null ? null : LocalDateTime.parse(publishedAt), content, url, urlToImage, user, reminder);
+		return Entry.upsert(news);
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		if (value == null) {
+			out.writeInt(-1);
+			return;
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length < 0) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/*
+	 * One write: the whole new state of a news, or its deletion
+	 */
+	public static final class Entry {
+
+		private final int newsId;
+		private final News news;
+
+		private Entry(int newsId, News news) {
+			this.newsId = newsId;
+			this.news = news;
+		}
+
+		public static Entry upsert(News news) {
+			return new Entry(news.getNewsId(), news);
+		}
+
+		public static Entry delete(int newsId) {
+			return new Entry(newsId, null);
+		}
+
+		public int getNewsId() {
+			return newsId;
+		}
+
+		/*
+		 * The news to write, null for a deletion
+		 */
+		public News getNews() {
+			return news;
+		}
+
+		public boolean isDelete() {
+			return news == null;
+		}
+
+	}
+
+}
@@ -0,0 +1,48 @@
+package com.stackroute.newz.util;
+
+import java.beans.PropertyDescriptor;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.BeanUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stackroute.newz.util.exception.InvalidPatchException;
+
+/*
+ * Reads the JSON merge patch of an entity with flat fields: the fields present
+ * in the document are the ones to change, null clears a field, every other
+ * field is left as it is. Each value is converted to the type of the property it
+ * targets, so that the update binds it as the entity itself would.
+ */
+public final class PatchFields {
+
+	private PatchFields() {
+	}
+
+	/*
+	 * The changes of the document keyed by property name, in document order.
+	 * Throw InvalidPatchException for a field that is not patchable or a value
+	 * that does not fit its property.
+	 */
+	public static Map<String, Object> read(Map<String, Object> document, Class<?> type, Set<String> patchable,
+			ObjectMapper objectMapper) throws InvalidPatchException {
+		Map<String, Object> changes = new LinkedHashMap<>();
+		for (Map.Entry<String, Object> field : document.entrySet()) {
+			String name = field.getKey();
+			PropertyDescriptor property = BeanUtils.getPropertyDescriptor(type, name);
+			if (!patchable.contains(name) || property == null) {
+				throw new InvalidPatchException("Field " + name + " cannot be patched");
+			}
+			try {
+				changes.put(name, field.getValue() == null ? null
+						: objectMapper.convertValue(field.getValue(), property.getPropertyType()));
+			} catch (IllegalArgumentException e) {
+				throw new InvalidPatchException("Field " + name + " has not a valid value");
+			}
+		}
+		return changes;
+	}
+
+}
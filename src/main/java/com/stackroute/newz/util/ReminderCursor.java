@@ -0,0 +1,66 @@
+package com.stackroute.newz.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+import com.stackroute.newz.model.Reminder;
+import com.stackroute.newz.util.exception.InvalidCursorException;
+
+/*
+ * Opaque position of a client inside the keyset walk over due reminders. It is
+ * the (schedule, reminderId) pair of the last reminder returned on a page,
+ * encoded the same way as NewsCursor.
+ */
+public final class ReminderCursor {
+
+	private static final String SEPARATOR = "|";
+
+	private final LocalDateTime schedule;
+	private final int reminderId;
+
+	public ReminderCursor(LocalDateTime schedule, int reminderId) {
+		this.schedule = schedule;
+		this.reminderId = reminderId;
+	}
+
+	/*
+	 * Cursor pointing just after the given reminder
+	 */
+	public static ReminderCursor after(Reminder reminder) {
+		return new ReminderCursor(reminder.getSchedule(), reminder.getReminderId());
+	}
+
+	/*
+	 * Decode a token previously produced by encode(). Throw InvalidCursorException
+	 * if the token was not produced by this class.
+	 */
+	public static ReminderCursor decode(String token) throws InvalidCursorException {
+		try {
+			String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+			int separator = raw.lastIndexOf(SEPARATOR);
+			if (separator < 0) {
+				throw new InvalidCursorException();
+			}
+			return new ReminderCursor(LocalDateTime.parse(raw.substring(0, separator)),
+					Integer.parseInt(raw.substring(separator + 1)));
+		} catch (IllegalArgumentException | DateTimeParseException e) {
+			throw new InvalidCursorException();
+		}
+	}
+
+	public String encode() {
+		String raw = schedule + SEPARATOR + reminderId;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+
+	public LocalDateTime getSchedule() {
+		return schedule;
+	}
+
+	public int getReminderId() {
+		return reminderId;
+	}
+
+}
@@ -0,0 +1,73 @@
+package com.stackroute.newz.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Coalesces concurrent loads of the same key. The first caller for a key runs the
+ * load, every caller arriving while it is in flight waits on the same
+ * CompletableFuture and gets the same value, or the same exception. Once the load
+ * completes the key is forgotten, so nothing is cached here.
+ */
+public class SingleFlight<K, V> {
+
+	/*
+	 * A load that may fail with a checked exception, e.g. NewsNotExistsException
+	 */
+	@FunctionalInterface
+	public interface Loader<V, E extends Exception> {
+		V load() throws E;
+	}
+
+	private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+	private final LongAdder coalesced = new LongAdder();
+
+	/*
+	 * Run the loader for the key, unless a load of the same key is already running,
+	 * in which case wait for it and share its outcome.
+	 */
+	@SuppressWarnings("unchecked")
+	public <E extends Exception> V execute(K key, Loader<V, E> loader) throws E {
+		CompletableFuture<V> future = new CompletableFuture<>();
+		CompletableFuture<V> running = inFlight.putIfAbsent(key, future);
+		if (running != null) {
+			coalesced.increment();
+			try {
+				return running.join();
+			} catch (CompletionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				}
+				if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				// the leader ran a loader declared at the same call site, so it can only throw E
+				throw (E) cause;
+			}
+		}
+
+		try {
+			V value = loader.load();
+			future.complete(value);
+			return value;
+		} catch (Exception | Error e) {
+			future.completeExceptionally(e);
+			throw e;
+		} finally {
+			inFlight.remove(key, future);
+		}
+	}
+
+	/*
+	 * Number of callers that did not run a load themselves because they joined one
+	 * already in flight
+	 */
+	public long getCoalescedCount() {
+		return coalesced.sum();
+	}
+
+}
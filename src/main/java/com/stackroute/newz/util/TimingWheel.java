@@ -0,0 +1,206 @@
+package com.stackroute.newz.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * Hierarchical timing wheel holding values that expire at a deadline.
+ *
+ * Time is cut in ticks. Each level is a ring of wheelSize slots, a slot of level
+ * n spanning wheelSize^n ticks, so a few levels cover a long horizon with few
+ * slots. A value goes to the lowest level whose span covers its deadline. Every
+ * time a level completes a turn, the next slot of the level above is emptied
+ * into the levels below, and the values of the current level 0 slot expire.
+ *
+ * Adding, replacing and cancelling are O(1): slots are doubly linked lists and
+ * every value is found by its key. Advancing costs one step per elapsed tick
+ * plus the values it moves or expires, whatever the number of values held.
+ *
+ * Not thread safe, the caller has to synchronize.
+ */
+public class TimingWheel<K, V> {
+
+	private final long tickMillis;
+	private final int bits;
+	private final int mask;
+	private final Node<K, V>[][] slots;
+	private final Node<K, V> overdue = new Node<>();
+	private final Map<K, Node<K, V>> nodes = new HashMap<>();
+
+	private long currentTick;
+
+	/*
+	 * wheelSize has to be a power of two. The wheel starts at startMillis, deadlines
+	 * are rounded up to the next tick.
+	 */
+	@SuppressWarnings("unchecked")
+	public TimingWheel(long tickMillis, int wheelSize, int levels, long startMillis) {
+		if (tickMillis <= 0 || levels <= 0 || wheelSize < 2 || Integer.bitCount(wheelSize) != 1) {
+			throw new IllegalArgumentException("tickMillis and levels must be positive, wheelSize a power of two");
+		}
+		this.tickMillis = tickMillis;
+		this.bits = Integer.numberOfTrailingZeros(wheelSize);
+		this.mask = wheelSize - 1;
+		this.slots = new Node[levels][wheelSize];
+		for (Node<K, V>[] level : slots) {
+			for (int i = 0; i < wheelSize; i++) {
+				level[i] = new Node<>();
+			}
+		}
+		this.currentTick = startMillis / tickMillis;
+	}
+
+	/*
+	 * Add a value, or move it if its key is already in the wheel. A deadline that
+	 * has already passed expires at the next advance.
+	 */
+	public void add(K key, V value, long deadlineMillis) {
+		cancel(key);
+		Node<K, V> node = new Node<>(key, value, (deadlineMillis + tickMillis - 1) / tickMillis);
+		nodes.put(key, node);
+		place(node);
+	}
+
+	/*
+	 * Remove the value of the key, returns false if it is not in the wheel.
+	 */
+	public boolean cancel(K key) {
+		Node<K, V> node = nodes.remove(key);
+		if (node == null) {
+			return false;
+		}
+		node.unlink();
+		return true;
+	}
+
+	public boolean contains(K key) {
+		return nodes.containsKey(key);
+	}
+
+	/*
+	 * The value of the key, null if it is not in the wheel
+	 */
+	public V get(K key) {
+		Node<K, V> node = nodes.get(key);
+		return node == null ? null : node.value;
+	}
+
+	/*
+	 * Keys of every value in the wheel, a view that changes with the wheel
+	 */
+	public Set<K> keys() {
+		return Collections.unmodifiableSet(nodes.keySet());
+	}
+
+	public int size() {
+		return nodes.size();
+	}
+
+	/*
+	 * Move the wheel up to nowMillis and return the values whose deadline has been
+	 * reached, earliest first. They are removed from the wheel.
+	 */
+	public List<V> advance(long nowMillis) {
+		List<V> expired = new ArrayList<>();
+		drain(overdue, expired);
+		long nowTick = nowMillis / tickMillis;
+		while (currentTick < nowTick) {
+			currentTick++;
+			cascade(1);
+			// values cascaded down to the current tick itself are in overdue
+			drain(overdue, expired);
+			drain(slots[0][(int) (currentTick & mask)], expired);
+		}
+		return expired;
+	}
+
+	/*
+	 * When the level below has completed a turn, spread the next slot of this
+	 * level over the lower levels, after doing the same for the level above.
+	 */
+	private void cascade(int level) {
+		if (level >= slots.length || (currentTick & (((long) 1 << (bits * level)) - 1)) != 0) {
+			return;
+		}
+		cascade(level + 1);
+		Node<K, V> slot = slots[level][(int) ((currentTick >>> (bits * level)) & mask)];
+		Node<K, V> node = slot.next;
+		slot.next = slot;
+		slot.prev = slot;
+		while (node != slot) {
+			Node<K, V> next = node.next;
+			place(node);
+			node = next;
+		}
+	}
+
+	private void drain(Node<K, V> slot, List<V> expired) {
+		Node<K, V> node = slot.next;
+		while (node != slot) {
+			Node<K, V> next = node.next;
+			node.unlink();
+			if (node.deadlineTick <= currentTick) {
+				nodes.remove(node.key);
+				expired.add(node.value);
+			} else {
+				place(node);
+			}
+			node = next;
+		}
+	}
+
+	private void place(Node<K, V> node) {
+		long delta = node.deadlineTick - currentTick;
+		if (delta <= 0) {
+			node.linkBefore(overdue);
+			return;
+		}
+		int level = 0;
+		while (level < slots.length - 1 && delta >= (long) 1 << (bits * (level + 1))) {
+			level++;
+		}
+		node.linkBefore(slots[level][(int) ((node.deadlineTick >>> (bits * level)) & mask)]);
+	}
+
+	/*
+	 * Entry of a slot list. The head of every list is a sentinel node.
+	 */
+	private static class Node<K, V> {
+
+		private final K key;
+		private final V value;
+		private final long deadlineTick;
+		private Node<K, V> prev = this;
+		private Node<K, V> next = this;
+
+		Node() {
+			this(null, null, 0);
+		}
+
+		Node(K key, V value, long deadlineTick) {
+			this.key = key;
+			this.value = value;
+			this.deadlineTick = deadlineTick;
+		}
+
+		void linkBefore(Node<K, V> head) {
+			prev = head.prev;
+			next = head;
+			head.prev.next = this;
+			head.prev = this;
+		}
+
+		void unlink() {
+			prev.next = next;
+			next.prev = prev;
+			prev = this;
+			next = this;
+		}
+
+	}
+
+}
@@ -0,0 +1,18 @@
+package com.stackroute.newz.util.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.BAD_REQUEST,reason = "Patch document is not valid")
+public class InvalidPatchException extends Exception {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 1L;
+
+	public InvalidPatchException(String message) {
+		super(message);
+	}
+
+}
@@ -11,4 +11,12 @@ public class NewsNotExistsException extends Exception {
 	 */
 	private static final long serialVersionUID = 1L;
 
+	/*
+	 * Not found is an expected outcome answered with a 404, the stack trace is
+	 * never looked at. Skipping it makes throwing almost free.
+	 */
+	public NewsNotExistsException() {
+		super(null, null, false, false);
+	}
+
 }
@@ -11,4 +11,11 @@ public class ReminderNotExistsException extends Exception {
 	 */
 	private static final long serialVersionUID = 1L;
 
+	/*
+	 * Stackless, like NewsNotExistsException
+	 */
+	public ReminderNotExistsException() {
+		super(null, null, false, false);
+	}
+
 }
@@ -11,6 +11,13 @@ public class UserProfileNotExistsException extends Exception {
 	 */
 	private static final long serialVersionUID = 1L;
 
+	/*
+	 * No stack trace is filled in, a missing user profile is an ordinary 404.
+	 */
+	public UserProfileNotExistsException() {
+		super(null, null, false, false);
+	}
+
 	
 	
 }
@@ -0,0 +1,22 @@
+package com.stackroute.newz.util.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.PRECONDITION_FAILED,reason = "Entity has been changed since the given version")
+public class VersionMismatchException extends Exception {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/*
+	 * Like not found, a conflict is an expected outcome answered with a 412,
+	 * there is no stack trace to fill.
+	 */
+	public VersionMismatchException() {
+		super(null, null, false, false);
+	}
+
+}
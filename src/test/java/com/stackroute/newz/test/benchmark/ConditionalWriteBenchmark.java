@@ -0,0 +1,147 @@
+package com.stackroute.newz.test.benchmark;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.UserProfile;
+import com.stackroute.newz.repository.NewsRepository;
+import com.stackroute.newz.repository.UserProfileRepository;
+import com.stackroute.newz.service.NewsService;
+import com.stackroute.newz.service.UserProfileService;
+
+/*
+ * Statements run and time spent per write, through the single conditional
+ * statements of the services compared with the former read-then-write: getOne
+ * followed by saveAndFlush or deleteById, which load the row before writing it,
+ * and findById followed by save for a registration. Every statement is a
+ * round-trip to the database, which the in-memory database of the "test"
+ * profile makes nearly free, so the statement counts matter more than the
+ * times here. On demand only:
+ *
+ * mvn test -Dsurefire.excludedGroups= -Dgroups=benchmark -Dtest=ConditionalWriteBenchmark
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = "logging.level.root=INFO")
+@ActiveProfiles("test")
+class ConditionalWriteBenchmark {
+
+	private static final Logger logger = LoggerFactory.getLogger(ConditionalWriteBenchmark.class);
+
+	private static final int WRITES = Integer.getInteger("benchmark.writes", 2000);
+
+	@Autowired
+	private NewsService newsService;
+	@Autowired
+	private UserProfileService userProfileService;
+	@Autowired
+	private NewsRepository newsRepository;
+	@Autowired
+	private UserProfileRepository userProfileRepository;
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Test
+	public void conditionalVersusReadThenWrite() {
+
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+		List<News> readThenWrite = seed();
+		List<News> conditional = seed();
+
+		report(statistics, "update news", index -> transactionTemplate.execute(status -> {
+			News news = readThenWrite.get(index);
+			news.setTitle("updated " + index);
+			newsRepository.getOne(news.getNewsId());
+			return newsRepository.saveAndFlush(news);
+		}), index -> {
+			News news = conditional.get(index);
+			news.setTitle("updated " + index);
+			try {
+				newsService.updateNews(news);
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		});
+
+		report(statistics, "delete news", index -> transactionTemplate.execute(status -> {
+			int newsId = readThenWrite.get(index).getNewsId();
+			newsRepository.getOne(newsId);
+			newsRepository.deleteById(newsId);
+			return null;
+		}), index -> {
+			try {
+				newsService.deleteNews(conditional.get(index).getNewsId(), null);
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		});
+
+		report(statistics, "register user", index -> transactionTemplate.execute(status -> {
+			UserProfile user = user("before" + index);
+			if (userProfileRepository.findById(user.getUserId()).isEmpty()) {
+				userProfileRepository.save(user);
+			}
+			return null;
+		}), index -> {
+			try {
+				userProfileService.registerUser(user("after" + index));
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		});
+
+	}
+
+	private void report(Statistics statistics, String write, IntConsumer readThenWrite, IntConsumer conditional) {
+		long[] before = measure(statistics, readThenWrite);
+		long[] after = measure(statistics, conditional);
+		logger.info("{}, per write: read-then-write {} statements in {} us, conditional {} statements in {} us",
+				write, before[0] / (double) WRITES, before[1] / WRITES / 1000, after[0] / (double) WRITES,
+				after[1] / WRITES / 1000);
+	}
+
+	/*
+	 * Statements run and nanoseconds spent, both for all WRITES
+	 */
+	private long[] measure(Statistics statistics, IntConsumer write) {
+		statistics.clear();
+		long start = System.nanoTime();
+		for (int i = 0; i < WRITES; i++) {
+			write.accept(i);
+		}
+		return new long[] { statistics.getPrepareStatementCount(), System.nanoTime() - start };
+	}
+
+	private List<News> seed() {
+		List<News> news = new ArrayList<>(WRITES);
+		for (int i = 0; i < WRITES; i++) {
+			news.add(new News(0, "title " + i, "author", "description " + i, LocalDateTime.now(), "content " + i,
+					null, null, null, null));
+		}
+		newsService.addNewsBatch(news.iterator());
+		return news;
+	}
+
+	private static UserProfile user(String userId) {
+		return new UserProfile(userId, "John", "Smith", "1234567890", LocalDateTime.now(), null);
+	}
+
+}
@@ -0,0 +1,73 @@
+package com.stackroute.newz.test.benchmark;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.Reminder;
+import com.stackroute.newz.model.UserProfile;
+
+/*
+ * JSON serialization and deserialization of the models, with the object mapper
+ * Spring Boot configures for the controllers. Their LocalDateTime fields are
+ * written by ToStringSerializer and read back by the Java time module. Writers
+ * and readers are made once, as the message converters keep theirs. On demand
+ * only, see Microbenchmarks:
+ *
+ * mvn test -Dsurefire.excludedGroups= -Dgroups=benchmark -Dtest=JsonMappingBenchmark
+ */
+@Tag("benchmark")
+class JsonMappingBenchmark {
+
+	private static final int PAGE = 20;
+
+	private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+	@Test
+	public void mapping() throws Exception {
+
+		LocalDateTime now = LocalDateTime.of(2020, 1, 15, 10, 30, 15);
+		News news = new News(1, "Markets rally as inflation cools", "Jane Doe",
+				"Stocks rose for a third day as new figures showed prices rising more slowly.", now,
+				"Stocks rose for a third day on Wednesday as new figures showed prices rising more slowly than"
+						+ " expected, lifting hopes that interest rates have peaked.",
+				"https://news.example.com/markets/rally", "https://news.example.com/markets/rally.jpg", null, null);
+		Reminder reminder = new Reminder(1, now.plusDays(1), news);
+		UserProfile user = new UserProfile("jdoe", "Jane", "Doe", "9876543210", now, null);
+		List<News> page = new ArrayList<>();
+		for (int i = 0; i < PAGE; i++) {
+			page.add(new News(i, news.getTitle(), news.getAuthor(), news.getDescription(), now.plusMinutes(i),
+					news.getContent(), news.getUrl(), news.getUrlToImage(), null, null));
+		}
+
+		Microbenchmarks benchmarks = new Microbenchmarks(JsonMappingBenchmark.class);
+		measure(benchmarks, "News", objectMapper.writerFor(News.class), objectMapper.readerFor(News.class), news);
+		measure(benchmarks, "Reminder", objectMapper.writerFor(Reminder.class),
+				objectMapper.readerFor(Reminder.class), reminder);
+		measure(benchmarks, "UserProfile", objectMapper.writerFor(UserProfile.class),
+				objectMapper.readerFor(UserProfile.class), user);
+		TypeReference<List<News>> listOfNews = new TypeReference<List<News>>() {
+		};
+		measure(benchmarks, "NewsPage", objectMapper.writerFor(listOfNews), objectMapper.readerFor(listOfNews), page);
+		LocalDateTime publishedAt = news.getPublishedAt();
+		benchmarks.run("serializeLocalDateTime", () -> objectMapper.writeValueAsBytes(publishedAt));
+		benchmarks.write();
+	}
+
+	private static void measure(Microbenchmarks benchmarks, String model, ObjectWriter writer, ObjectReader reader,
+			Object value) throws Exception {
+		byte[] json = writer.writeValueAsBytes(value);
+		benchmarks.run("serialize" + model, () -> writer.writeValueAsBytes(value));
+		benchmarks.run("deserialize" + model, () -> reader.readValue(json));
+	}
+
+}
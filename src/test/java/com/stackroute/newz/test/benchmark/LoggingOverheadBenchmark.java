@@ -0,0 +1,143 @@
+package com.stackroute.newz.test.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.FileAppender;
+
+/*
+ * Time the four lines LoggerAspect logs around a controller call take on the
+ * request thread, before and after the switch to the async mode of logback.xml:
+ * concatenated messages written to the file by the request thread, compared
+ * with parameterized messages put in the async buffer, with its default drop
+ * policy and without dropping anything, and with DEBUG off.
+ * Each runs in a logger context of its own, set up as logback.xml sets up the
+ * file appender, so that nothing else is logged meanwhile. The lines dropped by
+ * the async buffer are counted from the file. On demand only:
+ *
+ * mvn test -Dsurefire.excludedGroups= -Dgroups=benchmark -Dtest=LoggingOverheadBenchmark
+ */
+@Tag("benchmark")
+class LoggingOverheadBenchmark {
+
+	private static final org.slf4j.Logger logger = LoggerFactory.getLogger(LoggingOverheadBenchmark.class);
+
+	private static final int REQUESTS = Integer.getInteger("benchmark.requests", 100_000);
+	private static final String PATTERN = "%d{yyyy-MM-dd HH:mm:ss} [%thread] %-5level %logger{36} - %msg%n";
+	private static final Path FILE = Paths.get("target/logging-benchmark.log");
+	private static final String[] METHODS = { "getAllNews", "getNewsById", "addNews", "updateNews" };
+
+	@Test
+	public void perRequestOverhead() throws IOException {
+
+		measure("sync file, concatenated", -1, Level.DEBUG, (log, method) -> {
+			log.debug("Executing beforeAdviceImplMethod() " + method);
+			log.debug("Executing afterAdviceImplMethod() " + method);
+			log.debug("Executing afterReturningAdviceImplMethod() " + method);
+			log.debug("Executing afterThrowingAdviceImplMethod() " + method);
+		});
+		measure("async file, parameterized", 819, Level.DEBUG, LoggingOverheadBenchmark::parameterized);
+		measure("async file without discarding, parameterized", 0, Level.DEBUG,
+				LoggingOverheadBenchmark::parameterized);
+		measure("DEBUG off, parameterized", 819, Level.INFO, LoggingOverheadBenchmark::parameterized);
+	}
+
+	private static void parameterized(Logger log, String method) {
+		if (log.isDebugEnabled()) {
+			log.debug("Executing beforeAdviceImplMethod() {}", method);
+			log.debug("Executing afterAdviceImplMethod() {}", method);
+			log.debug("Executing afterReturningAdviceImplMethod() {}", method);
+			log.debug("Executing afterThrowingAdviceImplMethod() {}", method);
+		}
+	}
+
+	/*
+	 * discardingThreshold -1 logs synchronously
+	 */
+	private void measure(String name, int discardingThreshold, Level level, BiConsumer<Logger, String> request)
+			throws IOException {
+		Files.deleteIfExists(FILE);
+		LoggerContext context = new LoggerContext();
+		context.setName(name);
+		Logger log = context.getLogger("com.stackroute.newz.aspect.LoggerAspect");
+		log.setLevel(level);
+		log.setAdditive(false);
+		log.addAppender(appender(context, discardingThreshold));
+
+		// warm up before measuring
+		int warmUp = REQUESTS / 10;
+		for (int i = 0; i < warmUp; i++) {
+			request.accept(log, METHODS[i % METHODS.length]);
+		}
+		long[] nanos = new long[REQUESTS];
+		long start = System.nanoTime();
+		for (int i = 0; i < REQUESTS; i++) {
+			long requestStart = System.nanoTime();
+			request.accept(log, METHODS[i % METHODS.length]);
+			nanos[i] = System.nanoTime() - requestStart;
+		}
+		long requestsDone = System.nanoTime() - start;
+		context.stop();
+		long allWritten = System.nanoTime() - start;
+
+		long expected = level.isGreaterOrEqual(Level.INFO) ? 0 : 4L * (warmUp + REQUESTS);
+		long written;
+		try (Stream<String> lines = Files.lines(FILE)) {
+			written = lines.count();
+		}
+		Arrays.sort(nanos);
+		logger.info("{}, {} requests: mean {} ns, p50 {} ns, p99 {} ns, p99.9 {} ns, max {} us on the request thread,"
+				+ " {} ns per request until written, {} of {} lines dropped", name, REQUESTS, requestsDone / REQUESTS,
+				percentile(nanos, 50), percentile(nanos, 99), percentile(nanos, 99.9), nanos[REQUESTS - 1] / 1000,
+				allWritten / REQUESTS, expected - written, expected);
+	}
+
+	/*
+	 * The FILE-AUDIT appender of logback.xml without rolling, alone or behind
+	 * the ASYNC-FILE-AUDIT buffer
+	 */
+	private static Appender<ILoggingEvent> appender(LoggerContext context, int discardingThreshold) {
+		PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+		encoder.setContext(context);
+		encoder.setPattern(PATTERN);
+		encoder.start();
+		FileAppender<ILoggingEvent> file = new FileAppender<>();
+		file.setContext(context);
+		file.setName("FILE-AUDIT");
+		file.setFile(FILE.toString());
+		file.setEncoder(encoder);
+		file.start();
+		if (discardingThreshold < 0) {
+			return file;
+		}
+		AsyncAppender buffer = new AsyncAppender();
+		buffer.setContext(context);
+		buffer.setName("ASYNC-FILE-AUDIT");
+		buffer.setQueueSize(8192);
+		buffer.setDiscardingThreshold(discardingThreshold);
+		buffer.addAppender(file);
+		buffer.start();
+		return buffer;
+	}
+
+	private static long percentile(long[] sorted, double percentile) {
+		return sorted[(int) Math.min(sorted.length - 1, Math.ceil(percentile / 100 * sorted.length) - 1)];
+	}
+
+}
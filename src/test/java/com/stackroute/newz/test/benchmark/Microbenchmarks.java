@@ -0,0 +1,164 @@
+package com.stackroute.newz.test.benchmark;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/*
+ * Ad-hoc harness for the microbenchmark suites, not JMH. It runs an operation
+ * in the JVM of the tests, with no fork: warm-up iterations, then measured
+ * iterations of a fixed time. The score is the average time per operation,
+ * with the half-width of its 99.9% confidence interval over the iterations,
+ * plus the bytes allocated per operation.
+ *
+ * What it does not do, unlike JMH: isolate a benchmark from what ran before it
+ * in the same JVM, whose profile and compiled code it inherits, or prevent
+ * constant folding. The only guard against dead code elimination is a volatile
+ * sink that keeps the result of every operation. Its numbers are good for
+ * comparing two commits on the same machine, not as absolute figures.
+ *
+ * The results of a suite are written to benchmark.results, target/benchmark-results
+ * by default, as <suite>.json, a format of its own. To compare two commits, run
+ * the suites of each into a directory of its own, e.g.
+ *
+ * mvn test -Dsurefire.excludedGroups= -Dgroups=benchmark -Dtest=JsonMappingBenchmark,NewsServiceBenchmark,RequestPathBenchmark \
+ *   -Dbenchmark.results=target/benchmark-results/$(git rev-parse --short HEAD)
+ *
+ * benchmark.warmup-iterations, benchmark.iterations and benchmark.iteration-time
+ * (ms) set the length of a run, 5, 10 and 1000 by default.
+ */
+final class Microbenchmarks {
+
+	private static final Logger logger = LoggerFactory.getLogger(Microbenchmarks.class);
+
+	private static final int WARMUP_ITERATIONS = Integer.getInteger("benchmark.warmup-iterations", 5);
+	private static final int ITERATIONS = Integer.getInteger("benchmark.iterations", 10);
+	private static final long ITERATION_NANOS = TimeUnit.MILLISECONDS
+			.toNanos(Long.getLong("benchmark.iteration-time", 1000));
+	private static final Path RESULTS = Paths.get(System.getProperty("benchmark.results", "target/benchmark-results"));
+
+	/*
+	 * Student's t for a two-sided 99.9% interval, by degrees of freedom from 1
+	 * to 30, the last one is used beyond
+	 */
+	private static final double[] T_999 = { 636.62, 31.599, 12.924, 8.610, 6.869, 5.959, 5.408, 5.041, 4.781,
+			4.587, 4.437, 4.318, 4.221, 4.140, 4.073, 4.015, 3.965, 3.922, 3.883, 3.850, 3.819, 3.792, 3.768, 3.745,
+			3.725, 3.707, 3.690, 3.674, 3.659, 3.646 };
+
+	private static final double[] PERCENTILES = { 0.0, 50.0, 90.0, 95.0, 99.0, 99.9, 99.99, 99.9999, 100.0 };
+
+	@FunctionalInterface
+	interface Operation {
+
+		Object run() throws Exception;
+
+	}
+
+	static volatile Object sink;
+
+	private final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+			.getThreadMXBean();
+
+	private final Class<?> suite;
+	private final List<Map<String, Object>> results = new ArrayList<>();
+
+	Microbenchmarks(Class<?> suite) {
+		this.suite = suite;
+	}
+
+	/*
+	 * Measure one operation, run by the calling thread
+	 */
+	void run(String name, Operation operation) throws Exception {
+		for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+			iteration(operation);
+		}
+		double[] micros = new double[ITERATIONS];
+		double bytes = 0;
+		for (int i = 0; i < ITERATIONS; i++) {
+			double[] measured = iteration(operation);
+			micros[i] = measured[0];
+			bytes += measured[1] / ITERATIONS;
+		}
+		results.add(result(name, micros, bytes));
+	}
+
+	/*
+	 * Microseconds and bytes allocated per operation over one iteration
+	 */
+	private double[] iteration(Operation operation) throws Exception {
+		long thread = Thread.currentThread().getId();
+		long operations = 0;
+		long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+		long start = System.nanoTime();
+		long elapsed;
+		do {
+			for (int i = 0; i < 16; i++) {
+				sink = operation.run();
+			}
+			operations += 16;
+			elapsed = System.nanoTime() - start;
+		} while (elapsed < ITERATION_NANOS);
+		long allocated = threads.getThreadAllocatedBytes(thread) - allocatedBefore;
+		return new double[] { elapsed / 1e3 / operations, (double) allocated / operations };
+	}
+
+	private Map<String, Object> result(String name, double[] micros, double bytes) {
+		double mean = Arrays.stream(micros).average().orElse(Double.NaN);
+		double variance = Arrays.stream(micros).map(score -> (score - mean) * (score - mean)).sum()
+				/ Math.max(1, micros.length - 1);
+		double error = micros.length < 2 ? Double.NaN
+				: T_999[Math.min(micros.length - 2, T_999.length - 1)] * Math.sqrt(variance / micros.length);
+
+		double[] sorted = micros.clone();
+		Arrays.sort(sorted);
+		Map<String, Object> percentiles = new LinkedHashMap<>();
+		for (double percentile : PERCENTILES) {
+			percentiles.put(Double.toString(percentile),
+					sorted[(int) Math.max(0, Math.ceil(percentile / 100 * sorted.length) - 1)]);
+		}
+		Map<String, Object> result = new LinkedHashMap<>();
+		result.put("benchmark", suite.getName() + "." + name);
+		result.put("harness", "ad-hoc, in-process, no fork");
+		result.put("jdkVersion", System.getProperty("java.version"));
+		result.put("vmName", System.getProperty("java.vm.name"));
+		result.put("warmupIterations", WARMUP_ITERATIONS);
+		result.put("iterations", ITERATIONS);
+		result.put("iterationTimeMillis", TimeUnit.NANOSECONDS.toMillis(ITERATION_NANOS));
+		result.put("microsPerOperation", mean);
+		result.put("error999", error);
+		result.put("percentiles", percentiles);
+		result.put("iterationMicros", micros);
+		result.put("bytesPerOperation", bytes);
+
+		logger.info("{}.{}: {} +- {} us/op, {} B/op", suite.getSimpleName(), name, String.format("%.3f", mean),
+				String.format("%.3f", error), Math.round(bytes));
+		return result;
+	}
+
+	/*
+	 * Write the results of the operations run so far
+	 */
+	Path write() throws IOException {
+		Files.createDirectories(RESULTS);
+		Path file = RESULTS.resolve(suite.getSimpleName() + ".json");
+		new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), results);
+		logger.info("results of {} written to {}", suite.getSimpleName(), file);
+		return file;
+	}
+
+}
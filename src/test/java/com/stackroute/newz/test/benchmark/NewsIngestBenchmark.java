@@ -0,0 +1,82 @@
+package com.stackroute.newz.test.benchmark;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsBatchItem;
+import com.stackroute.newz.repository.NewsRepository;
+import com.stackroute.newz.service.NewsService;
+
+/*
+ * Rows per second written by the batch ingest path compared with one insert per
+ * news, the way POST /api/v1/news writes. Runs against the in-memory database of
+ * the "test" profile, on demand only:
+ * 
+ * mvn test -Dsurefire.excludedGroups= -Dgroups=benchmark -Dtest=NewsIngestBenchmark
+ */
+@Tag("benchmark")
+@SpringBootTest
+@ActiveProfiles("test")
+class NewsIngestBenchmark {
+
+	private static final Logger logger = LoggerFactory.getLogger(NewsIngestBenchmark.class);
+
+	private static final int ROWS = Integer.getInteger("benchmark.rows", 20000);
+
+	@Autowired
+	private NewsService newsService;
+	@Autowired
+	private NewsRepository newsRepository;
+
+	@Test
+	public void batchVersusSingleInsert() {
+
+		// warm up both paths before measuring
+		insertOneByOne(newsOf(ROWS / 10));
+		newsService.addNewsBatch(newsOf(ROWS / 10).iterator());
+
+		long single = insertOneByOne(newsOf(ROWS));
+
+		long start = System.nanoTime();
+		List<NewsBatchItem> results = newsService.addNewsBatch(newsOf(ROWS).iterator());
+		long batch = System.nanoTime() - start;
+
+		assertEquals(ROWS, results.stream().filter(item -> NewsBatchItem.CREATED.equals(item.getStatus())).count());
+		logger.info("news ingest of {} rows: single {} rows/s, batch {} rows/s", ROWS, rowsPerSecond(single),
+				rowsPerSecond(batch));
+	}
+
+	private long insertOneByOne(List<News> news) {
+		long start = System.nanoTime();
+		for (News item : news) {
+			newsRepository.save(item);
+		}
+		return System.nanoTime() - start;
+	}
+
+	private static long rowsPerSecond(long nanos) {
+		return ROWS * 1_000_000_000L / Math.max(nanos, 1);
+	}
+
+	private static List<News> newsOf(int count) {
+		List<News> news = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			news.add(new News(0, "title " + i, "author", "description " + i, LocalDateTime.now(), "content " + i,
+					null, null, null, null));
+		}
+		return news;
+	}
+
+}
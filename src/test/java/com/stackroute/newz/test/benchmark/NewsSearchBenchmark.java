@@ -0,0 +1,124 @@
+package com.stackroute.newz.test.benchmark;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.stackroute.newz.util.InvertedIndex;
+
+/*
+ * Query latency of the news search index at benchmark.docs documents, a million
+ * by default, with the time to index them and to write and read the index
+ * file. The documents are made of words drawn from a vocabulary with a Zipf
+ * distribution, as the words of a natural language are, so that a few terms
+ * are in most documents and most terms in a few. The queries are two words of
+ * middle frequency, or one of them with a frequent one. Needs some 2 GB of heap,
+ * on demand only:
+ *
+ * mvn test -Dsurefire.excludedGroups= -Dgroups=benchmark -Dtest=NewsSearchBenchmark -DargLine=-Xmx3g
+ */
+@Tag("benchmark")
+class NewsSearchBenchmark {
+
+	private static final Logger logger = LoggerFactory.getLogger(NewsSearchBenchmark.class);
+
+	private static final int DOCS = Integer.getInteger("benchmark.docs", 1_000_000);
+	private static final int QUERIES = Integer.getInteger("benchmark.queries", 2000);
+	private static final int VOCABULARY = 50_000;
+	private static final Path INDEX = Paths.get("target/news-search-benchmark.index");
+
+	private final Random random = new Random(42);
+	private final String[] words = new String[VOCABULARY];
+	private final double[] cumulative = new double[VOCABULARY];
+
+	@Test
+	public void queryLatency() throws IOException {
+
+		vocabulary();
+		InvertedIndex index = new InvertedIndex(2, 1, 1);
+		long start = System.nanoTime();
+		for (int doc = 0; doc < DOCS; doc++) {
+			index.add(doc, 0, text(8), text(25), text(60));
+		}
+		long indexing = System.nanoTime() - start;
+		logger.info("indexed {} news in {} ms, {} news/s", DOCS, indexing / 1_000_000,
+				DOCS * 1_000_000_000L / indexing);
+
+		start = System.nanoTime();
+		index.writeTo(INDEX);
+		long writing = System.nanoTime() - start;
+		start = System.nanoTime();
+		InvertedIndex read = InvertedIndex.readFrom(INDEX, 2, 1, 1);
+		long reading = System.nanoTime() - start;
+		assertEquals(DOCS, read.size());
+		logger.info("index file of {} MB written in {} ms, read in {} ms", Files.size(INDEX) >> 20,
+				writing / 1_000_000, reading / 1_000_000);
+		Files.delete(INDEX);
+		read = null;
+
+		String[] queries = new String[QUERIES];
+		for (int i = 0; i < QUERIES; i++) {
+			String first = words[100 + random.nextInt(4900)];
+			queries[i] = first + " " + (i % 2 == 0 ? words[100 + random.nextInt(4900)] : words[random.nextInt(20)]);
+		}
+		// warm up before measuring
+		for (String query : queries) {
+			index.search(query, 0, 20);
+		}
+		long[] nanos = new long[QUERIES];
+		long hits = 0;
+		for (int i = 0; i < QUERIES; i++) {
+			start = System.nanoTime();
+			hits += index.search(queries[i], 0, 20).getTotal();
+			nanos[i] = System.nanoTime() - start;
+		}
+		Arrays.sort(nanos);
+		logger.info("{} queries over {} news, {} hits on average: p50 {} us, p90 {} us, p99 {} us, p99.9 {} us, max {} us",
+				QUERIES, DOCS, hits / QUERIES, percentile(nanos, 50), percentile(nanos, 90), percentile(nanos, 99),
+				percentile(nanos, 99.9), nanos[QUERIES - 1] / 1000);
+	}
+
+	/*
+	 * Words of two to nine letters, the most frequent first, with their
+	 * cumulative Zipf probabilities
+	 */
+	private void vocabulary() {
+		double total = 0;
+		for (int rank = 0; rank < VOCABULARY; rank++) {
+			StringBuilder word = new StringBuilder();
+			for (int i = 2 + random.nextInt(8); i > 0; i--) {
+				word.append((char) ('a' + random.nextInt(26)));
+			}
+			words[rank] = word.toString() + rank;
+			total += 1 / Math.pow(rank + 1, 1.07);
+			cumulative[rank] = total;
+		}
+		for (int rank = 0; rank < VOCABULARY; rank++) {
+			cumulative[rank] /= total;
+		}
+	}
+
+	private String text(int length) {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < length; i++) {
+			int rank = Arrays.binarySearch(cumulative, random.nextDouble());
+			text.append(words[rank < 0 ? Math.min(-rank - 1, VOCABULARY - 1) : rank]).append(' ');
+		}
+		return text.toString();
+	}
+
+	private static long percentile(long[] sorted, double percentile) {
+		return sorted[(int) Math.min(sorted.length - 1, Math.ceil(percentile / 100 * sorted.length) - 1)] / 1000;
+	}
+
+}
@@ -0,0 +1,66 @@
+package com.stackroute.newz.test.benchmark;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.service.NewsService;
+
+/*
+ * The operations of NewsServiceImpl, with its transactions, caches and index,
+ * against the in-memory database of the "test" profile holding benchmark.rows
+ * news, 1000 by default. On demand only, see Microbenchmarks:
+ *
+ * mvn test -Dsurefire.excludedGroups= -Dgroups=benchmark -Dtest=NewsServiceBenchmark
+ *
+ * logback.xml logs everything at DEBUG, the application included, which would
+ * outweigh what is measured.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = { "logging.level.root=INFO", "logging.level.com.stackroute=INFO" })
+@ActiveProfiles("test")
+class NewsServiceBenchmark {
+
+	private static final int ROWS = Integer.getInteger("benchmark.rows", 1000);
+
+	@Autowired
+	private NewsService newsService;
+
+	@Test
+	public void operations() throws Exception {
+
+		List<News> rows = new ArrayList<>();
+		for (int i = 0; i < ROWS; i++) {
+			rows.add(news("Markets rally as inflation cools " + i));
+		}
+		newsService.addNewsBatch(rows.iterator());
+		News news = newsService.addNews(news("Central bank holds rates"));
+		int newsId = news.getNewsId();
+
+		Microbenchmarks benchmarks = new Microbenchmarks(NewsServiceBenchmark.class);
+		benchmarks.run("getNews", () -> newsService.getNews(newsId));
+		benchmarks.run("getNewsPage", () -> newsService.getNewsPage(null, 20));
+		benchmarks.run("getAllNews", newsService::getAllNews);
+		benchmarks.run("searchNews", () -> newsService.searchNews("inflation rates", 0, 20));
+		benchmarks.run("updateNews", () -> {
+			news.setContent("content " + System.nanoTime());
+			return newsService.updateNews(news);
+		});
+		benchmarks.run("addNews", () -> newsService.addNews(news("Central bank holds rates")));
+		benchmarks.write();
+	}
+
+	private News news(String title) {
+		return new News(0, title, "Jane Doe", "Stocks rose for a third day.", LocalDateTime.now(),
+				"Stocks rose for a third day as new figures showed prices rising more slowly than expected.",
+				"https://news.example.com/markets", "https://news.example.com/markets.jpg", null, null);
+	}
+
+}
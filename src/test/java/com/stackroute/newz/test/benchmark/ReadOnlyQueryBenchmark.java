@@ -0,0 +1,103 @@
+package com.stackroute.newz.test.benchmark;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.service.NewsService;
+
+/*
+ * Heap allocated and time spent per "get all news" request, through the
+ * read-only transaction of NewsService.getAllNews compared with the same select
+ * in a read-write transaction. The read-write one keeps a snapshot of every news
+ * for dirty checking and walks all of them when it flushes at commit. Runs
+ * against the in-memory database of the "test" profile, on demand only:
+ *
+ * mvn test -Dsurefire.excludedGroups= -Dgroups=benchmark -Dtest=ReadOnlyQueryBenchmark
+ *
+ * logback.xml logs everything at DEBUG, i.e. Hibernate logs every row it reads,
+ * which would outweigh what is measured here.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = "logging.level.root=INFO")
+@ActiveProfiles("test")
+class ReadOnlyQueryBenchmark {
+
+	private static final Logger logger = LoggerFactory.getLogger(ReadOnlyQueryBenchmark.class);
+
+	private static final int ROWS = Integer.getInteger("benchmark.rows", 10000);
+	private static final int REQUESTS = Integer.getInteger("benchmark.requests", 20);
+
+	private final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory
+			.getThreadMXBean();
+
+	@Autowired
+	private NewsService newsService;
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Test
+	public void readOnlyVersusReadWrite() {
+
+		newsService.addNewsBatch(newsOf(ROWS).iterator());
+		Supplier<List<News>> readWrite = () -> transactionTemplate.execute(
+				status -> entityManager.createQuery("select n from News n", News.class).getResultList());
+		Supplier<List<News>> readOnly = newsService::getAllNews;
+
+		int rows = readOnly.get().size();
+
+		// warm up both paths before measuring
+		measure(readWrite, rows);
+		measure(readOnly, rows);
+
+		long[] writable = measure(readWrite, rows);
+		long[] readable = measure(readOnly, rows);
+
+		logger.info("get all of {} news, per request: read-write {} KB in {} ms, read-only {} KB in {} ms", rows,
+				writable[0] / 1024, writable[1] / 1_000_000, readable[0] / 1024, readable[1] / 1_000_000);
+	}
+
+	/*
+	 * Bytes allocated by this thread and nanoseconds, both averaged over REQUESTS
+	 */
+	private long[] measure(Supplier<List<News>> request, int rows) {
+		long threadId = Thread.currentThread().getId();
+		long bytes = threads.getThreadAllocatedBytes(threadId);
+		long start = System.nanoTime();
+		for (int i = 0; i < REQUESTS; i++) {
+			assertEquals(rows, request.get().size());
+		}
+		long nanos = System.nanoTime() - start;
+		bytes = threads.getThreadAllocatedBytes(threadId) - bytes;
+		return new long[] { bytes / REQUESTS, nanos / REQUESTS };
+	}
+
+	private static List<News> newsOf(int count) {
+		List<News> news = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			news.add(new News(0, "title " + i, "author", "description " + i, LocalDateTime.now(), "content " + i,
+					null, null, null, null));
+		}
+		return news;
+	}
+
+}
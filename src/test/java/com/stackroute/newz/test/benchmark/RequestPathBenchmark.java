@@ -0,0 +1,90 @@
+package com.stackroute.newz.test.benchmark;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.service.NewsService;
+
+/*
+ * Requests from end to end through MockMvc: filters, dispatch, controller,
+ * service, in-memory database of the "test" profile and JSON on both sides,
+ * without the network. On demand only, see Microbenchmarks:
+ *
+ * mvn test -Dsurefire.excludedGroups= -Dgroups=benchmark -Dtest=RequestPathBenchmark
+ *
+ * logback.xml logs everything at DEBUG, the application included, which would
+ * outweigh what is measured.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = { "logging.level.root=INFO", "logging.level.com.stackroute=INFO" })
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class RequestPathBenchmark {
+
+	private static final int ROWS = Integer.getInteger("benchmark.rows", 1000);
+
+	@Autowired
+	private MockMvc mockMvc;
+	@Autowired
+	private NewsService newsService;
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Test
+	public void requests() throws Exception {
+
+		List<News> rows = new ArrayList<>();
+		for (int i = 0; i < ROWS; i++) {
+			rows.add(news("Markets rally as inflation cools " + i));
+		}
+		newsService.addNewsBatch(rows.iterator());
+		int newsId = newsService.addNews(news("Central bank holds rates")).getNewsId();
+		byte[] body = objectMapper.writeValueAsBytes(news("Central bank holds rates"));
+
+		Microbenchmarks benchmarks = new Microbenchmarks(RequestPathBenchmark.class);
+		benchmarks.run("getNewsById", () -> expect(200, mockMvc.perform(get("/api/v1/news/{newsId}", newsId))
+				.andReturn()));
+		benchmarks.run("getNewsPage", () -> expect(200, mockMvc.perform(get("/api/v1/news").param("size", "20"))
+				.andReturn()));
+		benchmarks.run("getLatestNews", () -> expect(200, mockMvc.perform(get("/api/v1/news/latest")).andReturn()));
+		benchmarks.run("searchNews", () -> expect(200, mockMvc
+				.perform(get("/api/v1/news/search").param("q", "inflation rates")).andReturn()));
+		benchmarks.run("addNews", () -> expect(201, mockMvc
+				.perform(post("/api/v1/news").contentType(MediaType.APPLICATION_JSON).content(body)).andReturn()));
+		benchmarks.write();
+	}
+
+	/*
+	 * A benchmark of failing requests would be meaningless
+	 */
+	private static MvcResult expect(int status, MvcResult result) {
+		if (result.getResponse().getStatus() != status) {
+			throw new IllegalStateException(result.getRequest().getRequestURI() + " answered "
+					+ result.getResponse().getStatus());
+		}
+		return result;
+	}
+
+	private News news(String title) {
+		return new News(0, title, "Jane Doe", "Stocks rose for a third day.", LocalDateTime.now(),
+				"Stocks rose for a third day as new figures showed prices rising more slowly than expected.",
+				"https://news.example.com/markets", "https://news.example.com/markets.jpg", null, null);
+	}
+
+}
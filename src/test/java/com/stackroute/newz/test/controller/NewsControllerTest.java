@@ -1,37 +1,58 @@
 package com.stackroute.newz.test.controller;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.result.MockMvcResultHandlers;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.stackroute.newz.controller.NewsController;
 import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsBatchItem;
+import com.stackroute.newz.model.NewsPage;
+import com.stackroute.newz.model.NewsSearchPage;
+import com.stackroute.newz.service.LatestNews;
 import com.stackroute.newz.service.NewsService;
+import com.stackroute.newz.util.exception.InvalidCursorException;
 import com.stackroute.newz.util.exception.NewsAlreadyExistsException;
 import com.stackroute.newz.util.exception.NewsNotExistsException;
+import com.stackroute.newz.util.exception.VersionMismatchException;
 
 @SpringBootTest
 class NewsControllerTest {
@@ -42,6 +63,10 @@ class NewsControllerTest {
 
 	@Mock
 	NewsService newsService;
+	@Mock
+	LatestNews latestNews;
+	@Spy
+	ObjectMapper objectMapper = new ObjectMapper();
 	@InjectMocks
 	NewsController newsController;
 
@@ -68,6 +93,56 @@ class NewsControllerTest {
 				.andDo(MockMvcResultHandlers.print());
 	}
 
+	@Test
+	public void getNewsPageSuccess() throws Exception {
+
+		when(newsService.getNewsPage(null, 2)).thenReturn(new NewsPage(newsList, "next"));
+		mockMvc.perform(get("/api/v1/news?size=2").contentType(MediaType.APPLICATION_JSON)).andExpect(status().isOk())
+				.andDo(MockMvcResultHandlers.print());
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void getNewsPageFailure() throws Exception {
+
+		when(newsService.getNewsPage("bad", 0)).thenThrow(InvalidCursorException.class);
+		mockMvc.perform(get("/api/v1/news?cursor=bad").contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isBadRequest()).andDo(MockMvcResultHandlers.print());
+	}
+
+	@Test
+	public void exportNewsSuccess() throws Exception {
+
+		when(newsService.streamAllNews()).thenReturn(newsList.stream());
+		MvcResult result = mockMvc.perform(get("/api/v1/news/export")).andExpect(request().asyncStarted())
+				.andReturn();
+		mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk())
+				.andExpect(content().contentType(NewsController.APPLICATION_NDJSON_VALUE))
+				.andExpect(content().string(asJsonString(newsList.get(0)) + "\n" + asJsonString(newsList.get(1))))
+				.andDo(MockMvcResultHandlers.print());
+	}
+
+	@Test
+	public void addNewsBatchSuccess() throws Exception {
+
+		when(newsService.addNewsBatch(any())).thenReturn(
+				Arrays.asList(NewsBatchItem.created(0, 2), NewsBatchItem.failed(1, "duplicate")));
+		mockMvc.perform(post("/api/v1/news/batch").contentType(MediaType.APPLICATION_JSON)
+				.content(asJsonString(newsList))).andExpect(status().isOk()).andDo(MockMvcResultHandlers.print());
+	}
+
+	@Test
+	public void addNewsBatchFailure() throws Exception {
+
+		when(newsService.addNewsBatch(any())).thenAnswer(invocation -> {
+			((Iterator<?>) invocation.getArguments()[0]).forEachRemaining(news -> {
+			});
+			return new ArrayList<NewsBatchItem>();
+		});
+		mockMvc.perform(post("/api/v1/news/batch").contentType(MediaType.APPLICATION_JSON).content("[{\"title\":"))
+				.andExpect(status().isBadRequest()).andDo(MockMvcResultHandlers.print());
+	}
+
 	@Test
 	public void getByNewsIdSuccess() throws Exception {
 
@@ -76,6 +151,78 @@ class NewsControllerTest {
 				.andDo(MockMvcResultHandlers.print());
 	}
 
+	@Test
+	public void getLatestNewsPlain() throws Exception {
+		byte[] json = "{\"news\":[]}".getBytes(StandardCharsets.UTF_8);
+		when(latestNews.current()).thenReturn(new LatestNews.Snapshot(json, new byte[] { 1 }, 7));
+		mockMvc.perform(get("/api/v1/news/latest")).andExpect(status().isOk())
+				.andExpect(header().doesNotExist("Content-Encoding")).andExpect(header().string("ETag", "\"7\""))
+				.andExpect(content().bytes(json)).andDo(MockMvcResultHandlers.print());
+	}
+
+	@Test
+	public void getLatestNewsGzipped() throws Exception {
+		byte[] gzip = new byte[] { 1, 2, 3 };
+		when(latestNews.current()).thenReturn(new LatestNews.Snapshot(new byte[] { 0 }, gzip, 7));
+		mockMvc.perform(get("/api/v1/news/latest").header("Accept-Encoding", "deflate, gzip;q=0.8"))
+				.andExpect(status().isOk()).andExpect(header().string("Content-Encoding", "gzip"))
+				.andExpect(header().string("Vary", "Accept-Encoding")).andExpect(header().string("ETag", "\"7-gzip\""))
+				.andExpect(content().bytes(gzip)).andDo(MockMvcResultHandlers.print());
+	}
+
+	@Test
+	public void getLatestNewsNotModified() throws Exception {
+		when(latestNews.current()).thenReturn(new LatestNews.Snapshot(new byte[] { 0 }, new byte[] { 1 }, 7));
+		mockMvc.perform(get("/api/v1/news/latest").header("If-None-Match", "\"7\""))
+				.andExpect(status().isNotModified()).andDo(MockMvcResultHandlers.print());
+	}
+
+	@Test
+	public void getLatestNewsMatchesTheVariantSent() throws Exception {
+		byte[] gzip = new byte[] { 1, 2, 3 };
+		when(latestNews.current()).thenReturn(new LatestNews.Snapshot(new byte[] { 0 }, gzip, 7));
+		// the tag of the plain body does not validate the gzipped one
+		mockMvc.perform(get("/api/v1/news/latest").header("Accept-Encoding", "gzip").header("If-None-Match", "\"7\""))
+				.andExpect(status().isOk()).andExpect(content().bytes(gzip)).andDo(MockMvcResultHandlers.print());
+		mockMvc.perform(get("/api/v1/news/latest").header("Accept-Encoding", "gzip")
+				.header("If-None-Match", "\"7-gzip\"")).andExpect(status().isNotModified())
+				.andExpect(header().string("ETag", "\"7-gzip\"")).andDo(MockMvcResultHandlers.print());
+		mockMvc.perform(get("/api/v1/news/latest").header("If-None-Match", "\"7-gzip\""))
+				.andExpect(status().isOk()).andDo(MockMvcResultHandlers.print());
+	}
+
+	@Test
+	public void searchNewsSuccess() throws Exception {
+		when(newsService.searchNews("sample title", 1, 2)).thenReturn(new NewsSearchPage(newsList, 4, 1, 2));
+		mockMvc.perform(get("/api/v1/news/search?q=sample title&page=1&size=2")).andExpect(status().isOk())
+				.andExpect(content().json("{\"total\":4,\"page\":1,\"size\":2}"))
+				.andDo(MockMvcResultHandlers.print());
+	}
+
+	@Test
+	public void searchNewsWithoutWordsFailure() throws Exception {
+		mockMvc.perform(get("/api/v1/news/search?q= ,;")).andExpect(status().isBadRequest())
+				.andDo(MockMvcResultHandlers.print());
+		verify(newsService, never()).searchNews(any(), anyInt(), anyInt());
+	}
+
+	@Test
+	public void getNewsSendsVersionAsETag() throws Exception {
+		news.setVersion(3L);
+		when(newsService.getNews(1)).thenReturn(news);
+		mockMvc.perform(get("/api/v1/news/1")).andExpect(status().isOk()).andExpect(header().string("ETag", "\"3\""))
+				.andDo(MockMvcResultHandlers.print());
+	}
+
+	@Test
+	public void getNewsNotModified() throws Exception {
+		news.setVersion(3L);
+		when(newsService.getNews(1)).thenReturn(news);
+		mockMvc.perform(get("/api/v1/news/1").header("If-None-Match", "W/\"3\""))
+				.andExpect(status().isNotModified()).andExpect(content().string(""))
+				.andDo(MockMvcResultHandlers.print());
+	}
+
 	@SuppressWarnings("unchecked")
 	@Test
 	public void getByNewsIdFailure() throws Exception {
@@ -123,9 +270,78 @@ class NewsControllerTest {
 
 	}
 
+	@Test
+	public void updateNewsIfMatch() throws Exception {
+
+		News updated = new News(1, "sample title", "johnsmith", "sample description", LocalDateTime.now(),
+				"sample content", null, null, null, null);
+		updated.setVersion(4L);
+		when(newsService.updateNews(any())).thenReturn(updated);
+		mockMvc.perform(put("/api/v1/news/1").header("If-Match", "\"3\"").contentType(MediaType.APPLICATION_JSON)
+				.content(asJsonString(news))).andExpect(status().isOk()).andExpect(header().string("ETag", "\"4\""))
+				.andDo(MockMvcResultHandlers.print());
+		ArgumentCaptor<News> captor = ArgumentCaptor.forClass(News.class);
+		verify(newsService).updateNews(captor.capture());
+		assertEquals(1, captor.getValue().getNewsId());
+		assertEquals(Long.valueOf(3), captor.getValue().getVersion());
+
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void updateNewsVersionMismatch() throws Exception {
+
+		when(newsService.updateNews(any())).thenThrow(VersionMismatchException.class);
+		mockMvc.perform(put("/api/v1/news/1").header("If-Match", "\"3\"").contentType(MediaType.APPLICATION_JSON)
+				.content(asJsonString(news))).andExpect(status().isPreconditionFailed())
+				.andDo(MockMvcResultHandlers.print());
+
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void deleteNewsVersionMismatch() throws Exception {
+
+		doThrow(VersionMismatchException.class).when(newsService).deleteNews(1, 3L);
+		mockMvc.perform(delete("/api/v1/news/1").header("If-Match", "\"3\""))
+				.andExpect(status().isPreconditionFailed()).andDo(MockMvcResultHandlers.print());
+
+	}
+
+	@Test
+	public void patchNewsSuccess() throws Exception {
+
+		when(newsService.patchNews(anyInt(), any(), any())).thenReturn(news);
+		mockMvc.perform(patch("/api/v1/news/1").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"title\":\"sample title\"}")).andExpect(status().isOk())
+				.andDo(MockMvcResultHandlers.print());
+		verify(newsService).patchNews(1, Collections.singletonMap("title", "sample title"), null);
+
+	}
+
+	@Test
+	public void patchNewsInvalidField() throws Exception {
+
+		mockMvc.perform(patch("/api/v1/news/1").contentType(MediaType.APPLICATION_JSON).content("{\"newsId\":2}"))
+				.andExpect(status().isBadRequest()).andDo(MockMvcResultHandlers.print());
+		verify(newsService, never()).patchNews(anyInt(), any(), any());
+
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void patchNewsFailure() throws Exception {
+
+		when(newsService.patchNews(anyInt(), any(), any())).thenThrow(NewsNotExistsException.class);
+		mockMvc.perform(patch("/api/v1/news/2").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"title\":\"sample title\"}")).andExpect(status().isNotFound())
+				.andDo(MockMvcResultHandlers.print());
+
+	}
+
 	@Test
 	public void deleteNewsSuccess() throws Exception {
-		doNothing().when(newsService).deleteNews(anyInt());
+		doNothing().when(newsService).deleteNews(anyInt(), any());
 		mockMvc.perform(delete("/api/v1/news/1").contentType(MediaType.APPLICATION_JSON)).andExpect(status().isOk())
 				.andDo(MockMvcResultHandlers.print());
 
@@ -133,7 +349,7 @@ class NewsControllerTest {
 
 	@Test
 	public void deleteNewsFailure() throws Exception {
-		doThrow(NewsNotExistsException.class).doNothing().when(newsService).deleteNews(anyInt());
+		doThrow(NewsNotExistsException.class).doNothing().when(newsService).deleteNews(anyInt(), any());
 		mockMvc.perform(delete("/api/v1/news/2").contentType(MediaType.APPLICATION_JSON))
 				.andExpect(status().isNotFound()).andDo(MockMvcResultHandlers.print());
 
@@ -0,0 +1,120 @@
+package com.stackroute.newz.test.controller;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.Reminder;
+import com.stackroute.newz.model.UserProfile;
+import com.stackroute.newz.repository.NewsRepository;
+import com.stackroute.newz.repository.ReminderRepository;
+import com.stackroute.newz.repository.UserProfileRepository;
+
+/*
+ * The associations of a news and of a reminder, and the delivery time of a
+ * reminder, are not part of the JSON a client sends. A PUT overwrites what the
+ * client sends and keeps them.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class PutAssociationsTest {
+
+	@Autowired
+	private MockMvc mockMvc;
+	@Autowired
+	private NewsRepository newsRepository;
+	@Autowired
+	private ReminderRepository reminderRepository;
+	@Autowired
+	private UserProfileRepository userProfileRepository;
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	private News news;
+	private Reminder reminder;
+	private LocalDateTime deliveredAt;
+
+	@BeforeEach
+	public void setUp() {
+		deliveredAt = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+		transactionTemplate.execute(status -> {
+			deleteAll();
+			UserProfile user = userProfileRepository
+					.save(new UserProfile("johnsmith", "John", "Smith", "1234567890", LocalDateTime.now(), null));
+			reminder = reminderRepository.save(new Reminder(0, LocalDateTime.now(), null));
+			news = newsRepository.save(new News(0, "first", "author", "description", LocalDateTime.now(), "content",
+					"url", "urlToImage", user, reminder));
+			reminder.setNews(news);
+			reminder.setDeliveredAt(deliveredAt);
+			return null;
+		});
+	}
+
+	/*
+	 * Other test classes start their own contexts on the same database, with
+	 * their own id generators
+	 */
+	@AfterEach
+	public void tearDown() {
+		transactionTemplate.execute(status -> {
+			deleteAll();
+			return null;
+		});
+	}
+
+	@Test
+	public void putNewsKeepsUserAndReminder() throws Exception {
+
+		mockMvc.perform(put("/api/v1/news/{newsId}", news.getNewsId()).contentType(MediaType.APPLICATION_JSON)
+				.content("{\"title\":\"second\",\"author\":\"author\",\"content\":\"content\"}"))
+				.andExpect(status().isOk());
+
+		News updated = newsRepository.findWithUserAndReminderByNewsId(news.getNewsId()).get();
+		assertEquals("second", updated.getTitle());
+		assertEquals("johnsmith", updated.getUser().getUserId());
+		assertEquals(reminder.getReminderId(), updated.getReminder().getReminderId());
+
+	}
+
+	@Test
+	public void putReminderKeepsNewsAndDeliveredAt() throws Exception {
+
+		mockMvc.perform(put("/api/v1/reminder/{reminderId}", reminder.getReminderId())
+				.contentType(MediaType.APPLICATION_JSON).content("{\"schedule\":\"2030-01-01T10:00:00\"}"))
+				.andExpect(status().isOk());
+
+		transactionTemplate.execute(status -> {
+			Reminder updated = reminderRepository.findById(reminder.getReminderId()).get();
+			assertEquals(LocalDateTime.of(2030, 1, 1, 10, 0), updated.getSchedule());
+			assertEquals(deliveredAt, updated.getDeliveredAt());
+			assertNotNull(updated.getNews());
+			assertEquals(news.getNewsId(), updated.getNews().getNewsId());
+			return null;
+		});
+
+	}
+
+	private void deleteAll() {
+		userProfileRepository.deleteAll();
+		newsRepository.deleteAll();
+		reminderRepository.deleteAll();
+	}
+
+}
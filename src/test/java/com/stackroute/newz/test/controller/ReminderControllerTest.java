@@ -4,15 +4,19 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -20,6 +24,7 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
@@ -29,7 +34,9 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.stackroute.newz.controller.ReminderController;
 import com.stackroute.newz.model.Reminder;
+import com.stackroute.newz.model.ReminderPage;
 import com.stackroute.newz.service.ReminderService;
+import com.stackroute.newz.util.exception.InvalidCursorException;
 import com.stackroute.newz.util.exception.NewsNotExistsException;
 import com.stackroute.newz.util.exception.ReminderNotExistsException;
 
@@ -42,6 +49,8 @@ class ReminderControllerTest {
 
 	@Mock
 	ReminderService reminderService;
+	@Spy
+	ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
 	@InjectMocks
 	ReminderController reminderController;
 
@@ -123,9 +132,46 @@ class ReminderControllerTest {
 
 	}
 
+	@Test
+	public void patchReminderSuccess() throws Exception {
+
+		when(reminderService.patchReminder(anyInt(), any(), any())).thenReturn(reminder);
+		mockMvc.perform(patch("/api/v1/reminder/1")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"schedule\":\"2026-01-01T10:00:00\"}"))
+				.andExpect(status().isOk())
+				.andDo(MockMvcResultHandlers.print());
+		verify(reminderService).patchReminder(1,
+				Collections.singletonMap("schedule", LocalDateTime.parse("2026-01-01T10:00:00")), null);
+
+	}
+
+	@Test
+	public void patchReminderInvalidValue() throws Exception {
+
+		mockMvc.perform(patch("/api/v1/reminder/1")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"schedule\":\"tomorrow\"}"))
+				.andExpect(status().isBadRequest())
+				.andDo(MockMvcResultHandlers.print());
+
+	}
+
+	@Test
+	public void patchReminderDeliveredAtIsRejected() throws Exception {
+
+		mockMvc.perform(patch("/api/v1/reminder/1")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"deliveredAt\":\"2026-01-01T10:00:00\"}"))
+				.andExpect(status().isBadRequest())
+				.andDo(MockMvcResultHandlers.print());
+		verify(reminderService, never()).patchReminder(anyInt(), any(), any());
+
+	}
+
 	@Test
 	public void deleteReminderSuccess() throws Exception {
-		doNothing().when(reminderService).deleteReminder(anyInt());
+		doNothing().when(reminderService).deleteReminder(anyInt(), any());
 		mockMvc.perform(delete("/api/v1/reminder/1")
 				.contentType(MediaType.APPLICATION_JSON))
 				.andExpect(status().isOk())
@@ -135,12 +181,34 @@ class ReminderControllerTest {
 
 	@Test
 	public void deleteReminderFailure() throws Exception {
-		doThrow(NewsNotExistsException.class).doNothing().when(reminderService).deleteReminder(anyInt());
+		doThrow(NewsNotExistsException.class).doNothing().when(reminderService).deleteReminder(anyInt(), any());
 		mockMvc.perform(delete("/api/v1/reminder/2").contentType(MediaType.APPLICATION_JSON))
 				.andExpect(status().isNotFound()).andDo(MockMvcResultHandlers.print());
 
 	}
 
+	@Test
+	public void getDueRemindersSuccess() throws Exception {
+
+		when(reminderService.getDueReminders(LocalDateTime.parse("2026-01-01T00:00:00"),
+				LocalDateTime.parse("2026-01-02T00:00:00"), null, 2)).thenReturn(new ReminderPage(reminderList, "next"));
+		mockMvc.perform(get("/api/v1/reminder/due?after=2026-01-01T00:00:00&before=2026-01-02T00:00:00&size=2")
+				.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk())
+				.andDo(MockMvcResultHandlers.print());
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void getDueRemindersFailure() throws Exception {
+
+		when(reminderService.getDueReminders(any(), any(), any(), anyInt())).thenThrow(InvalidCursorException.class);
+		mockMvc.perform(get("/api/v1/reminder/due?after=2026-01-01T00:00:00&before=2026-01-02T00:00:00&cursor=bad")
+				.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isBadRequest())
+				.andDo(MockMvcResultHandlers.print());
+	}
+
 	public static String asJsonString(final Object obj) {
 		try {
 			return new ObjectMapper().writeValueAsString(obj);
@@ -0,0 +1,65 @@
+package com.stackroute.newz.test.controller;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.stackroute.newz.management.RequestTiming;
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.repository.NewsRepository;
+
+/*
+ * With newz.timing.enabled the responses tell where the time of the request
+ * went, in their Server-Timing header.
+ */
+@SpringBootTest(properties = { "newz.timing.enabled=true", "newz.timing.log-sample-rate=1" })
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ServerTimingTest {
+
+	@Autowired
+	private MockMvc mockMvc;
+	@Autowired
+	private NewsRepository newsRepository;
+
+	@Test
+	public void getAllNewsHasEveryLayer() throws Exception {
+
+		newsRepository.save(news("first"));
+		newsRepository.save(news("second"));
+
+		MvcResult result = mockMvc.perform(get("/api/v1/news")).andExpect(status().isOk()).andReturn();
+		String serverTiming = result.getResponse().getHeader(RequestTiming.SERVER_TIMING);
+		assertTrue(serverTiming.matches("controller;dur=\\d+\\.\\d{3}, service;dur=\\d+\\.\\d{3},"
+				+ " sql;desc=\"[1-9]\\d* statements\";dur=\\d+\\.\\d{3}, serialization;dur=\\d+\\.\\d{3},"
+				+ " total;dur=\\d+\\.\\d{3}"), serverTiming);
+
+	}
+
+	@Test
+	public void responseWithoutBodyHasServerTiming() throws Exception {
+
+		MvcResult result = mockMvc.perform(get("/api/v1/news/{newsId}", Integer.MAX_VALUE))
+				.andExpect(status().isNotFound()).andReturn();
+		String serverTiming = result.getResponse().getHeader(RequestTiming.SERVER_TIMING);
+		assertTrue(serverTiming.startsWith("controller;dur=") && serverTiming.contains(", total;dur=")
+				&& !serverTiming.contains("serialization"), serverTiming);
+
+	}
+
+	private News news(String title) {
+		return new News(0, title, "author", "description", LocalDateTime.now(), "content", "url", "urlToImage", null,
+				null);
+	}
+
+}
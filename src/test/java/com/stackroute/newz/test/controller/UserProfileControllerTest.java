@@ -5,6 +5,7 @@ import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -18,6 +19,7 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
@@ -41,6 +43,8 @@ class UserProfileControllerTest {
 	
 	@Mock
 	UserProfileService userService;
+	@Spy
+	ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
 	@InjectMocks
 	UserProfileController userController;
 
@@ -120,6 +124,31 @@ class UserProfileControllerTest {
 
     }
     
+    @Test
+    public void patchUserSuccess() throws Exception {
+
+        when(userService.patchUserProfile(any(),any(),any())).thenReturn(userProfile);
+        mockMvc.perform(patch("/api/v1/user/johnsmith")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"contact\":\"1234567899\"}"))
+                .andExpect(status().isOk())
+                .andDo(MockMvcResultHandlers.print());
+
+    }
+
+    @SuppressWarnings("unchecked")
+	@Test
+    public void patchUserFailure() throws Exception {
+
+        when(userService.patchUserProfile(any(),any(),any())).thenThrow(UserProfileNotExistsException.class);
+        mockMvc.perform(patch("/api/v1/user/johnsmith")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"contact\":\"1234567899\"}"))
+                .andExpect(status().isNotFound())
+                .andDo(MockMvcResultHandlers.print());
+
+    }
+    
     @SuppressWarnings("unchecked")
 	@Test
     public void updateUserFailure() throws Exception {
@@ -147,8 +176,8 @@ class UserProfileControllerTest {
     
 	@Test
     public void deleteUserFailure() throws Exception {
-    	doThrow(UserProfileNotExistsException.class).doNothing().when(userService).deleteUserProfile(any());
-//       when(userService.deleteUserProfile(any())).thenThrow(UserProfileNotExistsException.class);
+    	doThrow(UserProfileNotExistsException.class).doNothing().when(userService).deleteUserProfile(any(),any());
+//       when(userService.deleteUserProfile(any(),any())).thenThrow(UserProfileNotExistsException.class);
         mockMvc.perform(delete("/api/v1/user/johnsmith")
                 .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isNotFound())
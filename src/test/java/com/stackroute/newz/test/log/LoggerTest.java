@@ -17,6 +17,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.xml.sax.SAXException;
 
+import ch.qos.logback.classic.AsyncAppender;
 import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.LoggerContext;
 import ch.qos.logback.classic.spi.ILoggingEvent;
@@ -47,6 +48,10 @@ public class LoggerTest {
 		for (Logger logger : context.getLoggerList()) {
 			for (Iterator<Appender<ILoggingEvent>> index = logger.iteratorForAppenders(); index.hasNext();) {
 				Object appender = index.next();
+				if (appender instanceof AsyncAppender) {
+					// the async mode of logback.xml puts the file appender behind a buffer
+					appender = ((AsyncAppender) appender).getAppender("FILE-AUDIT");
+				}
 				if (appender instanceof FileAppender) {
 					fileAppender = (FileAppender<?>) appender;
 				}
@@ -68,6 +73,10 @@ public class LoggerTest {
 		for (Logger logger : context.getLoggerList()) {
 			for (Iterator<Appender<ILoggingEvent>> index = logger.iteratorForAppenders(); index.hasNext();) {
 				Object appender = index.next();
+				if (appender instanceof AsyncAppender) {
+					// the async mode of logback.xml puts the file appender behind a buffer
+					appender = ((AsyncAppender) appender).getAppender("FILE-AUDIT");
+				}
 				if (appender instanceof FileAppender) {
 					fileAppender = (FileAppender<?>) appender;
 				}
@@ -0,0 +1,176 @@
+package com.stackroute.newz.test.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.Reminder;
+import com.stackroute.newz.model.UserProfile;
+import com.stackroute.newz.repository.NewsRepository;
+import com.stackroute.newz.repository.ReminderRepository;
+import com.stackroute.newz.repository.UserProfileRepository;
+import com.stackroute.newz.service.NewsService;
+import com.stackroute.newz.service.ReminderService;
+import com.stackroute.newz.service.UserProfileService;
+import com.stackroute.newz.util.exception.NewsNotExistsException;
+import com.stackroute.newz.util.exception.ReminderNotExistsException;
+import com.stackroute.newz.util.exception.UserProfileAlreadyExistsException;
+import com.stackroute.newz.util.exception.UserProfileNotExistsException;
+
+/*
+ * Every write of the services runs one statement, and whether the row was there
+ * is told by the number of rows that statement changed.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ConditionalWriteTest {
+
+	@Autowired
+	private NewsService newsService;
+	@Autowired
+	private ReminderService reminderService;
+	@Autowired
+	private UserProfileService userProfileService;
+	@Autowired
+	private NewsRepository newsRepository;
+	@Autowired
+	private ReminderRepository reminderRepository;
+	@Autowired
+	private UserProfileRepository userProfileRepository;
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private Statistics statistics;
+
+	@BeforeEach
+	public void setUp() {
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		transactionTemplate.execute(status -> {
+			userProfileRepository.deleteAll();
+			newsRepository.deleteAll();
+			reminderRepository.deleteAll();
+			return null;
+		});
+	}
+
+	@Test
+	public void testUpdateAndDeleteNewsRunOneWrite() throws Exception {
+
+		News news = newsRepository.save(news("first"));
+		news.setTitle("second");
+		statistics.clear();
+
+		// the update, then the news read back
+		assertEquals("second", newsService.updateNews(news).getTitle());
+		assertEquals(2, statistics.getPrepareStatementCount());
+		assertEquals("second", newsRepository.findById(news.getNewsId()).get().getTitle());
+
+		statistics.clear();
+		newsService.deleteNews(news.getNewsId(), null);
+		assertEquals(1, statistics.getPrepareStatementCount());
+		assertFalse(newsRepository.findById(news.getNewsId()).isPresent());
+
+	}
+
+	@Test
+	public void testMissingNewsIsToldByRowCount() {
+
+		News missing = news("missing");
+		missing.setNewsId(424242);
+		statistics.clear();
+
+		assertThrows(NewsNotExistsException.class, () -> newsService.updateNews(missing));
+		assertThrows(NewsNotExistsException.class, () -> newsService.deleteNews(424242, null));
+		assertEquals(2, statistics.getPrepareStatementCount());
+		assertEquals(0, newsRepository.count());
+
+	}
+
+	@Test
+	public void testUpdateAndDeleteReminder() throws Exception {
+
+		// the column keeps microseconds, a later JDK's clock has more
+		Reminder reminder = reminderRepository
+				.save(new Reminder(0, LocalDateTime.now().truncatedTo(ChronoUnit.MICROS), null));
+		LocalDateTime later = reminder.getSchedule().plusHours(1);
+		reminder.setSchedule(later);
+
+		reminderService.updateReminder(reminder);
+		assertEquals(later, reminderRepository.findById(reminder.getReminderId()).get().getSchedule());
+
+		reminderService.deleteReminder(reminder.getReminderId(), null);
+		assertFalse(reminderRepository.findById(reminder.getReminderId()).isPresent());
+		assertThrows(ReminderNotExistsException.class, () -> reminderService.deleteReminder(reminder.getReminderId(), null));
+
+	}
+
+	@Test
+	public void testRegisterUserInsertsOnlyIfAbsent() throws Exception {
+
+		statistics.clear();
+		userProfileService.registerUser(user("John"));
+		assertEquals(1, statistics.getPrepareStatementCount());
+
+		assertThrows(UserProfileAlreadyExistsException.class, () -> userProfileService.registerUser(user("Jane")));
+		assertEquals("John", userProfileRepository.findById("johnsmith").get().getFirstName());
+
+	}
+
+	@Test
+	public void testUpdateAndDeleteUserProfile() throws Exception {
+
+		userProfileService.registerUser(user("John"));
+		News news = newsRepository.save(news("first"));
+		// the news list lives in a join table, which the delete has to clear as well
+		transactionTemplate.execute(status -> {
+			userProfileRepository.findById("johnsmith").get().setNewsList(new ArrayList<>(Arrays.asList(news)));
+			return null;
+		});
+
+		long version = userProfileRepository.findById("johnsmith").get().getVersion();
+		statistics.clear();
+		UserProfile updated = userProfileService.updateUserProfile(user("Jane"), "johnsmith");
+		// the update and the read back, no load before the write
+		assertEquals(2, statistics.getPrepareStatementCount());
+		assertEquals("Jane", updated.getFirstName());
+		assertEquals(Long.valueOf(version + 1), updated.getVersion());
+		assertEquals("Jane", userProfileRepository.findById("johnsmith").get().getFirstName());
+		assertThrows(UserProfileNotExistsException.class,
+				() -> userProfileService.updateUserProfile(user("Jane"), "nobody"));
+
+		userProfileService.deleteUserProfile("johnsmith", null);
+		assertFalse(userProfileRepository.findById("johnsmith").isPresent());
+		assertTrue(newsRepository.findById(news.getNewsId()).isPresent());
+		assertThrows(UserProfileNotExistsException.class, () -> userProfileService.deleteUserProfile("johnsmith", null));
+
+	}
+
+	private News news(String title) {
+		return new News(0, title, "johnsmith", "description", LocalDateTime.now(), "content", null, null, null, null);
+	}
+
+	private UserProfile user(String firstName) {
+		return new UserProfile("johnsmith", firstName, "Smith", "1234567890", LocalDateTime.now(), null);
+	}
+
+}
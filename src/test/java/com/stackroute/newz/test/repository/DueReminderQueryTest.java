@@ -0,0 +1,111 @@
+package com.stackroute.newz.test.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.stackroute.newz.model.Reminder;
+import com.stackroute.newz.model.ReminderPage;
+import com.stackroute.newz.repository.NewsRepository;
+import com.stackroute.newz.repository.ReminderRepository;
+import com.stackroute.newz.service.ReminderService;
+
+/*
+ * Walking the due reminders page by page has to return every reminder of the
+ * range exactly once, in schedule order, and the range has to be read from the
+ * schedule index rather than by scanning the table.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class DueReminderQueryTest {
+
+	private static final LocalDateTime START = LocalDateTime.parse("2026-01-01T00:00:00");
+
+	@Autowired
+	private ReminderService reminderService;
+	@Autowired
+	private ReminderRepository reminderRepository;
+	@Autowired
+	private NewsRepository newsRepository;
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	public void setUp() {
+		transactionTemplate.execute(status -> {
+			newsRepository.deleteAll();
+			reminderRepository.deleteAll();
+			return null;
+		});
+		// two reminders per minute, so that pages end in the middle of equal schedules
+		for (int minute = 0; minute < 30; minute++) {
+			reminderRepository.save(new Reminder(0, START.plusMinutes(minute), null));
+			reminderRepository.save(new Reminder(0, START.plusMinutes(minute), null));
+		}
+	}
+
+	@Test
+	public void testWalkReturnsRangeInOrderExactlyOnce() throws Exception {
+
+		LocalDateTime after = START.plusMinutes(5);
+		LocalDateTime before = START.plusMinutes(20);
+
+		List<Reminder> walked = new ArrayList<>();
+		String cursor = null;
+		do {
+			ReminderPage page = reminderService.getDueReminders(after, before, cursor, 3);
+			walked.addAll(page.getReminders());
+			cursor = page.getNextCursor();
+		} while (cursor != null);
+
+		// minutes 6 to 20 included
+		assertEquals(30, walked.size());
+		for (int i = 0; i < walked.size(); i++) {
+			Reminder reminder = walked.get(i);
+			assertTrue(reminder.getSchedule().isAfter(after));
+			assertTrue(!reminder.getSchedule().isAfter(before));
+			if (i > 0) {
+				Reminder previous = walked.get(i - 1);
+				int order = previous.getSchedule().compareTo(reminder.getSchedule());
+				assertTrue(order < 0 || (order == 0 && previous.getReminderId() < reminder.getReminderId()));
+			}
+		}
+
+	}
+
+	@Test
+	public void testEmptyRangeHasNoNextPage() throws Exception {
+
+		ReminderPage page = reminderService.getDueReminders(START.plusDays(1), START.plusDays(2), null, 10);
+
+		assertEquals(0, page.getReminders().size());
+		assertNull(page.getNextCursor());
+
+	}
+
+	@Test
+	public void testRangeIsReadFromScheduleIndex() {
+
+		String plan = jdbcTemplate.queryForObject("explain select reminder_id from reminder "
+				+ "where schedule >= ? and schedule <= ? and (schedule > ? or reminder_id > ?) "
+				+ "order by schedule, reminder_id limit 10", String.class, START, START.plusMinutes(20), START, 1);
+
+		assertTrue(plan.toUpperCase().contains("IDX_REMINDER_SCHEDULE_REMINDER_ID"), plan);
+
+	}
+
+}
@@ -0,0 +1,133 @@
+package com.stackroute.newz.test.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.Reminder;
+import com.stackroute.newz.repository.NewsRepository;
+import com.stackroute.newz.repository.ReminderRepository;
+import com.stackroute.newz.service.NewsService;
+import com.stackroute.newz.service.ReminderService;
+
+/*
+ * Reading all news or all reminders has to cost the same number of SQL statements
+ * whatever the number of rows, i.e. no association is loaded row by row.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+class FetchPlanTest {
+
+	@Autowired
+	private NewsService newsService;
+	@Autowired
+	private ReminderService reminderService;
+	@Autowired
+	private NewsRepository newsRepository;
+	@Autowired
+	private ReminderRepository reminderRepository;
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private Statistics statistics;
+
+	@BeforeEach
+	public void setUp() {
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		transactionTemplate.execute(status -> {
+			newsRepository.deleteAll();
+			reminderRepository.deleteAll();
+			return null;
+		});
+	}
+
+	@Test
+	public void testGetAllNewsStatementCountIsConstant() {
+
+		addNewsWithReminders(2);
+		long few = countStatements(() -> assertEquals(2, newsService.getAllNews().size()));
+
+		addNewsWithReminders(20);
+		long many = countStatements(() -> assertEquals(22, newsService.getAllNews().size()));
+
+		assertEquals(few, many);
+		assertEquals(1, many);
+
+	}
+
+	@Test
+	public void testGetAllRemindersStatementCountIsConstant() {
+
+		addNewsWithReminders(2);
+		long few = countStatements(() -> assertEquals(2, reminderService.getAllReminders().size()));
+
+		addNewsWithReminders(20);
+		long many = countStatements(() -> assertEquals(22, reminderService.getAllReminders().size()));
+
+		assertEquals(few, many);
+		assertEquals(1, many);
+
+	}
+
+	@Test
+	public void testReminderWithNewsGraphJoins() {
+
+		addNewsWithReminders(5);
+		long statements = countStatements(() -> assertTrue(reminderRepository.findAllWithNewsBy().stream()
+				.allMatch(reminder -> reminder.getNews().getTitle() != null)));
+
+		assertEquals(1, statements);
+
+	}
+
+	@Test
+	public void testToStringDoesNotLoadAssociations() {
+
+		addNewsWithReminders(1);
+		// detached, the lazy associations can no longer be loaded
+		News news = newsRepository.findAll().get(0);
+		Reminder reminder = reminderRepository.findById(news.getReminder().getReminderId()).get();
+
+		long statements = countStatements(() -> {
+			assertTrue(news.toString().contains("reminderId=" + reminder.getReminderId()));
+			assertTrue(reminder.toString().contains("newsId=" + news.getNewsId()));
+		});
+
+		assertEquals(0, statements);
+
+	}
+
+	private long countStatements(Runnable read) {
+		statistics.clear();
+		read.run();
+		return statistics.getPrepareStatementCount();
+	}
+
+	private void addNewsWithReminders(int count) {
+		transactionTemplate.execute(status -> {
+			for (int i = 0; i < count; i++) {
+				Reminder reminder = reminderRepository.save(new Reminder(0, LocalDateTime.now().plusDays(1), null));
+				News news = newsRepository.save(new News(0, "title " + i, "johnsmith", "description", LocalDateTime.now(),
+						"content", null, null, null, reminder));
+				reminder.setNews(news);
+			}
+			return null;
+		});
+	}
+
+}
@@ -0,0 +1,80 @@
+package com.stackroute.newz.test.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsPage;
+import com.stackroute.newz.repository.NewsRepository;
+import com.stackroute.newz.service.NewsService;
+
+/*
+ * The keyset walk over news has to return every news exactly once, the ones
+ * without publishedAt included, wherever the page boundaries fall.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class NewsKeysetPageTest {
+
+	@Autowired
+	private NewsService newsService;
+	@Autowired
+	private NewsRepository newsRepository;
+
+	private List<Integer> expected;
+
+	@BeforeEach
+	public void setUp() {
+		newsRepository.deleteAll();
+		LocalDateTime now = LocalDateTime.now();
+		List<Integer> undated = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			undated.add(0, newsRepository.save(news("undated " + i, null)).getNewsId());
+		}
+		expected = new ArrayList<>();
+		for (int i = 0; i < 2; i++) {
+			expected.add(0, newsRepository.save(news("dated " + i, now.plusMinutes(i))).getNewsId());
+		}
+		expected.addAll(undated);
+	}
+
+	@AfterEach
+	public void tearDown() {
+		newsRepository.deleteAll();
+	}
+
+	@Test
+	public void testPagesCrossIntoNewsWithoutPublishedAt() throws Exception {
+
+		for (int size = 1; size <= 6; size++) {
+			assertEquals(expected, walk(size), "page size " + size);
+		}
+
+	}
+
+	private List<Integer> walk(int size) throws Exception {
+		List<Integer> seen = new ArrayList<>();
+		String cursor = null;
+		do {
+			NewsPage page = newsService.getNewsPage(cursor, size);
+			page.getNews().forEach(news -> seen.add(news.getNewsId()));
+			cursor = page.getNextCursor();
+		} while (cursor != null);
+		return seen;
+	}
+
+	private News news(String title, LocalDateTime publishedAt) {
+		return new News(0, title, "johnsmith", "description", publishedAt, "content", null, null, null, null);
+	}
+
+}
@@ -0,0 +1,71 @@
+package com.stackroute.newz.test.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import com.stackroute.newz.config.NewsSequenceSeeder;
+
+/*
+ * The news_seq table of a MySQL schema, here on a database of its own, starts
+ * at 1 whatever news are already there. The seeder has to move it past them,
+ * and never back.
+ */
+class NewsSequenceSeederTest {
+
+	private DriverManagerDataSource dataSource;
+	private JdbcTemplate jdbc;
+
+	@BeforeEach
+	public void setUp() {
+		dataSource = new DriverManagerDataSource("jdbc:h2:mem:news_seq;DB_CLOSE_DELAY=-1", "sa", "");
+		jdbc = new JdbcTemplate(dataSource);
+		jdbc.execute("create table news (news_id int primary key)");
+		jdbc.execute("create table news_seq (next_val bigint)");
+		jdbc.update("insert into news_seq values (1)");
+		for (int newsId = 1; newsId <= 120; newsId++) {
+			jdbc.update("insert into news values (?)", newsId);
+		}
+	}
+
+	@AfterEach
+	public void tearDown() {
+		jdbc.execute("drop all objects");
+	}
+
+	@Test
+	public void seedMovesNextValPastTheNews() {
+		assertEquals(171, new NewsSequenceSeeder(dataSource).seed());
+		assertEquals(171, nextVal());
+	}
+
+	@Test
+	public void seedNeverMovesNextValBack() {
+		jdbc.update("update news_seq set next_val = 1001");
+		assertEquals(0, new NewsSequenceSeeder(dataSource).seed());
+		assertEquals(1001, nextVal());
+	}
+
+	@Test
+	public void seedTwiceIsSeedOnce() {
+		new NewsSequenceSeeder(dataSource).seed();
+		assertEquals(0, new NewsSequenceSeeder(dataSource).seed());
+		assertEquals(171, nextVal());
+	}
+
+	@Test
+	public void seedLeavesARealSequenceAlone() {
+		jdbc.execute("drop table news_seq");
+		jdbc.execute("create sequence news_seq start with 1 increment by 50");
+		assertEquals(0, new NewsSequenceSeeder(dataSource).seed());
+	}
+
+	private long nextVal() {
+		return jdbc.queryForObject("select next_val from news_seq", Long.class);
+	}
+
+}
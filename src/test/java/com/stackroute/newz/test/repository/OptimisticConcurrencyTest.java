@@ -0,0 +1,125 @@
+package com.stackroute.newz.test.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.Reminder;
+import com.stackroute.newz.repository.NewsRepository;
+import com.stackroute.newz.repository.ReminderRepository;
+import com.stackroute.newz.service.NewsService;
+import com.stackroute.newz.service.ReminderService;
+import com.stackroute.newz.util.exception.NewsNotExistsException;
+import com.stackroute.newz.util.exception.VersionMismatchException;
+
+/*
+ * A write given a version only goes through while the row still has it, and
+ * every write of the row moves the version on.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class OptimisticConcurrencyTest {
+
+	@Autowired
+	private NewsService newsService;
+	@Autowired
+	private ReminderService reminderService;
+	@Autowired
+	private NewsRepository newsRepository;
+	@Autowired
+	private ReminderRepository reminderRepository;
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@BeforeEach
+	public void setUp() {
+		transactionTemplate.execute(status -> {
+			newsRepository.deleteAll();
+			reminderRepository.deleteAll();
+			return null;
+		});
+	}
+
+	@Test
+	public void testStaleUpdateFails() throws Exception {
+
+		News news = newsRepository.save(news("first"));
+		assertEquals(Long.valueOf(0), news.getVersion());
+
+		News first = copy(news, "second");
+		assertEquals(Long.valueOf(1), newsService.updateNews(first).getVersion());
+
+		News stale = copy(news, "third");
+		assertThrows(VersionMismatchException.class, () -> newsService.updateNews(stale));
+		News stored = newsRepository.findById(news.getNewsId()).get();
+		assertEquals("second", stored.getTitle());
+		assertEquals(Long.valueOf(1), stored.getVersion());
+
+	}
+
+	@Test
+	public void testUnconditionalUpdateMovesVersion() throws Exception {
+
+		News news = newsRepository.save(news("first"));
+		News blind = copy(news, "second");
+		blind.setVersion(null);
+
+		assertEquals(Long.valueOf(1), newsService.updateNews(blind).getVersion());
+		assertEquals(Long.valueOf(1), newsRepository.findById(news.getNewsId()).get().getVersion());
+
+	}
+
+	@Test
+	public void testStalePatchAndDeleteFail() throws Exception {
+
+		News news = newsRepository.save(news("first"));
+		News patched = newsService.patchNews(news.getNewsId(), Collections.singletonMap("title", "second"), 0L);
+		assertEquals(Long.valueOf(1), patched.getVersion());
+
+		assertThrows(VersionMismatchException.class,
+				() -> newsService.patchNews(news.getNewsId(), Collections.singletonMap("title", "third"), 0L));
+		assertThrows(VersionMismatchException.class, () -> newsService.deleteNews(news.getNewsId(), 0L));
+
+		newsService.deleteNews(news.getNewsId(), 1L);
+		assertThrows(NewsNotExistsException.class, () -> newsService.deleteNews(news.getNewsId(), 1L));
+
+	}
+
+	@Test
+	public void testMarkDeliveredMovesVersion() throws Exception {
+
+		Reminder reminder = reminderRepository.save(new Reminder(0, LocalDateTime.now(), null));
+		Long version = reminder.getVersion();
+
+		reminderRepository.markDelivered(Collections.singletonList(reminder.getReminderId()), LocalDateTime.now());
+
+		assertTrue(reminderRepository.findById(reminder.getReminderId()).get().getVersion() > version);
+		assertThrows(VersionMismatchException.class,
+				() -> reminderService.deleteReminder(reminder.getReminderId(), version));
+
+	}
+
+	private News news(String title) {
+		return new News(0, title, "author", "description", LocalDateTime.now(), "content", "url", "urlToImage", null,
+				null);
+	}
+
+	private News copy(News news, String title) {
+		News copy = news(title);
+		copy.setNewsId(news.getNewsId());
+		copy.setVersion(news.getVersion());
+		return copy;
+	}
+
+}
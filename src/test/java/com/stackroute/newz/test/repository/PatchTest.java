@@ -0,0 +1,134 @@
+package com.stackroute.newz.test.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.repository.NewsRepository;
+import com.stackroute.newz.repository.ReminderRepository;
+import com.stackroute.newz.service.NewsService;
+import com.stackroute.newz.util.exception.NewsNotExistsException;
+
+/*
+ * A PATCH, and an update of a managed news, write the changed columns only.
+ * The statements Hibernate sends are recorded to check which columns they set.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+		+ "com.stackroute.newz.test.repository.PatchTest$RecordingInspector")
+@ActiveProfiles("test")
+class PatchTest {
+
+	@Autowired
+	private NewsService newsService;
+	@Autowired
+	private NewsRepository newsRepository;
+	@Autowired
+	private ReminderRepository reminderRepository;
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@BeforeEach
+	public void setUp() {
+		transactionTemplate.execute(status -> {
+			newsRepository.deleteAll();
+			reminderRepository.deleteAll();
+			return null;
+		});
+	}
+
+	@Test
+	public void testPatchSetsChangedColumnsOnly() throws Exception {
+
+		News news = newsRepository.save(news());
+		RecordingInspector.clear();
+
+		News patched = newsService.patchNews(news.getNewsId(), Collections.singletonMap("title", "patched"), null);
+
+		List<String> updates = RecordingInspector.updates();
+		assertEquals(1, updates.size(), updates.toString());
+		assertTrue(updates.get(0).contains("title"), updates.get(0));
+		assertFalse(updates.get(0).contains("content"), updates.get(0));
+		assertEquals("patched", patched.getTitle());
+		assertEquals("long content", patched.getContent());
+
+	}
+
+	@Test
+	public void testPatchUnknownNewsFails() {
+
+		RecordingInspector.clear();
+
+		assertThrows(NewsNotExistsException.class,
+				() -> newsService.patchNews(-1, Collections.singletonMap("title", "patched"), null));
+		assertEquals(1, RecordingInspector.updates().size());
+
+	}
+
+	@Test
+	public void testManagedUpdateSetsChangedColumnsOnly() {
+
+		News news = newsRepository.save(news());
+		RecordingInspector.clear();
+
+		transactionTemplate.execute(status -> {
+			newsRepository.findById(news.getNewsId()).get().setAuthor("someone else");
+			return null;
+		});
+
+		List<String> updates = RecordingInspector.updates();
+		assertEquals(1, updates.size(), updates.toString());
+		assertTrue(updates.get(0).contains("author"), updates.get(0));
+		assertFalse(updates.get(0).contains("content"), updates.get(0));
+
+	}
+
+	private News news() {
+		return new News(0, "title", "author", "description", LocalDateTime.now(), "long content", "url",
+				"urlToImage", null, null);
+	}
+
+	/*
+	 * Keeps every statement of the session factory, Hibernate creates it by name
+	 */
+	public static class RecordingInspector implements StatementInspector {
+
+		private static final long serialVersionUID = 1L;
+
+		private static final List<String> STATEMENTS = Collections.synchronizedList(new ArrayList<>());
+
+		@Override
+		public String inspect(String sql) {
+			STATEMENTS.add(sql);
+			return sql;
+		}
+
+		static void clear() {
+			STATEMENTS.clear();
+		}
+
+		static List<String> updates() {
+			synchronized (STATEMENTS) {
+				return STATEMENTS.stream().filter(sql -> sql.toLowerCase().startsWith("update news "))
+						.collect(Collectors.toList());
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,95 @@
+package com.stackroute.newz.test.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.stackroute.newz.management.HibernateCacheEndpoint;
+import com.stackroute.newz.model.Reminder;
+import com.stackroute.newz.repository.NewsRepository;
+import com.stackroute.newz.repository.ReminderRepository;
+import com.stackroute.newz.service.ReminderService;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class SecondLevelCacheTest {
+
+	@Autowired
+	private ReminderService reminderService;
+	@Autowired
+	private NewsRepository newsRepository;
+	@Autowired
+	private ReminderRepository reminderRepository;
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+	@Autowired
+	private HibernateCacheEndpoint hibernateCacheEndpoint;
+
+	private Statistics statistics;
+
+	@BeforeEach
+	public void setUp() {
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		transactionTemplate.execute(status -> {
+			newsRepository.deleteAll();
+			reminderRepository.deleteAll();
+			return null;
+		});
+		entityManagerFactory.getCache().evictAll();
+	}
+
+	@Test
+	public void testReminderIsReadFromSecondLevelCache() {
+
+		int reminderId = reminderRepository.save(new Reminder(0, LocalDateTime.now(), null)).getReminderId();
+		transactionTemplate.execute(status -> reminderRepository.findById(reminderId));
+		statistics.clear();
+
+		assertTrue(transactionTemplate.execute(status -> reminderRepository.findById(reminderId)).isPresent());
+
+		assertEquals(0, statistics.getPrepareStatementCount());
+		assertEquals(1, hibernateCacheEndpoint.region("Reminder").getHitCount());
+
+	}
+
+	@Test
+	public void testGetAllRemindersUsesQueryCache() {
+
+		reminderRepository.save(new Reminder(0, LocalDateTime.now(), null));
+		reminderRepository.save(new Reminder(0, LocalDateTime.now(), null));
+		reminderService.getAllReminders();
+		statistics.clear();
+
+		assertEquals(2, reminderService.getAllReminders().size());
+
+		assertEquals(0, statistics.getPrepareStatementCount());
+		assertEquals(1, hibernateCacheEndpoint.regions().get("queryCache").getHitCount());
+
+	}
+
+	@Test
+	public void testQueryCacheIsInvalidatedByWrites() {
+
+		reminderRepository.save(new Reminder(0, LocalDateTime.now(), null));
+		reminderService.getAllReminders();
+		reminderRepository.save(new Reminder(0, LocalDateTime.now(), null));
+
+		assertEquals(2, reminderService.getAllReminders().size());
+
+	}
+
+}
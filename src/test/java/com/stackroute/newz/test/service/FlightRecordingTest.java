@@ -0,0 +1,171 @@
+package com.stackroute.newz.test.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.Resource;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.stackroute.newz.aspect.ServiceOperationEventInterceptor;
+import com.stackroute.newz.management.FlightRecordingEndpoint;
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.service.NewsService;
+import com.stackroute.newz.util.exception.NewsNotExistsException;
+
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.RecordingState;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/*
+ * A recording taken through the endpoint has an event per service operation
+ * called meanwhile, and a recording is only taken for the right token. Without
+ * a recording the interceptor costs no allocation.
+ */
+@SpringBootTest(properties = "newz.jfr.token=secret")
+@ActiveProfiles("test")
+class FlightRecordingTest {
+
+	private static final Path RECORDING = Paths.get("target/flight-recording-test.jfr");
+
+	@Autowired
+	private FlightRecordingEndpoint endpoint;
+	@Autowired
+	private NewsService newsService;
+
+	@Test
+	public void testServiceOperationsAreRecorded() throws Exception {
+
+		CompletableFuture<WebEndpointResponse<Resource>> response = CompletableFuture.supplyAsync(() -> {
+			try {
+				return endpoint.record("secret", 5, "default");
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		// the recording is listed as soon as it is created, events are only kept once it runs
+		for (int attempt = 0; attempt < 250 && FlightRecorder.getFlightRecorder().getRecordings().stream()
+				.noneMatch(recording -> recording.getState() == RecordingState.RUNNING); attempt++) {
+			Thread.sleep(20);
+		}
+		News news = newsService.addNews(new News(0, "recorded", "author", "description", LocalDateTime.now(),
+				"content", "url", "urlToImage", null, null));
+		assertThrows(NewsNotExistsException.class, () -> newsService.getNews(Integer.MAX_VALUE));
+
+		WebEndpointResponse<Resource> recorded = response.get();
+		assertEquals(WebEndpointResponse.STATUS_OK, recorded.getStatus());
+		try (InputStream in = recorded.getBody().getInputStream()) {
+			Files.copy(in, RECORDING, StandardCopyOption.REPLACE_EXISTING);
+		}
+		List<RecordedEvent> events = RecordingFile.readAllEvents(RECORDING).stream()
+				.filter(event -> event.getEventType().getName().equals("com.stackroute.newz.ServiceOperation"))
+				.collect(Collectors.toList());
+
+		RecordedEvent added = find(events, "addNews");
+		assertEquals("News", added.getString("entityType"));
+		assertEquals(Integer.toString(news.getNewsId()), added.getString("entityId"));
+		assertEquals("success", added.getString("outcome"));
+		RecordedEvent missing = find(events, "getNews");
+		assertEquals(Integer.toString(Integer.MAX_VALUE), missing.getString("entityId"));
+		assertEquals("NewsNotExistsException", missing.getString("outcome"));
+		assertTrue(missing.getDuration().toNanos() > 0);
+
+	}
+
+	@Test
+	public void testWrongTokenIsForbidden() throws Exception {
+
+		WebEndpointResponse<Resource> response = endpoint.record("guess", 1, null);
+		assertEquals(403, response.getStatus());
+		assertNull(response.getBody());
+		assertEquals(WebEndpointResponse.STATUS_BAD_REQUEST, endpoint.record("secret", 1, "no-such-settings").getStatus());
+
+	}
+
+	@Test
+	public void testNoEventIsAllocatedWithoutRecording() throws Throwable {
+
+		ServiceOperationEventInterceptor interceptor = new ServiceOperationEventInterceptor();
+		MethodInvocation invocation = new Call(Object.class.getMethod("hashCode"));
+
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+		// the first rounds warm up, until the JIT has compiled the loop
+		long allocated = -1;
+		for (int round = 0; round < 10 && allocated != 0; round++) {
+			long before = threads.getThreadAllocatedBytes(thread);
+			for (int i = 0; i < 100_000; i++) {
+				interceptor.invoke(invocation);
+			}
+			allocated = threads.getThreadAllocatedBytes(thread) - before;
+		}
+		assertEquals(0, allocated);
+
+	}
+
+	private RecordedEvent find(List<RecordedEvent> events, String operation) {
+		return events.stream().filter(event -> operation.equals(event.getString("operation"))).findFirst()
+				.orElseThrow(() -> new AssertionError(operation + " not recorded in " + events));
+	}
+
+	/*
+	 * A call that returns the same result every time, without allocating
+	 */
+	private static class Call implements MethodInvocation {
+
+		private static final Object[] NO_ARGUMENTS = {};
+
+		private final Method method;
+
+		Call(Method method) {
+			this.method = method;
+		}
+
+		@Override
+		public Method getMethod() {
+			return method;
+		}
+
+		@Override
+		public Object[] getArguments() {
+			return NO_ARGUMENTS;
+		}
+
+		@Override
+		public Object proceed() {
+			return NO_ARGUMENTS;
+		}
+
+		@Override
+		public Object getThis() {
+			return this;
+		}
+
+		@Override
+		public AccessibleObject getStaticPart() {
+			return method;
+		}
+
+	}
+
+}
@@ -0,0 +1,150 @@
+package com.stackroute.newz.test.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.stackroute.newz.util.InvertedIndex;
+
+class InvertedIndexTest {
+
+	private static final Path INDEX = Paths.get("target/inverted-index-test.index");
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		Files.deleteIfExists(INDEX);
+	}
+
+	@Test
+	public void testTokens() {
+
+		assertEquals(Arrays.asList("état", "d", "urgence", "2026"), InvertedIndex.tokens("  État d'urgence, 2026!"));
+		assertEquals(Collections.emptyList(), InvertedIndex.tokens(" -- "));
+		assertEquals(64, InvertedIndex.tokens(String.join("", Collections.nCopies(100, "a"))).get(0).length());
+
+	}
+
+	@Test
+	public void testRanking() {
+
+		InvertedIndex index = new InvertedIndex(2, 1);
+		index.add(1, 0, "budget", "the budget is voted");
+		index.add(2, 0, "weather", "rain, and a word on the budget");
+		index.add(3, 0, "sports", "nothing to see");
+		index.add(4, 0, "budget vote", "the vote of the budget");
+
+		InvertedIndex.Hits hits = index.search("Budget VOTE", 0, 10);
+
+		assertEquals(3, hits.getTotal());
+		assertEquals(Arrays.asList(4, 1, 2), hits.getKeys());
+		assertEquals(Arrays.asList(1), index.search("budget vote", 1, 1).getKeys());
+		assertEquals(0, index.search("unknown", 0, 10).getTotal());
+
+	}
+
+	@Test
+	public void testTieGoesToHigherKey() {
+
+		InvertedIndex index = new InvertedIndex(1);
+		index.add(1, 0, "same text");
+		index.add(2, 0, "same text");
+
+		assertEquals(Arrays.asList(2, 1), index.search("text", 0, 10).getKeys());
+
+	}
+
+	@Test
+	public void testRemoveAndReplace() {
+
+		InvertedIndex index = new InvertedIndex(1);
+		index.add(1, 0, "old title");
+		index.add(2, 0, "other title");
+		index.add(1, 1, "new title");
+
+		assertEquals(Collections.emptyList(), index.search("old", 0, 10).getKeys());
+		assertEquals(Arrays.asList(1), index.search("new", 0, 10).getKeys());
+		assertEquals(1, index.version(1));
+
+		assertTrue(index.remove(2));
+		assertFalse(index.remove(2));
+		assertFalse(index.contains(2));
+		assertEquals(InvertedIndex.NO_VERSION, index.version(2));
+		assertEquals(1, index.search("title", 0, 10).getTotal());
+
+	}
+
+	@Test
+	public void testCompactKeepsDocuments() {
+
+		InvertedIndex index = new InvertedIndex(1);
+		for (int key = 0; key < 5000; key++) {
+			index.add(key, key, "word" + (key % 10) + " common");
+		}
+		for (int key = 0; key < 5000; key += 2) {
+			index.remove(key);
+		}
+		index.add(7, 70, "word7 common");
+
+		index.compact();
+
+		assertEquals(2500, index.size());
+		assertEquals(2500, index.search("common", 0, 1).getTotal());
+		assertEquals(0, index.search("word0", 0, 10).getTotal());
+		assertEquals(500, index.search("word7", 0, 10).getTotal());
+		assertEquals(70, index.version(7));
+		assertEquals(9, index.version(9));
+
+	}
+
+	@Test
+	public void testSnapshotRoundTrip() throws IOException {
+
+		InvertedIndex index = new InvertedIndex(2, 1);
+		index.add(1, 3, "budget", "the budget is voted");
+		index.add(2, 4, "weather", "rain");
+		index.add(3, 5, "budget", "again");
+		index.remove(3);
+
+		index.writeTo(INDEX);
+		InvertedIndex read = InvertedIndex.readFrom(INDEX, 2, 1);
+
+		assertEquals(2, read.size());
+		assertEquals(3, read.version(1));
+		assertFalse(read.contains(3));
+		assertEquals(index.search("budget rain", 0, 10).getKeys(), read.search("budget rain", 0, 10).getKeys());
+		assertFalse(Files.exists(Paths.get("target/inverted-index-test.index.next")));
+
+	}
+
+	@Test
+	public void testCorruptSnapshotIsRefused() throws IOException {
+
+		InvertedIndex index = new InvertedIndex(1);
+		index.add(1, 0, "some text to index");
+		index.writeTo(INDEX);
+
+		assertThrows(IOException.class, () -> InvertedIndex.readFrom(INDEX, 2));
+		try (RandomAccessFile file = new RandomAccessFile(INDEX.toFile(), "rw")) {
+			long position = file.length() - 12;
+			file.seek(position);
+			int b = file.read();
+			file.seek(position);
+			file.write(b ^ 1);
+		}
+		assertThrows(IOException.class, () -> InvertedIndex.readFrom(INDEX, 1));
+
+	}
+
+}
@@ -0,0 +1,181 @@
+package com.stackroute.newz.test.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stackroute.newz.config.LatestNewsProperties;
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.repository.NewsRepository;
+import com.stackroute.newz.service.LatestNews;
+import com.stackroute.newz.service.LatestNewsSnapshot;
+import com.stackroute.newz.service.NewsWriteBehind;
+
+class LatestNewsSnapshotTest {
+
+	@Mock
+	private NewsRepository newsRepository;
+	@Mock
+	private NewsWriteBehind writeBehind;
+	@Mock
+	private PlatformTransactionManager transactionManager;
+	@Spy
+	private LatestNewsProperties properties = new LatestNewsProperties();
+	@Spy
+	private ObjectMapper objectMapper = new ObjectMapper();
+	@InjectMocks
+	private LatestNewsSnapshot latestNews;
+
+	private final LocalDateTime now = LocalDateTime.parse("2026-01-01T10:00:00");
+
+	@BeforeEach
+	public void setUp() {
+
+		MockitoAnnotations.initMocks(this);
+		properties.setSize(2);
+		properties.setRefreshInterval(Duration.ZERO);
+		latestNews.start();
+
+	}
+
+	@AfterEach
+	public void tearDown() {
+		latestNews.stop();
+	}
+
+	@Test
+	public void testFirstReadLoadsPageOnce() throws IOException {
+
+		when(newsRepository.findLatest(any())).thenReturn(rows(news(3, 3), news(2, 2), news(1, 1)));
+
+		LatestNews.Snapshot snapshot = latestNews.current();
+
+		assertEquals(Arrays.asList(3, 2), ids(snapshot));
+		assertEquals(objectMapper.readTree(snapshot.getJson()), objectMapper.readTree(gunzip(snapshot.getGzip())));
+		assertEquals(2, objectMapper.readTree(snapshot.getJson()).get("news").size());
+		assertSame(snapshot, latestNews.current());
+		verify(newsRepository, times(1)).findLatest(any());
+		verify(writeBehind, times(1)).flush();
+
+	}
+
+	@Test
+	public void testNewerNewsIsAppliedInMemory() throws IOException {
+
+		when(newsRepository.findLatest(any())).thenReturn(rows(news(3, 3), news(2, 2), news(1, 1)));
+		LatestNews.Snapshot before = latestNews.current();
+
+		latestNews.saved(news(4, 4));
+
+		LatestNews.Snapshot after = latestNews.current();
+		assertEquals(Arrays.asList(4, 3), ids(after));
+		assertNotEquals(before.getTag(), after.getTag());
+		verify(newsRepository, times(1)).findLatest(any());
+
+	}
+
+	@Test
+	public void testOlderNewsLeavesPageAlone() throws IOException {
+
+		when(newsRepository.findLatest(any())).thenReturn(rows(news(3, 3), news(2, 2), news(1, 1)));
+		LatestNews.Snapshot before = latestNews.current();
+
+		latestNews.saved(news(0, 0));
+
+		assertSame(before, latestNews.current());
+		verify(newsRepository, times(1)).findLatest(any());
+
+	}
+
+	@Test
+	public void testDeleteOfHeldRowReadsAgain() throws IOException {
+
+		when(newsRepository.findLatest(any())).thenReturn(rows(news(3, 3), news(2, 2), news(1, 1)))
+				.thenReturn(rows(news(2, 2), news(1, 1), news(0, 0)));
+		latestNews.current();
+
+		latestNews.deleted(3);
+
+		assertEquals(Arrays.asList(2, 1), ids(latestNews.current()));
+		verify(newsRepository, times(2)).findLatest(any());
+
+	}
+
+	@Test
+	public void testCompletePageIsKeptInMemory() throws IOException {
+
+		when(newsRepository.findLatest(any())).thenReturn(rows(news(2, 2), news(1, 1)));
+		latestNews.current();
+
+		latestNews.deleted(2);
+		assertEquals(Arrays.asList(1), ids(latestNews.current()));
+		assertNull(objectMapper.readTree(latestNews.current().getJson()).get("nextCursor").textValue());
+
+		latestNews.saved(news(5, 0));
+		assertEquals(Arrays.asList(1, 5), ids(latestNews.current()));
+		verify(newsRepository, times(1)).findLatest(any());
+
+	}
+
+	@Test
+	public void testNewsMovedPastLastRowReadsAgain() throws IOException {
+
+		when(newsRepository.findLatest(any())).thenReturn(rows(news(3, 3), news(2, 2), news(1, 1)))
+				.thenReturn(rows(news(2, 2), news(1, 1), news(3, -1)));
+		latestNews.current();
+
+		latestNews.saved(news(3, -2));
+
+		assertEquals(Arrays.asList(2, 1), ids(latestNews.current()));
+		verify(newsRepository, times(2)).findLatest(any());
+
+	}
+
+	private News news(int newsId, int hours) {
+		return new News(newsId, "title" + newsId, "author", "description", now.plusHours(hours), "content", null, null,
+				null, null);
+	}
+
+	private List<News> rows(News... news) {
+		return new ArrayList<>(Arrays.asList(news));
+	}
+
+	private List<Integer> ids(LatestNews.Snapshot snapshot) throws IOException {
+		JsonNode page = objectMapper.readTree(snapshot.getJson());
+		List<Integer> ids = new ArrayList<>();
+		page.get("news").forEach(news -> ids.add(news.get("newsId").intValue()));
+		return ids;
+	}
+
+	private byte[] gunzip(byte[] gzip) throws IOException {
+		try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+			return in.readAllBytes();
+		}
+	}
+
+}
@@ -0,0 +1,148 @@
+package com.stackroute.newz.test.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.stackroute.newz.config.MethodMetricsProperties;
+import com.stackroute.newz.management.MethodMetrics;
+import com.stackroute.newz.management.MethodMetricsEndpoint;
+import com.stackroute.newz.service.NewsService;
+import com.stackroute.newz.util.exception.NewsNotExistsException;
+
+/*
+ * The calls of the service methods are timed and counted by outcome, recording
+ * them allocates nothing, and the scrape is in the Prometheus text format.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class MethodMetricsTest {
+
+	@Autowired
+	private NewsService newsService;
+	@Autowired
+	private MethodMetricsEndpoint endpoint;
+
+	@Test
+	public void testServiceCallsAreCountedByOutcome() throws Exception {
+
+		assertThrows(NewsNotExistsException.class, () -> newsService.getNews(-42));
+		newsService.getAllNews();
+
+		String scrape = endpoint.scrape();
+		assertTrue(scrape.contains(
+				"newz_method_calls_total{class=\"NewsServiceImpl\",method=\"getNews\",outcome=\"com.stackroute.newz.util.exception.NewsNotExistsException\"} "),
+				scrape);
+		assertTrue(scrape.contains(
+				"newz_method_calls_total{class=\"NewsServiceImpl\",method=\"getAllNews\",outcome=\"success\"} "),
+				scrape);
+		assertTrue(scrape.contains(
+				"newz_method_duration_seconds{class=\"NewsServiceImpl\",method=\"getAllNews\",quantile=\"0.99\"} "),
+				scrape);
+
+	}
+
+	@Test
+	public void testScrape() throws Exception {
+
+		MethodMetrics metrics = metrics();
+		MethodMetrics.Timer timer = metrics.timer(Object.class.getMethod("hashCode"));
+		timer.record(TimeUnit.MILLISECONDS.toNanos(2), null);
+		timer.record(TimeUnit.MILLISECONDS.toNanos(4), null);
+		timer.record(TimeUnit.MILLISECONDS.toNanos(8), new IllegalStateException());
+		metrics.timer(Object.class.getMethod("toString"));
+
+		String scrape = metrics.scrape();
+		assertTrue(scrape.contains("# TYPE newz_method_duration_seconds summary\n"), scrape);
+		assertTrue(scrape.contains("newz_method_duration_seconds{class=\"Object\",method=\"hashCode\",quantile=\"0.5\"} 0.004"),
+				scrape);
+		assertTrue(scrape.contains("newz_method_duration_seconds_sum{class=\"Object\",method=\"hashCode\"} 0.014\n"),
+				scrape);
+		assertTrue(scrape.contains("newz_method_duration_seconds_count{class=\"Object\",method=\"hashCode\"} 3\n"),
+				scrape);
+		assertTrue(scrape.contains("newz_method_duration_max_seconds{class=\"Object\",method=\"hashCode\"} 0.008"),
+				scrape);
+		assertTrue(scrape.contains("newz_method_calls_total{class=\"Object\",method=\"hashCode\",outcome=\"success\"} 2\n"),
+				scrape);
+		assertTrue(scrape.contains(
+				"newz_method_calls_total{class=\"Object\",method=\"hashCode\",outcome=\"java.lang.IllegalStateException\"} 1\n"),
+				scrape);
+		// a method not called in the window has no percentiles
+		assertTrue(scrape.contains("newz_method_duration_seconds{class=\"Object\",method=\"toString\",quantile=\"0.5\"} NaN\n"),
+				scrape);
+
+	}
+
+	@Test
+	public void testRecordingAllocatesNothing() throws Exception {
+
+		MethodMetrics metrics = metrics();
+		Method method = Object.class.getMethod("hashCode");
+		IllegalStateException failure = new IllegalStateException();
+		// the failure counter is created on the first failure
+		metrics.timer(method).record(1000, failure);
+
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+		// the first rounds warm up, until the JIT has compiled the loop
+		long allocated = -1;
+		for (int round = 0; round < 10 && allocated != 0; round++) {
+			long before = threads.getThreadAllocatedBytes(thread);
+			for (int i = 0; i < 100_000; i++) {
+				metrics.timer(method).record(i * 1000L, i % 10 == 0 ? failure : null);
+			}
+			allocated = threads.getThreadAllocatedBytes(thread) - before;
+		}
+		assertEquals(0, allocated);
+
+	}
+
+	@Test
+	public void testFailuresWithTheSameSimpleNameAreCountedApart() throws Exception {
+
+		MethodMetrics metrics = metrics();
+		MethodMetrics.Timer timer = metrics.timer(Object.class.getMethod("hashCode"));
+		timer.record(1000, new Reads.Failure());
+		timer.record(1000, new Writes.Failure());
+		timer.record(1000, new Writes.Failure());
+
+		String scrape = metrics.scrape();
+		assertTrue(scrape.contains("newz_method_calls_total{class=\"Object\",method=\"hashCode\",outcome=\""
+				+ Reads.Failure.class.getName() + "\"} 1\n"), scrape);
+		assertTrue(scrape.contains("newz_method_calls_total{class=\"Object\",method=\"hashCode\",outcome=\""
+				+ Writes.Failure.class.getName() + "\"} 2\n"), scrape);
+
+	}
+
+	private static class Reads {
+		@SuppressWarnings("serial")
+		static class Failure extends RuntimeException {
+		}
+	}
+
+	private static class Writes {
+		@SuppressWarnings("serial")
+		static class Failure extends RuntimeException {
+		}
+	}
+
+	private MethodMetrics metrics() {
+		MethodMetricsProperties properties = new MethodMetricsProperties();
+		properties.setWindow(Duration.ofMinutes(1));
+		MethodMetrics metrics = new MethodMetrics();
+		ReflectionTestUtils.setField(metrics, "properties", properties);
+		return metrics;
+	}
+
+}
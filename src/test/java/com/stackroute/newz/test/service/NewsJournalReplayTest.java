@@ -0,0 +1,67 @@
+package com.stackroute.newz.test.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.repository.NewsRepository;
+import com.stackroute.newz.util.NewsJournal;
+
+/*
+ * Writes left in the journal by a previous run reach the database at startup,
+ * even with the write-behind mode turned off, and a record torn by the crash is
+ * ignored.
+ */
+@SpringBootTest(properties = { "newz.news.write-behind.enabled=false",
+		"newz.news.write-behind.journal=target/news-replay-test.journal" })
+@ActiveProfiles("test")
+class NewsJournalReplayTest {
+
+	private static final Path JOURNAL = Paths.get("target/news-replay-test.journal");
+
+	@Autowired
+	private NewsRepository newsRepository;
+
+	/*
+	 * Runs before the application context is started
+	 */
+	@BeforeAll
+	public static void writeJournal() throws Exception {
+		Files.deleteIfExists(JOURNAL);
+		try (NewsJournal journal = new NewsJournal(JOURNAL)) {
+			journal.append(NewsJournal.Entry.upsert(news(900001, "first")));
+			journal.append(NewsJournal.Entry.upsert(news(900001, "second")));
+			journal.append(NewsJournal.Entry.upsert(news(900002, "deleted")));
+			journal.append(NewsJournal.Entry.delete(900002));
+		}
+		// half of a record, as left by a crash during an append
+		Files.write(JOURNAL, new byte[] { 0, 0, 0, 40, 1, 2, 3 }, StandardOpenOption.APPEND);
+	}
+
+	@Test
+	public void testJournalIsReplayedAtStartup() throws Exception {
+
+		assertEquals("second", newsRepository.findById(900001).get().getTitle());
+		assertFalse(newsRepository.findById(900002).isPresent());
+		assertEquals(0, Files.size(JOURNAL));
+
+	}
+
+	private static News news(int newsId, String title) {
+		return new News(newsId, title, "johnsmith", "description", LocalDateTime.now(), "content", null, null, null,
+				null);
+	}
+
+}
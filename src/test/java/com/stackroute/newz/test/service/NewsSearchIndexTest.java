@@ -0,0 +1,133 @@
+package com.stackroute.newz.test.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.stackroute.newz.config.NewsSearchProperties;
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsSearchPage;
+import com.stackroute.newz.repository.NewsRepository;
+import com.stackroute.newz.service.NewsSearchIndex;
+import com.stackroute.newz.service.NewsService;
+import com.stackroute.newz.service.NewsWriteBehind;
+
+/*
+ * A write is searchable once it has returned, and an index read back from its
+ * file catches up with the writes made while it was not running.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class NewsSearchIndexTest {
+
+	private static final Path INDEX = Paths.get("target/news-search-test.index");
+
+	@Autowired
+	private NewsService newsService;
+	@Autowired
+	private NewsRepository newsRepository;
+	@Autowired
+	private NewsWriteBehind writeBehind;
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Test
+	public void testWritesAreSearchable() throws Exception {
+
+		News news = newsService.addNews(news("platypus budget"));
+		assertEquals(Arrays.asList(news.getNewsId()), ids(newsService.searchNews("platypus", 0, 10)));
+
+		news.setTitle("echidna budget");
+		newsService.updateNews(news);
+		assertEquals(0, newsService.searchNews("platypus", 0, 10).getTotal());
+		assertEquals(Arrays.asList(news.getNewsId()), ids(newsService.searchNews("echidna", 0, 10)));
+
+		newsService.deleteNews(news.getNewsId(), null);
+		assertEquals(0, newsService.searchNews("echidna", 0, 10).getTotal());
+
+	}
+
+	@Test
+	public void testIndexFileCatchesUp() throws Exception {
+
+		News alpha = newsRepository.save(news("alpha quokka"));
+		News bravo = newsRepository.save(news("bravo quokka"));
+		News charlie = newsRepository.save(news("charlie quokka"));
+		Files.deleteIfExists(INDEX);
+
+		NewsSearchIndex first = index();
+		first.start();
+		awaitHits(first, "quokka", alpha.getNewsId(), bravo.getNewsId(), charlie.getNewsId());
+		first.stop();
+		assertTrue(Files.exists(INDEX));
+
+		alpha.setTitle("alpha wombat");
+		newsRepository.save(alpha);
+		newsRepository.deleteById(bravo.getNewsId());
+		News delta = newsRepository.save(news("delta quokka"));
+
+		NewsSearchIndex second = index();
+		second.start();
+		try {
+			awaitHits(second, "quokka", charlie.getNewsId(), delta.getNewsId());
+			awaitHits(second, "wombat", alpha.getNewsId());
+		} finally {
+			second.stop();
+		}
+
+	}
+
+	private NewsSearchIndex index() {
+		NewsSearchProperties properties = new NewsSearchProperties();
+		properties.setIndexFile(INDEX.toString());
+		properties.setSnapshotInterval(Duration.ZERO);
+		NewsSearchIndex index = new NewsSearchIndex();
+		ReflectionTestUtils.setField(index, "newsRepo", newsRepository);
+		ReflectionTestUtils.setField(index, "writeBehind", writeBehind);
+		ReflectionTestUtils.setField(index, "properties", properties);
+		ReflectionTestUtils.setField(index, "transactionManager", transactionManager);
+		return index;
+	}
+
+	/*
+	 * The index is brought up to date in the background
+	 */
+	private void awaitHits(NewsSearchIndex index, String query, Integer... expected) throws InterruptedException {
+		Set<Integer> hits = null;
+		for (int attempt = 0; attempt < 100; attempt++) {
+			hits = new HashSet<>(index.search(query, 0, 10).getKeys());
+			if (hits.equals(new HashSet<>(Arrays.asList(expected)))) {
+				return;
+			}
+			Thread.sleep(100);
+		}
+		assertEquals(new HashSet<>(Arrays.asList(expected)), hits);
+	}
+
+	private List<Integer> ids(NewsSearchPage page) {
+		return page.getNews().stream().map(News::getNewsId).collect(Collectors.toList());
+	}
+
+	private News news(String title) {
+		return new News(0, title, "author", "description", LocalDateTime.now(), "content", "url", "urlToImage", null,
+				null);
+	}
+
+}
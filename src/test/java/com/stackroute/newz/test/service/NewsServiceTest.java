@@ -1,35 +1,84 @@
 package com.stackroute.newz.test.service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.test.annotation.Rollback;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.NewsBatchItem;
+import com.stackroute.newz.model.NewsPage;
+import com.stackroute.newz.model.NewsSearchPage;
+import com.stackroute.newz.model.Reminder;
+import com.stackroute.newz.model.UserProfile;
 import com.stackroute.newz.repository.NewsRepository;
+import com.stackroute.newz.service.LatestNews;
+import com.stackroute.newz.service.NewsSearch;
 import com.stackroute.newz.service.NewsServiceImpl;
+import com.stackroute.newz.service.NewsWriteBehind;
+import com.stackroute.newz.util.InvertedIndex;
+import com.stackroute.newz.util.NegativeCache;
+import com.stackroute.newz.util.NewsCursor;
+import com.stackroute.newz.util.NewsJournal;
+import com.stackroute.newz.util.SingleFlight;
+import com.stackroute.newz.util.exception.InvalidCursorException;
 import com.stackroute.newz.util.exception.NewsAlreadyExistsException;
 import com.stackroute.newz.util.exception.NewsNotExistsException;
+import com.stackroute.newz.util.exception.VersionMismatchException;
 
 class NewsServiceTest {
 
 	@Mock
 	private NewsRepository newsRepository;
+	@Mock
+	private NegativeCache negativeCache;
+	@Mock
+	private TransactionTemplate transactionTemplate;
+	@Mock
+	private EntityManager entityManager;
+	@Mock
+	private NewsWriteBehind writeBehind;
+	@Mock
+	private LatestNews latestNews;
+	@Mock
+	private NewsSearch newsSearch;
 	@InjectMocks
 	private NewsServiceImpl newsService;
 
@@ -63,26 +112,26 @@ class NewsServiceTest {
 	@Rollback(true)
 	public void testAddNewsSuccess() throws NewsAlreadyExistsException {
 
-		when(newsRepository.getOne(any())).thenReturn(null);
 		when(newsRepository.save(any())).thenReturn(news);
 
 		assertEquals(news, newsService.addNews(news));
 
-		verify(newsRepository, times(1)).getOne(any());
+		verify(newsRepository, times(0)).getOne(any());
+		verify(newsRepository, times(0)).findById(any());
 		verify(newsRepository, times(1)).save(any());
 
 	}
 
 	@Test
 	@Rollback(true)
-	public void testAddNewsFailure() throws NewsAlreadyExistsException {
+	public void testAddNewsIgnoresClientNewsId() throws NewsAlreadyExistsException {
 
-		when(newsRepository.getOne(any())).thenReturn(news);
+		when(newsRepository.save(any())).thenReturn(news);
 
-		assertThrows(NewsAlreadyExistsException.class, () -> newsService.addNews(news));
+		newsService.addNews(news);
 
-		verify(newsRepository, times(1)).getOne(any());
-		verify(newsRepository, times(0)).save(any());
+		assertEquals(0, news.getNewsId());
+		verify(newsRepository, times(1)).save(news);
 
 	}
 
@@ -124,15 +173,15 @@ class NewsServiceTest {
 
 	@Test
 	@Rollback(true)
-	public void testUpdateNewsSuccess() throws NewsNotExistsException {
+	public void testUpdateNewsSuccess() throws NewsNotExistsException, VersionMismatchException {
 
-		when(newsRepository.getOne(any())).thenReturn(news);
-		when(newsRepository.saveAndFlush(any())).thenReturn(news);
+		when(newsRepository.updateNews(any())).thenReturn(1);
+		when(newsRepository.findById(news.getNewsId())).thenReturn(Optional.of(news));
 
 		assertEquals(news, newsService.updateNews(news));
 
-		verify(newsRepository, times(1)).getOne(any());
-		verify(newsRepository, times(1)).saveAndFlush(any());
+		verify(newsRepository, times(0)).getOne(any());
+		verify(newsRepository, times(1)).updateNews(news);
 
 	}
 
@@ -140,38 +189,398 @@ class NewsServiceTest {
 	@Rollback(true)
 	public void testUpdateNewsFailure() throws NewsNotExistsException {
 
-		when(newsRepository.getOne(any())).thenReturn(null);
+		when(newsRepository.updateNews(any())).thenReturn(0);
 
 		assertThrows(NewsNotExistsException.class, () -> newsService.updateNews(news));
 
-		verify(newsRepository, times(1)).getOne(any());
+		verify(newsRepository, times(1)).updateNews(news);
 		verify(newsRepository, times(0)).saveAndFlush(any());
 
 	}
 
 	@Test
 	@Rollback(true)
-	public void testDeleteNewsSuccess() throws NewsNotExistsException {
+	public void testWritesAreReportedToLatestNews() throws Exception {
+
+		when(newsRepository.save(any())).thenReturn(news);
+		when(newsRepository.updateNews(any())).thenReturn(1);
+		when(newsRepository.findById(any())).thenReturn(Optional.of(news));
+		when(newsRepository.deleteByNewsId(2, null)).thenReturn(1);
+
+		newsService.addNews(news);
+		newsService.updateNews(news);
+		newsService.deleteNews(2, null);
+
+		verify(latestNews, times(2)).saved(news);
+		verify(latestNews, times(1)).deleted(2);
+		verify(newsSearch, times(2)).saved(news);
+		verify(newsSearch, times(1)).deleted(2);
+
+	}
+
+	@Test
+	@Rollback(true)
+	public void testSearchNews() {
+
+		News buffered = new News(2, "buffered title", "johnsmith", "description", LocalDateTime.now(), "content",
+				null, null, null, null);
+		when(newsSearch.search("title", 20, 10)).thenReturn(new InvertedIndex.Hits(25, Arrays.asList(3, 2, 9)));
+		when(newsRepository.findAllById(any())).thenReturn(Arrays.asList(newsList.get(1), newsList.get(0)));
+		when(writeBehind.pending(2)).thenReturn(NewsJournal.Entry.upsert(buffered));
 
-		when(newsRepository.getOne(any())).thenReturn(news);
-		newsService.deleteNews(news.getNewsId());
+		NewsSearchPage page = newsService.searchNews("title", 2, 10);
 
-		verify(newsRepository, times(1)).getOne(any());
-		verify(newsRepository, times(1)).deleteById(any());
+		assertEquals(Arrays.asList(newsList.get(1), buffered), page.getNews());
+		assertEquals(25, page.getTotal());
+		assertEquals(2, page.getPage());
+		assertEquals(10, page.getSize());
+		verify(newsRepository, times(1)).findAllById(Arrays.asList(3, 2, 9));
 
 	}
 
 	@Test
 	@Rollback(true)
-	public void testDeleteNewsFailure() throws NewsNotExistsException {
+	public void testFailedWriteIsNotReportedToLatestNews() {
+
+		when(newsRepository.updateNews(any())).thenReturn(0);
 
-		when(newsRepository.getOne(any())).thenReturn(null);
+		assertThrows(NewsNotExistsException.class, () -> newsService.updateNews(news));
 
-		assertThrows(NewsNotExistsException.class, () -> newsService.deleteNews(news.getNewsId()));
+		verify(latestNews, times(0)).saved(any());
 
-		verify(newsRepository, times(1)).getOne(any());
+	}
+
+	@Test
+	@Rollback(true)
+	public void testUpdateNewsWithVersion() throws NewsNotExistsException, VersionMismatchException {
+
+		news.setVersion(3L);
+		// the news read back has the version the update moved on to, and what the body has not
+		News stored = new News(news.getNewsId(), news.getTitle(), news.getAuthor(), news.getDescription(),
+				news.getPublishedAt(), news.getContent(), null, null, new UserProfile(), null);
+		stored.setVersion(4L);
+		when(newsRepository.updateNews(any())).thenReturn(1);
+		when(newsRepository.findById(news.getNewsId())).thenReturn(Optional.of(stored));
+
+		News updated = newsService.updateNews(news);
+		assertEquals(Long.valueOf(4), updated.getVersion());
+		assertEquals(stored, updated);
+		verify(latestNews, times(1)).saved(stored);
+
+		verify(newsRepository, times(0)).existsById(any());
+
+	}
+
+	@Test
+	@Rollback(true)
+	public void testUpdateNewsVersionMismatch() {
+
+		news.setVersion(3L);
+		when(newsRepository.updateNews(any())).thenReturn(0);
+		when(newsRepository.existsById(news.getNewsId())).thenReturn(true);
+
+		assertThrows(VersionMismatchException.class, () -> newsService.updateNews(news));
+
+	}
+
+	@Test
+	@Rollback(true)
+	public void testDeleteNewsVersionMismatch() {
+
+		when(newsRepository.deleteByNewsId(news.getNewsId(), 3L)).thenReturn(0);
+		when(newsRepository.existsById(news.getNewsId())).thenReturn(true);
+
+		assertThrows(VersionMismatchException.class, () -> newsService.deleteNews(news.getNewsId(), 3L));
+
+	}
+
+	@Test
+	@Rollback(true)
+	public void testDeleteNewsSuccess() throws NewsNotExistsException, VersionMismatchException {
+
+		when(newsRepository.deleteByNewsId(news.getNewsId(), null)).thenReturn(1);
+		newsService.deleteNews(news.getNewsId(), null);
+
+		verify(newsRepository, times(0)).getOne(any());
+		verify(newsRepository, times(1)).deleteByNewsId(news.getNewsId(), null);
 		verify(newsRepository, times(0)).deleteById(any());
 
 	}
 
+	@Test
+	@Rollback(true)
+	public void testDeleteNewsFailure() throws NewsNotExistsException {
+
+		when(newsRepository.deleteByNewsId(news.getNewsId(), null)).thenReturn(0);
+
+		assertThrows(NewsNotExistsException.class, () -> newsService.deleteNews(news.getNewsId(), null));
+
+		verify(newsRepository, times(1)).deleteByNewsId(news.getNewsId(), null);
+
+	}
+
+	@Test
+	public void testGetNewsPageFirstPage() throws InvalidCursorException {
+
+		newsList.add(news);
+		when(newsRepository.findLatest(any())).thenReturn(newsList);
+
+		NewsPage page = newsService.getNewsPage(null, 2);
+
+		assertEquals(2, page.getNews().size());
+		assertNotNull(page.getNextCursor());
+		assertEquals(3, NewsCursor.decode(page.getNextCursor()).getNewsId());
+		verify(newsRepository, times(1)).findLatest(any());
+		verify(newsRepository, times(0)).findAll();
+
+	}
+
+	@Test
+	public void testGetNewsPageLastPage() throws InvalidCursorException {
+
+		String cursor = NewsCursor.after(news).encode();
+		when(newsRepository.findOlderThan(eq(news.getPublishedAt()), eq(news.getNewsId()), any()))
+				.thenReturn(newsList);
+
+		NewsPage page = newsService.getNewsPage(cursor, 5);
+
+		assertEquals(newsList, page.getNews());
+		assertNull(page.getNextCursor());
+		verify(newsRepository, times(1)).findOlderThan(any(), anyInt(), any());
+
+	}
+
+	@Test
+	public void testGetNewsPageInvalidCursor() {
+
+		assertThrows(InvalidCursorException.class, () -> newsService.getNewsPage("not-a-cursor", 5));
+
+		verify(newsRepository, times(0)).findOlderThan(any(), anyInt(), any());
+
+	}
+
+	@Test
+	public void testStreamAllNewsSuccess() {
+
+		when(newsRepository.streamAll(anyInt())).thenReturn(newsList.stream());
+
+		assertEquals(newsList, newsService.streamAllNews().collect(Collectors.toList()));
+
+		verify(newsRepository, times(1)).streamAll(anyInt());
+		verify(newsRepository, times(0)).findAll();
+
+	}
+
+	@Test
+	public void testGetNewsCoalescesConcurrentLoads() throws Exception {
+
+		int callers = 16;
+		CountDownLatch release = new CountDownLatch(1);
+		when(newsRepository.findById(any())).thenAnswer(invocation -> {
+			release.await();
+			return Optional.of(news);
+		});
+
+		ExecutorService pool = Executors.newFixedThreadPool(callers);
+		List<Future<News>> results = new ArrayList<>();
+		for (int i = 0; i < callers; i++) {
+			results.add(pool.submit(() -> newsService.getNews(1)));
+		}
+		SingleFlight<?, ?> newsLoads = (SingleFlight<?, ?>) ReflectionTestUtils.getField(newsService, "newsLoads");
+		long deadline = System.currentTimeMillis() + 5000;
+		while (newsLoads.getCoalescedCount() < callers - 1 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(1);
+		}
+		release.countDown();
+
+		for (Future<News> result : results) {
+			assertEquals(news, result.get(5, TimeUnit.SECONDS));
+		}
+		pool.shutdown();
+		verify(newsRepository, times(1)).findById(any());
+
+	}
+
+	@Test
+	public void testAddNewsBatchWritesChunks() {
+
+		ReflectionTestUtils.setField(newsService, "batchChunkSize", 2);
+		when(transactionTemplate.execute(any())).thenAnswer(
+				invocation -> ((TransactionCallback<?>) invocation.getArguments()[0]).doInTransaction(null));
+		newsList.add(news);
+
+		List<NewsBatchItem> results = newsService.addNewsBatch(newsList.iterator());
+
+		assertEquals(3, results.size());
+		assertEquals(2, results.get(2).getIndex());
+		assertTrue(results.stream().allMatch(item -> NewsBatchItem.CREATED.equals(item.getStatus())));
+		verify(newsRepository, times(2)).saveAll(any());
+		verify(newsRepository, times(0)).save(any());
+
+	}
+
+	@Test
+	public void testAddNewsBatchIsolatesFailingRow() {
+
+		when(transactionTemplate.execute(any())).thenAnswer(
+				invocation -> ((TransactionCallback<?>) invocation.getArguments()[0]).doInTransaction(null));
+		when(newsRepository.saveAll(any())).thenThrow(new DataIntegrityViolationException("chunk"));
+		when(newsRepository.save(newsList.get(0))).thenReturn(newsList.get(0));
+		when(newsRepository.save(newsList.get(1))).thenThrow(new DataIntegrityViolationException("row"));
+
+		List<NewsBatchItem> results = newsService.addNewsBatch(newsList.iterator());
+
+		assertEquals(NewsBatchItem.CREATED, results.get(0).getStatus());
+		assertEquals(NewsBatchItem.FAILED, results.get(1).getStatus());
+		assertEquals("row", results.get(1).getError());
+		verify(newsRepository, times(2)).save(any());
+
+	}
+
+	@Test
+	public void testAddNewsWriteBehind() throws NewsAlreadyExistsException {
+
+		when(writeBehind.isEnabled()).thenReturn(true);
+		when(writeBehind.add(news)).thenReturn(news);
+
+		assertEquals(news, newsService.addNews(news));
+
+		verify(writeBehind, times(1)).add(news);
+		verify(newsRepository, times(0)).getOne(any());
+		verify(newsRepository, times(0)).save(any());
+
+	}
+
+	@Test
+	public void testUpdateNewsWriteBehind() throws NewsNotExistsException, VersionMismatchException {
+
+		// the body has no user nor reminder, the buffered news keeps the stored ones
+		UserProfile user = new UserProfile();
+		user.setUserId("johnsmith");
+		News stored = new News(news.getNewsId(), "stored title", "johnsmith", "stored description",
+				news.getPublishedAt(), "stored content", null, null, user, new Reminder(7, null, null));
+		when(writeBehind.isEnabled()).thenReturn(true);
+		when(newsRepository.findById(news.getNewsId())).thenReturn(Optional.of(stored));
+		when(writeBehind.update(any())).thenAnswer(invocation -> invocation.getArguments()[0]);
+
+		News buffered = newsService.updateNews(news);
+
+		assertEquals(news.getTitle(), buffered.getTitle());
+		assertEquals(news.getContent(), buffered.getContent());
+		assertEquals("johnsmith", buffered.getUser().getUserId());
+		assertEquals(7, buffered.getReminder().getReminderId());
+		verify(newsRepository, times(0)).getOne(any());
+		verify(newsRepository, times(0)).saveAndFlush(any());
+
+	}
+
+	@Test
+	@Rollback(true)
+	public void testConditionalUpdateBypassesWriteBehind() throws NewsNotExistsException, VersionMismatchException {
+
+		news.setVersion(3L);
+		when(writeBehind.isEnabled()).thenReturn(true);
+		when(newsRepository.updateNews(any())).thenReturn(1);
+		when(newsRepository.findById(news.getNewsId())).thenReturn(Optional.of(news));
+
+		newsService.updateNews(news);
+
+		verify(writeBehind, times(0)).update(any());
+		verify(newsRepository, times(1)).updateNews(news);
+
+	}
+
+	@Test
+	@Rollback(true)
+	public void testConditionalUpdateOfBufferedNewsFails() {
+
+		news.setVersion(3L);
+		when(writeBehind.isEnabled()).thenReturn(true);
+		when(writeBehind.pending(news.getNewsId())).thenReturn(NewsJournal.Entry.upsert(news));
+
+		assertThrows(VersionMismatchException.class, () -> newsService.updateNews(news));
+
+		verify(newsRepository, times(0)).updateNews(any());
+
+	}
+
+	@Test
+	public void testPatchNewsSuccess() throws NewsNotExistsException, VersionMismatchException {
+
+		Map<String, Object> changes = Collections.singletonMap("title", "sample title");
+		when(newsRepository.patchNews(news.getNewsId(), changes, null)).thenReturn(1);
+		when(newsRepository.findById(news.getNewsId())).thenReturn(Optional.of(news));
+
+		assertEquals(news, newsService.patchNews(news.getNewsId(), changes, null));
+
+		verify(newsRepository, times(1)).patchNews(news.getNewsId(), changes, null);
+		verify(newsRepository, times(0)).saveAndFlush(any());
+
+	}
+
+	@Test
+	public void testPatchNewsFailure() {
+
+		Map<String, Object> changes = Collections.singletonMap("title", "sample title");
+		when(newsRepository.patchNews(news.getNewsId(), changes, null)).thenReturn(0);
+
+		assertThrows(NewsNotExistsException.class, () -> newsService.patchNews(news.getNewsId(), changes, null));
+
+		verify(newsRepository, times(0)).findById(any());
+
+	}
+
+	@Test
+	public void testPatchNewsWriteBehind() throws NewsNotExistsException, VersionMismatchException {
+
+		String title = news.getTitle();
+		when(writeBehind.isEnabled()).thenReturn(true);
+		when(writeBehind.pending(news.getNewsId())).thenReturn(NewsJournal.Entry.upsert(news));
+		when(writeBehind.update(any())).thenAnswer(invocation -> invocation.getArguments()[0]);
+
+		News patched = newsService.patchNews(news.getNewsId(), Collections.singletonMap("title", "sample title"), null);
+
+		assertEquals("sample title", patched.getTitle());
+		assertEquals(news.getContent(), patched.getContent());
+		// the buffered news itself is left alone
+		assertEquals(title, news.getTitle());
+		verify(newsRepository, times(0)).patchNews(anyInt(), any(), any());
+
+	}
+
+	@Test
+	public void testGetNewsSeesBufferedWrite() throws NewsNotExistsException {
+
+		when(writeBehind.pending(news.getNewsId())).thenReturn(NewsJournal.Entry.upsert(news));
+
+		assertEquals(news, newsService.getNews(news.getNewsId()));
+
+		verify(newsRepository, times(0)).findById(any());
+
+	}
+
+	@Test
+	public void testGetNewsSeesBufferedDelete() {
+
+		when(writeBehind.pending(news.getNewsId())).thenReturn(NewsJournal.Entry.delete(news.getNewsId()));
+
+		assertThrows(NewsNotExistsException.class, () -> newsService.getNews(news.getNewsId()));
+
+		verify(newsRepository, times(0)).findById(any());
+
+	}
+
+	@Test
+	public void testGetAllNewsFlushesBufferedWritesFirst() {
+
+		when(newsRepository.findAll()).thenReturn(newsList);
+
+		assertEquals(newsList, newsService.getAllNews());
+
+		InOrder inOrder = inOrder(writeBehind, newsRepository);
+		inOrder.verify(writeBehind).flush();
+		inOrder.verify(newsRepository).findAll();
+
+	}
+
 }
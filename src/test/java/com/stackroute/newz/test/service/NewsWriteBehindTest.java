@@ -0,0 +1,212 @@
+package com.stackroute.newz.test.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.Reminder;
+import com.stackroute.newz.model.UserProfile;
+import com.stackroute.newz.repository.NewsRepository;
+import com.stackroute.newz.repository.ReminderRepository;
+import com.stackroute.newz.repository.UserProfileRepository;
+import com.stackroute.newz.service.NewsService;
+import com.stackroute.newz.service.NewsWriteBehindBuffer;
+import com.stackroute.newz.util.exception.NewsNotExistsException;
+
+/*
+ * In write-behind mode a news write is acknowledged once journaled, is seen by
+ * the reads at once, and reaches the database on flush, coalesced per newsId.
+ * The flush interval is long enough that only the test flushes.
+ */
+@SpringBootTest(properties = { "newz.news.write-behind.enabled=true",
+		"newz.news.write-behind.journal=target/news-write-behind-test.journal",
+		"newz.news.write-behind.flush-interval=1h" })
+@ActiveProfiles("test")
+class NewsWriteBehindTest {
+
+	private static final String JOURNAL = "target/news-write-behind-test.journal";
+
+	@Autowired
+	private NewsService newsService;
+	@Autowired
+	private NewsWriteBehindBuffer writeBehind;
+	@Autowired
+	private NewsRepository newsRepository;
+	@Autowired
+	private ReminderRepository reminderRepository;
+	@Autowired
+	private UserProfileRepository userProfileRepository;
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@BeforeEach
+	public void setUp() {
+		writeBehind.flush();
+		transactionTemplate.execute(status -> {
+			userProfileRepository.deleteAll();
+			newsRepository.deleteAll();
+			reminderRepository.deleteAll();
+			return null;
+		});
+	}
+
+	@Test
+	public void testBufferedNewsIsReadBeforeFlushAndWrittenOnFlush() throws Exception {
+
+		News added = newsService.addNews(news("first"));
+
+		assertTrue(added.getNewsId() > 0);
+		assertFalse(newsRepository.findById(added.getNewsId()).isPresent());
+		assertEquals("first", newsService.getNews(added.getNewsId()).getTitle());
+		assertTrue(Files.size(Paths.get(JOURNAL)) > 0);
+
+		writeBehind.flush();
+
+		assertEquals("first", newsRepository.findById(added.getNewsId()).get().getTitle());
+		assertEquals(0, writeBehind.getPendingCount());
+		assertEquals(0, Files.size(Paths.get(JOURNAL)));
+
+	}
+
+	@Test
+	public void testWritesOfOneNewsAreCoalesced() throws Exception {
+
+		News added = newsService.addNews(news("first"));
+		for (String title : new String[] { "second", "third" }) {
+			News update = news(title);
+			update.setNewsId(added.getNewsId());
+			newsService.updateNews(update);
+		}
+
+		assertEquals(1, writeBehind.getPendingCount());
+		assertEquals("third", newsService.getNews(added.getNewsId()).getTitle());
+
+		writeBehind.flush();
+
+		assertEquals("third", newsRepository.findById(added.getNewsId()).get().getTitle());
+
+	}
+
+	@Test
+	public void testBufferedDeleteHidesNews() throws Exception {
+
+		News added = newsService.addNews(news("first"));
+		writeBehind.flush();
+
+		newsService.deleteNews(added.getNewsId(), null);
+
+		assertThrows(NewsNotExistsException.class, () -> newsService.getNews(added.getNewsId()));
+		assertTrue(newsRepository.findById(added.getNewsId()).isPresent());
+
+		writeBehind.flush();
+
+		assertFalse(newsRepository.findById(added.getNewsId()).isPresent());
+
+	}
+
+	@Test
+	public void testListReadsSeeBufferedWrites() throws Exception {
+
+		News added = newsService.addNews(news("first"));
+
+		assertEquals(1, newsService.getAllNews().size());
+		assertEquals(added.getNewsId(), newsService.getAllNews().get(0).getNewsId());
+		assertEquals(0, writeBehind.getPendingCount());
+
+	}
+
+	@Test
+	public void testBufferedUpdateKeepsUserAndReminder() throws Exception {
+
+		News stored = transactionTemplate.execute(status -> {
+			UserProfile user = userProfileRepository
+					.save(new UserProfile("johnsmith", "John", "Smith", "1234567890", LocalDateTime.now(), null));
+			Reminder reminder = reminderRepository.save(new Reminder(0, LocalDateTime.now(), null));
+			return newsRepository.save(new News(0, "first", "johnsmith", "description", LocalDateTime.now(),
+					"content", null, null, user, reminder));
+		});
+		News update = news("second");
+		update.setNewsId(stored.getNewsId());
+
+		newsService.updateNews(update);
+		writeBehind.flush();
+
+		News updated = newsRepository.findWithUserAndReminderByNewsId(stored.getNewsId()).get();
+		assertEquals("second", updated.getTitle());
+		assertEquals("johnsmith", updated.getUser().getUserId());
+		assertEquals(stored.getReminder().getReminderId(), updated.getReminder().getReminderId());
+
+	}
+
+	@Test
+	public void testRejectedWriteDoesNotHoldBackTheOthers() throws Exception {
+
+		Path rejectedJournal = Paths.get(JOURNAL + ".rejected");
+		long rejectedSize = Files.exists(rejectedJournal) ? Files.size(rejectedJournal) : 0;
+		int rejectedCount = writeBehind.getRejectedCount();
+		News good = newsService.addNews(news("good"));
+		News bad = newsService.addNews(new News(0, "bad", "nobody", "description", LocalDateTime.now(), "content",
+				null, null, new UserProfile("nobody", null, null, null, null, null), null));
+
+		writeBehind.flush();
+
+		assertTrue(newsRepository.findById(good.getNewsId()).isPresent());
+		assertFalse(newsRepository.findById(bad.getNewsId()).isPresent());
+		assertEquals(0, writeBehind.getPendingCount());
+		assertEquals(rejectedCount + 1, writeBehind.getRejectedCount());
+		assertTrue(Files.size(rejectedJournal) > rejectedSize);
+		assertEquals(1, newsService.getAllNews().size());
+
+	}
+
+	@Test
+	public void testConcurrentWritesAreAllJournaled() throws Exception {
+
+		ExecutorService threads = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<News>> added = new ArrayList<>();
+			for (int i = 0; i < 200; i++) {
+				String title = "news " + i;
+				added.add(threads.submit(() -> newsService.addNews(news(title))));
+			}
+			for (Future<News> news : added) {
+				news.get();
+			}
+		} finally {
+			threads.shutdown();
+		}
+
+		assertEquals(200, writeBehind.getPendingCount());
+
+		writeBehind.flush();
+
+		assertEquals(200, newsRepository.count());
+		assertEquals(0, Files.size(Paths.get(JOURNAL)));
+
+	}
+
+	private News news(String title) {
+		return new News(0, title, "johnsmith", "description", LocalDateTime.now(), "content", null, null, null,
+				null);
+	}
+
+}
@@ -0,0 +1,140 @@
+package com.stackroute.newz.test.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.stackroute.newz.config.ReadWriteRoutingDataSource;
+import com.stackroute.newz.config.ReadWriteRoutingFilter;
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.repository.NewsRepository;
+import com.stackroute.newz.service.NewsService;
+import com.stackroute.newz.util.exception.NewsNotExistsException;
+
+/*
+ * Routing between two in-memory databases, one standing for the primary and one
+ * for the replica. Replication is not simulated: a news written to the primary
+ * is only seen by the reads that are routed there. See ReplicaLagTest for a
+ * replica that lags behind.
+ */
+@SpringBootTest(properties = {
+		"spring.datasource.url=" + ReadReplicaRoutingTest.PRIMARY_URL,
+		"newz.datasource.replica.jdbc-url=" + ReadReplicaRoutingTest.REPLICA_URL,
+		"newz.datasource.replica.username=sa" })
+@ActiveProfiles("test")
+class ReadReplicaRoutingTest {
+
+	static final String PRIMARY_URL = "jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1";
+	static final String REPLICA_URL = "jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1";
+
+	@Autowired
+	private NewsService newsService;
+	@Autowired
+	private NewsRepository newsRepository;
+	@Autowired
+	private ReadWriteRoutingFilter readWriteRoutingFilter;
+
+	private JdbcTemplate primary;
+	private JdbcTemplate replica;
+
+	@BeforeEach
+	public void setUp() {
+		primary = new JdbcTemplate(new DriverManagerDataSource(PRIMARY_URL, "sa", ""));
+		replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+		primary.update("delete from news");
+
+		// same schema on the replica, without any row
+		replica.execute("drop all objects");
+		for (String statement : primary.queryForList("script nodata", String.class)) {
+			if (!statement.startsWith("--")) {
+				replica.execute(statement);
+			}
+		}
+		ReadWriteRoutingDataSource.release();
+	}
+
+	@AfterEach
+	public void tearDown() {
+		ReadWriteRoutingDataSource.release();
+	}
+
+	@Test
+	public void testWritesGoToPrimary() {
+
+		newsRepository.save(news("written"));
+
+		assertEquals(1, primary.queryForObject("select count(*) from news", Integer.class));
+		assertEquals(0, replica.queryForObject("select count(*) from news", Integer.class));
+
+	}
+
+	@Test
+	public void testReadOnlyServiceMethodsReadFromReplica() throws Exception {
+
+		newsRepository.save(news("written"));
+		ReadWriteRoutingDataSource.release();
+
+		assertTrue(newsService.getAllNews().isEmpty());
+		assertTrue(newsService.getNewsPage(null, 10).getNews().isEmpty());
+
+		replica.update("insert into news (news_id, title, author, version) values (1000, 'replicated', 'johnsmith', 0)");
+
+		assertEquals("replicated", newsService.getAllNews().get(0).getTitle());
+
+	}
+
+	@Test
+	public void testMissOnReplicaIsNotRemembered() throws Exception {
+
+		// not replicated yet
+		assertThrows(NewsNotExistsException.class, () -> newsService.getNews(1000));
+
+		replica.update("insert into news (news_id, title, author, version) values (1000, 'replicated', 'johnsmith', 0)");
+
+		assertEquals("replicated", newsService.getNews(1000).getTitle());
+
+	}
+
+	@Test
+	public void testReadsAfterWriteStayOnPrimary() {
+
+		newsRepository.save(news("written"));
+
+		assertTrue(ReadWriteRoutingDataSource.isPinnedToPrimary());
+		assertEquals("written", newsService.getAllNews().get(0).getTitle());
+
+	}
+
+	@Test
+	public void testPinIsReleasedAtEndOfRequest() throws Exception {
+
+		readWriteRoutingFilter.doFilter(new MockHttpServletRequest(), new MockHttpServletResponse(),
+				(request, response) -> {
+					newsRepository.save(news("written"));
+					assertEquals(1, newsService.getAllNews().size());
+				});
+
+		assertFalse(ReadWriteRoutingDataSource.isPinnedToPrimary());
+		assertTrue(newsService.getAllNews().isEmpty());
+
+	}
+
+	private News news(String title) {
+		return new News(0, title, "johnsmith", "description", LocalDateTime.now(), "content", null, null, null, null);
+	}
+
+}
@@ -0,0 +1,217 @@
+package com.stackroute.newz.test.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+
+import com.stackroute.newz.config.ReminderDeliveryProperties;
+import com.stackroute.newz.model.Reminder;
+import com.stackroute.newz.repository.ReminderRepository;
+import com.stackroute.newz.service.ReminderDeliveryPipeline;
+import com.stackroute.newz.service.ReminderNotifier;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ReminderDeliveryPipelineTest {
+
+	@Mock
+	private ReminderRepository reminderRepository;
+	@Mock
+	private ReminderNotifier notifier;
+	@Spy
+	private ReminderDeliveryProperties properties = new ReminderDeliveryProperties();
+	@Spy
+	private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	@Spy
+	private ReminderEngineTest.TestClock clock = new ReminderEngineTest.TestClock();
+	@InjectMocks
+	private ReminderDeliveryPipeline pipeline;
+
+	private final List<List<Reminder>> batches = Collections.synchronizedList(new ArrayList<>());
+	private final AtomicInteger marked = new AtomicInteger();
+
+	@BeforeEach
+	public void setUp() {
+
+		MockitoAnnotations.initMocks(this);
+		properties.setWorkers(2);
+		properties.setBatchSize(10);
+		properties.setQueueCapacity(100);
+		properties.setMaxAttempts(3);
+		properties.setRetryDelay(Duration.ofMillis(10));
+		doAnswer(invocation -> {
+			@SuppressWarnings("unchecked")
+			List<Reminder> batch = (List<Reminder>) invocation.getArguments()[0];
+			batches.add(new ArrayList<>(batch));
+			return null;
+		}).when(notifier).notifyBatch(anyListOf(Reminder.class));
+		doAnswer(invocation -> marked.incrementAndGet()).when(reminderRepository).markDelivered(any(), any());
+
+	}
+
+	@AfterEach
+	public void tearDown() {
+		pipeline.stop();
+	}
+
+	@Test
+	public void testDeliversInBatchesAndMarksEachBatchOnce() throws InterruptedException {
+
+		pipeline.start();
+		pipeline.submit(reminders(1, 25));
+
+		awaitCount("reminder.delivery.delivered", 25);
+		int delivered = 0;
+		for (List<Reminder> batch : batches) {
+			assertTrue(batch.size() <= 10);
+			delivered += batch.size();
+		}
+		assertEquals(25, delivered);
+		await(() -> marked.get() == batches.size());
+		verify(reminderRepository, times(batches.size())).markDelivered(any(), any());
+		assertEquals(25, meterRegistry.timer("reminder.delivery.lag").count());
+
+	}
+
+	@Test
+	public void testFailedBatchIsRetried() throws InterruptedException {
+
+		doThrow(new IllegalStateException("down")).doNothing().when(notifier).notifyBatch(anyListOf(Reminder.class));
+		pipeline.start();
+		pipeline.submit(reminders(1, 1));
+
+		awaitCount("reminder.delivery.delivered", 1);
+		await(() -> marked.get() == 1);
+		verify(notifier, times(2)).notifyBatch(anyListOf(Reminder.class));
+		verify(reminderRepository, times(1)).markDelivered(Arrays.asList(1), LocalDateTime.now(clock));
+		assertEquals(1, meterRegistry.counter("reminder.delivery.retried").count());
+
+	}
+
+	@Test
+	public void testReminderIsGivenUpAfterMaxAttempts() throws InterruptedException {
+
+		doThrow(new IllegalStateException("down")).when(notifier).notifyBatch(anyListOf(Reminder.class));
+		pipeline.start();
+		pipeline.submit(reminders(1, 1));
+
+		awaitCount("reminder.delivery.failed", 1);
+		verify(notifier, times(3)).notifyBatch(anyListOf(Reminder.class));
+		verify(reminderRepository, never()).markDelivered(any(), any());
+
+	}
+
+	@Test
+	public void testSubmitWaitsWhileQueueIsFull() throws InterruptedException {
+
+		properties.setWorkers(1);
+		properties.setQueueCapacity(2);
+		CountDownLatch busy = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		doAnswer(invocation -> {
+			busy.countDown();
+			release.await();
+			return null;
+		}).doNothing().when(notifier).notifyBatch(anyListOf(Reminder.class));
+		pipeline.start();
+
+		// the worker holds the first reminder, the queue takes two more
+		pipeline.submit(reminders(1, 1));
+		assertTrue(busy.await(5, TimeUnit.SECONDS));
+		Thread producer = new Thread(() -> pipeline.submit(reminders(2, 3)));
+		producer.start();
+		producer.join(200);
+
+		assertTrue(producer.isAlive());
+		assertEquals(2, meterRegistry.get("reminder.delivery.queue.size").gauge().value());
+
+		release.countDown();
+		producer.join(5000);
+		assertFalse(producer.isAlive());
+		awaitCount("reminder.delivery.delivered", 4);
+
+	}
+
+	@Test
+	public void testRetryWaitsForRoomWithoutBlocking() throws InterruptedException {
+
+		properties.setWorkers(1);
+		properties.setQueueCapacity(1);
+		properties.setRetryDelay(Duration.ofMillis(50));
+		CountDownLatch busy = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		doThrow(new IllegalStateException("down")).doAnswer(invocation -> {
+			busy.countDown();
+			release.await();
+			return null;
+		}).doNothing().when(notifier).notifyBatch(anyListOf(Reminder.class));
+		pipeline.start();
+
+		pipeline.submit(reminders(1, 1));
+		awaitCount("reminder.delivery.retried", 1);
+		// the worker holds the second reminder and the third fills the queue
+		pipeline.submit(reminders(2, 1));
+		assertTrue(busy.await(5, TimeUnit.SECONDS));
+		pipeline.submit(reminders(3, 1));
+		Thread.sleep(300);
+
+		// the first one came back to a full queue, it is still waiting to be retried
+		assertEquals(1, meterRegistry.get("reminder.delivery.retry.size").gauge().value());
+		assertEquals(1, meterRegistry.get("reminder.delivery.queue.size").gauge().value());
+
+		release.countDown();
+		awaitCount("reminder.delivery.delivered", 3);
+		assertEquals(0, meterRegistry.get("reminder.delivery.retry.size").gauge().value());
+
+	}
+
+	/*
+	 * Delivery is asynchronous, wait for the workers
+	 */
+	private void await(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+	}
+
+	private void awaitCount(String counter, int expected) throws InterruptedException {
+		await(() -> meterRegistry.counter(counter).count() >= expected);
+		assertEquals(expected, meterRegistry.counter(counter).count());
+	}
+
+	private List<Reminder> reminders(int firstId, int count) {
+		List<Reminder> reminders = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			reminders.add(new Reminder(firstId + i, LocalDateTime.now(clock), null));
+		}
+		return reminders;
+	}
+
+}
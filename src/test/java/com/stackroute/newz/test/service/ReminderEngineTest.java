@@ -0,0 +1,545 @@
+package com.stackroute.newz.test.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.stackroute.newz.config.ReminderEngineProperties;
+import com.stackroute.newz.model.Reminder;
+import com.stackroute.newz.repository.ReminderRepository;
+import com.stackroute.newz.service.ReminderDelivery;
+import com.stackroute.newz.service.ReminderEngine;
+import com.stackroute.newz.service.ReminderOwnership;
+
+class ReminderEngineTest {
+
+	@Mock
+	private ReminderRepository reminderRepository;
+	@Mock
+	private ReminderDelivery delivery;
+	@Mock
+	private ReminderOwnership ownership;
+	@Spy
+	private ReminderEngineProperties properties = new ReminderEngineProperties();
+	@Spy
+	private TestClock clock = new TestClock();
+	@InjectMocks
+	private ReminderEngine reminderEngine;
+
+	private static final Comparator<Reminder> BY_SCHEDULE = Comparator.comparing(Reminder::getSchedule)
+			.thenComparing(Reminder::getReminderId);
+	private static final Comparator<Reminder> BY_UPDATE = Comparator.comparing(Reminder::getUpdatedAt)
+			.thenComparing(Reminder::getReminderId);
+
+	private LocalDateTime start;
+
+	/*
+	 * The reminder table, as the instances share it
+	 */
+	private final Map<Integer, Reminder> rows = new HashMap<>();
+
+	@BeforeEach
+	@SuppressWarnings("unchecked")
+	public void setUp() {
+
+		MockitoAnnotations.initMocks(this);
+		// a small wheel, 4 slots of 1s on 3 levels cover 64s only
+		properties.setWheelSize(4);
+		properties.setLevels(3);
+		properties.setWindow(Duration.ofHours(1));
+		reminderEngine.init();
+		start = LocalDateTime.now(clock);
+		when(reminderRepository.findDue(any(), any(), any())).thenAnswer(invocation -> {
+			LocalDateTime after = (LocalDateTime) invocation.getArguments()[0];
+			LocalDateTime before = (LocalDateTime) invocation.getArguments()[1];
+			return page(BY_SCHEDULE, reminder -> reminder.getSchedule().isAfter(after)
+					&& !reminder.getSchedule().isAfter(before), (Pageable) invocation.getArguments()[2]);
+		});
+		when(reminderRepository.findDueFrom(any(), anyInt(), any(), any())).thenAnswer(invocation -> {
+			Reminder position = new Reminder((Integer) invocation.getArguments()[1],
+					(LocalDateTime) invocation.getArguments()[0], null);
+			LocalDateTime before = (LocalDateTime) invocation.getArguments()[2];
+			return page(BY_SCHEDULE, reminder -> BY_SCHEDULE.compare(reminder, position) > 0
+					&& !reminder.getSchedule().isAfter(before), (Pageable) invocation.getArguments()[3]);
+		});
+		when(reminderRepository.findLastUpdatedAt()).thenAnswer(invocation -> rows.values().stream()
+				.map(Reminder::getUpdatedAt).max(Comparator.naturalOrder()).orElse(null));
+		when(reminderRepository.findChangedAfter(any(), any())).thenAnswer(invocation -> {
+			LocalDateTime since = (LocalDateTime) invocation.getArguments()[0];
+			return page(BY_UPDATE, reminder -> reminder.getUpdatedAt().isAfter(since),
+					(Pageable) invocation.getArguments()[1]);
+		});
+		when(reminderRepository.findChangedFrom(any(), anyInt(), any())).thenAnswer(invocation -> {
+			Reminder position = new Reminder((Integer) invocation.getArguments()[1], null, null);
+			position.setUpdatedAt((LocalDateTime) invocation.getArguments()[0]);
+			return page(BY_UPDATE, reminder -> BY_UPDATE.compare(reminder, position) > 0,
+					(Pageable) invocation.getArguments()[2]);
+		});
+		when(reminderRepository.findUndelivered(any())).thenAnswer(invocation -> {
+			Collection<Integer> reminderIds = (Collection<Integer>) invocation.getArguments()[0];
+			return rows.values().stream().filter(
+					reminder -> reminderIds.contains(reminder.getReminderId()) && reminder.getDeliveredAt() == null)
+					.collect(Collectors.toList());
+		});
+		when(ownership.owns(anyInt())).thenReturn(true);
+
+	}
+
+	@Test
+	public void testRefreshLoadsWindowAndFiresWhenDue() {
+
+		Reminder soon = stored(new Reminder(1, start.plusSeconds(5), null));
+		Reminder later = stored(new Reminder(2, start.plusMinutes(30), null));
+
+		reminderEngine.refreshWindow();
+		assertEquals(2, reminderEngine.getPendingCount());
+
+		advanceAndTick(Duration.ofSeconds(4));
+		verify(delivery, never()).submit(any());
+
+		advanceAndTick(Duration.ofSeconds(1));
+		verify(delivery, times(1)).submit(Arrays.asList(soon));
+		assertEquals(1, reminderEngine.getPendingCount());
+
+		advanceAndTick(Duration.ofMinutes(30));
+		verify(delivery, times(1)).submit(Arrays.asList(later));
+		assertEquals(0, reminderEngine.getPendingCount());
+
+	}
+
+	@Test
+	public void testReminderBeyondWheelSpanFiresOnTime() {
+
+		reminderEngine.refreshWindow();
+		Reminder reminder = stored(new Reminder(1, start.plusMinutes(50), null));
+		reminderEngine.schedule(reminder);
+
+		advanceAndTick(Duration.ofMinutes(50).minusSeconds(1));
+		verify(delivery, never()).submit(any());
+
+		advanceAndTick(Duration.ofSeconds(1));
+		verify(delivery, times(1)).submit(Arrays.asList(reminder));
+
+	}
+
+	@Test
+	public void testScheduleBeyondWindowIsLeftToRefresh() {
+
+		reminderEngine.refreshWindow();
+		reminderEngine.schedule(new Reminder(1, start.plusHours(2), null));
+
+		assertEquals(0, reminderEngine.getPendingCount());
+
+	}
+
+	@Test
+	public void testUpdateMovesReminder() {
+
+		reminderEngine.refreshWindow();
+		reminderEngine.schedule(stored(new Reminder(1, start.plusSeconds(10), null)));
+		Reminder moved = stored(new Reminder(1, start.plusSeconds(20), null));
+		reminderEngine.schedule(moved);
+
+		advanceAndTick(Duration.ofSeconds(10));
+		verify(delivery, never()).submit(any());
+
+		advanceAndTick(Duration.ofSeconds(10));
+		verify(delivery, times(1)).submit(Arrays.asList(moved));
+
+	}
+
+	@Test
+	public void testDeliveredReminderIsNotRescheduled() {
+
+		reminderEngine.refreshWindow();
+		reminderEngine.schedule(new Reminder(1, start.plusSeconds(10), null));
+		Reminder delivered = new Reminder(1, start.minusMinutes(1), null);
+		delivered.setDeliveredAt(start);
+		reminderEngine.schedule(delivered);
+
+		advanceAndTick(Duration.ofSeconds(10));
+
+		verify(delivery, never()).submit(any());
+		assertEquals(0, reminderEngine.getPendingCount());
+
+	}
+
+	@Test
+	public void testScheduleAndCancelWaitForCommit() {
+
+		reminderEngine.refreshWindow();
+		TransactionSynchronizationManager.initSynchronization();
+		try {
+			reminderEngine.schedule(new Reminder(1, start.plusSeconds(5), null));
+			assertEquals(0, reminderEngine.getPendingCount());
+			TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+			assertEquals(1, reminderEngine.getPendingCount());
+		} finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+
+		TransactionSynchronizationManager.initSynchronization();
+		try {
+			reminderEngine.cancel(1);
+			assertEquals(1, reminderEngine.getPendingCount());
+			// rolled back, the reminder stays
+		} finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+		assertEquals(1, reminderEngine.getPendingCount());
+
+	}
+
+	@Test
+	public void testCancelledReminderDoesNotFire() {
+
+		reminderEngine.refreshWindow();
+		reminderEngine.schedule(new Reminder(1, start.plusSeconds(10), null));
+		reminderEngine.cancel(1);
+
+		advanceAndTick(Duration.ofSeconds(10));
+
+		verify(delivery, never()).submit(any());
+		assertEquals(0, reminderEngine.getPendingCount());
+
+	}
+
+	@Test
+	public void testReminderDeletedDuringRefreshIsNotAdded() {
+
+		Reminder deleted = new Reminder(1, start.plusSeconds(10), null);
+		doAnswer(invocation -> {
+			reminderEngine.cancel(1);
+			return Arrays.asList(deleted);
+		}).when(reminderRepository).findDue(any(), any(), any());
+
+		reminderEngine.refreshWindow();
+
+		assertEquals(0, reminderEngine.getPendingCount());
+
+	}
+
+	@Test
+	public void testRemindersDueTogetherAreSubmittedTogether() {
+
+		reminderEngine.refreshWindow();
+		Reminder first = stored(new Reminder(1, start.plusSeconds(5), null));
+		Reminder second = stored(new Reminder(2, start.plusSeconds(5), null));
+		reminderEngine.schedule(first);
+		reminderEngine.schedule(second);
+
+		advanceAndTick(Duration.ofSeconds(5));
+
+		verify(delivery, times(1)).submit(Arrays.asList(first, second));
+
+	}
+
+	@Test
+	public void testReminderOwnedElsewhereIsNotFired() {
+
+		reminderEngine.refreshWindow();
+		Reminder mine = stored(new Reminder(1, start.plusSeconds(5), null));
+		Reminder other = stored(new Reminder(2, start.plusSeconds(5), null));
+		reminderEngine.schedule(mine);
+		reminderEngine.schedule(other);
+		when(ownership.owns(2)).thenReturn(false);
+
+		advanceAndTick(Duration.ofSeconds(5));
+
+		verify(delivery, times(1)).submit(Arrays.asList(mine));
+		assertEquals(0, reminderEngine.getPendingCount());
+
+	}
+
+	@Test
+	public void testReminderAddedElsewhereIsLoadedByNextRefresh() {
+
+		reminderEngine.refreshWindow();
+		Reminder added = stored(new Reminder(1, start.plusSeconds(40), null));
+
+		clock.advance(properties.getRefreshInterval());
+		reminderEngine.refreshWindow();
+		assertEquals(1, reminderEngine.getPendingCount());
+
+		advanceAndTick(Duration.ofSeconds(10));
+		verify(delivery, times(1)).submit(Arrays.asList(added));
+
+	}
+
+	@Test
+	public void testReminderDeletedElsewhereIsNotFired() {
+
+		stored(new Reminder(1, start.plusSeconds(5), null));
+		stored(new Reminder(2, start.plusSeconds(50), null));
+		reminderEngine.refreshWindow();
+		rows.clear();
+
+		// a delete leaves nothing for the refresh to read
+		clock.advance(properties.getRefreshInterval());
+		reminderEngine.refreshWindow();
+		assertEquals(2, reminderEngine.getPendingCount());
+
+		// both are read again when due
+		advanceAndTick(Duration.ofSeconds(20));
+		verify(delivery, never()).submit(any());
+		assertEquals(0, reminderEngine.getPendingCount());
+
+	}
+
+	@Test
+	public void testReminderMovedBeyondWindowElsewhereIsTakenOff() {
+
+		stored(new Reminder(1, start.plusSeconds(40), null));
+		reminderEngine.refreshWindow();
+		stored(new Reminder(1, start.plusHours(3), null));
+
+		clock.advance(properties.getRefreshInterval());
+		reminderEngine.refreshWindow();
+
+		assertEquals(0, reminderEngine.getPendingCount());
+
+	}
+
+	@Test
+	public void testReminderDeliveredElsewhereIsTakenOff() {
+
+		stored(new Reminder(1, start.plusSeconds(40), null));
+		reminderEngine.refreshWindow();
+		Reminder delivered = new Reminder(1, start.plusSeconds(40), null);
+		delivered.setDeliveredAt(start);
+		stored(delivered);
+
+		clock.advance(properties.getRefreshInterval());
+		reminderEngine.refreshWindow();
+
+		assertEquals(0, reminderEngine.getPendingCount());
+
+	}
+
+	@Test
+	public void testReminderEnteringWindowIsLoaded() {
+
+		Reminder beyond = stored(new Reminder(1, start.plusHours(1).plusSeconds(20), null));
+		// written long before, only its schedule brings it in
+		beyond.setUpdatedAt(LocalDateTime.now().minusDays(1));
+		reminderEngine.refreshWindow();
+		assertEquals(0, reminderEngine.getPendingCount());
+
+		clock.advance(properties.getRefreshInterval());
+		reminderEngine.refreshWindow();
+
+		assertEquals(1, reminderEngine.getPendingCount());
+
+	}
+
+	@Test
+	public void testRefreshReadsPageByPage() {
+
+		properties.setRefreshPageSize(2);
+		for (int i = 1; i <= 5; i++) {
+			stored(new Reminder(i, start.plusSeconds(10), null));
+		}
+		reminderEngine.refreshWindow();
+		assertEquals(5, reminderEngine.getPendingCount());
+		for (int i = 1; i <= 5; i++) {
+			stored(new Reminder(i, start.plusHours(3), null));
+		}
+
+		clock.advance(properties.getRefreshInterval());
+		reminderEngine.refreshWindow();
+
+		assertEquals(0, reminderEngine.getPendingCount());
+		verify(reminderRepository, times(2)).findDueFrom(any(), anyInt(), any(), any());
+
+	}
+
+	@Test
+	public void testReminderMovedElsewhereFiresAtItsNewSchedule() {
+
+		stored(new Reminder(1, start.plusSeconds(5), null));
+		reminderEngine.refreshWindow();
+		Reminder moved = stored(new Reminder(1, start.plusSeconds(20), null));
+
+		advanceAndTick(Duration.ofSeconds(5));
+		verify(delivery, never()).submit(any());
+		assertEquals(1, reminderEngine.getPendingCount());
+
+		advanceAndTick(Duration.ofSeconds(15));
+		verify(delivery, times(1)).submit(Arrays.asList(moved));
+
+	}
+
+	@Test
+	public void testFiredReminderIsNotLoadedAgainBeforeDelivery() {
+
+		Reminder reminder = stored(new Reminder(1, start.plusSeconds(5), null));
+		reminderEngine.refreshWindow();
+		advanceAndTick(Duration.ofSeconds(5));
+		verify(delivery, times(1)).submit(Arrays.asList(reminder));
+
+		// still undelivered when the next refresh reads it
+		clock.advance(properties.getRefreshInterval());
+		reminderEngine.refreshWindow();
+		advanceAndTick(Duration.ofSeconds(1));
+
+		assertEquals(0, reminderEngine.getPendingCount());
+		verify(delivery, times(1)).submit(any());
+
+	}
+
+	@Test
+	public void testDueRemindersAreKeptWhenTheyCannotBeRead() {
+
+		Reminder reminder = stored(new Reminder(1, start.plusSeconds(5), null));
+		reminderEngine.refreshWindow();
+		doThrow(new IllegalStateException("database down")).when(reminderRepository).findUndelivered(any());
+
+		advanceAndTick(Duration.ofSeconds(5));
+		verify(delivery, never()).submit(any());
+		assertEquals(1, reminderEngine.getPendingCount());
+
+		doReturn(Arrays.asList(reminder)).when(reminderRepository).findUndelivered(any());
+		advanceAndTick(Duration.ofSeconds(1));
+		verify(delivery, times(1)).submit(Arrays.asList(reminder));
+
+	}
+
+	@Test
+	public void testDueRemindersAreKeptWhenOwnershipCannotBeChecked() {
+
+		Reminder reminder = stored(new Reminder(1, start.plusSeconds(5), null));
+		reminderEngine.refreshWindow();
+		when(ownership.owns(1)).thenThrow(new IllegalStateException("leases unknown")).thenReturn(true);
+
+		advanceAndTick(Duration.ofSeconds(5));
+		verify(delivery, never()).submit(any());
+		assertEquals(1, reminderEngine.getPendingCount());
+
+		advanceAndTick(Duration.ofSeconds(1));
+		verify(delivery, times(1)).submit(Arrays.asList(reminder));
+
+	}
+
+	@Test
+	public void testTickKeepsRunningAfterAFailure() throws InterruptedException {
+
+		properties.setTick(Duration.ofMillis(10));
+		Reminder first = stored(new Reminder(1, start.plusSeconds(5), null));
+		Reminder second = stored(new Reminder(2, start.plusSeconds(6), null));
+		List<List<Reminder>> submitted = new CopyOnWriteArrayList<>();
+		doAnswer(invocation -> {
+			@SuppressWarnings("unchecked")
+			List<Reminder> due = (List<Reminder>) invocation.getArguments()[0];
+			submitted.add(due);
+			if (submitted.size() == 1) {
+				throw new IllegalStateException("delivery down");
+			}
+			return null;
+		}).when(delivery).submit(any());
+		clock.advance(Duration.ofSeconds(5));
+
+		reminderEngine.start();
+		try {
+			awaitSubmitted(submitted, 1);
+			clock.advance(Duration.ofSeconds(1));
+			awaitSubmitted(submitted, 2);
+		} finally {
+			reminderEngine.stop();
+		}
+
+		assertEquals(Arrays.asList(Arrays.asList(first), Arrays.asList(second)), submitted);
+
+	}
+
+	/*
+	 * The engine ticks on its own thread once started
+	 */
+	private void awaitSubmitted(List<List<Reminder>> submitted, int count) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (submitted.size() < count && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+	}
+
+	/*
+	 * Write the reminder to the table, stamped as its entity callback would
+	 */
+	private Reminder stored(Reminder reminder) {
+		reminder.setUpdatedAt(LocalDateTime.now());
+		rows.put(reminder.getReminderId(), reminder);
+		return reminder;
+	}
+
+	private List<Reminder> page(Comparator<Reminder> order, Predicate<Reminder> filter, Pageable pageable) {
+		return rows.values().stream().filter(filter).sorted(order).limit(pageable.getPageSize())
+				.collect(Collectors.toList());
+	}
+
+	private void advanceAndTick(Duration duration) {
+		clock.advance(duration);
+		reminderEngine.tick();
+	}
+
+	/*
+	 * Clock that only moves when told to
+	 */
+	static class TestClock extends Clock {
+
+		private volatile Instant now = Instant.parse("2026-01-01T00:00:00Z");
+
+		void advance(Duration duration) {
+			now = now.plus(duration);
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Instant instant() {
+			return now;
+		}
+
+	}
+
+}
@@ -0,0 +1,308 @@
+package com.stackroute.newz.test.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.TypeExcludeFilter;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.type.classreading.MetadataReader;
+import org.springframework.core.type.classreading.MetadataReaderFactory;
+
+import com.stackroute.newz.NewzApplication;
+import com.stackroute.newz.config.ReminderEngineProperties;
+import com.stackroute.newz.model.Reminder;
+import com.stackroute.newz.repository.ReminderRepository;
+import com.stackroute.newz.service.ReminderEngine;
+import com.stackroute.newz.service.ReminderLeaseManager;
+import com.stackroute.newz.service.ReminderNotifier;
+import com.stackroute.newz.service.ReminderService;
+
+/*
+ * Two instances of the application against one in-memory database. Every bucket
+ * has to be held by exactly one of them, whoever joins or leaves, and every due
+ * reminder has to be fired once, wherever it was written.
+ */
+class ReminderLeaseClusterTest {
+
+	private static final int BUCKETS = 8;
+	private static final AtomicInteger DATABASES = new AtomicInteger();
+
+	private final ReminderEngineTest.TestClock clock = new ReminderEngineTest.TestClock();
+	private final List<String> fired = Collections.synchronizedList(new ArrayList<>());
+	private final List<ConfigurableApplicationContext> nodes = new ArrayList<>();
+
+	private String url;
+
+	@BeforeEach
+	public void setUp() {
+		url = "jdbc:h2:mem:leases" + DATABASES.incrementAndGet() + ";DB_CLOSE_DELAY=-1";
+	}
+
+	@AfterEach
+	public void tearDown() {
+		for (ConfigurableApplicationContext node : nodes) {
+			node.close();
+		}
+	}
+
+	@Test
+	public void testJoiningNodeTakesItsShare() {
+
+		ConfigurableApplicationContext a = start("a");
+		leases(a).heartbeat();
+		assertEquals(BUCKETS, leases(a).getOwnedBuckets().size());
+
+		ConfigurableApplicationContext b = start("b");
+		leases(b).heartbeat();
+		// a still holds every lease
+		assertEquals(0, leases(b).getOwnedBuckets().size());
+		assertExactlyOneOwner(a, b);
+
+		leases(a).heartbeat();
+		leases(b).heartbeat();
+
+		assertEquals(BUCKETS / 2, leases(a).getOwnedBuckets().size());
+		assertEquals(BUCKETS / 2, leases(b).getOwnedBuckets().size());
+		assertExactlyOneOwner(a, b);
+
+	}
+
+	@Test
+	public void testStoppedNodeHandsItsBucketsOver() {
+
+		ConfigurableApplicationContext a = start("a");
+		ConfigurableApplicationContext b = start("b");
+		balance(a, b);
+
+		b.close();
+		leases(a).heartbeat();
+
+		assertEquals(BUCKETS, leases(a).getOwnedBuckets().size());
+
+	}
+
+	@Test
+	public void testBucketsOfSilentNodeAreTakenOverAfterExpiry() {
+
+		ConfigurableApplicationContext a = start("a");
+		ConfigurableApplicationContext b = start("b");
+		balance(a, b);
+
+		// b stops sending heartbeats, its leases run out
+		clock.advance(Duration.ofSeconds(20));
+		leases(a).heartbeat();
+		assertEquals(BUCKETS / 2, leases(a).getOwnedBuckets().size());
+
+		clock.advance(Duration.ofSeconds(11));
+		leases(a).heartbeat();
+
+		assertEquals(BUCKETS, leases(a).getOwnedBuckets().size());
+		assertEquals(0, leases(b).getOwnedBuckets().size());
+		assertExactlyOneOwner(a, b);
+
+	}
+
+	@Test
+	public void testEveryDueReminderIsFiredOnce() throws InterruptedException {
+
+		ConfigurableApplicationContext a = start("a");
+		ConfigurableApplicationContext b = start("b");
+		balance(a, b);
+
+		LocalDateTime due = LocalDateTime.now(clock).plusSeconds(5);
+		ReminderRepository reminderRepository = a.getBean(ReminderRepository.class);
+		for (int i = 0; i < 40; i++) {
+			reminderRepository.save(new Reminder(0, due, null));
+		}
+		a.getBean(ReminderEngine.class).refreshWindow();
+		b.getBean(ReminderEngine.class).refreshWindow();
+
+		clock.advance(Duration.ofSeconds(5));
+		a.getBean(ReminderEngine.class).tick();
+		b.getBean(ReminderEngine.class).tick();
+		awaitFired(40);
+
+		Set<Integer> ids = new HashSet<>();
+		Set<String> firingNodes = new HashSet<>();
+		for (String event : fired) {
+			String[] parts = event.split(":");
+			firingNodes.add(parts[0]);
+			assertTrue(ids.add(Integer.valueOf(parts[1])), "fired twice: " + event);
+		}
+		assertEquals(40, ids.size());
+		assertEquals(2, firingNodes.size());
+		awaitDelivered(reminderRepository, 40);
+
+	}
+
+	@Test
+	public void testWritesOnOneNodeReachTheOther() throws Exception {
+
+		ConfigurableApplicationContext a = start("a");
+		ConfigurableApplicationContext b = start("b");
+		balance(a, b);
+		ReminderService reminderService = a.getBean(ReminderService.class);
+		Duration refreshInterval = b.getBean(ReminderEngineProperties.class).getRefreshInterval();
+
+		LocalDateTime due = LocalDateTime.now(clock).plus(refreshInterval).plusSeconds(10);
+		List<Integer> ofB = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			int reminderId = reminderService.addReminder(new Reminder(0, due, null)).getReminderId();
+			if (leases(b).owns(reminderId)) {
+				ofB.add(reminderId);
+			}
+		}
+		assertTrue(ofB.size() >= 3, ofB.toString());
+		a.getBean(ReminderEngine.class).refreshWindow();
+		b.getBean(ReminderEngine.class).refreshWindow();
+
+		// written on a, within the window b has loaded already
+		int deleted = ofB.get(0);
+		int moved = ofB.get(1);
+		int gone = ofB.get(2);
+		reminderService.deleteReminder(deleted, null);
+		reminderService.updateReminder(new Reminder(moved, due.plusSeconds(20), null));
+		int added = addOwnedBy(b, reminderService, due);
+
+		advance(refreshInterval, a, b);
+		a.getBean(ReminderEngine.class).refreshWindow();
+		b.getBean(ReminderEngine.class).refreshWindow();
+		// deleted after b's last refresh, b only learns it when the reminder is due
+		reminderService.deleteReminder(gone, null);
+
+		advance(Duration.ofSeconds(10), a, b);
+		a.getBean(ReminderEngine.class).tick();
+		b.getBean(ReminderEngine.class).tick();
+		awaitFired(18);
+
+		advance(Duration.ofSeconds(20), a, b);
+		a.getBean(ReminderEngine.class).tick();
+		b.getBean(ReminderEngine.class).tick();
+		awaitFired(19);
+
+		Set<Integer> ids = new HashSet<>();
+		for (String event : fired) {
+			String[] parts = event.split(":");
+			assertTrue(ids.add(Integer.valueOf(parts[1])), "fired twice: " + event);
+		}
+		assertEquals(19, ids.size());
+		assertFalse(ids.contains(deleted));
+		assertFalse(ids.contains(gone));
+		assertTrue(fired.contains("b:" + moved));
+		assertTrue(fired.contains("b:" + added));
+		assertEquals("b:" + moved, fired.get(fired.size() - 1));
+
+	}
+
+	/*
+	 * Move the clock on, the nodes keeping their leases
+	 */
+	private void advance(Duration duration, ConfigurableApplicationContext a, ConfigurableApplicationContext b) {
+		clock.advance(duration);
+		leases(a).heartbeat();
+		leases(b).heartbeat();
+	}
+
+	/*
+	 * Add reminders through the service until one falls in a bucket of the node
+	 */
+	private int addOwnedBy(ConfigurableApplicationContext node, ReminderService reminderService, LocalDateTime due)
+			throws Exception {
+		while (true) {
+			int reminderId = reminderService.addReminder(new Reminder(0, due, null)).getReminderId();
+			if (leases(node).owns(reminderId)) {
+				return reminderId;
+			}
+			reminderService.deleteReminder(reminderId, null);
+		}
+	}
+
+	private ConfigurableApplicationContext start(String nodeId) {
+		ReminderNotifier notifier = reminder -> fired.add(nodeId + ":" + reminder.getReminderId());
+		ConfigurableApplicationContext node = new SpringApplicationBuilder(NewzApplication.class)
+				.web(WebApplicationType.NONE).profiles("test").initializers(context -> {
+					context.getBeanFactory().registerSingleton("clock", clock);
+					context.getBeanFactory().registerSingleton("reminderNotifier", notifier);
+					context.getBeanFactory().registerSingleton("testTypeExcludeFilter", new TestClassesFilter());
+				}).run("--spring.datasource.url=" + url, "--spring.jpa.hibernate.ddl-auto=update",
+						"--spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+						"--spring.jpa.properties.hibernate.cache.use_query_cache=false", "--spring.jmx.enabled=false",
+						"--logging.level.root=INFO", "--newz.reminder.engine.node-id=" + nodeId,
+						"--newz.reminder.engine.buckets=" + BUCKETS, "--newz.reminder.engine.lease-duration=30s");
+		nodes.add(node);
+		return node;
+	}
+
+	/*
+	 * Delivery is asynchronous, wait for the workers of both nodes
+	 */
+	private void awaitFired(int count) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10000;
+		while (fired.size() < count && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+	}
+
+	private void awaitDelivered(ReminderRepository reminderRepository, int count) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10000;
+		while (delivered(reminderRepository) < count && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(count, delivered(reminderRepository));
+	}
+
+	private long delivered(ReminderRepository reminderRepository) {
+		return reminderRepository.findAll().stream().filter(reminder -> reminder.getDeliveredAt() != null).count();
+	}
+
+	/*
+	 * Heartbeats until the buckets are split evenly
+	 */
+	private void balance(ConfigurableApplicationContext a, ConfigurableApplicationContext b) {
+		leases(a).heartbeat();
+		leases(b).heartbeat();
+		leases(a).heartbeat();
+		leases(b).heartbeat();
+		assertEquals(BUCKETS / 2, leases(a).getOwnedBuckets().size());
+		assertEquals(BUCKETS / 2, leases(b).getOwnedBuckets().size());
+	}
+
+	private void assertExactlyOneOwner(ConfigurableApplicationContext a, ConfigurableApplicationContext b) {
+		for (int reminderId = 1; reminderId <= 100; reminderId++) {
+			assertTrue(leases(a).owns(reminderId) ^ leases(b).owns(reminderId), "reminder " + reminderId);
+		}
+	}
+
+	private ReminderLeaseManager leases(ConfigurableApplicationContext node) {
+		return node.getBean(ReminderLeaseManager.class);
+	}
+
+	/*
+	 * Keeps the component scan away from the configurations of the other tests,
+	 * as @SpringBootTest does
+	 */
+	static class TestClassesFilter extends TypeExcludeFilter {
+
+		@Override
+		public boolean match(MetadataReader metadataReader, MetadataReaderFactory metadataReaderFactory) {
+			return metadataReader.getClassMetadata().getClassName().startsWith("com.stackroute.newz.test.");
+		}
+
+	}
+
+}
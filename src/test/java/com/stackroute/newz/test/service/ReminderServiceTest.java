@@ -1,15 +1,21 @@
 package com.stackroute.newz.test.service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import org.junit.jupiter.api.AfterEach;
@@ -20,15 +26,26 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.test.annotation.Rollback;
 
+import com.stackroute.newz.config.CacheConfig;
 import com.stackroute.newz.model.Reminder;
+import com.stackroute.newz.model.ReminderPage;
 import com.stackroute.newz.repository.ReminderRepository;
+import com.stackroute.newz.service.ReminderEngine;
 import com.stackroute.newz.service.ReminderServiceImpl;
+import com.stackroute.newz.util.NegativeCache;
+import com.stackroute.newz.util.ReminderCursor;
+import com.stackroute.newz.util.exception.InvalidCursorException;
 import com.stackroute.newz.util.exception.ReminderNotExistsException;
+import com.stackroute.newz.util.exception.VersionMismatchException;
 
 class ReminderServiceTest {
 
 	@Mock
 	private ReminderRepository reminderRepository;
+	@Mock
+	private NegativeCache negativeCache;
+	@Mock
+	private ReminderEngine reminderEngine;
 	@InjectMocks
 	private ReminderServiceImpl reminderService;
 
@@ -64,6 +81,7 @@ class ReminderServiceTest {
 		assertEquals(reminder, reminderService.addReminder(reminder));
 
 		verify(reminderRepository, times(1)).save(any());
+		verify(reminderEngine, times(1)).schedule(reminder);
 
 	}
 
@@ -105,15 +123,20 @@ class ReminderServiceTest {
 
 	@Test
 	@Rollback(true)
-	public void testUpdateReminderSuccess() throws ReminderNotExistsException {
+	public void testUpdateReminderSuccess() throws ReminderNotExistsException, VersionMismatchException {
 
-		when(reminderRepository.getOne(any())).thenReturn(reminder);
-		when(reminderRepository.saveAndFlush(any())).thenReturn(reminder);
+		// the row read back has what the body has not, and is what gets rescheduled
+		Reminder stored = new Reminder(reminder.getReminderId(), reminder.getSchedule(), null);
+		stored.setDeliveredAt(reminder.getSchedule());
+		stored.setVersion(1L);
+		when(reminderRepository.updateReminder(any())).thenReturn(1);
+		when(reminderRepository.findById(reminder.getReminderId())).thenReturn(Optional.of(stored));
 
-		assertEquals(reminder, reminderService.updateReminder(reminder));
+		assertEquals(stored, reminderService.updateReminder(reminder));
 
-		verify(reminderRepository, times(1)).getOne(any());
-		verify(reminderRepository, times(1)).saveAndFlush(any());
+		verify(reminderRepository, times(0)).getOne(any());
+		verify(reminderRepository, times(1)).updateReminder(reminder);
+		verify(reminderEngine, times(1)).schedule(stored);
 
 	}
 
@@ -121,24 +144,54 @@ class ReminderServiceTest {
 	@Rollback(true)
 	public void testUpdateReminderFailure() {
 
-		when(reminderRepository.getOne(any())).thenReturn(null);
+		when(reminderRepository.updateReminder(any())).thenReturn(0);
 
 		assertThrows(ReminderNotExistsException.class, () -> reminderService.updateReminder(reminder));
 
-		verify(reminderRepository, times(1)).getOne(any());
-		verify(reminderRepository, times(0)).saveAndFlush(any());
+		verify(reminderRepository, times(1)).updateReminder(reminder);
+		verify(reminderEngine, times(0)).schedule(any());
+
+	}
+
+	@Test
+	@Rollback(true)
+	public void testPatchReminderReschedules() throws ReminderNotExistsException, VersionMismatchException {
+
+		Map<String, Object> changes = Collections.singletonMap("schedule", reminder.getSchedule());
+		when(reminderRepository.patchReminder(reminder.getReminderId(), changes, null)).thenReturn(1);
+		when(reminderRepository.findById(reminder.getReminderId())).thenReturn(Optional.of(reminder));
+
+		assertEquals(reminder, reminderService.patchReminder(reminder.getReminderId(), changes, null));
+
+		verify(reminderRepository, times(0)).updateReminder(any());
+		verify(reminderEngine, times(1)).schedule(reminder);
+
+	}
+
+	@Test
+	@Rollback(true)
+	public void testPatchReminderFailure() {
+
+		Map<String, Object> changes = Collections.singletonMap("schedule", reminder.getSchedule());
+		when(reminderRepository.patchReminder(reminder.getReminderId(), changes, null)).thenReturn(0);
+
+		assertThrows(ReminderNotExistsException.class,
+				() -> reminderService.patchReminder(reminder.getReminderId(), changes, null));
+
+		verify(reminderEngine, times(0)).schedule(any());
 
 	}
 
 	@Test
 	@Rollback(true)
-	public void testDeleteReminderSuccess() throws ReminderNotExistsException {
+	public void testDeleteReminderSuccess() throws ReminderNotExistsException, VersionMismatchException {
 
-		when(reminderRepository.getOne(any())).thenReturn(reminder);
-		reminderService.deleteReminder(reminder.getReminderId());
+		when(reminderRepository.deleteByReminderId(reminder.getReminderId(), null)).thenReturn(1);
+		reminderService.deleteReminder(reminder.getReminderId(), null);
 
-		verify(reminderRepository, times(1)).getOne(any());
-		verify(reminderRepository, times(1)).deleteById(any());
+		verify(reminderRepository, times(0)).getOne(any());
+		verify(reminderRepository, times(1)).deleteByReminderId(reminder.getReminderId(), null);
+		verify(reminderEngine, times(1)).cancel(reminder.getReminderId());
 
 	}
 
@@ -146,12 +199,77 @@ class ReminderServiceTest {
 	@Rollback(true)
 	public void testDeleteReminderFailure() {
 
-		when(reminderRepository.getOne(any())).thenReturn(null);
+		when(reminderRepository.deleteByReminderId(reminder.getReminderId(), null)).thenReturn(0);
+
+		assertThrows(ReminderNotExistsException.class, () -> reminderService.deleteReminder(reminder.getReminderId(), null));
+
+		verify(reminderRepository, times(1)).deleteByReminderId(reminder.getReminderId(), null);
+		verify(reminderEngine, times(0)).cancel(reminder.getReminderId());
+
+	}
+
+	@Test
+	public void testGetReminderKnownMissing() {
+
+		when(negativeCache.isMissing(CacheConfig.REMINDER, reminder.getReminderId())).thenReturn(true);
+
+		assertThrows(ReminderNotExistsException.class, () -> reminderService.getReminder(reminder.getReminderId()));
+
+		verify(reminderRepository, times(0)).findById(any());
+
+	}
+
+	@Test
+	public void testGetReminderFailureIsRemembered() {
+
+		when(reminderRepository.findById(any())).thenReturn(Optional.empty());
+
+		assertThrows(ReminderNotExistsException.class, () -> reminderService.getReminder(reminder.getReminderId()));
+
+		verify(negativeCache, times(1)).markMissing(CacheConfig.REMINDER, reminder.getReminderId());
+
+	}
+
+	@Test
+	public void testGetDueRemindersFirstPage() throws InvalidCursorException {
+
+		reminderList.add(reminder);
+		LocalDateTime before = LocalDateTime.now().plusDays(1);
+		when(reminderRepository.findDue(any(), eq(before), any())).thenReturn(reminderList);
+
+		ReminderPage page = reminderService.getDueReminders(LocalDateTime.now().minusDays(1), before, null, 2);
+
+		assertEquals(2, page.getReminders().size());
+		assertNotNull(page.getNextCursor());
+		assertEquals(3, ReminderCursor.decode(page.getNextCursor()).getReminderId());
+		verify(reminderRepository, times(1)).findDue(any(), any(), any());
+		verify(reminderRepository, times(0)).findAll();
+
+	}
+
+	@Test
+	public void testGetDueRemindersLastPage() throws InvalidCursorException {
+
+		String cursor = ReminderCursor.after(reminder).encode();
+		LocalDateTime before = LocalDateTime.now().plusDays(1);
+		when(reminderRepository.findDueFrom(eq(reminder.getSchedule()), eq(reminder.getReminderId()), eq(before), any()))
+				.thenReturn(reminderList);
+
+		ReminderPage page = reminderService.getDueReminders(LocalDateTime.now().minusDays(1), before, cursor, 5);
+
+		assertEquals(reminderList, page.getReminders());
+		assertNull(page.getNextCursor());
+		verify(reminderRepository, times(0)).findDue(any(), any(), any());
+
+	}
+
+	@Test
+	public void testGetDueRemindersInvalidCursor() {
 
-		assertThrows(ReminderNotExistsException.class, () -> reminderService.deleteReminder(reminder.getReminderId()));
+		assertThrows(InvalidCursorException.class, () -> reminderService.getDueReminders(LocalDateTime.now(),
+				LocalDateTime.now().plusDays(1), "not-a-cursor", 5));
 
-		verify(reminderRepository, times(1)).getOne(any());
-		verify(reminderRepository, times(0)).deleteById(any());
+		verify(reminderRepository, times(0)).findDueFrom(any(), anyInt(), any(), any());
 
 	}
 
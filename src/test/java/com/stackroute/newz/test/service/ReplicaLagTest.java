@@ -0,0 +1,122 @@
+package com.stackroute.newz.test.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDateTime;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.stackroute.newz.config.ReadWriteRoutingDataSource;
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.UserProfile;
+import com.stackroute.newz.service.NewsService;
+import com.stackroute.newz.service.UserProfileService;
+import com.stackroute.newz.util.NegativeCache;
+
+/*
+ * A replica that lags behind: it holds the rows as they were before the test
+ * wrote to the primary, until the test has it catch up. The request that wrote
+ * reads its own writes from the primary. Other requests may read the old rows
+ * from the replica, but no cache keeps them once the replica has caught up.
+ */
+@SpringBootTest(properties = {
+		"spring.datasource.url=" + ReplicaLagTest.PRIMARY_URL,
+		"newz.datasource.replica.jdbc-url=" + ReplicaLagTest.REPLICA_URL,
+		"newz.datasource.replica.username=sa" })
+@ActiveProfiles("test")
+class ReplicaLagTest {
+
+	static final String PRIMARY_URL = "jdbc:h2:mem:lagging-primary;DB_CLOSE_DELAY=-1";
+	static final String REPLICA_URL = "jdbc:h2:mem:lagging-replica;DB_CLOSE_DELAY=-1";
+
+	@Autowired
+	private NewsService newsService;
+	@Autowired
+	private UserProfileService userProfileService;
+	@Autowired
+	private NegativeCache negativeCache;
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private JdbcTemplate primary;
+	private JdbcTemplate replica;
+
+	@BeforeEach
+	public void setUp() {
+		primary = new JdbcTemplate(new DriverManagerDataSource(PRIMARY_URL, "sa", ""));
+		replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+		primary.update("delete from news");
+		primary.update("delete from user_profile");
+		primary.update("insert into news (news_id, title, author, version) values (1000, 'old', 'johnsmith', 0)");
+		primary.update("insert into user_profile (user_id, first_name, version) values ('johnsmith', 'Old', 0)");
+
+		// the replica starts as a copy of the primary
+		replica.execute("drop all objects");
+		for (String statement : primary.queryForList("script", String.class)) {
+			if (!statement.startsWith("--")) {
+				replica.execute(statement);
+			}
+		}
+		negativeCache.clear();
+		ReadWriteRoutingDataSource.release();
+	}
+
+	@AfterEach
+	public void tearDown() {
+		ReadWriteRoutingDataSource.release();
+	}
+
+	@Test
+	public void testWritingRequestReadsFromPrimary() throws Exception {
+
+		News update = new News(1000, "new", "johnsmith", null, LocalDateTime.now(), null, null, null, null, null);
+		newsService.updateNews(update);
+
+		assertEquals("new", newsService.getNews(1000).getTitle());
+
+	}
+
+	@Test
+	public void testNewsReadFromLaggingReplicaIsNotCached() throws Exception {
+
+		News update = new News(1000, "new", "johnsmith", null, LocalDateTime.now(), null, null, null, null, null);
+		newsService.updateNews(update);
+		// next request
+		ReadWriteRoutingDataSource.release();
+		assertEquals("old", newsService.getNews(1000).getTitle());
+
+		replica.update("update news set title = 'new' where news_id = 1000");
+
+		assertEquals("new", newsService.getNews(1000).getTitle());
+
+	}
+
+	@Test
+	public void testUserProfileReadFromLaggingReplicaIsNotCached() throws Exception {
+
+		UserProfile update = new UserProfile("johnsmith", "New", null, null, null, null);
+		userProfileService.updateUserProfile(update, "johnsmith");
+		ReadWriteRoutingDataSource.release();
+		// the profile read back by the update has expired from the second-level cache
+		entityManagerFactory.getCache().evictAll();
+		assertEquals("Old", userProfileService.getUserProfile("johnsmith").getFirstName());
+		assertEquals("Old", userProfileService.getAllUserProfiles().get(0).getFirstName());
+
+		replica.update("update user_profile set first_name = 'New' where user_id = 'johnsmith'");
+
+		// neither the service cache, the second-level cache nor the query cache held on to it
+		assertEquals("New", userProfileService.getUserProfile("johnsmith").getFirstName());
+		assertEquals("New", userProfileService.getAllUserProfiles().get(0).getFirstName());
+
+	}
+
+}
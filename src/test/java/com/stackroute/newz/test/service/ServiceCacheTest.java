@@ -0,0 +1,257 @@
+package com.stackroute.newz.test.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.support.NoOpCache;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestExecutionListeners;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.test.context.support.DependencyInjectionTestExecutionListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.stackroute.newz.config.CacheConfig;
+import com.stackroute.newz.config.ReminderEngineConfig;
+import com.stackroute.newz.model.News;
+import com.stackroute.newz.model.Reminder;
+import com.stackroute.newz.model.UserProfile;
+import com.stackroute.newz.repository.NewsRepository;
+import com.stackroute.newz.repository.ReminderRepository;
+import com.stackroute.newz.repository.UserProfileRepository;
+import com.stackroute.newz.service.LatestNews;
+import com.stackroute.newz.service.NewsSearch;
+import com.stackroute.newz.service.NewsService;
+import com.stackroute.newz.service.NewsServiceImpl;
+import com.stackroute.newz.service.NewsWriteBehind;
+import com.stackroute.newz.service.ReminderDelivery;
+import com.stackroute.newz.service.ReminderEngine;
+import com.stackroute.newz.service.ReminderOwnership;
+import com.stackroute.newz.service.ReminderService;
+import com.stackroute.newz.service.ReminderServiceImpl;
+import com.stackroute.newz.service.UserProfileService;
+import com.stackroute.newz.service.UserProfileServiceImpl;
+import com.stackroute.newz.util.NegativeCache;
+import com.stackroute.newz.util.exception.NewsNotExistsException;
+import com.stackroute.newz.util.exception.ReminderNotExistsException;
+import com.stackroute.newz.util.exception.UserProfileNotExistsException;
+import com.stackroute.newz.util.exception.VersionMismatchException;
+
+/*
+ * Only dependency injection is needed here. The default listeners include Spring
+ * Boot's mock reset listener, which does not work with the Mockito 1 API the
+ * other tests are written against.
+ */
+@SpringJUnitConfig(ServiceCacheTest.Config.class)
+@TestExecutionListeners(DependencyInjectionTestExecutionListener.class)
+@TestPropertySource(properties = { "newz.cache.regions.news.maximum-size=100",
+		"newz.cache.regions.userProfile.enabled=false" })
+class ServiceCacheTest {
+
+	@Configuration
+	@Import({ CacheConfig.class, ReminderEngineConfig.class, NewsServiceImpl.class, ReminderServiceImpl.class,
+			UserProfileServiceImpl.class, ReminderEngine.class })
+	static class Config {
+
+		@Bean
+		public NewsRepository newsRepository() {
+			return mock(NewsRepository.class);
+		}
+
+		@Bean
+		public ReminderRepository reminderRepository() {
+			return mock(ReminderRepository.class);
+		}
+
+		@Bean
+		public UserProfileRepository userProfileRepository() {
+			return mock(UserProfileRepository.class);
+		}
+
+		@Bean
+		public EntityManagerFactory entityManagerFactory() {
+			return mock(EntityManagerFactory.class);
+		}
+
+		@Bean
+		public TransactionTemplate transactionTemplate() {
+			return mock(TransactionTemplate.class);
+		}
+
+		@Bean
+		public ReminderOwnership reminderOwnership() {
+			return mock(ReminderOwnership.class);
+		}
+
+		@Bean
+		public ReminderDelivery reminderDelivery() {
+			return mock(ReminderDelivery.class);
+		}
+
+		@Bean
+		public NewsWriteBehind newsWriteBehind() {
+			return mock(NewsWriteBehind.class);
+		}
+
+		@Bean
+		public LatestNews latestNews() {
+			return mock(LatestNews.class);
+		}
+
+		@Bean
+		public NewsSearch newsSearch() {
+			return mock(NewsSearch.class);
+		}
+
+	}
+
+	@Autowired
+	private NewsService newsService;
+	@Autowired
+	private ReminderService reminderService;
+	@Autowired
+	private UserProfileService userProfileService;
+	@Autowired
+	private NewsRepository newsRepository;
+	@Autowired
+	private ReminderRepository reminderRepository;
+	@Autowired
+	private UserProfileRepository userProfileRepository;
+	@Autowired
+	private CacheManager cacheManager;
+	@Autowired
+	private NegativeCache negativeCache;
+
+	private News news;
+
+	@BeforeEach
+	public void setUp() {
+		cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+		negativeCache.clear();
+		reset(newsRepository, reminderRepository, userProfileRepository);
+		news = new News(1, "sample title", "johnsmith", "sample description", LocalDateTime.now(), "sample content",
+				null, null, null, null);
+	}
+
+	@Test
+	public void testGetNewsIsCached() throws NewsNotExistsException {
+
+		when(newsRepository.findById(1)).thenReturn(Optional.of(news));
+
+		assertEquals(news, newsService.getNews(1));
+		assertEquals(news, newsService.getNews(1));
+
+		verify(newsRepository, times(1)).findById(any());
+
+	}
+
+	@Test
+	public void testMissingNewsIsNotCached() {
+
+		when(newsRepository.findById(2)).thenReturn(Optional.empty());
+
+		assertThrows(NewsNotExistsException.class, () -> newsService.getNews(2));
+
+		assertNull(cacheManager.getCache(CacheConfig.NEWS).get(2));
+
+	}
+
+	@Test
+	public void testUpdateNewsEvicts() throws NewsNotExistsException, VersionMismatchException {
+
+		when(newsRepository.findById(1)).thenReturn(Optional.of(news));
+		when(newsRepository.updateNews(news)).thenReturn(1);
+
+		newsService.getNews(1);
+		newsService.updateNews(news);
+		newsService.getNews(1);
+
+		// the update reads the news back, the second getNews misses the cache
+		verify(newsRepository, times(3)).findById(any());
+
+	}
+
+	@Test
+	public void testDeleteReminderEvicts() throws ReminderNotExistsException, VersionMismatchException {
+
+		Reminder reminder = new Reminder(1, LocalDateTime.now(), null);
+		when(reminderRepository.findById(1)).thenReturn(Optional.of(reminder));
+		when(reminderRepository.deleteByReminderId(1, null)).thenReturn(1);
+
+		reminderService.getReminder(1);
+		reminderService.getReminder(1);
+		reminderService.deleteReminder(1, null);
+		reminderService.getReminder(1);
+
+		verify(reminderRepository, times(2)).findById(any());
+
+	}
+
+	@Test
+	public void testDisabledRegionAlwaysLoads() throws UserProfileNotExistsException {
+
+		UserProfile userProfile = new UserProfile("johnsmith", "John", "Smith", "1234567890", LocalDateTime.now(),
+				null);
+		when(userProfileRepository.findById("johnsmith")).thenReturn(Optional.of(userProfile));
+
+		userProfileService.getUserProfile("johnsmith");
+		userProfileService.getUserProfile("johnsmith");
+
+		assertTrue(cacheManager.getCache(CacheConfig.USER_PROFILE) instanceof NoOpCache);
+		verify(userProfileRepository, times(2)).findById(any());
+
+	}
+
+	@Test
+	public void testMissingNewsIsRememberedUntilAdded() throws Exception {
+
+		when(newsRepository.findById(5)).thenReturn(Optional.empty());
+
+		assertThrows(NewsNotExistsException.class, () -> newsService.getNews(5));
+		assertThrows(NewsNotExistsException.class, () -> newsService.getNews(5));
+		verify(newsRepository, times(1)).findById(any());
+
+		News created = new News(5, "sample title", "johnsmith", "sample description", LocalDateTime.now(),
+				"sample content", null, null, null, null);
+		when(newsRepository.save(any())).thenReturn(created);
+		when(newsRepository.findById(5)).thenReturn(Optional.of(created));
+		newsService.addNews(new News(0, "sample title", "johnsmith", "sample description", LocalDateTime.now(),
+				"sample content", null, null, null, null));
+
+		assertEquals(created, newsService.getNews(5));
+		verify(newsRepository, times(2)).findById(any());
+
+	}
+
+	@Test
+	public void testMissingUserProfileIsRememberedOnlyWhenRegionEnabled() {
+
+		when(userProfileRepository.findById("nobody")).thenReturn(Optional.empty());
+
+		assertThrows(UserProfileNotExistsException.class, () -> userProfileService.getUserProfile("nobody"));
+		assertThrows(UserProfileNotExistsException.class, () -> userProfileService.getUserProfile("nobody"));
+
+		verify(userProfileRepository, times(2)).findById(any());
+
+	}
+
+}
@@ -2,15 +2,26 @@ package com.stackroute.newz.test.service;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -18,18 +29,28 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.test.annotation.Rollback;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import com.stackroute.newz.config.CacheConfig;
 import com.stackroute.newz.model.UserProfile;
 import com.stackroute.newz.repository.UserProfileRepository;
 import com.stackroute.newz.service.UserProfileServiceImpl;
+import com.stackroute.newz.util.NegativeCache;
+import com.stackroute.newz.util.SingleFlight;
 import com.stackroute.newz.util.exception.UserProfileAlreadyExistsException;
 import com.stackroute.newz.util.exception.UserProfileNotExistsException;
+import com.stackroute.newz.util.exception.VersionMismatchException;
 
 class UserProfileServiceTest {
 
 	@Mock
 	private UserProfileRepository userProfileRepository;
+	@Mock
+	private NegativeCache negativeCache;
 	@InjectMocks
 	private UserProfileServiceImpl userProfileService;
 
@@ -60,10 +81,26 @@ class UserProfileServiceTest {
 	@Rollback(true)
 	public void testRegisterUserSuccess() throws UserProfileNotExistsException, UserProfileAlreadyExistsException {
 
-		when(userProfileRepository.findById(any())).thenReturn(Optional.empty());
-		when(userProfileRepository.save(any())).thenReturn(userProfile);
+		when(userProfileRepository.insertIfAbsent(any())).thenReturn(true);
 		userProfileService.registerUser(userProfile);
 		assertEquals(userProfile, userProfileService.registerUser(userProfile));
+		verify(userProfileRepository,times(0)).findById(any());
+
+	}
+
+	@Test
+	public void testRegisterUserForgetsMissingUserAfterCommit() throws UserProfileAlreadyExistsException {
+
+		when(userProfileRepository.insertIfAbsent(any())).thenReturn(true);
+		TransactionSynchronizationManager.initSynchronization();
+		try {
+			userProfileService.registerUser(userProfile);
+			verify(negativeCache, never()).forget(CacheConfig.USER_PROFILE, userProfile.getUserId());
+			TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+		} finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+		verify(negativeCache, times(1)).forget(CacheConfig.USER_PROFILE, userProfile.getUserId());
 
 	}
 
@@ -71,19 +108,56 @@ class UserProfileServiceTest {
 	@Rollback(true)
 	public void testRegisterUserFailure() throws UserProfileNotExistsException, UserProfileAlreadyExistsException {
 
-		when(userProfileRepository.findById(any())).thenReturn(Optional.of(userProfile));
+		when(userProfileRepository.insertIfAbsent(any())).thenReturn(false);
 		assertThrows(UserProfileAlreadyExistsException.class, 
 				() -> userProfileService.registerUser(userProfile));
 
 	}
+
+	@Test
+	@Rollback(true)
+	public void testRegisterUserLosingRace() {
+
+		when(userProfileRepository.insertIfAbsent(any())).thenThrow(
+				new DataIntegrityViolationException("primary key", new SQLException("duplicate key", "23505")));
+		assertThrows(UserProfileAlreadyExistsException.class, 
+				() -> userProfileService.registerUser(userProfile));
+
+	}
+
+	@Test
+	public void testRegisterUserLosingRaceOnMySql() {
+
+		when(userProfileRepository.insertIfAbsent(any())).thenThrow(
+				new DataIntegrityViolationException("primary key", new SQLException("Duplicate entry", "23000", 1062)));
+		assertThrows(UserProfileAlreadyExistsException.class,
+				() -> userProfileService.registerUser(userProfile));
+
+	}
+
+	@Test
+	public void testRegisterUserOtherViolationIsNotAConflict() {
+
+		DataIntegrityViolationException tooLong = new DataIntegrityViolationException("value too long",
+				new SQLException("Value too long for column", "22001"));
+		when(userProfileRepository.insertIfAbsent(any())).thenThrow(tooLong);
+		assertEquals(tooLong, assertThrows(DataIntegrityViolationException.class,
+				() -> userProfileService.registerUser(userProfile)));
+
+	}
 	
 	@Test
 	@Rollback(true)
-	public void testUpdateUserSuccess() throws UserProfileNotExistsException {
+	public void testUpdateUserSuccess() throws UserProfileNotExistsException, VersionMismatchException {
 
-		when(userProfileRepository.getOne(any())).thenReturn(userProfile);
-		when(userProfileRepository.saveAndFlush(any())).thenReturn(userProfile);
-		assertEquals(userProfile, userProfileService.updateUserProfile(userProfile, userProfile.getUserId()));
+		UserProfile stored = new UserProfile(userProfile.getUserId(), userProfile.getFirstName(),
+				userProfile.getLastName(), userProfile.getContact(), userProfile.getCreateAt(), null);
+		stored.setVersion(4L);
+		when(userProfileRepository.updateUserProfile(userProfile, userProfile.getUserId())).thenReturn(1);
+		when(userProfileRepository.findById(userProfile.getUserId())).thenReturn(Optional.of(stored));
+		// the profile as written, with the version the update gave it
+		assertEquals(stored, userProfileService.updateUserProfile(userProfile, userProfile.getUserId()));
+		verify(userProfileRepository,times(0)).getOne(any());
 
 	}
 	
@@ -91,7 +165,7 @@ class UserProfileServiceTest {
 	@Rollback(true)
 	public void testUpdateUserFailure() throws UserProfileNotExistsException {
 
-		when(userProfileRepository.getOne(any())).thenReturn(null);
+		when(userProfileRepository.updateUserProfile(userProfile, "abc")).thenReturn(0);
 		assertThrows(UserProfileNotExistsException.class, 
 				() -> userProfileService.updateUserProfile(userProfile,"abc"));
 		
@@ -99,21 +173,46 @@ class UserProfileServiceTest {
 	
 	@Test
 	@Rollback(true)
-	public void testDeleteUserSuccess() throws UserProfileNotExistsException {
+	public void testPatchUserSuccess() throws UserProfileNotExistsException, VersionMismatchException {
 
-		when(userProfileRepository.getOne(any())).thenReturn(userProfile);
-		userProfileService.deleteUserProfile(userProfile.getUserId());
-		verify(userProfileRepository,times(1)).deleteById(any());
+		Map<String, Object> changes = Collections.singletonMap("contact", "9876543210");
+		when(userProfileRepository.patchUserProfile(userProfile.getUserId(), changes, null)).thenReturn(1);
+		when(userProfileRepository.findById(userProfile.getUserId())).thenReturn(Optional.of(userProfile));
+		assertEquals(userProfile, userProfileService.patchUserProfile(userProfile.getUserId(), changes, null));
+		verify(userProfileRepository,times(1)).patchUserProfile(userProfile.getUserId(), changes, null);
+		
 	}
 	
 	@Test
 	@Rollback(true)
-	public void testDeleteUserFailure() throws UserProfileNotExistsException {
+	public void testPatchUserFailure() throws UserProfileNotExistsException {
 
-		when(userProfileRepository.getOne(any())).thenReturn(null);
+		Map<String, Object> changes = Collections.singletonMap("contact", "9876543210");
+		when(userProfileRepository.patchUserProfile("abc", changes, null)).thenReturn(0);
 		assertThrows(UserProfileNotExistsException.class, 
-				() -> userProfileService.deleteUserProfile(userProfile.getUserId()));
+				() -> userProfileService.patchUserProfile("abc", changes, null));
+		verify(userProfileRepository,times(0)).findById(any());
+		
+	}
+	
+	@Test
+	@Rollback(true)
+	public void testDeleteUserSuccess() throws UserProfileNotExistsException, VersionMismatchException {
+
+		when(userProfileRepository.deleteByUserId(userProfile.getUserId(), null)).thenReturn(1);
+		userProfileService.deleteUserProfile(userProfile.getUserId(), null);
+		verify(userProfileRepository,times(1)).deleteByUserId(userProfile.getUserId(), null);
 		verify(userProfileRepository,times(0)).deleteById(any());
+	}
+	
+	@Test
+	@Rollback(true)
+	public void testDeleteUserFailure() throws UserProfileNotExistsException {
+
+		when(userProfileRepository.deleteByUserId(userProfile.getUserId(), null)).thenReturn(0);
+		assertThrows(UserProfileNotExistsException.class, 
+				() -> userProfileService.deleteUserProfile(userProfile.getUserId(), null));
+		verify(userProfileRepository,times(1)).deleteByUserId(userProfile.getUserId(), null);
 		
 	}
 	
@@ -149,4 +248,36 @@ class UserProfileServiceTest {
 	}
 	
 
+	@Test
+	public void testGetUserCoalescesConcurrentLoads() throws Exception {
+
+		int callers = 16;
+		CountDownLatch release = new CountDownLatch(1);
+		when(userProfileRepository.findById(any())).thenAnswer(invocation -> {
+			release.await();
+			return Optional.empty();
+		});
+
+		ExecutorService pool = Executors.newFixedThreadPool(callers);
+		List<Future<UserProfile>> results = new ArrayList<>();
+		for (int i = 0; i < callers; i++) {
+			results.add(pool.submit(() -> userProfileService.getUserProfile("johnsmith")));
+		}
+		SingleFlight<?, ?> userProfileLoads = (SingleFlight<?, ?>) ReflectionTestUtils.getField(userProfileService,
+				"userProfileLoads");
+		long deadline = System.currentTimeMillis() + 5000;
+		while (userProfileLoads.getCoalescedCount() < callers - 1 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(1);
+		}
+		release.countDown();
+
+		for (Future<UserProfile> result : results) {
+			ExecutionException failure = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+			assertTrue(failure.getCause() instanceof UserProfileNotExistsException);
+		}
+		pool.shutdown();
+		verify(userProfileRepository, times(1)).findById(any());
+
+	}
+
 }